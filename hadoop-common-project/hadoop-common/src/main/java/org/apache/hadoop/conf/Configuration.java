@@ -41,6 +41,7 @@
 import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
@@ -65,8 +66,10 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.zip.CRC32;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -320,6 +323,32 @@ private static boolean getRestrictParserDefault(Object resource) {
   private static final WeakHashMap<Configuration,Object> REGISTRY = 
     new WeakHashMap<Configuration,Object>();
 
+  /**
+   * The resolved values of a snapshot, keyed by the names they were looked
+   * up with; null unless this configuration is a snapshot.
+   * @see #snapshot()
+   */
+  private volatile ConcurrentHashMap<String, String> snapshotValues;
+
+  /** Marks the names without value in the snapshot values */
+  private static final String NO_VALUE = new String("");
+
+  /**
+   * The most names without value a snapshot remembers once taken, so that
+   * looking up arbitrary names doesn't grow it without bound.
+   */
+  private static final int MAX_SNAPSHOT_MISSES = 1024;
+
+  /** The names without value remembered by this snapshot */
+  private final AtomicInteger snapshotMisses = new AtomicInteger();
+
+  /**
+   * The properties parsed from the classpath resources, shared by all the
+   * instances so that each resource is parsed once per JVM.
+   */
+  private static final ConcurrentHashMap<String, ParsedResource>
+      PARSED_RESOURCES = new ConcurrentHashMap<String, ParsedResource>();
+
   /**
    * Map to hold properties by there tag groupings.
    */
@@ -681,6 +710,7 @@ private static DeprecatedKeyInfo getDeprecatedKeyInfo(String key) {
    * need to be present.
    */
   public void setDeprecatedProperties() {
+    checkNotSnapshot();
     DeprecationContext deprecations = deprecationContext.get();
     Properties props = getProps();
     Properties overlay = getOverlay();
@@ -848,6 +878,50 @@ public Configuration(Configuration other) {
     setQuietMode(other.getQuietMode());
   }
 
+  /**
+   * Get an immutable copy of this configuration for the code reading it
+   * often. The values are resolved once: variables are expanded and
+   * deprecated names mapped when the snapshot is taken, or on the first
+   * lookup of a name, so that the lookups don't take any lock. Changes to
+   * the system properties, the environment or the deprecations after that
+   * aren't reflected. Methods changing the snapshot throw
+   * {@link UnsupportedOperationException}; a configuration copied from the
+   * snapshot is mutable again.
+   *
+   * @return the snapshot, a plain Configuration even for subclasses
+   */
+  public Configuration snapshot() {
+    Configuration snapshot = new Configuration(this);
+    ConcurrentHashMap<String, String> values =
+        new ConcurrentHashMap<String, String>();
+    for (String name : snapshot.getProps().stringPropertyNames()) {
+      // Deprecated names are resolved when used, to log their warning then
+      if (isDeprecated(name)) {
+        continue;
+      }
+      try {
+        String value = snapshot.get(name);
+        values.put(name, value == null ? NO_VALUE : value);
+      } catch (IllegalStateException e) {
+        // Keep the failing substitution for when the value is read
+      }
+    }
+    snapshot.snapshotValues = values;
+    return snapshot;
+  }
+
+  /** @return true if this configuration is an immutable snapshot */
+  public boolean isSnapshot() {
+    return snapshotValues != null;
+  }
+
+  private void checkNotSnapshot() {
+    if (snapshotValues != null) {
+      throw new UnsupportedOperationException(
+          "A configuration snapshot can't be changed");
+    }
+  }
+
   /**
    * Reload existing configuration instances.
    */
@@ -1001,11 +1075,15 @@ public void addResource(Configuration conf) {
    * via set methods will overlay values read from the resources.
    */
   public synchronized void reloadConfiguration() {
+    if (snapshotValues != null) {
+      return;                                     // snapshots are frozen
+    }
     properties = null;                            // trigger reload
     finalParameters.clear();                      // clear site-limits
   }
   
   private synchronized void addResourceObject(Resource resource) {
+    checkNotSnapshot();
     resources.add(resource);                      // add to resources
     restrictSystemProps |= resource.isParserRestricted();
     reloadConfiguration();
@@ -1193,6 +1271,25 @@ String getProperty(String key) {
    *         or null if no such property exists.
    */
   public String get(String name) {
+    ConcurrentHashMap<String, String> values = snapshotValues;
+    if (values != null && name != null) {
+      String value = values.get(name);
+      if (value == null) {
+        value = resolve(name);
+        if (value != null) {
+          values.put(name, value);
+        } else if (snapshotMisses.get() < MAX_SNAPSHOT_MISSES
+            && values.putIfAbsent(name, NO_VALUE) == null) {
+          snapshotMisses.incrementAndGet();
+        }
+        return value;
+      }
+      return value == NO_VALUE ? null : value;
+    }
+    return resolve(name);
+  }
+
+  private String resolve(String name) {
     String[] names = handleDeprecation(deprecationContext.get(), name);
     String result = null;
     for(String n : names) {
@@ -1356,6 +1453,7 @@ public void set(String name, String value, String source) {
     Preconditions.checkArgument(
         value != null,
         "The value of property %s must not be null", name);
+    checkNotSnapshot();
     name = name.trim();
     DeprecationContext deprecations = deprecationContext.get();
     if (deprecations.getDeprecatedKeyMap().isEmpty()) {
@@ -1405,6 +1503,7 @@ void logDeprecationOnce(String name, String source) {
    * Unset a previously set property.
    */
   public synchronized void unset(String name) {
+    checkNotSnapshot();
     String[] names = null;
     if (!isDeprecated(name)) {
       names = getAlternativeNames(name);
@@ -1453,6 +1552,10 @@ private synchronized Properties getOverlay() {
    *         doesn't exist.                    
    */
   public String get(String name, String defaultValue) {
+    if (snapshotValues != null) {
+      String value = get(name);
+      return value != null ? value : substituteVars(defaultValue);
+    }
     String[] names = handleDeprecation(deprecationContext.get(), name);
     String result = null;
     for(String n : names) {
@@ -2833,6 +2936,7 @@ public int size() {
    * Clears all keys from the configuration.
    */
   public void clear() {
+    checkNotSnapshot();
     getProps().clear();
     getOverlay().clear();
   }
@@ -2944,11 +3048,30 @@ private Resource loadResource(Properties properties,
       XMLStreamReader2 reader = null;
       boolean returnCachedProperties = false;
       boolean isRestricted = wrapper.isParserRestricted();
+      // The properties parsed from a classpath resource, to share them
+      String parsedKey = null;
+      long[] parsedStamp = null;
+      List<ParsedProperty> parsed = null;
 
       if (resource instanceof URL) {                  // an URL resource
         reader = (XMLStreamReader2)parse((URL)resource, isRestricted);
       } else if (resource instanceof String) {        // a CLASSPATH resource
         URL url = getResource((String)resource);
+        parsedStamp = ParsedResource.getStamp(url);
+        if (parsedStamp != null) {
+          parsedKey = name + "@" + url + (isRestricted ? "#restricted" : "");
+          ParsedResource cached = PARSED_RESOURCES.get(parsedKey);
+          if (cached != null && cached.isValid(parsedStamp)) {
+            DeprecationContext deprecations = deprecationContext.get();
+            for (ParsedProperty property : cached.properties) {
+              loadParsedProperty(properties, deprecations, property.resource,
+                  property.name, property.value, property.isFinal,
+                  property.tag, property.source.clone());
+            }
+            return null;
+          }
+          parsed = new ArrayList<ParsedProperty>();
+        }
         reader = (XMLStreamReader2)parse(url, isRestricted);
       } else if (resource instanceof Path) {          // a file resource
         // Can't use FileSystem API or we get an infinite loop
@@ -3047,6 +3170,8 @@ private Resource loadResource(Properties properties,
             if (confInclude == null) {
               break;
             }
+            // The included properties aren't recorded with the resource
+            parsed = null;
             if (isRestricted) {
               throw new RuntimeException("Error parsing resource " + wrapper
                   + ": XInclude is not supported for restricted resources");
@@ -3137,24 +3262,13 @@ private Resource loadResource(Properties properties,
               break;
             }
             confSource.add(name);
-            // Read tags and put them in propertyTagsMap
-            if (confTag != null) {
-              readTagFromConfig(confTag, confName, confValue, confSource);
-            }
-
-            DeprecatedKeyInfo keyInfo =
-                deprecations.getDeprecatedKeyMap().get(confName);
-            if (keyInfo != null) {
-              keyInfo.clearAccessed();
-              for (String key : keyInfo.newKeys) {
-                // update new keys with deprecated key's value
-                loadProperty(toAddTo, name, key, confValue, confFinal,
-                    confSource.toArray(new String[confSource.size()]));
-              }
-            } else {
-              loadProperty(toAddTo, name, confName, confValue, confFinal,
-                  confSource.toArray(new String[confSource.size()]));
+            String[] source = confSource.toArray(new String[confSource.size()]);
+            if (parsed != null) {
+              parsed.add(new ParsedProperty(name, confName, confValue,
+                  confFinal, confTag, source.clone()));
             }
+            loadParsedProperty(toAddTo, deprecations, name, confName,
+                confValue, confFinal, confTag, source);
             break;
           default:
             break;
@@ -3165,6 +3279,11 @@ private Resource loadResource(Properties properties,
       }
       reader.close();
 
+      if (parsed != null) {
+        PARSED_RESOURCES.put(parsedKey,
+            new ParsedResource(parsed, parsedStamp));
+      }
+
       if (returnCachedProperties) {
         overlay(properties, toAddTo);
         return new Resource(toAddTo, name, wrapper.isParserRestricted());
@@ -3179,6 +3298,108 @@ private Resource loadResource(Properties properties,
     }
   }
 
+  /**
+   * Load a property parsed from a resource, or replayed from the properties
+   * parsed before.
+   */
+  private void loadParsedProperty(Properties toAddTo,
+      DeprecationContext deprecations, String name, String confName,
+      String confValue, boolean confFinal, String confTag, String[] source) {
+    // Read tags and put them in propertyTagsMap
+    if (confTag != null) {
+      readTagFromConfig(confTag, confName, confValue, Arrays.asList(source));
+    }
+
+    DeprecatedKeyInfo keyInfo =
+        deprecations.getDeprecatedKeyMap().get(confName);
+    if (keyInfo != null) {
+      keyInfo.clearAccessed();
+      for (String key : keyInfo.newKeys) {
+        // update new keys with deprecated key's value
+        loadProperty(toAddTo, name, key, confValue, confFinal, source);
+      }
+    } else {
+      loadProperty(toAddTo, name, confName, confValue, confFinal, source);
+    }
+  }
+
+  /** A property as parsed from a resource */
+  private static class ParsedProperty {
+    private final String resource;
+    private final String name;
+    private final String value;
+    private final boolean isFinal;
+    private final String tag;
+    private final String[] source;
+
+    ParsedProperty(String resource, String name, String value,
+        boolean isFinal, String tag, String[] source) {
+      this.resource = resource;
+      this.name = name;
+      this.value = value;
+      this.isFinal = isFinal;
+      this.tag = tag;
+      this.source = source;
+    }
+  }
+
+  /**
+   * The properties parsed from a classpath resource. A resource in a jar is
+   * parsed once, a resource in a directory again when the file changes.
+   */
+  private static class ParsedResource {
+    private final List<ParsedProperty> properties;
+    /**
+     * The modification time, length and checksum of the file parsed: the
+     * modification time alone can miss a rewrite within its granularity
+     */
+    private final long[] stamp;
+
+    ParsedResource(List<ParsedProperty> properties, long[] stamp) {
+      this.properties = properties;
+      this.stamp = stamp;
+    }
+
+    boolean isValid(long[] currentStamp) {
+      return Arrays.equals(stamp, currentStamp);
+    }
+
+    /**
+     * @return the stamp telling whether the resource changed, null if the
+     *         properties parsed from the resource can't be shared
+     */
+    static long[] getStamp(URL url) {
+      if (url == null) {
+        return null;
+      }
+      if ("jar".equals(url.getProtocol())) {
+        return new long[] {-1, -1};
+      }
+      if ("file".equals(url.getProtocol())) {
+        try {
+          File file = new File(url.toURI());
+          return new long[] {file.lastModified(), file.length(),
+              checksum(file)};
+        } catch (URISyntaxException | IllegalArgumentException
+            | IOException e) {
+          return null;
+        }
+      }
+      return null;
+    }
+
+    private static long checksum(File file) throws IOException {
+      CRC32 crc = new CRC32();
+      byte[] buf = new byte[4096];
+      try (InputStream in = new FileInputStream(file)) {
+        for (int n; (n = in.read(buf)) > 0;) {
+          crc.update(buf, 0, n);
+        }
+      }
+      return crc.getValue();
+    }
+  }
+
   /**
    * Add tags defined in HADOOP_TAGS_SYSTEM, HADOOP_TAGS_CUSTOM.
    * @param prop
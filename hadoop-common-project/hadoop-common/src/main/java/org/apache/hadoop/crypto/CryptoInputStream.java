@@ -58,6 +58,10 @@
  * padding = pos%(algorithm blocksize); 
  * <p/>
  * The underlying stream offset is maintained as state.
+ * <p/>
+ * The data read into a direct {@link ByteBuffer} is decrypted in place, and
+ * the decryptors of positioned reads are pooled with the position they
+ * stopped at, so that sequential positioned reads don't re-init them.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -106,8 +110,21 @@ public class CryptoInputStream extends FilterInputStream implements
   private final Queue<ByteBuffer> bufferPool = 
       new ConcurrentLinkedQueue<ByteBuffer>();
   /** Decryptor pool */
-  private final Queue<Decryptor> decryptorPool = 
-      new ConcurrentLinkedQueue<Decryptor>();
+  private final Queue<PooledDecryptor> decryptorPool =
+      new ConcurrentLinkedQueue<PooledDecryptor>();
+
+  /** A decryptor of positioned reads, at the position it decrypts next */
+  private static class PooledDecryptor {
+    private final Decryptor decryptor;
+    private final byte[] iv;
+    /** -1 if the decryptor needs to be initialized before use */
+    private long position = -1;
+
+    PooledDecryptor(Decryptor decryptor, byte[] iv) {
+      this.decryptor = decryptor;
+      this.iv = iv;
+    }
+  }
   
   public CryptoInputStream(InputStream in, CryptoCodec codec, 
       int bufferSize, byte[] key, byte[] iv) throws IOException {
@@ -129,7 +146,7 @@ public CryptoInputStream(InputStream in, CryptoCodec codec,
     isReadableByteChannel = in instanceof ReadableByteChannel;
     inBuffer = ByteBuffer.allocateDirect(this.bufferSize);
     outBuffer = ByteBuffer.allocateDirect(this.bufferSize);
-    decryptor = getDecryptor();
+    decryptor = createDecryptor();
     resetStreamOffset(streamOffset);
   }
   
@@ -350,12 +367,17 @@ private void decrypt(long position, byte[] buffer, int offset, int length)
       throws IOException {
     ByteBuffer inBuffer = getBuffer();
     ByteBuffer outBuffer = getBuffer();
-    Decryptor decryptor = null;
+    PooledDecryptor pooled = null;
     try {
-      decryptor = getDecryptor();
-      byte[] iv = initIV.clone();
-      updateDecryptor(decryptor, position, iv);
-      byte padding = getPadding(position);
+      pooled = getDecryptor(position);
+      final Decryptor decryptor = pooled.decryptor;
+      final byte[] iv = pooled.iv;
+      byte padding = 0;
+      if (pooled.position != position) {
+        updateDecryptor(decryptor, position, iv);
+        padding = getPadding(position);
+      }
+      pooled.position = -1;
       inBuffer.position(padding); // Set proper position for input data.
       
       int n = 0;
@@ -369,10 +391,14 @@ private void decrypt(long position, byte[] buffer, int offset, int length)
         n += toDecrypt;
         padding = afterDecryption(decryptor, inBuffer, position + n, iv);
       }
+      if (padding == 0) {
+        // The next positioned read may continue from here
+        pooled.position = position + length;
+      }
     } finally {
       returnBuffer(inBuffer);
       returnBuffer(outBuffer);
-      returnDecryptor(decryptor);
+      returnDecryptor(pooled);
     }
   }
   
@@ -529,8 +555,18 @@ private void decrypt(ByteBuffer buf, int n, int start)
     final int limit = buf.limit();
     int len = 0;
     while (len < n) {
+      if (padding == 0 && buf.isDirect()) {
+        decryptInPlace(buf, start + len, n - len);
+        break;
+      }
+      int toDecrypt = Math.min(n - len, inBuffer.remaining());
+      if (buf.isDirect()) {
+        // Only the rest of the padded block goes through inBuffer
+        toDecrypt = Math.min(toDecrypt,
+            codec.getCipherSuite().getAlgorithmBlockSize() - padding);
+      }
       buf.position(start + len);
-      buf.limit(start + len + Math.min(n - len, inBuffer.remaining()));
+      buf.limit(start + len + toDecrypt);
       inBuffer.put(buf);
       // Do decryption
       try {
@@ -545,6 +581,30 @@ private void decrypt(ByteBuffer buf, int n, int start)
     }
     buf.position(pos);
   }
+
+  /**
+   * Decrypt the last length bytes read, from offset in the direct buf, in
+   * place instead of copying them through {@link #inBuffer} and
+   * {@link #outBuffer}. This is possible since the plain text and cipher
+   * text have a 1:1 mapping. The decryptor must be at the stream position of
+   * these bytes, with no padding.
+   */
+  private void decryptInPlace(ByteBuffer buf, int offset, int length)
+      throws IOException {
+    final ByteBuffer input = buf.duplicate();
+    input.limit(offset + length);
+    input.position(offset);
+    final ByteBuffer output = buf.duplicate();
+    output.limit(offset + length);
+    output.position(offset);
+    try {
+      while (input.hasRemaining()) {
+        decryptor.decrypt(input, output);
+      }
+    } finally {
+      padding = afterDecryption(decryptor, inBuffer, streamOffset, iv);
+    }
+  }
   
   @Override
   public int available() throws IOException {
@@ -697,24 +757,35 @@ private void cleanBufferPool() {
     }
   }
   
-  /** Get decryptor from pool */
-  private Decryptor getDecryptor() throws IOException {
-    Decryptor decryptor = decryptorPool.poll();
-    if (decryptor == null) {
-      try {
-        decryptor = codec.createDecryptor();
-      } catch (GeneralSecurityException e) {
-        throw new IOException(e);
+  private Decryptor createDecryptor() throws IOException {
+    try {
+      return codec.createDecryptor();
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Get decryptor from pool, preferably one which stopped at the given
+   * position so that it can go on without being initialized again.
+   */
+  private PooledDecryptor getDecryptor(long position) throws IOException {
+    for (PooledDecryptor pooled : decryptorPool) {
+      if (pooled.position == position && decryptorPool.remove(pooled)) {
+        return pooled;
       }
     }
-    
-    return decryptor;
+    PooledDecryptor pooled = decryptorPool.poll();
+    if (pooled == null) {
+      pooled = new PooledDecryptor(createDecryptor(), initIV.clone());
+    }
+    return pooled;
   }
   
   /** Return decryptor to pool */
-  private void returnDecryptor(Decryptor decryptor) {
-    if (decryptor != null) {
-      decryptorPool.add(decryptor);
+  private void returnDecryptor(PooledDecryptor pooled) {
+    if (pooled != null) {
+      decryptorPool.add(pooled);
     }
   }
 
@@ -61,6 +61,9 @@ public interface Decryptor {
    * read and outBuffer.position() by bytes written. Implementations should 
    * not modify inBuffer.limit() and outBuffer.limit().
    * <p/>
+   * inBuffer and outBuffer may share the same memory at the same position,
+   * so that stream modes like CTR decrypt in place.
+   * <p/>
    * @param inBuffer a direct {@link ByteBuffer} to read from. inBuffer may 
    * not be null and inBuffer.remaining() must be > 0
    * @param outBuffer a direct {@link ByteBuffer} to write to. outBuffer may 
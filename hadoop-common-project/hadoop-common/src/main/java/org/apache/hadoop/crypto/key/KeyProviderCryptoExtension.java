@@ -22,8 +22,11 @@
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
@@ -269,6 +272,29 @@ EncryptedKeyVersion reencryptEncryptedKey(EncryptedKeyVersion ekv)
      */
     void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
         throws IOException, GeneralSecurityException;
+
+    /**
+     * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+     * <p>
+     * The default implementation decrypts the encrypted key versions one by
+     * one.
+     *
+     * @param  ekvs List containing the EncryptedKeyVersion's
+     * @return      The decrypted KeyVersion's, in the same order. Their
+     *              version name is 'EK' (For Encryption Key).
+     * @throws IOException If any EncryptedKeyVersion could not be decrypted
+     * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+     *                            decrypted because of a cryptographic issue.
+     */
+    default List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      List<KeyVersion> keyVersions = new ArrayList<>(ekvs.size());
+      for (EncryptedKeyVersion ekv : ekvs) {
+        keyVersions.add(decryptEncryptedKey(ekv));
+      }
+      return keyVersions;
+    }
   }
 
   private static class DefaultCryptoExtension implements CryptoExtension {
@@ -460,6 +486,43 @@ public KeyVersion decryptEncryptedKey(
       }
     }
 
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      Preconditions.checkNotNull(ekvs, "Input list is null");
+      final List<KeyVersion> keyVersions = new ArrayList<>(ekvs.size());
+      // The EEKs of a batch are usually encrypted by a few key versions
+      final Map<String, KeyVersion> encryptionKeys = new HashMap<>();
+      try (CryptoCodec cc = CryptoCodec.getInstance(keyProvider.getConf())) {
+        final Decryptor decryptor = cc.createDecryptor();
+        for (EncryptedKeyVersion ekv : ekvs) {
+          Preconditions.checkNotNull(ekv, "EncryptedKeyVersion is null");
+          Preconditions.checkNotNull(ekv.getEncryptedKeyVersion(),
+              "EncryptedKeyVersion is null");
+          Preconditions.checkArgument(
+              ekv.getEncryptedKeyVersion().getVersionName()
+                  .equals(KeyProviderCryptoExtension.EEK),
+              "encryptedKey version name must be '%s', but found '%s'",
+              KeyProviderCryptoExtension.EEK,
+              ekv.getEncryptedKeyVersion().getVersionName());
+          final String encryptionKeyVersionName =
+              ekv.getEncryptionKeyVersionName();
+          KeyVersion encryptionKey =
+              encryptionKeys.get(encryptionKeyVersionName);
+          if (encryptionKey == null) {
+            encryptionKey = keyProvider.getKeyVersion(encryptionKeyVersionName);
+            Preconditions.checkNotNull(encryptionKey,
+                "KeyVersion name '%s' does not exist",
+                encryptionKeyVersionName);
+            encryptionKeys.put(encryptionKeyVersionName, encryptionKey);
+          }
+          keyVersions.add(decryptEncryptedKey(decryptor, encryptionKey, ekv));
+        }
+      }
+      return keyVersions;
+    }
+
     @Override
     public void warmUpEncryptedKeys(String... keyNames)
         throws IOException {
@@ -586,6 +649,21 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
     getExtension().reencryptEncryptedKeys(ekvs);
   }
 
+  /**
+   * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+   *
+   * @param  ekvs List containing the EncryptedKeyVersion's
+   * @return      The decrypted KeyVersion's, in the same order. Their version
+   *              name is 'EK' (For Encryption Key).
+   * @throws IOException If any EncryptedKeyVersion could not be decrypted
+   * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+   *                            decrypted because of a cryptographic issue.
+   */
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    return getExtension().decryptEncryptedKeys(ekvs);
+  }
+
   /**
    * Creates a <code>KeyProviderCryptoExtension</code> using a given
    * {@link KeyProvider}.
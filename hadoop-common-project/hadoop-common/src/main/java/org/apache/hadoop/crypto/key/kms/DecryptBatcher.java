@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto.key.kms;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.crypto.key.KeyProvider.KeyVersion;
+import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension.EncryptedKeyVersion;
+
+/**
+ * Coalesces the concurrent decryptions of encrypted keys into batches.
+ *
+ * The first caller for an encryption key sends its request alone. The
+ * callers arriving while a request is in progress for the same encryption
+ * key queue up, and the next caller to send takes up to the batch size of
+ * them, so the batches grow with the load without delaying a lone request.
+ * A caller sends batches until its own key is decrypted, then leaves the
+ * queue to one of the waiting callers.
+ *
+ * A batch is sent as the user of the caller sending it, so only the
+ * requests of the same user are coalesced. If a batch fails, its requests
+ * are retried one by one, so that an invalid encrypted key only fails its
+ * own caller.
+ */
+@InterfaceAudience.Private
+class DecryptBatcher {
+
+  /** Decrypts a batch of encrypted keys of the same encryption key. */
+  interface BatchDecryptor {
+    List<KeyVersion> decrypt(List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException;
+  }
+
+  private static class Request {
+    private final EncryptedKeyVersion ekv;
+    private boolean done;
+    private KeyVersion keyVersion;
+    private Throwable error;
+
+    Request(EncryptedKeyVersion ekv) {
+      this.ekv = ekv;
+    }
+  }
+
+  /** The requests of one user for one encryption key, guarded by itself */
+  private static class Requests {
+    private final Queue<Request> queue = new ArrayDeque<Request>();
+    private boolean sending;
+  }
+
+  private final BatchDecryptor decryptor;
+  private final int maxBatchSize;
+  private final ConcurrentMap<String, Requests> requests =
+      new ConcurrentHashMap<String, Requests>();
+
+  DecryptBatcher(BatchDecryptor decryptor, int maxBatchSize) {
+    this.decryptor = decryptor;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Decrypt an encrypted key.
+   * @param user the current user, who the batch is sent as
+   * @param ekv the encrypted key
+   */
+  KeyVersion decrypt(String user, EncryptedKeyVersion ekv)
+      throws IOException, GeneralSecurityException {
+    final String id = user + '\u0000' + ekv.getEncryptionKeyName();
+    Requests keyRequests = requests.get(id);
+    if (keyRequests == null) {
+      requests.putIfAbsent(id, new Requests());
+      keyRequests = requests.get(id);
+    }
+    Request request = new Request(ekv);
+    boolean sender = false;
+    synchronized (keyRequests) {
+      keyRequests.queue.add(request);
+      try {
+        while (!request.done && keyRequests.sending) {
+          keyRequests.wait();
+        }
+      } catch (InterruptedException e) {
+        keyRequests.queue.remove(request);
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted while waiting to decrypt a key");
+      }
+      if (!request.done) {
+        keyRequests.sending = true;
+        sender = true;
+      }
+    }
+    if (sender) {
+      try {
+        while (!request.done) {
+          send(keyRequests);
+        }
+      } finally {
+        synchronized (keyRequests) {
+          keyRequests.sending = false;
+          if (keyRequests.queue.isEmpty()) {
+            // Forget the idle users. A caller still holding keyRequests
+            // sends its request alone.
+            requests.remove(id, keyRequests);
+          }
+          keyRequests.notifyAll();
+        }
+      }
+    }
+    return getResult(request);
+  }
+
+  private void send(Requests keyRequests) {
+    List<Request> batch = new ArrayList<Request>();
+    synchronized (keyRequests) {
+      while (batch.size() < maxBatchSize && !keyRequests.queue.isEmpty()) {
+        batch.add(keyRequests.queue.poll());
+      }
+    }
+    List<EncryptedKeyVersion> ekvs =
+        new ArrayList<EncryptedKeyVersion>(batch.size());
+    for (Request request : batch) {
+      ekvs.add(request.ekv);
+    }
+    List<KeyVersion> keyVersions = null;
+    Throwable error = null;
+    try {
+      keyVersions = decryptor.decrypt(ekvs);
+    } catch (Throwable t) {
+      error = t;
+    }
+    if (error != null && batch.size() > 1) {
+      // Find out which keys failed the batch
+      for (Request request : batch) {
+        try {
+          request.keyVersion = decryptor.decrypt(
+              Collections.singletonList(request.ekv)).get(0);
+        } catch (Throwable t) {
+          request.error = t;
+        }
+      }
+    } else {
+      for (int i = 0; i < batch.size(); i++) {
+        if (error == null) {
+          batch.get(i).keyVersion = keyVersions.get(i);
+        } else {
+          batch.get(i).error = error;
+        }
+      }
+    }
+    synchronized (keyRequests) {
+      for (Request request : batch) {
+        request.done = true;
+      }
+      keyRequests.notifyAll();
+    }
+  }
+
+  private static KeyVersion getResult(Request request)
+      throws IOException, GeneralSecurityException {
+    Throwable error = request.error;
+    if (error == null) {
+      return request.keyVersion;
+    } else if (error instanceof IOException) {
+      throw (IOException) error;
+    } else if (error instanceof GeneralSecurityException) {
+      throw (GeneralSecurityException) error;
+    } else if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error instanceof Error) {
+      throw (Error) error;
+    }
+    throw new IOException(error);
+  }
+}
@@ -25,6 +25,7 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -38,6 +39,7 @@
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction;
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.Credentials;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
@@ -45,6 +47,8 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * A simple LoadBalancing KMSClientProvider that round-robins requests
@@ -52,6 +56,11 @@
  * requests on the next available provider in the load balancer group. It
  * only retries failed requests that result in an IOException, sending back
  * all other Exceptions to the caller without retry.
+ * <p>
+ * Concurrent decryptions of encrypted keys can be sent to the KMS in
+ * batches, and the decrypted keys can be cached for a short time, see
+ * {@link CommonConfigurationKeysPublic#KMS_CLIENT_DECRYPT_BATCH_SIZE} and
+ * {@link CommonConfigurationKeysPublic#KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS}.
  */
 public class LoadBalancingKMSClientProvider extends KeyProvider implements
     CryptoExtension,
@@ -71,8 +80,44 @@ public WrapperException(Throwable cause) {
     }
   }
 
+  /** An encrypted key decrypted for a user */
+  private static class DecryptedKeyId {
+    private final String user;
+    private final String versionName;
+    private final byte[] iv;
+    private final byte[] material;
+
+    DecryptedKeyId(String user, EncryptedKeyVersion ekv) {
+      this.user = user;
+      this.versionName = ekv.getEncryptionKeyVersionName();
+      this.iv = ekv.getEncryptedKeyIv();
+      this.material = ekv.getEncryptedKeyVersion().getMaterial();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof DecryptedKeyId)) {
+        return false;
+      }
+      DecryptedKeyId other = (DecryptedKeyId) o;
+      return user.equals(other.user) && versionName.equals(other.versionName)
+          && Arrays.equals(iv, other.iv)
+          && Arrays.equals(material, other.material);
+    }
+
+    @Override
+    public int hashCode() {
+      return (user.hashCode() * 31 + versionName.hashCode()) * 31
+          + Arrays.hashCode(material);
+    }
+  }
+
   private final KMSClientProvider[] providers;
   private final AtomicInteger currentIdx;
+  /** Coalesces concurrent decryptions, null if they're sent one by one */
+  private final DecryptBatcher decryptBatcher;
+  /** Recently decrypted keys, null if they're not cached */
+  private final Cache<DecryptedKeyId, KeyVersion> decryptedKeys;
 
   private RetryPolicy retryPolicy = null;
 
@@ -103,6 +148,38 @@ public LoadBalancingKMSClientProvider(KMSClientProvider[] providers,
     this.retryPolicy = RetryPolicies.failoverOnNetworkException(
         RetryPolicies.TRY_ONCE_THEN_FAIL, maxNumRetries, 0, sleepBaseMillis,
         sleepMaxMillis);
+    int decryptBatchSize = conf.getInt(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPT_BATCH_SIZE,
+        CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPT_BATCH_SIZE_DEFAULT);
+    if (decryptBatchSize > 1) {
+      decryptBatcher = new DecryptBatcher(new DecryptBatcher.BatchDecryptor() {
+        @Override
+        public List<KeyVersion> decrypt(List<EncryptedKeyVersion> ekvs)
+            throws IOException, GeneralSecurityException {
+          if (ekvs.size() == 1) {
+            return Collections.singletonList(
+                doDecryptEncryptedKey(ekvs.get(0)));
+          }
+          return decryptEncryptedKeys(ekvs);
+        }
+      }, decryptBatchSize);
+    } else {
+      decryptBatcher = null;
+    }
+    long decryptedKeyExpiry = conf.getLong(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS,
+        CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_DEFAULT);
+    if (decryptedKeyExpiry > 0) {
+      decryptedKeys = CacheBuilder.newBuilder()
+          .maximumSize(conf.getInt(
+              CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_SIZE,
+              CommonConfigurationKeysPublic.
+                  KMS_CLIENT_DEC_KEY_CACHE_SIZE_DEFAULT))
+          .expireAfterWrite(decryptedKeyExpiry, TimeUnit.MILLISECONDS)
+          .<DecryptedKeyId, KeyVersion>build();
+    } else {
+      decryptedKeys = null;
+    }
   }
 
   @VisibleForTesting
@@ -279,6 +356,39 @@ public EncryptedKeyVersion call(KMSClientProvider provider)
   public KeyVersion
       decryptEncryptedKey(final EncryptedKeyVersion encryptedKeyVersion)
           throws IOException, GeneralSecurityException {
+    if (decryptedKeys == null && decryptBatcher == null) {
+      return doDecryptEncryptedKey(encryptedKeyVersion);
+    }
+    // The KMS authorizes the current user, so the keys can't be shared
+    // between users through the cache or the batches
+    final String user = getCurrentUser();
+    DecryptedKeyId id = null;
+    if (decryptedKeys != null) {
+      id = new DecryptedKeyId(user, encryptedKeyVersion);
+      KeyVersion keyVersion = decryptedKeys.getIfPresent(id);
+      if (keyVersion != null) {
+        return keyVersion;
+      }
+    }
+    KeyVersion keyVersion = decryptBatcher != null
+        ? decryptBatcher.decrypt(user, encryptedKeyVersion)
+        : doDecryptEncryptedKey(encryptedKeyVersion);
+    if (id != null) {
+      decryptedKeys.put(id, keyVersion);
+    }
+    return keyVersion;
+  }
+
+  /** The current user, with the real user of a proxy user. */
+  private static String getCurrentUser() throws IOException {
+    UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+    return ugi.getRealUser() == null ? ugi.getUserName()
+        : ugi.getUserName() + " via " + ugi.getRealUser().getUserName();
+  }
+
+  private KeyVersion
+      doDecryptEncryptedKey(final EncryptedKeyVersion encryptedKeyVersion)
+          throws IOException, GeneralSecurityException {
     try {
       return doOp(new ProviderCallable<KeyVersion>() {
         @Override
@@ -335,6 +445,26 @@ public Void call(KMSClientProvider provider)
     }
   }
 
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(
+      final List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    try {
+      return doOp(new ProviderCallable<List<KeyVersion>>() {
+        @Override
+        public List<KeyVersion> call(KMSClientProvider provider)
+            throws IOException, GeneralSecurityException {
+          return provider.decryptEncryptedKeys(ekvs);
+        }
+      }, nextIdx());
+    } catch (WrapperException we) {
+      if (we.getCause() instanceof GeneralSecurityException) {
+        throw (GeneralSecurityException) we.getCause();
+      }
+      throw new IOException(we.getCause());
+    }
+  }
+
   @Override
   public KeyVersion getKeyVersion(final String versionName) throws IOException {
     return doOp(new ProviderCallable<KeyVersion>() {
@@ -434,6 +564,9 @@ public Void call(KMSClientProvider provider) throws IOException {
         return null;
       }
     }, nextIdx());
+    if (decryptedKeys != null) {
+      decryptedKeys.invalidateAll();
+    }
   }
 
   @Override
@@ -542,6 +542,43 @@ public class CommonConfigurationKeysPublic {
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
    * core-default.xml</a>
    */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE =
+          "hadoop.security.groups.cache.background.reload.batch.size";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final int
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE_DEFAULT = 1;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_JITTER =
+          "hadoop.security.groups.cache.background.reload.jitter";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final float
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_JITTER_DEFAULT = 0.0f;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_SECURITY_GROUPS_CACHE_WARM_FILE =
+      "hadoop.security.groups.cache.warm.file";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
   public static final String HADOOP_SECURITY_GROUP_SHELL_COMMAND_TIMEOUT_KEY =
       "hadoop.security.groups.shell.command.timeout";
   /**
@@ -749,6 +786,36 @@ public class CommonConfigurationKeysPublic {
   /** Default value for KMS_CLIENT_ENC_KEY_CACHE_EXPIRY (12 hrs)*/
   public static final int KMS_CLIENT_ENC_KEY_CACHE_EXPIRY_DEFAULT = 43200000;
 
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DECRYPT_BATCH_SIZE =
+      "hadoop.security.kms.client.decrypt.batch.size";
+  /** Default value for KMS_CLIENT_DECRYPT_BATCH_SIZE */
+  public static final int KMS_CLIENT_DECRYPT_BATCH_SIZE_DEFAULT = 1;
+
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DEC_KEY_CACHE_SIZE =
+      "hadoop.security.kms.client.decrypted.key.cache.size";
+  /** Default value for KMS_CLIENT_DEC_KEY_CACHE_SIZE */
+  public static final int KMS_CLIENT_DEC_KEY_CACHE_SIZE_DEFAULT = 1000;
+
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS =
+      "hadoop.security.kms.client.decrypted.key.cache.expiry";
+  /** Default value for KMS_CLIENT_DEC_KEY_CACHE_EXPIRY (disabled) */
+  public static final int KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_DEFAULT = 0;
+
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
@@ -844,6 +911,16 @@ public class CommonConfigurationKeysPublic {
   /** Defalt value for HADOOP_HTTP_LOGS_ENABLED */
   public static final boolean HADOOP_HTTP_LOGS_ENABLED_DEFAULT = true;
 
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_PROMETHEUS_ENABLED =
+      "hadoop.prometheus.endpoint.enabled";
+  /** Default value for HADOOP_PROMETHEUS_ENABLED */
+  public static final boolean HADOOP_PROMETHEUS_ENABLED_DEFAULT = false;
+
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
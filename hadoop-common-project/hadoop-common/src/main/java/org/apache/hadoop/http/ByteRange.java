@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A range of bytes requested by an HTTP Range header, see RFC 7233.
+ *
+ * The servers streaming files use it to answer a Range request with a
+ * 206 (Partial Content) response holding one range, or a multipart/byteranges
+ * response holding several.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public final class ByteRange {
+  public static final String RANGE = "Range";
+  public static final String CONTENT_RANGE = "Content-Range";
+  public static final String ACCEPT_RANGES = "Accept-Ranges";
+  public static final String BYTES = "bytes";
+
+  /**
+   * Maximum number of ranges served from one request. A request with more
+   * ranges gets the whole representation, so that a client can't make the
+   * server seek back and forth in a file for every few bytes sent.
+   */
+  public static final int MAX_RANGES = 64;
+
+  private static final String CRLF = "\r\n";
+
+  private final long start;
+  private final long end;
+
+  /**
+   * @param start offset of the first byte of the range
+   * @param end offset of the last byte of the range, inclusive
+   */
+  public ByteRange(long start, long end) {
+    if (start < 0 || end < start) {
+      throw new IllegalArgumentException(
+          "Invalid byte range: " + start + "-" + end);
+    }
+    this.start = start;
+    this.end = end;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long getLength() {
+    return end - start + 1;
+  }
+
+  /**
+   * @param length length of the whole representation
+   * @return the value of the Content-Range header of this range
+   */
+  public String toContentRange(long length) {
+    return BYTES + " " + start + "-" + end + "/" + length;
+  }
+
+  /**
+   * @param length length of the whole representation
+   * @return the value of the Content-Range header of a 416 (Range Not
+   *         Satisfiable) response
+   */
+  public static String unsatisfiedContentRange(long length) {
+    return BYTES + " */" + length;
+  }
+
+  /**
+   * Parse the value of a Range header.
+   *
+   * Overlapping and adjacent ranges are merged, and the ranges are then
+   * sorted by offset, which RFC 7233 allows.
+   *
+   * @param header value of the Range header, may be null
+   * @param length length of the whole representation
+   * @return the ranges to send, empty if no range is satisfiable; null if the
+   *         header is absent, malformed or has too many ranges, in which case
+   *         the whole representation should be sent
+   */
+  public static List<ByteRange> parse(String header, long length) {
+    if (header == null) {
+      return null;
+    }
+    String value = header.trim();
+    if (!value.regionMatches(true, 0, BYTES + "=", 0, BYTES.length() + 1)) {
+      return null;
+    }
+    String[] specs = value.substring(BYTES.length() + 1).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    List<ByteRange> ranges = new ArrayList<>(specs.length);
+    for (String spec : specs) {
+      spec = spec.trim();
+      int dash = spec.indexOf('-');
+      if (dash < 0) {
+        return null;
+      }
+      long first;
+      long last;
+      try {
+        if (dash == 0) {
+          // A suffix range, the last bytes of the representation
+          long suffix = Long.parseLong(spec.substring(1).trim());
+          if (suffix < 0) {
+            return null;
+          }
+          first = Math.max(length - suffix, 0);
+          last = suffix == 0 ? -1 : length - 1;
+        } else {
+          first = Long.parseLong(spec.substring(0, dash).trim());
+          String lastSpec = spec.substring(dash + 1).trim();
+          last = lastSpec.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastSpec);
+          if (first < 0 || last < first) {
+            return null;
+          }
+          last = Math.min(last, length - 1);
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (first < length && first <= last) {
+        ranges.add(new ByteRange(first, last));
+      }
+    }
+    return merge(ranges);
+  }
+
+  private static List<ByteRange> merge(List<ByteRange> ranges) {
+    if (ranges.size() <= 1) {
+      return ranges;
+    }
+    Collections.sort(ranges, new Comparator<ByteRange>() {
+      @Override
+      public int compare(ByteRange r1, ByteRange r2) {
+        return Long.compare(r1.start, r2.start);
+      }
+    });
+    List<ByteRange> merged = new ArrayList<>(ranges.size());
+    ByteRange current = ranges.get(0);
+    for (int i = 1; i < ranges.size(); i++) {
+      ByteRange next = ranges.get(i);
+      if (next.start <= current.end + 1) {
+        current = new ByteRange(current.start, Math.max(current.end, next.end));
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return merged;
+  }
+
+  /** @return a boundary separating the parts of a multipart response */
+  public static String newBoundary() {
+    return UUID.randomUUID().toString().replace("-", "");
+  }
+
+  /** @return the Content-Type of a multipart/byteranges response */
+  public static String multipartContentType(String boundary) {
+    return "multipart/byteranges; boundary=" + boundary;
+  }
+
+  /**
+   * @return the delimiter and the headers preceding a range in a
+   *         multipart/byteranges response
+   */
+  public byte[] partHeader(String boundary, String contentType, long length) {
+    return (CRLF + "--" + boundary + CRLF
+        + "Content-Type: " + contentType + CRLF
+        + CONTENT_RANGE + ": " + toContentRange(length) + CRLF + CRLF)
+        .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** @return the delimiter ending a multipart/byteranges response */
+  public static byte[] multipartEnd(String boundary) {
+    return (CRLF + "--" + boundary + "--" + CRLF)
+        .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** @return the length of the body of a multipart/byteranges response */
+  public static long multipartLength(List<ByteRange> ranges, String boundary,
+      String contentType, long length) {
+    long total = multipartEnd(boundary).length;
+    for (ByteRange range : ranges) {
+      total += range.partHeader(boundary, contentType, length).length
+          + range.getLength();
+    }
+    return total;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ByteRange)) {
+      return false;
+    }
+    ByteRange that = (ByteRange) o;
+    return start == that.start && end == that.end;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(start) * 31 + Long.hashCode(end);
+  }
+
+  @Override
+  public String toString() {
+    return start + "-" + end;
+  }
+}
@@ -62,6 +62,8 @@
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.jmx.JMXJsonServlet;
 import org.apache.hadoop.log.LogLevel;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.sink.PrometheusMetricsSink;
 import org.apache.hadoop.security.AuthenticationFilterInitializer;
 import org.apache.hadoop.security.SecurityUtil;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -155,7 +157,14 @@ public final class HttpServer2 implements FilterContainer {
 
   public static final String BIND_ADDRESS = "bind.address";
 
+  // The ServletContext attribute where the PrometheusMetricsSink is stored
+  static final String PROMETHEUS_SINK = "hadoop.prometheus.sink";
+
+  /** Shared by the HTTP servers of the process, like the metrics system */
+  private static PrometheusMetricsSink prometheusSink;
+
   private final AccessControlList adminsAcl;
+  private boolean prometheusSupport;
 
   protected final Server webServer;
 
@@ -594,6 +603,7 @@ private void initializeWebServer(String name, String hostName,
     }
 
     addDefaultServlets();
+    addPrometheusServlet(conf);
 
     if (pathSpecs != null) {
       for (String path : pathSpecs) {
@@ -766,6 +776,34 @@ protected void addDefaultServlets() {
     addServlet("conf", "/conf", ConfServlet.class);
   }
 
+  private void addPrometheusServlet(Configuration conf) {
+    prometheusSupport = conf.getBoolean(
+        CommonConfigurationKeys.HADOOP_PROMETHEUS_ENABLED,
+        CommonConfigurationKeys.HADOOP_PROMETHEUS_ENABLED_DEFAULT);
+    if (prometheusSupport) {
+      webAppContext.getServletContext().setAttribute(PROMETHEUS_SINK,
+          getPrometheusSink());
+      addServlet("prometheus", "/prom", PrometheusServlet.class);
+    }
+  }
+
+  private static synchronized PrometheusMetricsSink getPrometheusSink() {
+    if (prometheusSink == null) {
+      prometheusSink = new PrometheusMetricsSink();
+    }
+    return prometheusSink;
+  }
+
+  /**
+   * Register the sink with the metrics system. The metrics system starts
+   * it when it is (re)started, and forgets it when it is shut down, so this
+   * is done each time a server starts.
+   */
+  private static synchronized void registerPrometheusSink() {
+    DefaultMetricsSystem.instance().register("prometheus",
+        "Hadoop metrics prometheus exporter", getPrometheusSink());
+  }
+
   public void addContext(ServletContextHandler ctxt, boolean isFiltered) {
     handlers.addHandler(ctxt);
     addNoCacheFilter(ctxt);
@@ -1133,6 +1171,9 @@ private void initSpnego(Configuration conf, String hostName,
    * Start the server. Does not wait for the server to start.
    */
   public void start() throws IOException {
+    if (prometheusSupport) {
+      registerPrometheusSink();
+    }
     try {
       try {
         openListeners();
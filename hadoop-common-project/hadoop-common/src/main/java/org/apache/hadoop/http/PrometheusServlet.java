@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.http;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.metrics2.sink.PrometheusMetricsSink;
+
+/**
+ * Servlet writing the metrics of the daemon in the Prometheus text format,
+ * from the {@link PrometheusMetricsSink} of the HTTP server.
+ */
+@InterfaceAudience.Private
+public class PrometheusServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+  @Override
+  protected void doGet(HttpServletRequest request,
+      HttpServletResponse response) throws ServletException, IOException {
+    if (!HttpServer2.isInstrumentationAccessAllowed(getServletContext(),
+        request, response)) {
+      return;
+    }
+    PrometheusMetricsSink sink = (PrometheusMetricsSink) getServletContext()
+        .getAttribute(HttpServer2.PROMETHEUS_SINK);
+    if (sink == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          "Prometheus endpoint is not enabled");
+      return;
+    }
+    response.setContentType(CONTENT_TYPE);
+    response.setCharacterEncoding("UTF-8");
+    PrintWriter writer = response.getWriter();
+    sink.writeMetrics(writer);
+    writer.flush();
+  }
+}
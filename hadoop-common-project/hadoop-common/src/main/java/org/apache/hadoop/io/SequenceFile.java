@@ -46,6 +46,7 @@
 import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.Progress;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.apache.hadoop.util.MergeSort;
 import org.apache.hadoop.util.PriorityQueue;
@@ -832,6 +833,187 @@ public String toString() {
       return sb.toString();
     }
   }
+
+  private static final String BLOCK_INDEX_SUFFIX = ".blockindex";
+  private static final Text BLOCK_INDEX_SYNC = new Text("sync");
+  private static final Text BLOCK_INDEX_LENGTH = new Text("length");
+
+  /**
+   * Get the path of the block index written next to a block-compressed file
+   * with {@link Writer#blockIndex(boolean)}. The name starts with a dot, so
+   * that the index is hidden from the input formats listing the directory.
+   * @param file the sequence file
+   * @return the path of its block index
+   */
+  public static Path getBlockIndexPath(Path file) {
+    return new Path(file.getParent(),
+        "." + file.getName() + BLOCK_INDEX_SUFFIX);
+  }
+
+  /**
+   * The entry of the block index for one block of a block-compressed file:
+   * the position of the block, the number of records and the smallest and
+   * largest raw key of the block.
+   */
+  public static class BlockInfo implements Writable {
+    private long position;
+    private int records;
+    private byte[] minKey;
+    private byte[] maxKey;
+
+    public BlockInfo() {
+    }
+
+    BlockInfo(long position, int records, byte[] minKey, byte[] maxKey) {
+      this.position = position;
+      this.records = records;
+      this.minKey = minKey;
+      this.maxKey = maxKey;
+    }
+
+    /**
+     * Get the position of the block, to be passed to {@link Reader#seek}.
+     * @return the position of the block in the file
+     */
+    public long getPosition() {
+      return position;
+    }
+
+    /** Returns the number of records of the block. */
+    public int getRecords() {
+      return records;
+    }
+
+    /** Returns the serialized smallest key of the block. */
+    public byte[] getMinKey() {
+      return minKey;
+    }
+
+    /** Returns the serialized largest key of the block. */
+    public byte[] getMaxKey() {
+      return maxKey;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      out.writeLong(position);
+      WritableUtils.writeVInt(out, records);
+      writeKey(out, minKey);
+      writeKey(out, maxKey);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      position = in.readLong();
+      records = WritableUtils.readVInt(in);
+      minKey = readKey(in);
+      maxKey = readKey(in);
+    }
+
+    // The keys are written raw: they are short, and inflating them would
+    // cost more on each lookup of the index than it saves
+    private static void writeKey(DataOutput out, byte[] key)
+        throws IOException {
+      WritableUtils.writeVInt(out, key.length);
+      out.write(key);
+    }
+
+    private static byte[] readKey(DataInput in) throws IOException {
+      int length = WritableUtils.readVInt(in);
+      if (length < 0) {
+        throw new IOException("Invalid key length " + length
+            + " in the block index");
+      }
+      byte[] key = new byte[length];
+      in.readFully(key);
+      return key;
+    }
+
+    @Override
+    public String toString() {
+      return "position=" + position + ", records=" + records;
+    }
+  }
+
+  /**
+   * The raw records of one block of a block-compressed file, read at once
+   * by {@link Reader#nextBlock(RawBlock)}. The keys and the values are kept
+   * serialized in two buffers, and located by their offsets, so that reading
+   * a block creates no object per record. A RawBlock is meant to be reused
+   * for the next blocks.
+   */
+  public static class RawBlock {
+    private long position;
+    private int records;
+    private int[] keyOffsets = new int[1];
+    private int[] valueOffsets = new int[1];
+    private final DataOutputBuffer keys = new DataOutputBuffer();
+    private final DataOutputBuffer values = new DataOutputBuffer();
+
+    /** Returns the position of the block in the file. */
+    public long getPosition() {
+      return position;
+    }
+
+    /** Returns the number of records of the block. */
+    public int getRecords() {
+      return records;
+    }
+
+    /** Returns the buffer of the serialized keys. */
+    public byte[] getKeyData() {
+      return keys.getData();
+    }
+
+    /** Returns the offset of the i-th key in the key buffer. */
+    public int getKeyOffset(int i) {
+      return keyOffsets[i];
+    }
+
+    /** Returns the serialized length of the i-th key. */
+    public int getKeyLength(int i) {
+      return keyOffsets[i + 1] - keyOffsets[i];
+    }
+
+    /** Returns the buffer of the serialized values. */
+    public byte[] getValueData() {
+      return values.getData();
+    }
+
+    /** Returns the offset of the i-th value in the value buffer. */
+    public int getValueOffset(int i) {
+      return valueOffsets[i];
+    }
+
+    /** Returns the serialized length of the i-th value. */
+    public int getValueLength(int i) {
+      return valueOffsets[i + 1] - valueOffsets[i];
+    }
+
+    private void reset(long position, int records) {
+      this.position = position;
+      this.records = records;
+      if (keyOffsets.length <= records) {
+        keyOffsets = new int[records + 1];
+        valueOffsets = new int[records + 1];
+      }
+      keys.reset();
+      values.reset();
+    }
+
+    /** Read the lengths of a block into offsets */
+    private static void readOffsets(DataInput lengths, int[] offsets,
+        int records) throws IOException {
+      offsets[0] = 0;
+      for (int i = 0; i < records; i++) {
+        int length = WritableUtils.readVInt(lengths);
+        if (length < 0) {
+          throw new IOException("negative length found: " + length);
+        }
+        offsets[i + 1] = offsets[i] + length;
+      }
+    }
+  }
   
   /** Write key/value pairs to a sequence-format file. */
   public static class Writer implements java.io.Closeable, Syncable {
@@ -996,6 +1178,13 @@ private static Option filesystem(FileSystem fs) {
       return new SequenceFile.Writer.FileSystemOption(fs);
     }
 
+    private static class BlockIndexOption extends Options.BooleanOption
+        implements Option {
+      BlockIndexOption(boolean value) {
+        super(value);
+      }
+    }
+
     private static class SyncIntervalOption extends Options.IntegerOption
         implements Option {
       SyncIntervalOption(int val) {
@@ -1054,6 +1243,17 @@ public static Option syncInterval(int value) {
       return new SyncIntervalOption(value);
     }
 
+    /**
+     * Create an option to write a block index next to a block-compressed
+     * file, see {@link SequenceFile#getBlockIndexPath(Path)}. The file itself
+     * is unchanged, so it stays readable by any reader.
+     * @param value whether to write the block index
+     * @return a new option
+     */
+    public static Option blockIndex(boolean value) {
+      return new BlockIndexOption(value);
+    }
+
     /**
      * Construct a uncompressed writer from a set of options.
      * @param conf the configuration to use
@@ -1085,10 +1285,23 @@ public static Option syncInterval(int value) {
         Options.getOption(CompressionOption.class, opts);
       SyncIntervalOption syncIntervalOption =
           Options.getOption(SyncIntervalOption.class, opts);
+      BlockIndexOption blockIndexOption =
+          Options.getOption(BlockIndexOption.class, opts);
       // check consistency of options
       if ((fileOption == null) == (streamOption == null)) {
         throw new IllegalArgumentException("file or stream must be specified");
       }
+      if (blockIndexOption != null && blockIndexOption.getValue()) {
+        if (fileOption == null || compressionTypeOption == null
+            || compressionTypeOption.getValue() != CompressionType.BLOCK) {
+          throw new IllegalArgumentException("block index can only be " +
+              "written for a block-compressed file");
+        }
+        if (appendIfExistsOption != null && appendIfExistsOption.getValue()) {
+          throw new IllegalArgumentException("block index not compatible " +
+              "with append");
+        }
+      }
       if (fileOption == null && (blockSizeOption != null ||
                                  bufferSizeOption != null ||
                                  replicationOption != null ||
@@ -1546,6 +1759,18 @@ static class BlockCompressWriter extends Writer {
     private DataOutputBuffer valBuffer = new DataOutputBuffer();
 
     private final int compressionBlockSize;
+
+    // The block index, null if none is written
+    private FileSystem indexFs;
+    private Path indexFile;
+    private List<BlockInfo> blockIndex;
+    private RawComparator keyComparator;
+    // Offsets and lengths in keyBuffer of the smallest and largest keys of
+    // the current block
+    private int minKeyOffset;
+    private int minKeyLength = -1;
+    private int maxKeyOffset;
+    private int maxKeyLength = -1;
     
     BlockCompressWriter(Configuration conf,
                         Option... options) throws IOException {
@@ -1558,6 +1783,73 @@ static class BlockCompressWriter extends Writer {
       keySerializer.open(keyBuffer);
       uncompressedValSerializer.close();
       uncompressedValSerializer.open(valBuffer);
+
+      Writer.BlockIndexOption blockIndexOption =
+          Options.getOption(Writer.BlockIndexOption.class, options);
+      if (blockIndexOption != null && blockIndexOption.getValue()) {
+        Path file = Options.getOption(FileOption.class, options).getValue();
+        Writer.FileSystemOption fsOption =
+            Options.getOption(Writer.FileSystemOption.class, options);
+        indexFs = fsOption == null ? file.getFileSystem(conf)
+            : fsOption.getValue();
+        indexFile = getBlockIndexPath(file);
+        blockIndex = new ArrayList<BlockInfo>();
+        if (WritableComparable.class.isAssignableFrom(keyClass)) {
+          keyComparator = WritableComparator.get(
+              keyClass.asSubclass(WritableComparable.class), conf);
+        }
+      }
+    }
+
+    /** Track the smallest and largest key of the block for the index */
+    private void updateKeyRange(int keyOffset, int keyLength) {
+      if (blockIndex == null) {
+        return;
+      }
+      if (minKeyLength < 0 || compareKeys(
+          keyOffset, keyLength, minKeyOffset, minKeyLength) < 0) {
+        minKeyOffset = keyOffset;
+        minKeyLength = keyLength;
+      }
+      if (maxKeyLength < 0 || compareKeys(
+          keyOffset, keyLength, maxKeyOffset, maxKeyLength) > 0) {
+        maxKeyOffset = keyOffset;
+        maxKeyLength = keyLength;
+      }
+    }
+
+    /**
+     * Compare two serialized keys of keyBuffer with the comparator of the
+     * key class, or by their bytes if the keys aren't WritableComparable.
+     */
+    private int compareKeys(int offset1, int length1, int offset2,
+        int length2) {
+      byte[] data = keyBuffer.getData();
+      if (keyComparator == null) {
+        return WritableComparator.compareBytes(data, offset1, length1,
+            data, offset2, length2);
+      }
+      return keyComparator.compare(data, offset1, length1,
+          data, offset2, length2);
+    }
+
+    /** Write the block index once the file is complete */
+    private void writeBlockIndex(long length) throws IOException {
+      Metadata indexMetadata = new Metadata();
+      indexMetadata.set(BLOCK_INDEX_SYNC,
+          new Text(StringUtils.byteToHexString(sync)));
+      indexMetadata.set(BLOCK_INDEX_LENGTH, new Text(Long.toString(length)));
+      Writer indexWriter = createWriter(getConf(), file(indexFile),
+          Writer.filesystem(indexFs), keyClass(NullWritable.class),
+          valueClass(BlockInfo.class), compression(CompressionType.NONE),
+          metadata(indexMetadata));
+      try {
+        for (BlockInfo info : blockIndex) {
+          indexWriter.append(NullWritable.get(), info);
+        }
+      } finally {
+        indexWriter.close();
+      }
     }
 
     /** Workhorse to check and write out compressed data/lengths */
@@ -1579,6 +1871,7 @@ void writeBuffer(DataOutputBuffer uncompressedDataBuffer)
     @Override
     public synchronized void sync() throws IOException {
       if (noBufferedRecords > 0) {
+        long position = out.getPos();
         super.sync();
         
         // No. of records
@@ -1594,6 +1887,17 @@ public synchronized void sync() throws IOException {
         
         // Flush the file-stream
         out.flush();
+
+        if (blockIndex != null) {
+          byte[] data = keyBuffer.getData();
+          blockIndex.add(new BlockInfo(position, noBufferedRecords,
+              Arrays.copyOfRange(data, minKeyOffset,
+                  minKeyOffset + minKeyLength),
+              Arrays.copyOfRange(data, maxKeyOffset,
+                  maxKeyOffset + maxKeyLength)));
+          minKeyLength = -1;
+          maxKeyLength = -1;
+        }
         
         // Reset internal states
         keyLenBuffer.reset();
@@ -1608,10 +1912,15 @@ public synchronized void sync() throws IOException {
     /** Close the file. */
     @Override
     public synchronized void close() throws IOException {
+      long length = -1;
       if (out != null) {
         sync();
+        length = out.getPos();
       }
       super.close();
+      if (blockIndex != null && length >= 0) {
+        writeBlockIndex(length);
+      }
     }
 
     /** Append a key/value pair. */
@@ -1631,6 +1940,7 @@ public synchronized void append(Object key, Object val)
       if (keyLength < 0)
         throw new IOException("negative length keys not allowed: " + key);
       WritableUtils.writeVInt(keyLenBuffer, keyLength);
+      updateKeyRange(oldKeyLength, keyLength);
 
       int oldValLength = valBuffer.getLength();
       uncompressedValSerializer.serialize(val);
@@ -1659,7 +1969,9 @@ public synchronized void appendRaw(byte[] keyData, int keyOffset,
       
       // Save key/value data in relevant buffers
       WritableUtils.writeVInt(keyLenBuffer, keyLength);
+      int oldKeyLength = keyBuffer.getLength();
       keyBuffer.write(keyData, keyOffset, keyLength);
+      updateKeyRange(oldKeyLength, keyLength);
       WritableUtils.writeVInt(valLenBuffer, valLength);
       val.writeUncompressedBytes(valBuffer);
 
@@ -1683,6 +1995,7 @@ private static int getBufferSize(Configuration conf) {
   /** Reads key/value pairs from a sequence-format file. */
   public static class Reader implements java.io.Closeable {
     private String filename;
+    private Path file;
     private FSDataInputStream in;
     private DataOutputBuffer outBuf = new DataOutputBuffer();
 
@@ -1910,6 +2223,7 @@ private void initialize(Path filename, FSDataInputStream in,
         throw new IllegalArgumentException("in == null");
       }
       this.filename = filename == null ? "<unknown>" : filename.toString();
+      this.file = filename;
       this.in = in;
       this.conf = conf;
       boolean succeeded = false;
@@ -2704,6 +3018,92 @@ private void handleChecksumException(ChecksumException e)
       }
     }
 
+    /**
+     * Read the remaining records of the next block at once, with their keys
+     * and values left serialized. Only for block-compressed files, and only
+     * at the start of a block: right after opening the reader, after a
+     * {@link #seek(long)} to the position of a block, or after a previous
+     * call of this method.
+     * @param block the block to read into, reused from the previous call
+     * @return true if a block was read, false at end of file
+     * @throws IOException
+     */
+    public synchronized boolean nextBlock(RawBlock block) throws IOException {
+      if (!blockCompressed) {
+        throw new IOException(this + " is not block-compressed");
+      }
+      if (noBufferedKeys != 0) {
+        throw new IOException("Not at the start of a block of " + this);
+      }
+      syncSeen = false;
+      if (in.getPos() >= end) {
+        return false;
+      }
+      long position = in.getPos();
+      try {
+        readBlock();
+      } catch (EOFException eof) {
+        return false;
+      }
+      int records = noBufferedRecords;
+      block.reset(position, records);
+
+      RawBlock.readOffsets(keyLenIn, block.keyOffsets, records);
+      block.keys.write(keyIn, block.keyOffsets[records]);
+
+      if (!valuesDecompressed) {
+        readBuffer(valLenBuffer, valLenInFilter);
+        readBuffer(valBuffer, valInFilter);
+        valuesDecompressed = true;
+      }
+      RawBlock.readOffsets(valLenIn, block.valueOffsets, records);
+      block.values.write(valIn, block.valueOffsets[records]);
+
+      noBufferedKeys = 0;
+      noBufferedValues = 0;
+      return true;
+    }
+
+    /**
+     * Get the block index written with the file, to find the blocks which
+     * may hold a key and skip the others.
+     * @return the index of all the blocks of the file in order, null if the
+     *         file has no index or if the index doesn't match the file
+     * @throws IOException
+     */
+    public synchronized List<BlockInfo> getBlockIndex() throws IOException {
+      if (file == null || !blockCompressed) {
+        return null;
+      }
+      FileSystem fs = file.getFileSystem(conf);
+      Path indexFile = getBlockIndexPath(file);
+      if (!fs.exists(indexFile)) {
+        return null;
+      }
+      Reader indexReader = new Reader(conf, file(indexFile));
+      try {
+        Text indexSync = indexReader.getMetadata().get(BLOCK_INDEX_SYNC);
+        Text indexLength = indexReader.getMetadata().get(BLOCK_INDEX_LENGTH);
+        if (indexSync == null || indexLength == null
+            || !indexSync.toString().equals(StringUtils.byteToHexString(sync))
+            || Long.parseLong(indexLength.toString())
+                != fs.getFileStatus(file).getLen()) {
+          LOG.warn("Ignoring the block index " + indexFile
+              + " which doesn't match " + file);
+          return null;
+        }
+        List<BlockInfo> blocks = new ArrayList<BlockInfo>();
+        BlockInfo info = new BlockInfo();
+        while (indexReader.next(NullWritable.get(), info)) {
+          blocks.add(info);
+          info = new BlockInfo();
+        }
+        return blocks;
+      } finally {
+        indexReader.close();
+      }
+    }
+
     /** disables sync. often invoked for tmp files */
     synchronized void ignoreSync() {
       sync = null;
@@ -22,16 +22,16 @@
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
 
 import org.apache.avro.reflect.Stringable;
 
@@ -53,16 +53,10 @@
 public class Text extends BinaryComparable
     implements WritableComparable<BinaryComparable> {
   
-  private static final ThreadLocal<CharsetEncoder> ENCODER_FACTORY =
-    new ThreadLocal<CharsetEncoder>() {
-      @Override
-      protected CharsetEncoder initialValue() {
-        return Charset.forName("UTF-8").newEncoder().
-               onMalformedInput(CodingErrorAction.REPORT).
-               onUnmappableCharacter(CodingErrorAction.REPORT);
-    }
-  };
-  
+  /**
+   * Only used to report malformed input, the String conversions replace it
+   * without a decoder.
+   */
   private static final ThreadLocal<CharsetDecoder> DECODER_FACTORY =
     new ThreadLocal<CharsetDecoder>() {
     @Override
@@ -74,6 +68,12 @@ protected CharsetDecoder initialValue() {
   };
   
   private static final byte [] EMPTY_BYTES = new byte[0];
+
+  /** Replaces the unpaired surrogates of a string, like the JDK encoder */
+  private static final byte ENCODE_REPLACEMENT = '?';
+
+  /** Replaces malformed UTF-8 input, like the JDK decoder */
+  private static final int DECODE_REPLACEMENT = 0xFFFD;
   
   private byte[] bytes;
   private int length;
@@ -155,49 +155,41 @@ public int find(String what) {
    *         string in the UTF-8 buffer or -1 if not found
    */
   public int find(String what, int start) {
+    byte[] tgt;
     try {
-      ByteBuffer src = ByteBuffer.wrap(this.bytes,0,this.length);
-      ByteBuffer tgt = encode(what);
-      byte b = tgt.get();
-      src.position(start);
-          
-      while (src.hasRemaining()) {
-        if (b == src.get()) { // matching first byte
-          src.mark(); // save position in loop
-          tgt.mark(); // save position in target
-          boolean found = true;
-          int pos = src.position()-1;
-          while (tgt.hasRemaining()) {
-            if (!src.hasRemaining()) { // src expired first
-              tgt.reset();
-              src.reset();
-              found = false;
-              break;
-            }
-            if (!(tgt.get() == src.get())) {
-              tgt.reset();
-              src.reset();
-              found = false;
-              break; // no match
-            }
-          }
-          if (found) return pos;
-        }
-      }
-      return -1; // not found
+      tgt = encodeToBytes(what, true);
     } catch (CharacterCodingException e) {
       // can't get here
       e.printStackTrace();
       return -1;
     }
-  }  
+    if (tgt.length == 0) {
+      return start <= length ? Math.max(start, 0) : -1;
+    }
+    byte[] src = bytes;
+    byte first = tgt[0];
+    int last = length - tgt.length;
+    for (int i = Math.max(start, 0); i <= last; i++) {
+      if (src[i] != first) {
+        continue;
+      }
+      int j = 1;
+      while (j < tgt.length && src[i + j] == tgt[j]) {
+        j++;
+      }
+      if (j == tgt.length) {
+        return i;
+      }
+    }
+    return -1; // not found
+  }
+
   /** Set to contain the contents of a string. 
    */
   public void set(String string) {
     try {
-      ByteBuffer bb = encode(string, true);
-      bytes = bb.array();
-      length = bb.limit();
+      bytes = encodeToBytes(string, true);
+      length = bytes.length;
     }catch(CharacterCodingException e) {
       throw new RuntimeException("Should not have happened ", e); 
     }
@@ -226,6 +218,66 @@ public void set(byte[] utf8, int start, int len) {
     this.length = len;
   }
 
+  /**
+   * Set to the code points of a text mapped by a function, for instance
+   * <code>Character::toLowerCase</code>, without converting either text to
+   * a string. Malformed input is replaced by U+FFFD before it is mapped,
+   * mapped values which aren't valid Unicode scalar values are stored as
+   * '?', like {@link #set(String)} does for unpaired surrogates.
+   * @param src the text to transform, which may be this text
+   * @param function the function applied to every code point of src
+   */
+  public void transform(Text src, IntUnaryOperator function) {
+    byte[] in = src.bytes;
+    int inLength = src.length;
+    if (src == this) {
+      in = Arrays.copyOf(in, inLength);
+    }
+    setCapacity(inLength, false);
+    byte[] out = bytes;
+    int pos = 0;
+    int i = 0;
+    while (i < inLength) {
+      int lead = in[i] & 0xFF;
+      int cp;
+      if (lead < 0x80) {
+        cp = lead;
+        i++;
+      } else {
+        int extra = bytesFromUTF8[lead];
+        cp = DECODE_REPLACEMENT;
+        int used = 1;
+        if (lead >= 0xC2 && lead <= 0xF4) {
+          int value = lead & (0x3F >> extra);
+          for (; used <= extra && i + used < inLength; used++) {
+            int trail = in[i + used] & 0xFF;
+            if (trail < 0x80 || trail > 0xBF || (used == 1 &&
+                ((lead == 0xE0 && trail < 0xA0) ||
+                 (lead == 0xED && trail > 0x9F) ||
+                 (lead == 0xF0 && trail < 0x90) ||
+                 (lead == 0xF4 && trail > 0x8F)))) {
+              break;
+            }
+            value = (value << 6) | (trail & 0x3F);
+          }
+          if (used > extra) {
+            cp = value;
+          }
+        }
+        // a malformed sequence is replaced as a whole, up to the first
+        // byte which can't continue it
+        i += used;
+      }
+      cp = function.applyAsInt(cp);
+      if (pos + (cp >= 0 && cp < 0x80 ? 1 : 4) > out.length) {
+        out = Arrays.copyOf(out, Math.max(pos + 4, out.length << 1));
+      }
+      pos = putCodePoint(out, pos, cp);
+    }
+    bytes = out;
+    length = pos;
+  }
+
   /**
    * Append a range of bytes to the end of the given text
    * @param utf8 the data to copy from
@@ -381,12 +433,12 @@ public int compare(byte[] b1, int s1, int l1,
    * replace by a default value.
    */
   public static String decode(byte[] utf8) throws CharacterCodingException {
-    return decode(ByteBuffer.wrap(utf8), true);
+    return decode(utf8, 0, utf8.length, true);
   }
   
   public static String decode(byte[] utf8, int start, int length) 
     throws CharacterCodingException {
-    return decode(ByteBuffer.wrap(utf8, start, length), true);
+    return decode(utf8, start, length, true);
   }
   
   /**
@@ -398,24 +450,22 @@ public static String decode(byte[] utf8, int start, int length)
    */
   public static String decode(byte[] utf8, int start, int length, boolean replace) 
     throws CharacterCodingException {
-    return decode(ByteBuffer.wrap(utf8, start, length), replace);
-  }
-  
-  private static String decode(ByteBuffer utf8, boolean replace) 
-    throws CharacterCodingException {
-    CharsetDecoder decoder = DECODER_FACTORY.get();
-    if (replace) {
-      decoder.onMalformedInput(
-          java.nio.charset.CodingErrorAction.REPLACE);
-      decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // the String constructor replaces malformed input exactly like a
+    // decoder set to REPLACE, without the intermediate CharBuffer
+    if (replace || isAscii(utf8, start, length)) {
+      return new String(utf8, start, length, StandardCharsets.UTF_8);
     }
-    String str = decoder.decode(utf8).toString();
-    // set decoder back to its default value: REPORT
-    if (replace) {
-      decoder.onMalformedInput(CodingErrorAction.REPORT);
-      decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+    return DECODER_FACTORY.get()
+        .decode(ByteBuffer.wrap(utf8, start, length)).toString();
+  }
+
+  private static boolean isAscii(byte[] utf8, int start, int length) {
+    for (int i = start; i < start + length; i++) {
+      if (utf8[i] < 0) {
+        return false;
+      }
     }
-    return str;
+    return true;
   }
 
   /**
@@ -434,26 +484,76 @@ public static ByteBuffer encode(String string)
   /**
    * Converts the provided String to bytes using the
    * UTF-8 encoding. If <code>replace</code> is true, then
-   * malformed input is replaced with the
-   * substitution character, which is U+FFFD. Otherwise the
+   * unpaired surrogates are replaced with '?', like
+   * {@link String#getBytes(Charset)} does. Otherwise the
    * method throws a MalformedInputException.
    * @return ByteBuffer: bytes stores at ByteBuffer.array() 
    *                     and length is ByteBuffer.limit()
    */
   public static ByteBuffer encode(String string, boolean replace)
     throws CharacterCodingException {
-    CharsetEncoder encoder = ENCODER_FACTORY.get();
-    if (replace) {
-      encoder.onMalformedInput(CodingErrorAction.REPLACE);
-      encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    return ByteBuffer.wrap(encodeToBytes(string, replace));
+  }
+
+  /**
+   * The JDK encodes a string to UTF-8 much faster than a CharsetEncoder,
+   * replacing the unpaired surrogates by '?' like one set to REPLACE.
+   */
+  private static byte[] encodeToBytes(String string, boolean replace)
+      throws MalformedInputException {
+    if (!replace) {
+      checkSurrogates(string);
     }
-    ByteBuffer bytes = 
-      encoder.encode(CharBuffer.wrap(string.toCharArray()));
-    if (replace) {
-      encoder.onMalformedInput(CodingErrorAction.REPORT);
-      encoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void checkSurrogates(String string)
+      throws MalformedInputException {
+    int n = string.length();
+    for (int i = 0; i < n; i++) {
+      char ch = string.charAt(i);
+      if (Character.isSurrogate(ch)) {
+        if (!Character.isHighSurrogate(ch) || i + 1 == n
+            || !Character.isLowSurrogate(string.charAt(i + 1))) {
+          throw new MalformedInputException(1);
+        }
+        i++;
+      }
     }
-    return bytes;
+  }
+
+  /**
+   * Writes the UTF-8 encoding of a code point, '?' for a surrogate or a
+   * value which isn't a code point.
+   * @return the position after the last byte written
+   */
+  private static int putCodePoint(byte[] utf8, int pos, int cp) {
+    if (cp < 0x80) {
+      if (cp < 0) {
+        utf8[pos++] = ENCODE_REPLACEMENT;
+      } else {
+        utf8[pos++] = (byte) cp;
+      }
+    } else if (cp < 0x800) {
+      utf8[pos++] = (byte) (0xC0 | (cp >> 6));
+      utf8[pos++] = (byte) (0x80 | (cp & 0x3F));
+    } else if (cp < 0x10000) {
+      if (Character.isSurrogate((char) cp)) {
+        utf8[pos++] = ENCODE_REPLACEMENT;
+      } else {
+        utf8[pos++] = (byte) (0xE0 | (cp >> 12));
+        utf8[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        utf8[pos++] = (byte) (0x80 | (cp & 0x3F));
+      }
+    } else if (cp <= Character.MAX_CODE_POINT) {
+      utf8[pos++] = (byte) (0xF0 | (cp >> 18));
+      utf8[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+      utf8[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+      utf8[pos++] = (byte) (0x80 | (cp & 0x3F));
+    } else {
+      utf8[pos++] = ENCODE_REPLACEMENT;
+    }
+    return pos;
   }
 
   static final public int DEFAULT_MAX_LEN = 1024 * 1024;
@@ -477,10 +577,10 @@ public static String readString(DataInput in, int maxLength)
   /** Write a UTF8 encoded string to out
    */
   public static int writeString(DataOutput out, String s) throws IOException {
-    ByteBuffer bytes = encode(s);
-    int length = bytes.limit();
+    byte[] bytes = encodeToBytes(s, true);
+    int length = bytes.length;
     WritableUtils.writeVInt(out, length);
-    out.write(bytes.array(), 0, length);
+    out.write(bytes, 0, length);
     return length;
   }
 
@@ -488,15 +588,15 @@ public static int writeString(DataOutput out, String s) throws IOException {
    */
   public static int writeString(DataOutput out, String s, int maxLength)
       throws IOException {
-    ByteBuffer bytes = encode(s);
-    int length = bytes.limit();
+    byte[] bytes = encodeToBytes(s, true);
+    int length = bytes.length;
     if (length > maxLength) {
       throw new IOException("string was too long to write!  Expected " +
           "less than or equal to " + maxLength + " bytes, but got " +
           length + " bytes.");
     }
     WritableUtils.writeVInt(out, length);
-    out.write(bytes.array(), 0, length);
+    out.write(bytes, 0, length);
     return length;
   }
 
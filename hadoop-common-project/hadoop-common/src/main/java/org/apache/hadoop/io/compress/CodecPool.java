@@ -21,6 +21,7 @@
 import java.util.HashMap;
 import java.util.Set;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -57,6 +58,31 @@ public class CodecPool {
   private static final Map<Class<Decompressor>, Set<Decompressor>> decompressorPool =
     new HashMap<Class<Decompressor>, Set<Decompressor>>();
 
+  /**
+   * A global pool of {@link DirectCompressor}s.
+   */
+  private static final Map<Class<DirectCompressor>, Set<DirectCompressor>>
+      directCompressorPool =
+      new HashMap<Class<DirectCompressor>, Set<DirectCompressor>>();
+
+  /**
+   * A global pool of {@link DirectDecompressor}s.
+   */
+  private static final Map<Class<DirectDecompressor>, Set<DirectDecompressor>>
+      directDecompressorPool =
+      new HashMap<Class<DirectDecompressor>, Set<DirectDecompressor>>();
+
+  /**
+   * The type of the direct compressors and decompressors created by each
+   * codec, known once the codec created one.
+   */
+  private static final Map<Class<?>, Class<? extends DirectCompressor>>
+      directCompressorTypes =
+      new ConcurrentHashMap<Class<?>, Class<? extends DirectCompressor>>();
+  private static final Map<Class<?>, Class<? extends DirectDecompressor>>
+      directDecompressorTypes =
+      new ConcurrentHashMap<Class<?>, Class<? extends DirectDecompressor>>();
+
   private static <T> LoadingCache<Class<T>, AtomicInteger> createCache(
       Class<T> klass) {
     return CacheBuilder.newBuilder().build(
@@ -233,6 +259,96 @@ public static void returnDecompressor(Decompressor decompressor) {
     }
   }
 
+  /**
+   * Get a {@link DirectCompressor} for the given
+   * {@link DirectCompressionCodec} from the pool or a new one. A recycled
+   * compressor keeps the settings it was created with.
+   *
+   * @param codec the codec for which to get the compressor
+   * @return the compressor, null if the codec can't compress direct buffers,
+   *         e.g. because its native library isn't loaded
+   */
+  public static DirectCompressor getDirectCompressor(
+      DirectCompressionCodec codec) {
+    Class<? extends DirectCompressor> type =
+        directCompressorTypes.get(codec.getClass());
+    DirectCompressor compressor =
+        type == null ? null : borrow(directCompressorPool, type);
+    if (compressor == null) {
+      compressor = codec.createDirectCompressor();
+      if (compressor != null) {
+        directCompressorTypes.put(codec.getClass(), compressor.getClass());
+        LOG.info("Got brand-new direct compressor ["
+            + codec.getDefaultExtension() + "]");
+      }
+    } else if (LOG.isDebugEnabled()) {
+      LOG.debug("Got recycled direct compressor");
+    }
+    return compressor;
+  }
+
+  /**
+   * Get a {@link DirectDecompressor} for the given
+   * {@link DirectDecompressionCodec} from the pool or a new one.
+   *
+   * @param codec the codec for which to get the decompressor
+   * @return the decompressor, null if the codec can't decompress direct
+   *         buffers, e.g. because its native library isn't loaded
+   */
+  public static DirectDecompressor getDirectDecompressor(
+      DirectDecompressionCodec codec) {
+    Class<? extends DirectDecompressor> type =
+        directDecompressorTypes.get(codec.getClass());
+    DirectDecompressor decompressor =
+        type == null ? null : borrow(directDecompressorPool, type);
+    if (decompressor == null) {
+      decompressor = codec.createDirectDecompressor();
+      if (decompressor != null) {
+        directDecompressorTypes.put(codec.getClass(), decompressor.getClass());
+        LOG.info("Got brand-new direct decompressor ["
+            + codec.getDefaultExtension() + "]");
+      }
+    } else if (LOG.isDebugEnabled()) {
+      LOG.debug("Got recycled direct decompressor");
+    }
+    return decompressor;
+  }
+
+  /**
+   * Return the {@link DirectCompressor} to the pool.
+   *
+   * @param compressor the <code>DirectCompressor</code> to be returned to the
+   *                   pool
+   */
+  public static void returnDirectCompressor(DirectCompressor compressor) {
+    if (compressor == null
+        || compressor.getClass().isAnnotationPresent(DoNotPool.class)) {
+      return;
+    }
+    if (compressor instanceof Compressor) {
+      ((Compressor) compressor).reset();
+    }
+    payback(directCompressorPool, compressor);
+  }
+
+  /**
+   * Return the {@link DirectDecompressor} to the pool.
+   *
+   * @param decompressor the <code>DirectDecompressor</code> to be returned to
+   *                     the pool
+   */
+  public static void returnDirectDecompressor(
+      DirectDecompressor decompressor) {
+    if (decompressor == null
+        || decompressor.getClass().isAnnotationPresent(DoNotPool.class)) {
+      return;
+    }
+    if (decompressor instanceof Decompressor) {
+      ((Decompressor) decompressor).reset();
+    }
+    payback(directDecompressorPool, decompressor);
+  }
+
   /**
    * Return the number of leased {@link Compressor}s for this
    * {@link CompressionCodec}
@@ -35,8 +35,8 @@
 /**
  * This class creates zstd compressors/decompressors.
  */
-public class ZStandardCodec implements
-    Configurable, CompressionCodec, DirectDecompressionCodec  {
+public class ZStandardCodec implements Configurable, CompressionCodec,
+    DirectCompressionCodec, DirectDecompressionCodec  {
   private Configuration conf;
 
   /**
@@ -233,6 +233,18 @@ public String getDefaultExtension() {
     return ".zst";
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    if (!isNativeCodeLoaded()) {
+      return null;
+    }
+    return new ZStandardCompressor.ZStandardDirectCompressor(
+        getCompressionLevel(conf), getCompressionBufferSize(conf));
+  }
+
   @Override
   public DirectDecompressor createDirectDecompressor() {
     return new ZStandardDecompressor.ZStandardDirectDecompressor(
@@ -24,6 +24,7 @@
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -309,4 +310,78 @@ public synchronized void end() {
   private native int compressBytesDirectHC();
 
   public native static String getLibraryName();
+
+  /**
+   * @return the largest size of the lz4 compression of len bytes
+   */
+  public static int getMaxCompressedLength(int len) {
+    return len + len / 255 + 16;
+  }
+
+  synchronized int compressDirect(ByteBuffer src, ByteBuffer dst)
+      throws IOException {
+    assert (this instanceof Lz4DirectCompressor);
+
+    int len = src.remaining();
+    // LZ4_compress doesn't check the size of its output buffer
+    if (dst.remaining() < getMaxCompressedLength(len)) {
+      throw new IOException("Output buffer too small, " + dst.remaining()
+          + " bytes to compress " + len + " bytes");
+    }
+
+    Buffer originalCompressed = compressedDirectBuf;
+    Buffer originalUncompressed = uncompressedDirectBuf;
+    int originalBufferSize = directBufferSize;
+    uncompressedDirectBuf = src.slice();
+    uncompressedDirectBufLen = len;
+    compressedDirectBuf = dst.slice();
+    directBufferSize = dst.remaining();
+    int n = 0;
+    try {
+      n = useLz4HC ? compressBytesDirectHC() : compressBytesDirect();
+      dst.position(dst.position() + n);
+      // LZ4 always consumes the whole buffer or throws an exception
+      src.position(src.limit());
+      bytesRead += len;
+      bytesWritten += n;
+    } finally {
+      compressedDirectBuf = originalCompressed;
+      uncompressedDirectBuf = originalUncompressed;
+      uncompressedDirectBufLen = 0;
+      directBufferSize = originalBufferSize;
+    }
+    return n;
+  }
+
+  public static class Lz4DirectCompressor extends Lz4Compressor
+      implements DirectCompressor {
+
+    public Lz4DirectCompressor(boolean useLz4HC) {
+      super(DEFAULT_DIRECT_BUFFER_SIZE, useLz4HC);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      this.compressDirect(src, dst);
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+      return Lz4Compressor.getMaxCompressedLength(uncompressedLength);
+    }
+
+    @Override
+    public synchronized void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public synchronized int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
@@ -23,6 +23,7 @@
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.slf4j.Logger;
@@ -302,4 +303,90 @@ private native int deflateBytesDirect(ByteBuffer src, int srcOffset,
   private native static void end(long strm);
   private native static void initIDs();
   public native static String getLibraryName();
+
+  /**
+   * @return the largest size of a zstd frame holding len bytes
+   */
+  public static int getMaxCompressedLength(int len) {
+    // ZSTD_COMPRESSBOUND
+    return len + (len >> 8)
+        + (len < (128 << 10) ? ((128 << 10) - len) >> 11 : 0);
+  }
+
+  int compressDirect(ByteBuffer src, ByteBuffer dst) throws IOException {
+    assert (this instanceof ZStandardDirectCompressor);
+
+    int len = src.remaining();
+    if (dst.remaining() < getMaxCompressedLength(len)) {
+      throw new IOException("Output buffer too small, " + dst.remaining()
+          + " bytes to compress " + len + " bytes");
+    }
+
+    // Each call writes a complete frame
+    reset();
+    finish = true;
+    int srcEnd = src.limit();
+    uncompressedDirectBufOff = src.position();
+    int n = 0;
+    try {
+      while (!finished) {
+        ByteBuffer out = dst.slice();
+        out.position(n);
+        out = out.slice();
+        int off = uncompressedDirectBufOff;
+        int written = deflateBytesDirect(src, off, srcEnd, out,
+            out.remaining());
+        if (written == 0 && !finished && uncompressedDirectBufOff == off) {
+          throw new IOException("No progress compressing " + len + " bytes");
+        }
+        n += written;
+        if (!finished && n == dst.remaining()) {
+          throw new IOException("Output buffer too small, " + dst.remaining()
+              + " bytes to compress " + len + " bytes");
+        }
+      }
+      dst.position(dst.position() + n);
+      src.position(srcEnd);
+    } finally {
+      uncompressedDirectBufOff = 0;
+      uncompressedDirectBufLen = 0;
+    }
+    return n;
+  }
+
+  /**
+   * A {@link DirectCompressor} for ZStandard
+   * https://github.com/facebook/zstd.
+   */
+  public static class ZStandardDirectCompressor
+      extends ZStandardCompressor implements DirectCompressor {
+
+    public ZStandardDirectCompressor(int level, int directBufferSize) {
+      super(level, directBufferSize);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      this.compressDirect(src, dst);
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+      return ZStandardCompressor.getMaxCompressedLength(uncompressedLength);
+    }
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.erasurecode.rawcoder;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.HadoopIllegalArgumentException;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.DumpUtil;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.GF256;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.RSFastUtil;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.RSUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A raw erasure decoder in RS code scheme in pure Java, optimized for hosts
+ * where the native ISA-L coder isn't available. Compatible with
+ * {@link RSRawDecoder} and the native coder.
+ *
+ * Unlike {@link RSRawDecoder}, which only remembers the last erasure pattern,
+ * this decoder keeps the coding tables of the most recently used erasure
+ * patterns in a small LRU cache. Reconstruction work on a DataNode
+ * typically alternates between a handful of patterns, which then no longer
+ * require a matrix inversion per call. The decoder holds no other per call
+ * state.
+ */
+@InterfaceAudience.Private
+public class RSFastRawDecoder extends RawErasureDecoder {
+  /** Maximum number of erasure patterns whose tables are cached. */
+  @VisibleForTesting
+  static final int MAX_CACHED_PATTERNS = 64;
+
+  //relevant to schema and won't change during decode calls
+  private final byte[] encodeMatrix;
+
+  private final Map<ErasurePattern, byte[][]> tablesCache =
+      new LinkedHashMap<ErasurePattern, byte[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<ErasurePattern, byte[][]> eldest) {
+          return size() > MAX_CACHED_PATTERNS;
+        }
+      };
+
+  public RSFastRawDecoder(ErasureCoderOptions coderOptions) {
+    super(coderOptions);
+
+    int numAllUnits = getNumAllUnits();
+    if (getNumAllUnits() >= RSUtil.GF.getFieldSize()) {
+      throw new HadoopIllegalArgumentException(
+              "Invalid getNumDataUnits() and numParityUnits");
+    }
+
+    encodeMatrix = new byte[numAllUnits * getNumDataUnits()];
+    RSUtil.genCauchyMatrix(encodeMatrix, numAllUnits, getNumDataUnits());
+    if (allowVerboseDump()) {
+      DumpUtil.dumpMatrix(encodeMatrix, getNumDataUnits(), numAllUnits);
+    }
+  }
+
+  @Override
+  protected void doDecode(ByteBufferDecodingState decodingState) {
+    int[] validIndexes = getValidIndexes(decodingState.inputs);
+    byte[][] mulTables = getMulTables(decodingState.erasedIndexes,
+        validIndexes);
+
+    ByteBuffer[] realInputs = new ByteBuffer[getNumDataUnits()];
+    for (int i = 0; i < getNumDataUnits(); i++) {
+      realInputs[i] = decodingState.inputs[validIndexes[i]];
+    }
+    RSFastUtil.encodeData(mulTables, realInputs, decodingState.outputs);
+  }
+
+  @Override
+  protected void doDecode(ByteArrayDecodingState decodingState) {
+    int[] validIndexes = getValidIndexes(decodingState.inputs);
+    byte[][] mulTables = getMulTables(decodingState.erasedIndexes,
+        validIndexes);
+
+    byte[][] realInputs = new byte[getNumDataUnits()][];
+    int[] realInputOffsets = new int[getNumDataUnits()];
+    for (int i = 0; i < getNumDataUnits(); i++) {
+      realInputs[i] = decodingState.inputs[validIndexes[i]];
+      realInputOffsets[i] = decodingState.inputOffsets[validIndexes[i]];
+    }
+    RSFastUtil.encodeData(mulTables, decodingState.decodeLength, realInputs,
+        realInputOffsets, decodingState.outputs,
+        decodingState.outputOffsets);
+  }
+
+  /**
+   * The first numDataUnits valid inputs are the ones used for decoding, so
+   * only they take part in the erasure pattern.
+   */
+  private <T> int[] getValidIndexes(T[] inputs) {
+    int[] validIndexes = CoderUtil.getValidIndexes(inputs);
+    return validIndexes.length > getNumDataUnits() ?
+        Arrays.copyOf(validIndexes, getNumDataUnits()) : validIndexes;
+  }
+
+  private byte[][] getMulTables(int[] erasedIndexes, int[] validIndexes) {
+    ErasurePattern pattern = new ErasurePattern(erasedIndexes, validIndexes);
+    synchronized (tablesCache) {
+      byte[][] mulTables = tablesCache.get(pattern);
+      if (mulTables != null) {
+        return mulTables;
+      }
+    }
+
+    // Computed outside of the lock, two threads may race to compute the
+    // same pattern, which is harmless.
+    byte[][] mulTables = processErasures(erasedIndexes, validIndexes);
+    synchronized (tablesCache) {
+      tablesCache.put(pattern, mulTables);
+    }
+    return mulTables;
+  }
+
+  @VisibleForTesting
+  int getNumCachedPatterns() {
+    synchronized (tablesCache) {
+      return tablesCache.size();
+    }
+  }
+
+  private byte[][] processErasures(int[] erasedIndexes, int[] validIndexes) {
+    int numErasedDataUnits = 0;
+    for (int index : erasedIndexes) {
+      if (index < getNumDataUnits()) {
+        numErasedDataUnits++;
+      }
+    }
+
+    byte[] decodeMatrix = generateDecodeMatrix(erasedIndexes, validIndexes,
+        numErasedDataUnits);
+
+    byte[] gfTables = new byte[getNumAllUnits() * getNumDataUnits() * 32];
+    RSUtil.initTables(getNumDataUnits(), erasedIndexes.length,
+        decodeMatrix, 0, gfTables);
+    if (allowVerboseDump()) {
+      System.out.println(DumpUtil.bytesToHex(gfTables, -1));
+    }
+    return RSFastUtil.expandTables(gfTables,
+        getNumDataUnits() * erasedIndexes.length);
+  }
+
+  // Generate decode matrix from encode matrix
+  private byte[] generateDecodeMatrix(int[] erasedIndexes,
+      int[] validIndexes, int numErasedDataUnits) {
+    final int k = getNumDataUnits();
+    byte[] decodeMatrix = new byte[getNumAllUnits() * k];
+    byte[] invertMatrix = new byte[getNumAllUnits() * k];
+    byte[] tmpMatrix = new byte[getNumAllUnits() * k];
+
+    // Construct matrix tmpMatrix by removing error rows
+    for (int i = 0; i < k; i++) {
+      System.arraycopy(encodeMatrix, k * validIndexes[i], tmpMatrix, k * i, k);
+    }
+
+    GF256.gfInvertMatrix(tmpMatrix, invertMatrix, k);
+
+    for (int i = 0; i < numErasedDataUnits; i++) {
+      System.arraycopy(invertMatrix, k * erasedIndexes[i],
+          decodeMatrix, k * i, k);
+    }
+
+    for (int p = numErasedDataUnits; p < erasedIndexes.length; p++) {
+      for (int i = 0; i < k; i++) {
+        byte s = 0;
+        for (int j = 0; j < k; j++) {
+          s ^= GF256.gfMul(invertMatrix[j * k + i],
+              encodeMatrix[k * erasedIndexes[p] + j]);
+        }
+        decodeMatrix[k * p + i] = s;
+      }
+    }
+    return decodeMatrix;
+  }
+
+  /**
+   * Key of the tables cache: the erased units and the units read to
+   * recover them.
+   */
+  private static final class ErasurePattern {
+    private final int[] erasedIndexes;
+    private final int[] validIndexes;
+    private final int hash;
+
+    ErasurePattern(int[] erasedIndexes, int[] validIndexes) {
+      this.erasedIndexes = erasedIndexes.clone();
+      this.validIndexes = validIndexes.clone();
+      this.hash = 31 * Arrays.hashCode(this.erasedIndexes) +
+          Arrays.hashCode(this.validIndexes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ErasurePattern)) {
+        return false;
+      }
+      ErasurePattern that = (ErasurePattern) o;
+      return Arrays.equals(erasedIndexes, that.erasedIndexes) &&
+          Arrays.equals(validIndexes, that.validIndexes);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.erasurecode.rawcoder;
+
+import org.apache.hadoop.HadoopIllegalArgumentException;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.DumpUtil;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.RSFastUtil;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.RSUtil;
+
+/**
+ * A raw erasure encoder in RS code scheme in pure Java, optimized for hosts
+ * where the native ISA-L coder isn't available. It generates the same parity
+ * as {@link RSRawEncoder} and the native coder, so the coders are
+ * interoperable. See {@link RSFastUtil} for how the coding loop differs.
+ */
+@InterfaceAudience.Private
+public class RSFastRawEncoder extends RawErasureEncoder {
+  // relevant to schema and won't change during encode calls.
+  private final byte[] encodeMatrix;
+  /**
+   * Full multiplication tables expanded from the split-nibble tables of the
+   * parity rows of encodeMatrix, k*m tables of 256 bytes.
+   */
+  private final byte[][] mulTables;
+
+  public RSFastRawEncoder(ErasureCoderOptions coderOptions) {
+    super(coderOptions);
+
+    if (getNumAllUnits() >= RSUtil.GF.getFieldSize()) {
+      throw new HadoopIllegalArgumentException(
+          "Invalid numDataUnits and numParityUnits");
+    }
+
+    encodeMatrix = new byte[getNumAllUnits() * getNumDataUnits()];
+    RSUtil.genCauchyMatrix(encodeMatrix, getNumAllUnits(), getNumDataUnits());
+    if (allowVerboseDump()) {
+      DumpUtil.dumpMatrix(encodeMatrix, getNumDataUnits(), getNumAllUnits());
+    }
+    byte[] gfTables = new byte[getNumAllUnits() * getNumDataUnits() * 32];
+    RSUtil.initTables(getNumDataUnits(), getNumParityUnits(), encodeMatrix,
+        getNumDataUnits() * getNumDataUnits(), gfTables);
+    if (allowVerboseDump()) {
+      System.out.println(DumpUtil.bytesToHex(gfTables, -1));
+    }
+    mulTables = RSFastUtil.expandTables(gfTables,
+        getNumDataUnits() * getNumParityUnits());
+  }
+
+  @Override
+  protected void doEncode(ByteBufferEncodingState encodingState) {
+    RSFastUtil.encodeData(mulTables, encodingState.inputs,
+        encodingState.outputs);
+  }
+
+  @Override
+  protected void doEncode(ByteArrayEncodingState encodingState) {
+    RSFastUtil.encodeData(mulTables, encodingState.encodeLength,
+        encodingState.inputs, encodingState.inputOffsets,
+        encodingState.outputs, encodingState.outputOffsets);
+  }
+}
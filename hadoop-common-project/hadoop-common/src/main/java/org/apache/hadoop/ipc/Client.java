@@ -93,6 +93,8 @@ public class Client implements AutoCloseable {
   private static final ThreadLocal<Integer> retryCount = new ThreadLocal<Integer>();
   private static final ThreadLocal<Object> EXTERNAL_CALL_HANDLER
       = new ThreadLocal<>();
+  private static final ThreadLocal<Runnable> ASYNC_CALL_CALLBACK
+      = new ThreadLocal<>();
   private static final ThreadLocal<AsyncGet<? extends Writable, IOException>>
       ASYNC_RPC_RESPONSE = new ThreadLocal<>();
   private static final ThreadLocal<Boolean> asynchronousMode =
@@ -110,6 +112,18 @@ protected Boolean initialValue() {
     return (AsyncGet<T, IOException>) ASYNC_RPC_RESPONSE.get();
   }
 
+  /**
+   * Set a callback for the next call of this thread, run once the response
+   * or the error of the call is received. This lets a caller in
+   * asynchronous mode get the result without waiting or polling for it.
+   * The callback runs on the thread receiving the responses of the
+   * connection, so it must not block.
+   */
+  @Unstable
+  public static void setAsyncCallCallback(Runnable callback) {
+    ASYNC_CALL_CALLBACK.set(callback);
+  }
+
   /** Set call id and retry count for the next call. */
   public static void setCallIdAndRetryCount(int cid, int rc,
                                             Object externalHandler) {
@@ -338,6 +352,7 @@ static class Call {
     final RPC.RpcKind rpcKind;      // Rpc EngineKind
     boolean done;               // true when call is done
     private final Object externalHandler;
+    private final Runnable completionCallback;
 
     private Call(RPC.RpcKind rpcKind, Writable param) {
       this.rpcKind = rpcKind;
@@ -359,6 +374,8 @@ private Call(RPC.RpcKind rpcKind, Writable param) {
       }
 
       this.externalHandler = EXTERNAL_CALL_HANDLER.get();
+      this.completionCallback = ASYNC_CALL_CALLBACK.get();
+      ASYNC_CALL_CALLBACK.set(null);
     }
 
     @Override
@@ -377,6 +394,14 @@ protected synchronized void callComplete() {
           externalHandler.notify();
         }
       }
+
+      if (completionCallback != null) {
+        try {
+          completionCallback.run();
+        } catch (RuntimeException e) {
+          LOG.warn("Callback of " + this + " failed", e);
+        }
+      }
     }
 
     /** Set the exception when there is an error.
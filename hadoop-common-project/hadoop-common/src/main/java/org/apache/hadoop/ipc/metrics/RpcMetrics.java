@@ -31,6 +31,7 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.util.HistogramQuantiles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,11 +80,20 @@ public class RpcMetrics {
             .newQuantiles("deferredRpcProcessingTime" + interval + "s",
                 "deferred rpc processing time in milli seconds", "ops",
                 "latency", interval);
+        // Every handler adds to these on every call
+        useHistogram(rpcQueueTimeMillisQuantiles[i]);
+        useHistogram(rpcProcessingTimeMillisQuantiles[i]);
+        useHistogram(deferredRpcProcessingTimeMillisQuantiles[i]);
       }
     }
     LOG.debug("Initialized " + registry);
   }
 
+  private static void useHistogram(MutableQuantiles quantiles) {
+    quantiles.setEstimator(
+        new HistogramQuantiles(MutableQuantiles.quantiles));
+  }
+
   public String name() { return name; }
 
   public static RpcMetrics create(Server server, Configuration conf) {
@@ -273,7 +273,9 @@ void registerSource(String name, String desc, MetricsSource source) {
   T register(final String name, final String description, final T sink) {
     LOG.debug(name +", "+ description);
     if (allSinks.containsKey(name)) {
-      LOG.warn("Sink "+ name +" already exists!");
+      if (allSinks.get(name) != sink) {
+        LOG.warn("Sink "+ name +" already exists!");
+      }
       return sink;
     }
     allSinks.put(name, sink);
@@ -281,10 +283,10 @@ T register(final String name, final String description, final T sink) {
       registerSink(name, description, sink);
     }
     // We want to re-register the sink to pick up new config
-    // when the metrics system restarts.
+    // when the metrics system (re)starts.
     register(name, new AbstractCallback() {
       @Override public void postStart() {
-        register(name, description, sink);
+        registerSink(name, description, sink);
       }
     });
     return sink;
@@ -31,6 +31,7 @@
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.metrics2.MetricsInfo;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.util.HistogramQuantiles;
 import org.apache.hadoop.metrics2.util.Quantile;
 import org.apache.hadoop.metrics2.util.QuantileEstimator;
 import org.apache.hadoop.metrics2.util.SampleQuantiles;
@@ -42,6 +43,9 @@
  * Watches a stream of long values, maintaining online estimates of specific
  * quantiles with provably low error bounds. This is particularly useful for
  * accurate high-percentile (e.g. 95th, 99th) latency metrics.
+ *
+ * Adding a value only takes the locks of the estimator, if any. A
+ * {@link HistogramQuantiles} estimator makes it lock-free.
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
@@ -56,7 +60,7 @@ public class MutableQuantiles extends MutableMetric {
   private final MetricsInfo[] quantileInfos;
   private final int interval;
 
-  private QuantileEstimator estimator;
+  private volatile QuantileEstimator estimator;
   private long previousCount = 0;
   private ScheduledFuture<?> scheduledTask = null;
 
@@ -129,7 +133,7 @@ public synchronized void snapshot(MetricsRecordBuilder builder, boolean all) {
     }
   }
 
-  public synchronized void add(long value) {
+  public void add(long value) {
     estimator.insert(value);
   }
 
@@ -150,11 +154,11 @@ public void stop() {
    * @return the quantile estimator
    */
   @VisibleForTesting
-  public synchronized QuantileEstimator getEstimator() {
+  public QuantileEstimator getEstimator() {
     return estimator;
   }
 
-  public synchronized void setEstimator(QuantileEstimator quantileEstimator) {
+  public void setEstimator(QuantileEstimator quantileEstimator) {
     this.estimator = quantileEstimator;
   }
 
@@ -172,10 +176,19 @@ public RolloverSample(MutableQuantiles parent) {
 
     @Override
     public void run() {
+      QuantileEstimator estimator = parent.estimator;
+      long count;
+      Map<Quantile, Long> snapshot;
+      // Blocks the inserts into estimators which synchronize them, so that
+      // no value is lost between the snapshot and the clear
+      synchronized (estimator) {
+        count = estimator.getCount();
+        snapshot = estimator.snapshot();
+        estimator.clear();
+      }
       synchronized (parent) {
-        parent.previousCount = parent.estimator.getCount();
-        parent.previousSnapshot = parent.estimator.snapshot();
-        parent.estimator.clear();
+        parent.previousCount = count;
+        parent.previousSnapshot = snapshot;
       }
       parent.setChanged();
     }
@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.metrics2.lib;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -29,7 +31,10 @@
 /**
  * A mutable metric with stats.
  *
- * Useful for keeping throughput/latency stats.
+ * Useful for keeping throughput/latency stats. The samples are accumulated
+ * in stripes picked by thread, so that threads adding samples concurrently
+ * don't contend on one lock, and merged into the interval stat when the
+ * metric is read.
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
@@ -43,6 +48,12 @@ public class MutableStat extends MutableMetric {
   private final MetricsInfo maxInfo;
   private final MetricsInfo iNumInfo;
 
+  private static final int STRIPES = Integer.highestOneBit(
+      Math.min(Runtime.getRuntime().availableProcessors(), 16) * 2 - 1);
+
+  /** Created on first use, each one guarded by its own monitor */
+  private final AtomicReferenceArray<SampleStat> stripes =
+      new AtomicReferenceArray<SampleStat>(STRIPES);
   private final SampleStat intervalStat = new SampleStat();
   private final SampleStat prevStat = new SampleStat();
   private final SampleStat.MinMax minMax = new SampleStat.MinMax();
@@ -118,32 +129,68 @@ public synchronized void add(long numSamples, long sum) {
    * Add a snapshot to the metric
    * @param value of the metric
    */
-  public synchronized void add(long value) {
-    intervalStat.add(value);
-    minMax.add(value);
+  public void add(long value) {
+    SampleStat stripe = stripe();
+    synchronized (stripe) {
+      stripe.add(value);
+    }
     setChanged();
   }
 
+  private SampleStat stripe() {
+    int i = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    SampleStat stripe = stripes.get(i);
+    if (stripe == null) {
+      stripes.compareAndSet(i, null, new SampleStat());
+      stripe = stripes.get(i);
+    }
+    return stripe;
+  }
+
+  /** Merge the samples of the stripes into the interval stat */
+  private synchronized void mergeStripes() {
+    for (int i = 0; i < STRIPES; i++) {
+      SampleStat stripe = stripes.get(i);
+      if (stripe == null) {
+        continue;
+      }
+      synchronized (stripe) {
+        if (stripe.numSamples() > 0) {
+          intervalStat.add(stripe);
+          minMax.add(stripe.min());
+          minMax.add(stripe.max());
+          stripe.reset();
+        }
+      }
+    }
+  }
+
   @Override
   public synchronized void snapshot(MetricsRecordBuilder builder, boolean all) {
-    if (all || changed()) {
-      numSamples += intervalStat.numSamples();
+    final boolean changed = changed();
+    if (all || changed) {
+      if (changed) {
+        // The samples added from now on set changed again, and go to the
+        // next snapshot. The interval stat is only read from here on, so
+        // the record is consistent with the samples counted.
+        clearChanged();
+        mergeStripes();
+        numSamples += intervalStat.numSamples();
+      }
+      final SampleStat stat = changed ? intervalStat : prevStat;
       builder.addCounter(numInfo, numSamples)
-             .addGauge(avgInfo, lastStat().mean());
+             .addGauge(avgInfo, stat.mean());
       if (extended) {
-        builder.addGauge(stdevInfo, lastStat().stddev())
-               .addGauge(iMinInfo, lastStat().min())
-               .addGauge(iMaxInfo, lastStat().max())
+        builder.addGauge(stdevInfo, stat.stddev())
+               .addGauge(iMinInfo, stat.min())
+               .addGauge(iMaxInfo, stat.max())
                .addGauge(minInfo, minMax.min())
                .addGauge(maxInfo, minMax.max())
-               .addGauge(iNumInfo, lastStat().numSamples());
+               .addGauge(iNumInfo, stat.numSamples());
       }
-      if (changed()) {
-        if (numSamples > 0) {
-          intervalStat.copyTo(prevStat);
-          intervalStat.reset();
-        }
-        clearChanged();
+      if (changed && numSamples > 0) {
+        intervalStat.copyTo(prevStat);
+        intervalStat.reset();
       }
     }
   }
@@ -153,14 +200,16 @@ public synchronized void snapshot(MetricsRecordBuilder builder, boolean all) {
    * calls like StdDev and Mean.
    * @return SampleStat
    */
-  public SampleStat lastStat() {
+  public synchronized SampleStat lastStat() {
+    mergeStripes();
     return changed() ? intervalStat : prevStat;
   }
 
   /**
    * Reset the all time min max of the metric
    */
-  public void resetMinMax() {
+  public synchronized void resetMinMax() {
+    mergeStripes();
     minMax.reset();
   }
 
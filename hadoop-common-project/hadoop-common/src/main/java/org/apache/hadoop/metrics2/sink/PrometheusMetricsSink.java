@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.sink;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.configuration2.SubsetConfiguration;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricType;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.MetricsSink;
+import org.apache.hadoop.metrics2.MetricsTag;
+
+/**
+ * A metrics sink keeping the last value of every metric, to be scraped in
+ * the Prometheus text format.
+ *
+ * The samples are rendered when the metrics system puts them, once per
+ * period, so a scrape only writes out the cached lines. Since the sources
+ * only put the metrics which changed, each sample is kept until it is
+ * replaced, or until its record is not put for a whole period, e.g. when
+ * its source is unregistered.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class PrometheusMetricsSink implements MetricsSink {
+
+  private static final Pattern SPLIT_PATTERN =
+      Pattern.compile("(?<!(^|[A-Z_]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])");
+  private static final Pattern DELIMITERS = Pattern.compile("[^a-zA-Z0-9]+");
+
+  /** Metric family name to its samples, sorted for a stable output */
+  private final ConcurrentMap<String, Family> families =
+      new ConcurrentSkipListMap<String, Family>();
+  /** Record and metric names to the family name */
+  private final ConcurrentMap<String, String> names =
+      new ConcurrentHashMap<String, String>();
+  /** Record names and labels to the record put with them */
+  private final Map<String, Record> records = new HashMap<String, Record>();
+  /** The number of flushes, i.e. of periods */
+  private long period;
+
+  /** The samples of one metric, by their labels */
+  private static class Family {
+    private final String type;
+    private final ConcurrentMap<String, String> samples =
+        new ConcurrentSkipListMap<String, String>();
+
+    Family(MetricType type) {
+      this.type = type == MetricType.COUNTER ? "counter" : "gauge";
+    }
+  }
+
+  /** The families a record has samples in, and the last period it was put */
+  private static class Record {
+    private final String labels;
+    private final Set<String> families = new HashSet<String>();
+    private long period;
+
+    Record(String labels) {
+      this.labels = labels;
+    }
+  }
+
+  @Override
+  public void init(SubsetConfiguration conf) {
+  }
+
+  @Override
+  public synchronized void putMetrics(MetricsRecord record) {
+    String labels = labels(record);
+    String key = record.name() + labels;
+    Record put = records.get(key);
+    if (put == null) {
+      put = new Record(labels);
+      records.put(key, put);
+    }
+    put.period = period;
+    for (AbstractMetric metric : record.metrics()) {
+      String name = prometheusName(record.name(), metric.name());
+      Family family = families.get(name);
+      if (family == null) {
+        families.putIfAbsent(name, new Family(metric.type()));
+        family = families.get(name);
+      }
+      family.samples.put(labels,
+          name + labels + " " + formatValue(metric.value()));
+      put.families.add(name);
+    }
+  }
+
+  /**
+   * Called once the records of a period are put. Remove the samples of the
+   * records which were not put in this period.
+   */
+  @Override
+  public synchronized void flush() {
+    for (Iterator<Record> it = records.values().iterator(); it.hasNext();) {
+      Record record = it.next();
+      if (record.period == period) {
+        continue;
+      }
+      for (String name : record.families) {
+        Family family = families.get(name);
+        family.samples.remove(record.labels);
+        if (family.samples.isEmpty()) {
+          families.remove(name);
+        }
+      }
+      it.remove();
+    }
+    period++;
+  }
+
+  /**
+   * Write the last value of every metric put into this sink.
+   * @param writer to write the metrics to
+   * @throws IOException if the writer fails
+   */
+  public void writeMetrics(Writer writer) throws IOException {
+    for (Map.Entry<String, Family> entry : families.entrySet()) {
+      Family family = entry.getValue();
+      writer.write("# TYPE ");
+      writer.write(entry.getKey());
+      writer.write(' ');
+      writer.write(family.type);
+      writer.write('\n');
+      for (String sample : family.samples.values()) {
+        writer.write(sample);
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Convert a record and metric name to a Prometheus metric name, e.g.
+   * RpcActivityForPort8020 and RpcQueueTimeNumOps to
+   * rpc_activity_for_port8020_rpc_queue_time_num_ops.
+   */
+  String prometheusName(String recordName, String metricName) {
+    String key = recordName + '\u0000' + metricName;
+    String name = names.get(key);
+    if (name == null) {
+      String baseName = StringUtils.capitalize(recordName)
+          + StringUtils.capitalize(metricName);
+      String joined = StringUtils.join(SPLIT_PATTERN.split(baseName), '_');
+      name = DELIMITERS.matcher(joined.toLowerCase()).replaceAll("_");
+      names.putIfAbsent(key, name);
+    }
+    return name;
+  }
+
+  private static String labels(MetricsRecord record) {
+    StringBuilder labels = new StringBuilder();
+    for (MetricsTag tag : record.tags()) {
+      if (tag.value() == null) {
+        continue;
+      }
+      labels.append(labels.length() == 0 ? '{' : ',')
+          .append(DELIMITERS.matcher(tag.name().toLowerCase())
+              .replaceAll("_"))
+          .append("=\"");
+      escape(tag.value(), labels);
+      labels.append('"');
+    }
+    if (labels.length() > 0) {
+      labels.append('}');
+    }
+    return labels.toString();
+  }
+
+  private static void escape(String value, StringBuilder out) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        out.append('\\').append(c);
+      } else if (c == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  private static String formatValue(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      double d = value.doubleValue();
+      if (Double.isInfinite(d)) {
+        return d > 0 ? "+Inf" : "-Inf";
+      }
+    }
+    return value.toString();
+  }
+}
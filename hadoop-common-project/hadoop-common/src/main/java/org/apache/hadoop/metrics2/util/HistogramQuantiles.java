@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+
+/**
+ * Lock-free quantile estimator counting the values in log-linear buckets,
+ * in the manner of an HDR histogram.
+ *
+ * Values below 128 are counted exactly. Larger values are counted in 64
+ * buckets per power of two, so the estimates are within 1/128 of the actual
+ * value, regardless of the targeted quantiles. Unlike
+ * {@link SampleQuantiles}, the error is bounded on the value, not the rank.
+ *
+ * Inserting a value is a single atomic increment in a stripe picked by
+ * thread, so threads inserting concurrently, e.g. RPC handlers, don't
+ * contend. The stripes are merged when the quantiles are computed. A value
+ * inserted while the estimator is cleared may be counted in either window,
+ * or be lost.
+ */
+@InterfaceAudience.Private
+public class HistogramQuantiles implements QuantileEstimator {
+
+  /** Bits of a value kept exactly by its bucket */
+  private static final int SUB_BITS = 7;
+  private static final int HALF_SUB_BUCKETS = 1 << (SUB_BITS - 1);
+  private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+  private static final int STRIPES = Integer.highestOneBit(
+      Math.min(Runtime.getRuntime().availableProcessors(), 8) * 2 - 1);
+
+  private final Quantile[] quantiles;
+  /** Bucket counts of each stripe, created on first use */
+  private final AtomicReferenceArray<AtomicLongArray> stripes =
+      new AtomicReferenceArray<AtomicLongArray>(STRIPES);
+
+  public HistogramQuantiles(Quantile[] quantiles) {
+    this.quantiles = quantiles;
+  }
+
+  @VisibleForTesting
+  static int bucket(long value) {
+    if (value < 2 * HALF_SUB_BUCKETS) {
+      return (int) Math.max(value, 0);
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+    return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+  }
+
+  /** @return the value reported for the values of a bucket */
+  @VisibleForTesting
+  static long bucketValue(int bucket) {
+    if (bucket < 2 * HALF_SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket >> (SUB_BITS - 1)) - 1;
+    long lowest = (long) (bucket - (shift << (SUB_BITS - 1))) << shift;
+    return lowest + (1L << (shift - 1));
+  }
+
+  @Override
+  public void insert(long value) {
+    int i = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    AtomicLongArray stripe = stripes.get(i);
+    if (stripe == null) {
+      stripes.compareAndSet(i, null, new AtomicLongArray(BUCKETS));
+      stripe = stripes.get(i);
+    }
+    stripe.incrementAndGet(bucket(value));
+  }
+
+  /** @return the counts of all the stripes, merged */
+  private long[] merge() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < STRIPES; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        for (int b = 0; b < BUCKETS; b++) {
+          counts[b] += stripe.get(b);
+        }
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Get a snapshot of the current values of all the tracked quantiles.
+   *
+   * @return snapshot of the tracked quantiles. If no items are added
+   * to the estimator, returns null.
+   */
+  @Override
+  public Map<Quantile, Long> snapshot() {
+    long[] counts = merge();
+    long count = 0;
+    for (long c : counts) {
+      count += c;
+    }
+    if (count == 0) {
+      return null;
+    }
+    Map<Quantile, Long> values = new TreeMap<Quantile, Long>();
+    for (Quantile q : quantiles) {
+      long rank = Math.min((long) (q.quantile * count), count - 1);
+      long seen = 0;
+      int b = 0;
+      while (seen + counts[b] <= rank) {
+        seen += counts[b++];
+      }
+      values.put(q, bucketValue(b));
+    }
+    return values;
+  }
+
+  @Override
+  public long getCount() {
+    long count = 0;
+    for (long c : merge()) {
+      count += c;
+    }
+    return count;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < STRIPES; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        for (int b = 0; b < BUCKETS; b++) {
+          stripe.set(b, 0);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    Map<Quantile, Long> data = snapshot();
+    if (data == null) {
+      return "[no samples]";
+    } else {
+      return Joiner.on("\n").withKeyValueSeparator(": ").join(data);
+    }
+  }
+}
@@ -99,6 +99,32 @@ public SampleStat add(long nSamples, double x) {
     return this;
   }
 
+  /**
+   * Add the samples of another running stat, keeping the variance exact
+   * by combining the two with the parallel form of the Welford method.
+   * @param other the stat to add the samples of
+   * @return  self
+   */
+  public SampleStat add(SampleStat other) {
+    if (other.numSamples == 0) {
+      return this;
+    }
+    if (numSamples == 0) {
+      other.copyTo(this);
+      return this;
+    }
+    long n = numSamples + other.numSamples;
+    double delta = other.a0 - a0;
+    a1 = a0 + delta * other.numSamples / n;
+    s1 = s0 + other.s0 + delta * delta * numSamples * other.numSamples / n;
+    a0 = a1;
+    s0 = s1;
+    numSamples = n;
+    total += other.total;
+    minmax.add(other.minmax);
+    return this;
+  }
+
   /**
    * @return  the total number of samples
    */
@@ -186,6 +212,17 @@ public void add(double value) {
     public double min() { return min; }
     public double max() { return max; }
 
+    /**
+     * Add the min and max of another instance, if it has seen any value.
+     * @param other the min max to add
+     */
+    public void add(MinMax other) {
+      if (other.min <= other.max) {
+        add(other.min);
+        add(other.max);
+      }
+    }
+
     public void reset() {
       min = DEFAULT_MIN_VALUE;
       max = DEFAULT_MAX_VALUE;
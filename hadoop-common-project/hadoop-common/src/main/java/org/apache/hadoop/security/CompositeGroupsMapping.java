@@ -19,6 +19,8 @@
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +32,7 @@
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,7 +75,9 @@ public synchronized List<String> getGroups(String user) throws IOException {
     List<String> groups = null;
     for (GroupMappingServiceProvider provider : providersList) {
       try {
+        long startMs = Time.monotonicNow();
         groups = provider.getGroups(user);
+        addGetGroups(provider, startMs);
       } catch (Exception e) {
         LOG.warn("Unable to get groups for user {} via {} because: {}",
             user, provider.getClass().getSimpleName(), e.toString());
@@ -88,6 +93,64 @@ public synchronized List<String> getGroups(String user) throws IOException {
     results.addAll(groupSet);
     return results;
   }
+
+  /**
+   * Returns the groups of several users, asking each provider for all the
+   * users it has to resolve at once.
+   *
+   * @param users get groups for these users
+   * @return the groups of each user
+   */
+  @Override
+  public synchronized Map<String, List<String>> getGroupsForUsers(
+      Collection<String> users) throws IOException {
+    Map<String, Set<String>> groupSets = new HashMap<String, Set<String>>();
+    for (String user : users) {
+      groupSets.put(user, new TreeSet<String>());
+    }
+
+    Collection<String> remaining = users;
+    for (GroupMappingServiceProvider provider : providersList) {
+      Map<String, List<String>> groups = null;
+      try {
+        long startMs = Time.monotonicNow();
+        groups = provider.getGroupsForUsers(remaining);
+        addGetGroups(provider, startMs);
+      } catch (Exception e) {
+        LOG.warn("Unable to get groups for {} users via {} because: {}",
+            remaining.size(), provider.getClass().getSimpleName(),
+            e.toString());
+        LOG.debug("Stacktrace: ", e);
+      }
+      List<String> unresolved = new ArrayList<String>();
+      for (String user : remaining) {
+        List<String> userGroups = groups == null ? null : groups.get(user);
+        if (userGroups != null && !userGroups.isEmpty()) {
+          groupSets.get(user).addAll(userGroups);
+          if (!combined) {
+            continue;
+          }
+        }
+        unresolved.add(user);
+      }
+      remaining = unresolved;
+      if (remaining.isEmpty()) {
+        break;
+      }
+    }
+
+    Map<String, List<String>> results = new HashMap<String, List<String>>();
+    for (Map.Entry<String, Set<String>> entry : groupSets.entrySet()) {
+      results.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+    }
+    return results;
+  }
+
+  private static void addGetGroups(GroupMappingServiceProvider provider,
+      long startMs) {
+    UserGroupInformation.metrics.addGetGroups(
+        provider.getClass().getSimpleName(), Time.monotonicNow() - startMs);
+  }
   
   /**
    * Caches groups, no need to do that for this provider
@@ -18,7 +18,10 @@
 package org.apache.hadoop.security;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -41,6 +44,24 @@ public interface GroupMappingServiceProvider {
    * @throws IOException
    */
   public List<String> getGroups(String user) throws IOException;
+
+  /**
+   * Get the group memberships of several users at once. Implementations
+   * able to resolve many users with one lookup should override this, the
+   * default looks up the users one by one.
+   * @param users names of the users
+   * @return group memberships of each user, EMPTY list for non-existing users
+   * @throws IOException
+   */
+  default Map<String, List<String>> getGroupsForUsers(
+      Collection<String> users) throws IOException {
+    Map<String, List<String>> groups = new HashMap<String, List<String>>();
+    for (String user : users) {
+      groups.put(user, getGroups(user));
+    }
+    return groups;
+  }
+
   /**
    * Refresh the cache of groups and user mapping
    * @throws IOException
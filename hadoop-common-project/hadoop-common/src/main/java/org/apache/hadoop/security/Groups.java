@@ -17,7 +17,16 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,11 +35,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -46,8 +56,7 @@
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
@@ -57,7 +66,9 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.ShutdownHookManager;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,12 +80,20 @@
  * of a given user via the {@link #getGroups(String)} call, thus ensuring 
  * a consistent user-to-groups mapping and protects against vagaries of 
  * different mappings on servers and clients in a Hadoop cluster. 
+ *
+ * The background refreshes of expired entries can be batched, for the
+ * mappings able to resolve many users at once, and spread with a random
+ * delay. The cache can also be saved when the process exits, and loaded
+ * back when it restarts.
  */
 @InterfaceAudience.LimitedPrivate({"HDFS", "MapReduce"})
 @InterfaceStability.Evolving
 public class Groups {
   private static final Logger LOG = LoggerFactory.getLogger(Groups.class);
-  
+
+  /** Priority of the shutdown hook saving the cache */
+  public static final int SHUTDOWN_HOOK_PRIORITY = 10;
+
   private final GroupMappingServiceProvider impl;
 
   private final LoadingCache<String, List<String>> cache;
@@ -87,6 +106,9 @@ public class Groups {
   private Set<String> negativeCache;
   private final boolean reloadGroupsInBackground;
   private final int reloadGroupsThreadCount;
+  private final int reloadGroupsBatchSize;
+  private final long reloadGroupsJitterMs;
+  private final File warmCacheFile;
 
   private final AtomicLong backgroundRefreshSuccess =
       new AtomicLong(0);
@@ -129,6 +151,22 @@ public Groups(Configuration conf, final Timer timer) {
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
           CommonConfigurationKeys.
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS_DEFAULT);
+    reloadGroupsBatchSize = Math.max(1,
+      conf.getInt(
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE_DEFAULT
+      ));
+    reloadGroupsJitterMs = (long) (cacheTimeout *
+      conf.getFloat(
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_JITTER,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_JITTER_DEFAULT));
+    String warmCachePath = conf.getTrimmed(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_WARM_FILE, "");
+    warmCacheFile = warmCachePath.isEmpty() ? null : new File(warmCachePath);
     parseStaticMapping(conf);
 
     this.timer = timer;
@@ -199,6 +237,119 @@ private IOException noGroupsForUser(String user) {
     return new IOException("No groups found for user " + user);
   }
 
+  /**
+   * Load the cache saved by {@link #saveWarmCache()}, unless it is older
+   * than the cached entries are kept. The loaded entries are already due
+   * for a refresh, so they are only served until their groups are
+   * reloaded in the background.
+   */
+  @VisibleForTesting
+  void loadWarmCache() {
+    if (!reloadGroupsInBackground) {
+      LOG.info("Not loading the groups cache from " + warmCacheFile
+          + ": background reload is disabled");
+      return;
+    }
+    if (!warmCacheFile.isFile()
+        || Time.now() - warmCacheFile.lastModified() > 10 * cacheTimeout) {
+      LOG.info("Not loading the groups cache from " + warmCacheFile
+          + ": missing or too old");
+      return;
+    }
+    if (isWritableByOthers(warmCacheFile.toPath())) {
+      LOG.warn("Not loading the groups cache from " + warmCacheFile
+          + ": writable by other users");
+      return;
+    }
+    List<String> users = new ArrayList<String>();
+    try (BufferedReader reader = Files.newBufferedReader(
+        warmCacheFile.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0) {
+          continue;
+        }
+        Collection<String> groups =
+            StringUtils.getTrimmedStringCollection(line.substring(tab + 1));
+        if (!groups.isEmpty()) {
+          String user = line.substring(0, tab);
+          cache.put(user,
+              Collections.unmodifiableList(new ArrayList<>(groups)));
+          users.add(user);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Error loading the groups cache from " + warmCacheFile, e);
+    }
+    // The entries get a fresh write time when put, whatever their age in
+    // the file, so refresh them now rather than after the cache timeout
+    for (String user : users) {
+      cache.refresh(user);
+    }
+    LOG.info("Loaded the groups of " + users.size() + " users from "
+        + warmCacheFile);
+  }
+
+  private static boolean isWritableByOthers(Path path) {
+    try {
+      Set<PosixFilePermission> permissions =
+          Files.getPosixFilePermissions(path);
+      return permissions.contains(PosixFilePermission.GROUP_WRITE)
+          || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    } catch (UnsupportedOperationException | IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Create an empty file only readable and writable by its owner, as the
+   * cache is loaded as trusted group memberships.
+   */
+  private static void createOwnerOnlyFile(Path path) throws IOException {
+    Files.deleteIfExists(path);
+    if (path.getFileSystem().supportedFileAttributeViews()
+        .contains("posix")) {
+      Files.createFile(path, PosixFilePermissions.asFileAttribute(
+          PosixFilePermissions.fromString("rw-------")));
+    } else {
+      File file = Files.createFile(path).toFile();
+      if (!file.setReadable(false, false) || !file.setReadable(true, true)
+          || !file.setWritable(false, false)
+          || !file.setWritable(true, true)) {
+        throw new IOException("Cannot restrict the permissions of " + path);
+      }
+    }
+  }
+
+  /**
+   * Save the cached entries to the file configured by
+   * {@link CommonConfigurationKeys#HADOOP_SECURITY_GROUPS_CACHE_WARM_FILE},
+   * one user and its comma separated groups per line.
+   */
+  @VisibleForTesting
+  void saveWarmCache() {
+    File tmpFile = new File(warmCacheFile.getPath() + ".tmp");
+    try {
+      createOwnerOnlyFile(tmpFile.toPath());
+      try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(),
+          StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, List<String>> entry
+            : cache.asMap().entrySet()) {
+          writer.write(entry.getKey());
+          writer.write('\t');
+          writer.write(StringUtils.join(",", entry.getValue()));
+          writer.newLine();
+        }
+      }
+      Files.move(tmpFile.toPath(), warmCacheFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Error saving the groups cache to " + warmCacheFile, e);
+    }
+  }
+
   /**
    * Get the group memberships of a given user.
    * If the user's group is not cached, this method may block.
@@ -224,6 +375,12 @@ public List<String> getGroups(final String user) throws IOException {
     }
 
     try {
+      List<String> groups = cache.getIfPresent(user);
+      if (groups != null) {
+        UserGroupInformation.metrics.groupsCacheHits.incr();
+        return groups;
+      }
+      UserGroupInformation.metrics.groupsCacheMisses.incr();
       return cache.get(user);
     } catch (ExecutionException e) {
       throw (IOException)e.getCause();
@@ -263,12 +420,42 @@ public long read() {
     }
   }
 
+  /**
+   * A background refresh of the groups of a user, due after its jitter.
+   */
+  private static class PendingRefresh implements Delayed {
+    private final String user;
+    private final long dueNanos;
+    private final SettableFuture<List<String>> future =
+        SettableFuture.create();
+
+    PendingRefresh(String user, long delayMs) {
+      this.user = user;
+      this.dueNanos =
+          System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+          o.getDelay(TimeUnit.NANOSECONDS));
+    }
+  }
+
   /**
    * Deals with loading data into the cache.
    */
   private class GroupCacheLoader extends CacheLoader<String, List<String>> {
 
-    private ListeningExecutorService executorService;
+    private ScheduledThreadPoolExecutor executorService;
+    /** The background refreshes, in the order they are due */
+    private final DelayQueue<PendingRefresh> pendingRefreshes =
+        new DelayQueue<PendingRefresh>();
 
     GroupCacheLoader() {
       if (reloadGroupsInBackground) {
@@ -276,18 +463,13 @@ private class GroupCacheLoader extends CacheLoader<String, List<String>> {
             .setNameFormat("Group-Cache-Reload")
             .setDaemon(true)
             .build();
-        // With coreThreadCount == maxThreadCount we effectively
-        // create a fixed size thread pool. As allowCoreThreadTimeOut
-        // has been set, all threads will die after 60 seconds of non use
-        ThreadPoolExecutor parentExecutor =  new ThreadPoolExecutor(
-            reloadGroupsThreadCount,
-            reloadGroupsThreadCount,
-            60,
-            TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(),
-            threadFactory);
-        parentExecutor.allowCoreThreadTimeOut(true);
-        executorService = MoreExecutors.listeningDecorator(parentExecutor);
+        // A scheduled executor is a fixed size thread pool. As
+        // allowCoreThreadTimeOut has been set, all threads will die after
+        // 60 seconds of non use
+        executorService = new ScheduledThreadPoolExecutor(
+            reloadGroupsThreadCount, threadFactory);
+        executorService.setKeepAliveTime(60, TimeUnit.SECONDS);
+        executorService.allowCoreThreadTimeOut(true);
       }
     }
 
@@ -322,8 +504,16 @@ public List<String> load(String user) throws Exception {
           scope.close();
         }
       }
+      return toCachedGroups(user, groups);
+    }
 
-      if (groups.isEmpty()) {
+    /**
+     * @return the immutable de-duped list of groups to cache
+     * @throws IOException to prevent caching negative entries
+     */
+    private List<String> toCachedGroups(String user, List<String> groups)
+        throws IOException {
+      if (groups == null || groups.isEmpty()) {
         if (isNegativeCacheEnabled()) {
           negativeCache.add(user);
         }
@@ -340,7 +530,8 @@ public List<String> load(String user) throws Exception {
     /**
      * Override the reload method to provide an asynchronous implementation. If
      * reloadGroupsInBackground is false, then this method defers to the super
-     * implementation, otherwise is arranges for the cache to be updated later
+     * implementation, otherwise is arranges for the cache to be updated later,
+     * after a random jitter, possibly in a batch with other users.
      */
     @Override
     public ListenableFuture<List<String>> reload(final String key,
@@ -350,18 +541,11 @@ public ListenableFuture<List<String>> reload(final String key,
         return super.reload(key, oldValue);
       }
 
+      long delayMs = reloadGroupsJitterMs > 0 ?
+          ThreadLocalRandom.current().nextLong(reloadGroupsJitterMs) : 0;
+      PendingRefresh refresh = new PendingRefresh(key, delayMs);
       backgroundRefreshQueued.incrementAndGet();
-      ListenableFuture<List<String>> listenableFuture =
-          executorService.submit(new Callable<List<String>>() {
-            @Override
-            public List<String> call() throws Exception {
-              backgroundRefreshQueued.decrementAndGet();
-              backgroundRefreshRunning.incrementAndGet();
-              List<String> results = load(key);
-              return results;
-            }
-          });
-      Futures.addCallback(listenableFuture, new FutureCallback<List<String>>() {
+      Futures.addCallback(refresh.future, new FutureCallback<List<String>>() {
         @Override
         public void onSuccess(List<String> result) {
           backgroundRefreshSuccess.incrementAndGet();
@@ -373,7 +557,62 @@ public void onFailure(Throwable t) {
           backgroundRefreshRunning.decrementAndGet();
         }
       });
-      return listenableFuture;
+      pendingRefreshes.add(refresh);
+      // Every refresh schedules a run, which may find it already done
+      // in the batch of a previous run
+      executorService.schedule(new Runnable() {
+        @Override
+        public void run() {
+          refreshBatch();
+        }
+      }, delayMs, TimeUnit.MILLISECONDS);
+      return refresh.future;
+    }
+
+    /**
+     * Refresh the groups of the pending users which are due, up to the batch
+     * size, with a single call to impl for several users.
+     */
+    private void refreshBatch() {
+      List<PendingRefresh> batch = new ArrayList<PendingRefresh>();
+      pendingRefreshes.drainTo(batch, reloadGroupsBatchSize);
+      if (batch.isEmpty()) {
+        return;
+      }
+      backgroundRefreshQueued.addAndGet(-batch.size());
+      backgroundRefreshRunning.addAndGet(batch.size());
+
+      if (batch.size() == 1) {
+        PendingRefresh refresh = batch.get(0);
+        try {
+          refresh.future.set(load(refresh.user));
+        } catch (Throwable t) {
+          refresh.future.setException(t);
+        }
+        return;
+      }
+
+      List<String> users = new ArrayList<String>(batch.size());
+      for (PendingRefresh refresh : batch) {
+        users.add(refresh.user);
+      }
+      Map<String, List<String>> groups;
+      try {
+        groups = fetchGroupLists(users);
+      } catch (Throwable t) {
+        for (PendingRefresh refresh : batch) {
+          refresh.future.setException(t);
+        }
+        return;
+      }
+      for (PendingRefresh refresh : batch) {
+        try {
+          refresh.future.set(
+              toCachedGroups(refresh.user, groups.get(refresh.user)));
+        } catch (IOException e) {
+          refresh.future.setException(e);
+        }
+      }
     }
 
     /**
@@ -384,7 +623,7 @@ private List<String> fetchGroupList(String user) throws IOException {
       List<String> groupList = impl.getGroups(user);
       long endMs = timer.monotonicNow();
       long deltaMs = endMs - startMs ;
-      UserGroupInformation.metrics.addGetGroups(deltaMs);
+      addGetGroups(deltaMs);
       if (deltaMs > warningDeltaMs) {
         LOG.warn("Potential performance problem: getGroups(user=" + user +") " +
           "took " + deltaMs + " milliseconds.");
@@ -392,6 +631,40 @@ private List<String> fetchGroupList(String user) throws IOException {
 
       return groupList;
     }
+
+    /**
+     * Queries impl for the groups of several users at once.
+     */
+    private Map<String, List<String>> fetchGroupLists(List<String> users)
+        throws IOException {
+      TraceScope scope = null;
+      Tracer tracer = Tracer.curThreadTracer();
+      if (tracer != null) {
+        scope = tracer.newScope("Groups#fetchGroupLists");
+        scope.addKVAnnotation("users", String.valueOf(users.size()));
+      }
+      try {
+        long startMs = timer.monotonicNow();
+        Map<String, List<String>> groupLists = impl.getGroupsForUsers(users);
+        long deltaMs = timer.monotonicNow() - startMs;
+        addGetGroups(deltaMs);
+        if (deltaMs > warningDeltaMs) {
+          LOG.warn("Potential performance problem: getGroupsForUsers("
+              + users.size() + " users) took " + deltaMs + " milliseconds.");
+        }
+        return groupLists;
+      } finally {
+        if (scope != null) {
+          scope.close();
+        }
+      }
+    }
+
+    private void addGetGroups(long deltaMs) {
+      UserGroupInformation.metrics.addGetGroups(deltaMs);
+      UserGroupInformation.metrics.addGetGroups(
+          impl.getClass().getSimpleName(), deltaMs);
+    }
   }
 
   /**
@@ -424,6 +697,7 @@ public void cacheGroupsAdd(List<String> groups) {
   }
 
   private static Groups GROUPS = null;
+  private static boolean warmCacheHookAdded = false;
   
   /**
    * Get the groups being used to map user-to-groups.
@@ -446,6 +720,7 @@ public static synchronized Groups getUserToGroupsMappingService(
         LOG.debug(" Creating new Groups object");
       }
       GROUPS = new Groups(conf);
+      initWarmCache();
     }
     return GROUPS;
   }
@@ -461,6 +736,34 @@ public static synchronized Groups getUserToGroupsMappingService(
           Configuration conf) {
 
     GROUPS = new Groups(conf);
+    initWarmCache();
     return GROUPS;
   }
+
+  /**
+   * Load the warm cache of a new {@link #GROUPS}, and save the cache of the
+   * current {@link #GROUPS} at shutdown. Other instances neither load nor
+   * save it, so a single hook writes the file.
+   */
+  private static void initWarmCache() {
+    if (GROUPS.warmCacheFile == null) {
+      return;
+    }
+    GROUPS.loadWarmCache();
+    if (!warmCacheHookAdded) {
+      ShutdownHookManager.get().addShutdownHook(new Runnable() {
+        @Override
+        public void run() {
+          saveCurrentWarmCache();
+        }
+      }, SHUTDOWN_HOOK_PRIORITY);
+      warmCacheHookAdded = true;
+    }
+  }
+
+  private static synchronized void saveCurrentWarmCache() {
+    if (GROUPS != null && GROUPS.warmCacheFile != null) {
+      GROUPS.saveWarmCache();
+    }
+  }
 }
@@ -24,11 +24,15 @@
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.HashSet;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
@@ -235,6 +239,10 @@
   private static final Logger LOG =
       LoggerFactory.getLogger(LdapGroupsMapping.class);
 
+  /** Matches the attribute compared to the user name in the user filter */
+  private static final Pattern USER_NAME_ATTR_PATTERN =
+      Pattern.compile("\\(([^()=~<>]+)=\\{0\\}\\)");
+
   static final SearchControls SEARCH_CONTROLS = new SearchControls();
   static {
     SEARCH_CONTROLS.setSearchScope(SearchControls.SUBTREE_SCOPE);
@@ -255,6 +263,7 @@
   private String groupbaseDN;
   private String groupSearchFilter;
   private String userSearchFilter;
+  private String userNameAttr;
   private String memberOfAttr;
   private String groupMemberAttr;
   private String groupNameAttr;
@@ -299,6 +308,47 @@ public synchronized List<String> getGroups(String user) {
     return Collections.emptyList();
   }
 
+  /**
+   * Returns the groups of several users.
+   *
+   * The users are found with a single search, ORing the user search filter
+   * of each of them. If the user objects carry their groups (see
+   * {@link #MEMBEROF_ATTR_KEY}), this is the only query; otherwise the
+   * groups of each user are searched as for {@link #getGroups(String)}.
+   *
+   * The user objects are matched to the users with the attribute compared to
+   * the user name in the user search filter. If there is none, the users
+   * are looked up one by one.
+   *
+   * @param users get groups for these users
+   * @return the groups of each user, empty for the users not found
+   */
+  @Override
+  public synchronized Map<String, List<String>> getGroupsForUsers(
+      Collection<String> users) throws IOException {
+    if (userNameAttr == null || users.size() < 2) {
+      return GroupMappingServiceProvider.super.getGroupsForUsers(users);
+    }
+    for (int retry = 0; retry < RECONNECT_RETRY_COUNT; retry++) {
+      try {
+        return doGetGroupsForUsers(users, groupHierarchyLevels);
+      } catch (NamingException e) {
+        LOG.warn("Failed to get groups for " + users.size() + " users (retry="
+            + retry + ") by " + e);
+        LOG.trace("TRACE", e);
+      }
+
+      //reset ctx so that new DirContext can be created with new connection
+      this.ctx = null;
+    }
+
+    Map<String, List<String>> groups = new HashMap<String, List<String>>();
+    for (String user : users) {
+      groups.put(user, Collections.<String>emptyList());
+    }
+    return groups;
+  }
+
   /**
    * A helper method to get the Relative Distinguished Name (RDN) from
    * Distinguished name (DN). According to Active Directory documentation,
@@ -440,7 +490,66 @@ List<String> doGetGroups(String user, int goUpHierarchy)
       return new ArrayList<String>();
     }
     SearchResult result = results.nextElement();
+    List<String> groups = getGroups(user, result, c, goUpHierarchy);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("doGetGroups(" + user + ") returned " + groups);
+    }
+    return groups;
+  }
+
+  /**
+   * Perform a single LDAP query to find the user objects of several users,
+   * then get the group names of each of them.
+   *
+   * @param users user names
+   * @return the group names of each user, empty for the users not found
+   * @throws NamingException if unable to get group names
+   */
+  Map<String, List<String>> doGetGroupsForUsers(Collection<String> users,
+      int goUpHierarchy) throws NamingException {
+    DirContext c = getDirContext();
 
+    StringBuilder filter = new StringBuilder("(|");
+    Object[] filterArgs = new Object[users.size()];
+    Map<String, String> userNames = new HashMap<String, String>();
+    int i = 0;
+    for (String user : users) {
+      filter.append(userSearchFilter.replace("{0}", "{" + i + "}"));
+      filterArgs[i++] = user;
+      userNames.put(user.toLowerCase(), user);
+    }
+    filter.append(')');
+    NamingEnumeration<SearchResult> results = c.search(userbaseDN,
+        filter.toString(), filterArgs, SEARCH_CONTROLS);
+
+    Map<String, List<String>> groups = new HashMap<String, List<String>>();
+    while (results.hasMoreElements()) {
+      SearchResult result = results.nextElement();
+      Attribute nameAttr = result.getAttributes().get(userNameAttr);
+      String user = nameAttr == null ? null
+          : userNames.get(nameAttr.get().toString().toLowerCase());
+      // As for a single user, only look at the first result of each user
+      if (user != null && !groups.containsKey(user)) {
+        groups.put(user, getGroups(user, result, c, goUpHierarchy));
+      }
+    }
+    for (String user : users) {
+      if (!groups.containsKey(user)) {
+        groups.put(user, new ArrayList<String>());
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("doGetGroupsForUsers(" + users + ") returned " + groups);
+    }
+    return groups;
+  }
+
+  /**
+   * Get the group names of a user from its user object, either from its
+   * memberOf attribute or with a second query.
+   */
+  private List<String> getGroups(String user, SearchResult result,
+      DirContext c, int goUpHierarchy) throws NamingException {
     List<String> groups = null;
     if (useOneQuery) {
       try {
@@ -470,9 +579,6 @@ List<String> doGetGroups(String user, int goUpHierarchy)
     if (groups == null || groups.isEmpty() || goUpHierarchy > 0) {
       groups = lookupGroup(result, c, goUpHierarchy);
     }
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("doGetGroups(" + user + ") returned " + groups);
-    }
     return groups;
   }
 
@@ -639,6 +745,8 @@ public synchronized void setConf(Configuration conf) {
         conf.get(USER_SEARCH_FILTER_KEY, USER_SEARCH_FILTER_DEFAULT);
     isPosix = groupSearchFilter.contains(POSIX_GROUP) && userSearchFilter
         .contains(POSIX_ACCOUNT);
+    Matcher userNameMatcher = USER_NAME_ATTR_PATTERN.matcher(userSearchFilter);
+    userNameAttr = userNameMatcher.find() ? userNameMatcher.group(1) : null;
     memberOfAttr =
         conf.get(MEMBEROF_ATTR_KEY, MEMBEROF_ATTR_DEFAULT);
     // if memberOf attribute is set, resolve group names from the attribute
@@ -659,15 +767,18 @@ public synchronized void setConf(Configuration conf) {
     SEARCH_CONTROLS.setTimeLimit(dirSearchTimeout);
     // Limit the attributes returned to only those required to speed up the search.
     // See HADOOP-10626 and HADOOP-12001 for more details.
-    String[] returningAttributes;
+    List<String> returningAttributes = new ArrayList<String>();
+    Collections.addAll(returningAttributes,
+        groupNameAttr, posixUidAttr, posixGidAttr);
     if (useOneQuery) {
-      returningAttributes = new String[] {
-          groupNameAttr, posixUidAttr, posixGidAttr, memberOfAttr};
-    } else {
-      returningAttributes = new String[] {
-          groupNameAttr, posixUidAttr, posixGidAttr};
+      returningAttributes.add(memberOfAttr);
+    }
+    // to match the user objects found by a search for several users
+    if (userNameAttr != null) {
+      returningAttributes.add(userNameAttr);
     }
-    SEARCH_CONTROLS.setReturningAttributes(returningAttributes);
+    SEARCH_CONTROLS.setReturningAttributes(
+        returningAttributes.toArray(new String[returningAttributes.size()]));
 
     this.conf = conf;
   }
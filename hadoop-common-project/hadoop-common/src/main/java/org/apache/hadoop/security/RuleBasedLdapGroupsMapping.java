@@ -25,7 +25,10 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -74,7 +77,29 @@ public synchronized void setConf(Configuration conf) {
      */
   @Override
   public synchronized List<String> getGroups(String user) {
-    List<String> groups = super.getGroups(user);
+    return applyRule(super.getGroups(user));
+  }
+
+  /**
+   * Returns the groups of several users, looked up by
+   * {@link LdapGroupsMapping}, with the configured rule applied.
+   *
+   * @param users get groups for these users
+   * @return the groups of each user
+   */
+  @Override
+  public synchronized Map<String, List<String>> getGroupsForUsers(
+      Collection<String> users) throws IOException {
+    Map<String, List<String>> groups = super.getGroupsForUsers(users);
+    if (rule != Rule.NONE) {
+      for (Map.Entry<String, List<String>> entry : groups.entrySet()) {
+        entry.setValue(applyRule(entry.getValue()));
+      }
+    }
+    return groups;
+  }
+
+  private List<String> applyRule(List<String> groups) {
     switch (rule) {
     case TO_UPPER:
       return groups.stream().map(StringUtils::toUpperCase).collect(
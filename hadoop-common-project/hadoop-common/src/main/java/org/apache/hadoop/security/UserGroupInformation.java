@@ -72,6 +72,7 @@
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
@@ -133,6 +134,10 @@ static class UgiMetrics {
     MutableRate loginFailure;
     @Metric("GetGroups") MutableRate getGroups;
     MutableQuantiles[] getGroupsQuantiles;
+    @Metric("Lookups served from the groups cache")
+    MutableCounterLong groupsCacheHits;
+    @Metric("Lookups loading the groups of the user")
+    MutableCounterLong groupsCacheMisses;
     @Metric("Renewal failures since startup")
     private MutableGaugeLong renewalFailuresTotal;
     @Metric("Renewal failures since last successful login")
@@ -155,6 +160,22 @@ void addGetGroups(long latency) {
       }
     }
 
+    /**
+     * Add the latency of a lookup to the rate of its group mapping provider,
+     * e.g. GetGroupsLdapGroupsMapping.
+     */
+    void addGetGroups(String provider, long latency) {
+      String name = "GetGroups" + provider;
+      MutableRate rate;
+      synchronized (registry) {
+        rate = (MutableRate) registry.get(name);
+        if (rate == null) {
+          rate = registry.newRate(name, "GetGroups of " + provider, false);
+        }
+      }
+      rate.add(latency);
+    }
+
     MutableGaugeInt getRenewalFailures() {
       return renewalFailures;
     }
@@ -23,11 +23,11 @@
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.SecretKey;
 
@@ -60,10 +60,11 @@ private String formatTokenId(TokenIdent id) {
 
   /** 
    * Cache of currently valid tokens, mapping from DelegationTokenIdentifier 
-   * to DelegationTokenInformation. Protected by this object lock.
+   * to DelegationTokenInformation. Modified under this object lock, except
+   * when a new token is stored; read without it to verify tokens.
    */
   protected final Map<TokenIdent, DelegationTokenInformation> currentTokens 
-      = new HashMap<TokenIdent, DelegationTokenInformation>();
+      = new ConcurrentHashMap<TokenIdent, DelegationTokenInformation>();
   
   /**
    * Sequence number to create DelegationTokenIdentifier.
@@ -72,19 +73,21 @@ private String formatTokenId(TokenIdent id) {
   protected int delegationTokenSequenceNumber = 0;
   
   /**
-   * Access to allKeys is protected by this object lock
+   * Modifications of allKeys are protected by this object lock, reads are
+   * not.
    */
   protected final Map<Integer, DelegationKey> allKeys 
-      = new HashMap<Integer, DelegationKey>();
+      = new ConcurrentHashMap<Integer, DelegationKey>();
   
   /**
    * Access to currentId is protected by this object lock.
    */
   protected int currentId = 0;
   /**
-   * Access to currentKey is protected by this object lock
+   * Updates of currentKey are protected by this object lock, new tokens read
+   * it without the lock.
    */
-  private DelegationKey currentKey;
+  private volatile DelegationKey currentKey;
   
   private long keyUpdateInterval;
   private long tokenMaxLifetime;
@@ -391,18 +394,26 @@ private synchronized void removeExpiredKeys() {
     }
   }
   
+  /**
+   * Create the password of a new token and store the token. The secret
+   * manager's monitor is only held by
+   * {@link #incrementDelegationTokenSeqNum()}, if at all: nobody can renew
+   * or cancel the token before it is returned, so storing it in an external
+   * store, e.g. ZooKeeper, doesn't block the other token operations.
+   */
   @Override
-  protected synchronized byte[] createPassword(TokenIdent identifier) {
+  protected byte[] createPassword(TokenIdent identifier) {
     int sequenceNum;
     long now = Time.now();
     sequenceNum = incrementDelegationTokenSeqNum();
+    DelegationKey key = currentKey;
     identifier.setIssueDate(now);
     identifier.setMaxDate(now + tokenMaxLifetime);
-    identifier.setMasterKeyId(currentKey.getKeyId());
+    identifier.setMasterKeyId(key.getKeyId());
     identifier.setSequenceNumber(sequenceNum);
     LOG.info("Creating password for identifier: " + formatTokenId(identifier)
-        + ", currentKey: " + currentKey.getKeyId());
-    byte[] password = createPassword(identifier.getBytes(), currentKey.getKey());
+        + ", currentKey: " + key.getKeyId());
+    byte[] password = createPassword(identifier.getBytes(), key.getKey());
     DelegationTokenInformation tokenInfo = new DelegationTokenInformation(now
         + tokenRenewInterval, password, getTrackingIdIfEnabled(identifier));
     try {
@@ -418,12 +429,11 @@ protected synchronized byte[] createPassword(TokenIdent identifier) {
 
   /**
    * Find the DelegationTokenInformation for the given token id, and verify that
-   * if the token is expired. Note that this method should be called with 
-   * acquiring the secret manager's monitor.
+   * if the token is expired. This doesn't need the secret manager's monitor,
+   * so that verifying tokens doesn't wait for the other token operations.
    */
   protected DelegationTokenInformation checkToken(TokenIdent identifier)
       throws InvalidToken {
-    assert Thread.holdsLock(this);
     DelegationTokenInformation info = getTokenInfo(identifier);
     if (info == null) {
       throw new InvalidToken("token " + formatTokenId(identifier)
@@ -439,7 +449,7 @@ protected DelegationTokenInformation checkToken(TokenIdent identifier)
   }
   
   @Override
-  public synchronized byte[] retrievePassword(TokenIdent identifier)
+  public byte[] retrievePassword(TokenIdent identifier)
       throws InvalidToken {
     return checkToken(identifier).getPassword();
   }
@@ -451,7 +461,7 @@ protected String getTrackingIdIfEnabled(TokenIdent ident) {
     return null;
   }
 
-  public synchronized String getTokenTrackingId(TokenIdent identifier) {
+  public String getTokenTrackingId(TokenIdent identifier) {
     DelegationTokenInformation info = getTokenInfo(identifier);
     if (info == null) {
       return null;
@@ -465,7 +475,7 @@ public synchronized String getTokenTrackingId(TokenIdent identifier) {
    * @param password Password in the token.
    * @throws InvalidToken
    */
-  public synchronized void verifyToken(TokenIdent identifier, byte[] password)
+  public void verifyToken(TokenIdent identifier, byte[] password)
       throws InvalidToken {
     byte[] storedPassword = retrievePassword(identifier);
     if (!MessageDigest.isEqual(password, storedPassword)) {
@@ -482,7 +492,7 @@ public synchronized void verifyToken(TokenIdent identifier, byte[] password)
    * @throws InvalidToken if the token is invalid
    * @throws AccessControlException if the user can't renew token
    */
-  public synchronized long renewToken(Token<TokenIdent> token,
+  public long renewToken(Token<TokenIdent> token,
                          String renewer) throws InvalidToken, IOException {
     ByteArrayInputStream buf = new ByteArrayInputStream(token.getIdentifier());
     DataInputStream in = new DataInputStream(buf);
@@ -527,11 +537,15 @@ public synchronized long renewToken(Token<TokenIdent> token,
     DelegationTokenInformation info = new DelegationTokenInformation(renewTime,
         password, trackingId);
 
-    if (getTokenInfo(id) == null) {
-      throw new InvalidToken("Renewal request for unknown token "
-          + formatTokenId(id));
+    // Only the update is done under the lock, so that the token can't be
+    // renewed while it's canceled or removed as expired
+    synchronized (this) {
+      if (getTokenInfo(id) == null) {
+        throw new InvalidToken("Renewal request for unknown token "
+            + formatTokenId(id));
+      }
+      updateToken(id, info);
     }
-    updateToken(id, info);
     return renewTime;
   }
   
@@ -616,15 +616,21 @@ protected int incrementCurrentKeyId() {
   protected DelegationKey getDelegationKey(int keyId) {
     // First check if its I already have this key
     DelegationKey key = allKeys.get(keyId);
-    // Then query ZK
+    // Then query ZK, under the lock so that a key removed meanwhile by the
+    // cache listener isn't added back
     if (key == null) {
-      try {
-        key = getKeyFromZK(keyId);
-        if (key != null) {
-          allKeys.put(keyId, key);
+      synchronized (this) {
+        key = allKeys.get(keyId);
+        if (key == null) {
+          try {
+            key = getKeyFromZK(keyId);
+            if (key != null) {
+              allKeys.put(keyId, key);
+            }
+          } catch (IOException e) {
+            LOG.error("Error retrieving key [" + keyId + "] from ZK", e);
+          }
         }
-      } catch (IOException e) {
-        LOG.error("Error retrieving key [" + keyId + "] from ZK", e);
       }
     }
     return key;
@@ -655,16 +661,22 @@ private DelegationKey getKeyFromZK(int keyId) throws IOException {
   protected DelegationTokenInformation getTokenInfo(TokenIdent ident) {
     // First check if I have this..
     DelegationTokenInformation tokenInfo = currentTokens.get(ident);
-    // Then query ZK
+    // Then query ZK, under the lock so that a token canceled meanwhile isn't
+    // added back to the cache
     if (tokenInfo == null) {
-      try {
-        tokenInfo = getTokenInfoFromZK(ident);
-        if (tokenInfo != null) {
-          currentTokens.put(ident, tokenInfo);
+      synchronized (this) {
+        tokenInfo = currentTokens.get(ident);
+        if (tokenInfo == null) {
+          try {
+            tokenInfo = getTokenInfoFromZK(ident);
+            if (tokenInfo != null) {
+              currentTokens.put(ident, tokenInfo);
+            }
+          } catch (IOException e) {
+            LOG.error("Error retrieving tokenInfo ["
+                + ident.getSequenceNumber() + "] from ZK", e);
+          }
         }
-      } catch (IOException e) {
-        LOG.error("Error retrieving tokenInfo [" + ident.getSequenceNumber()
-            + "] from ZK", e);
       }
     }
     return tokenInfo;
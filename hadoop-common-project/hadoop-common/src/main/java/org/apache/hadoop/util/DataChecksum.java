@@ -368,6 +368,11 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
   static void verifyChunked(final Type type, final Checksum algorithm,
       final ByteBuffer data, final int bytesPerCrc, final ByteBuffer crcs,
       final String filename, final long basePos) throws ChecksumException {
+    if (InPlaceUpdater.canUpdate(algorithm)) {
+      verifyChunkedInPlace(type, algorithm, data, bytesPerCrc, crcs, filename,
+          basePos);
+      return;
+    }
     final byte[] bytes = new byte[bytesPerCrc];
     final int dataOffset = data.position();
     final int dataLength = data.remaining();
@@ -410,6 +415,35 @@ static void verifyChunked(final Type type, final Checksum algorithm,
     }
   }
 
+  /**
+   * Implementation of chunked verification checksumming the chunks in place,
+   * for the algorithms of the JDK which checksum direct buffers without
+   * copying them. The positions of the buffers aren't changed.
+   */
+  private static void verifyChunkedInPlace(final Type type,
+      final Checksum algorithm, final ByteBuffer data, final int bytesPerCrc,
+      final ByteBuffer crcs, final String filename, final long basePos)
+          throws ChecksumException {
+    final ByteBuffer chunk = data.duplicate();
+    final int dataOffset = data.position();
+    final int dataEnd = data.limit();
+    int j = crcs.position();
+    for (int i = dataOffset; i < dataEnd; i += bytesPerCrc, j += 4) {
+      chunk.limit(Math.min(i + bytesPerCrc, dataEnd));
+      chunk.position(i);
+      algorithm.reset();
+      InPlaceUpdater.update(algorithm, chunk);
+      final int computed = (int)algorithm.getValue();
+      final int expected = crcs.getInt(j);
+
+      if (computed != expected) {
+        final long errPos = basePos + i - dataOffset;
+        throwChecksumException(type, algorithm, filename, errPos, expected,
+            computed);
+      }
+    }
+  }
+
   /**
    * Implementation of chunked verification specifically on byte arrays. This
    * is to avoid the copy when dealing with ByteBuffers that have array backing.
@@ -484,6 +518,20 @@ public void calculateChunkedSums(ByteBuffer data, ByteBuffer checksums) {
           checksums, data);
       return;
     }
+
+    if (InPlaceUpdater.canUpdate(summer)) {
+      final ByteBuffer chunk = data.duplicate();
+      int j = checksums.position();
+      for (int i = data.position(); i < data.limit(); i += bytesPerChecksum) {
+        chunk.limit(Math.min(i + bytesPerChecksum, data.limit()));
+        chunk.position(i);
+        summer.reset();
+        InPlaceUpdater.update(summer, chunk);
+        checksums.putInt(j, (int)summer.getValue());
+        j += 4;
+      }
+      return;
+    }
     
     data.mark();
     checksums.mark();
@@ -573,6 +621,49 @@ public void update(byte[] b, int off, int len) {}
     public void update(int b) {}
   };
 
+  /**
+   * Checksums the remaining bytes of a ByteBuffer in place, for the CRC32 and
+   * CRC32C implementations of the JDK. They use the intrinsics on direct
+   * buffers too, where the other algorithms need the bytes copied to an
+   * array first.
+   */
+  private static class InPlaceUpdater {
+    private static final String CRC32C_CLASS = "java.util.zip.CRC32C";
+    /** Checksum#update(ByteBuffer), which exists as of Java 9 */
+    private static final MethodHandle UPDATE_MH;
+
+    static {
+      MethodHandle update = null;
+      if (Shell.isJavaVersionAtLeast(9)) {
+        try {
+          update = MethodHandles.publicLookup().findVirtual(Checksum.class,
+              "update", MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+          LOG.debug("Checksum#update(ByteBuffer) isn't available", e);
+        }
+      }
+      UPDATE_MH = update;
+    }
+
+    static boolean canUpdate(Checksum algorithm) {
+      return algorithm instanceof CRC32 || (UPDATE_MH != null
+          && algorithm.getClass().getName().equals(CRC32C_CLASS));
+    }
+
+    static void update(Checksum algorithm, ByteBuffer buffer) {
+      if (algorithm instanceof CRC32) {
+        ((CRC32) algorithm).update(buffer);
+        return;
+      }
+      try {
+        UPDATE_MH.invokeExact(algorithm, buffer);
+      } catch (Throwable t) {
+        throw (t instanceof RuntimeException) ? (RuntimeException) t
+            : new RuntimeException(t);
+      }
+    }
+  }
+
   /**
    * Holds constructor handle to let it be initialized on demand.
    */
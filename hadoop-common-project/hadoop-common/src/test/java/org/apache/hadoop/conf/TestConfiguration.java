@@ -182,6 +182,107 @@ private void declareSystemEntity(String root, String entity, String value)
         + " [\n<!ENTITY " + entity + " SYSTEM \"" + value + "\">\n]>");
   }
 
+  @Test
+  public void testSnapshot() throws Exception {
+    Configuration.addDeprecation("test.snapshot.old", "test.snapshot.new");
+    Configuration conf = new Configuration(false);
+    conf.set("test.snapshot.a", "1");
+    conf.set("test.snapshot.b", "${test.snapshot.a}2");
+    conf.set("test.snapshot.new", "3");
+    Configuration snapshot = conf.snapshot();
+    assertTrue(snapshot.isSnapshot());
+    assertFalse(conf.isSnapshot());
+
+    assertEquals("12", snapshot.get("test.snapshot.b"));
+    assertEquals("3", snapshot.get("test.snapshot.old"));
+    assertEquals(1, snapshot.getInt("test.snapshot.a", 0));
+    assertNull(snapshot.get("test.snapshot.c"));
+    assertNull(snapshot.get("test.snapshot.c"));
+    assertEquals("d", snapshot.get("test.snapshot.c", "d"));
+    // Past the names without value it remembers, it still finds none
+    for (int i = 0; i < 2000; i++) {
+      assertNull(snapshot.get("test.snapshot.missing." + i));
+    }
+    assertEquals("12", snapshot.get("test.snapshot.b"));
+    assertEquals(3, snapshot.size());
+
+    // The snapshot doesn't see the later changes of the configuration
+    conf.set("test.snapshot.a", "5");
+    assertEquals("12", snapshot.get("test.snapshot.b"));
+
+    try {
+      snapshot.set("test.snapshot.a", "2");
+      fail("Expected the snapshot to be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      snapshot.addResource(CONFIG);
+      fail("Expected the snapshot to be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      snapshot.unset("test.snapshot.a");
+      fail("Expected the snapshot to be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    snapshot.reloadConfiguration();
+    assertEquals("1", snapshot.get("test.snapshot.a"));
+
+    // A copy of the snapshot is mutable
+    Configuration copy = new Configuration(snapshot);
+    assertFalse(copy.isSnapshot());
+    copy.set("test.snapshot.a", "6");
+    assertEquals("62", copy.get("test.snapshot.b"));
+  }
+
+  @Test
+  public void testSharedClasspathResource() throws Exception {
+    ClassLoader loader = new java.net.URLClassLoader(
+        new java.net.URL[] {new File(CONFIG).getParentFile().toURI().toURL()},
+        null);
+    String resource = new File(CONFIG).getName();
+    out = new BufferedWriter(new FileWriter(CONFIG));
+    startConfig();
+    appendProperty("test.shared.a", "1", true);
+    endConfig();
+
+    for (int i = 0; i < 2; i++) {
+      Configuration conf = new Configuration(false);
+      conf.setClassLoader(loader);
+      conf.addResource(resource);
+      assertEquals("1", conf.get("test.shared.a"));
+      assertTrue(conf.getFinalParameters().contains("test.shared.a"));
+      assertEquals(resource, conf.getPropertySources("test.shared.a")[0]);
+    }
+
+    // A changed file is parsed again
+    out = new BufferedWriter(new FileWriter(CONFIG));
+    startConfig();
+    appendProperty("test.shared.a", "22");
+    endConfig();
+    Configuration conf = new Configuration(false);
+    conf.setClassLoader(loader);
+    conf.addResource(resource);
+    assertEquals("22", conf.get("test.shared.a"));
+    assertFalse(conf.getFinalParameters().contains("test.shared.a"));
+
+    // Even when rewritten with the same length and modification time
+    File file = new File(CONFIG);
+    long lastModified = file.lastModified();
+    out = new BufferedWriter(new FileWriter(CONFIG));
+    startConfig();
+    appendProperty("test.shared.a", "33");
+    endConfig();
+    assertTrue(file.setLastModified(lastModified));
+    conf = new Configuration(false);
+    conf.setClassLoader(loader);
+    conf.addResource(resource);
+    assertEquals("33", conf.get("test.shared.a"));
+  }
+
   @Test
   public void testInputStreamResource() throws Exception {
     StringWriter writer = new StringWriter();
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.crypto.TestCryptoStreams.FakeInputStream;
+import org.apache.hadoop.fs.ByteBufferReadable;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the reads of {@link CryptoInputStream}, next to the same
+ * reads of the plain text stream, for the default codec. Run it with:
+ * <pre>
+ * java -cp ... org.apache.hadoop.crypto.CryptoStreamsBenchmark
+ * </pre>
+ * Each operation reads a whole stream of {@link #DATA_LENGTH} bytes in
+ * chunks of {@link #READ_LENGTH} bytes, so the throughput in MB/s is the
+ * score times 4.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoStreamsBenchmark {
+  private static final int DATA_LENGTH = 4 * 1024 * 1024;
+  private static final int READ_LENGTH = 64 * 1024;
+
+  /** How the stream is read. */
+  public enum Read {
+    ARRAY, DIRECT_BYTE_BUFFER, POSITIONED
+  }
+
+  @Param({"false", "true"})
+  private boolean encrypted;
+
+  @Param({"ARRAY", "DIRECT_BYTE_BUFFER", "POSITIONED"})
+  private Read read;
+
+  @Param({"8192", "65536"})
+  private int bufferSize;
+
+  private CryptoCodec codec;
+  private final DataInputBuffer data = new DataInputBuffer();
+  private final byte[] key = new byte[16];
+  private final byte[] iv = new byte[16];
+  private final byte[] array = new byte[READ_LENGTH];
+  private final ByteBuffer direct = ByteBuffer.allocateDirect(READ_LENGTH);
+
+  @Setup
+  public void setup() {
+    codec = CryptoCodec.getInstance(new Configuration());
+    Random random = new Random(0);
+    byte[] bytes = new byte[DATA_LENGTH];
+    random.nextBytes(bytes);
+    data.reset(bytes, bytes.length);
+    random.nextBytes(key);
+    random.nextBytes(iv);
+  }
+
+  /**
+   * Read the whole stream.
+   * @return the number of bytes read
+   */
+  @Benchmark
+  public long readStream() throws IOException {
+    InputStream in = new FakeInputStream(data);
+    if (encrypted) {
+      in = new CryptoInputStream(in, codec, bufferSize, key, iv);
+    }
+    long total = 0;
+    try {
+      switch (read) {
+      case ARRAY:
+        for (int n; (n = in.read(array, 0, READ_LENGTH)) > 0;) {
+          total += n;
+        }
+        break;
+      case DIRECT_BYTE_BUFFER:
+        direct.clear();
+        for (int n; (n = ((ByteBufferReadable) in).read(direct)) > 0;) {
+          total += n;
+          direct.clear();
+        }
+        break;
+      case POSITIONED:
+        for (int n; total < DATA_LENGTH && (n = ((PositionedReadable) in)
+            .read(total, array, 0, READ_LENGTH)) > 0;) {
+          total += n;
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unknown read " + read);
+      }
+    } finally {
+      in.close();
+    }
+    return total;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(CryptoStreamsBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+}
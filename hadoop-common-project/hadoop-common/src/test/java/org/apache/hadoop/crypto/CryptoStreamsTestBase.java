@@ -561,6 +561,78 @@ public void testByteBufferRead() throws Exception {
     in.close();
   }
   
+  /**
+   * Test direct byte buffer reads from a position which is not at the start
+   * of a cipher block, and mixed with other reads.
+   */
+  @Test(timeout=120000)
+  public void testDirectByteBufferReadAfterSeek() throws Exception {
+    OutputStream out = getOutputStream(defaultBufferSize);
+    writeData(out);
+
+    InputStream in = getInputStream(smallBufferSize);
+    final int pos = dataLen / 3 + 5;
+    ((Seekable) in).seek(pos);
+    ByteBuffer buf = ByteBuffer.allocateDirect(dataLen);
+    int total = 0;
+    while (total < dataLen - pos) {
+      // Read at most 1000 bytes into the direct buffer, then a few bytes
+      buf.limit(Math.min(total + 1000, dataLen));
+      int n = ((ByteBufferReadable) in).read(buf);
+      if (n == -1) {
+        break;
+      }
+      total += n;
+      n = in.read();
+      if (n == -1) {
+        break;
+      }
+      buf.limit(total + 1);
+      buf.put((byte) n);
+      total++;
+    }
+    Assert.assertEquals(dataLen - pos, total);
+    byte[] readData = new byte[total];
+    buf.flip();
+    buf.get(readData);
+    byte[] expectedData = new byte[total];
+    System.arraycopy(data, pos, expectedData, 0, total);
+    Assert.assertArrayEquals(expectedData, readData);
+    in.close();
+  }
+
+  /**
+   * Test positioned reads each continuing from the previous one, in which
+   * case the decryptor of the previous read may be reused.
+   */
+  @Test(timeout=120000)
+  public void testSequentialPositionedRead() throws Exception {
+    OutputStream out = getOutputStream(defaultBufferSize);
+    writeData(out);
+
+    InputStream in = getInputStream(smallBufferSize);
+    byte[] result = new byte[dataLen];
+    int pos = 7;
+    while (pos < dataLen) {
+      int n = ((PositionedReadable) in).read(pos, result, pos,
+          Math.min(1003, dataLen - pos));
+      Assert.assertTrue(n > 0);
+      // A positioned read elsewhere in between
+      byte[] other = new byte[10];
+      ((PositionedReadable) in).readFully(3, other, 0, other.length);
+      byte[] expectedOther = new byte[other.length];
+      System.arraycopy(data, 3, expectedOther, 0, other.length);
+      Assert.assertArrayEquals(expectedOther, other);
+      pos += n;
+    }
+    byte[] readData = new byte[dataLen - 7];
+    System.arraycopy(result, 7, readData, 0, readData.length);
+    byte[] expectedData = new byte[readData.length];
+    System.arraycopy(data, 7, expectedData, 0, expectedData.length);
+    Assert.assertArrayEquals(expectedData, readData);
+    in.close();
+  }
+
   @Test(timeout=120000)
   public void testCombinedOp() throws Exception {
     OutputStream out = getOutputStream(defaultBufferSize);
@@ -91,6 +91,11 @@ protected InputStream getInputStream(int bufferSize, byte[] key, byte[] iv)
   @Test(timeout=10000)
   public void testByteBufferRead() throws Exception {}
   
+  @Ignore("ChecksumFSInputChecker doesn't support ByteBuffer read")
+  @Override
+  @Test(timeout=10000)
+  public void testDirectByteBufferReadAfterSeek() throws Exception {}
+
   @Ignore("ChecksumFSOutputSummer doesn't support Syncable")
   @Override
   @Test(timeout=10000)
@@ -106,6 +106,16 @@ public void testSeek() throws IOException {}
   @Test(timeout=10000)
   public void testByteBufferRead() throws IOException {}
   
+  @Ignore("Wrapped stream doesn't support PositionedRead")
+  @Override
+  @Test(timeout=10000)
+  public void testSequentialPositionedRead() throws IOException {}
+
+  @Ignore("Wrapped stream doesn't support ByteBufferRead, Seek")
+  @Override
+  @Test(timeout=10000)
+  public void testDirectByteBufferReadAfterSeek() throws IOException {}
+
   @Ignore("Wrapped stream doesn't support ByteBufferRead, Seek")
   @Override
   @Test(timeout=10000)
@@ -293,6 +293,37 @@ public void testReencryptEncryptedKeys() throws Exception {
     }
   }
 
+  @Test
+  public void testDecryptEncryptedKeys() throws Exception {
+    // Use another key, so that rolling it doesn't affect the other tests
+    final String keyName = "testDecryptEncryptedKeys";
+    kp.createKey(keyName, SecureRandom.getSeed(16), options);
+    List<EncryptedKeyVersion> ekvs = new ArrayList<>(3);
+    // Generate 2 new EEKs @v0 and add to the list
+    ekvs.add(kpExt.generateEncryptedKey(keyName));
+    ekvs.add(kpExt.generateEncryptedKey(keyName));
+
+    // Roll the EK
+    kpExt.rollNewVersion(keyName);
+    // Generate 1 new EEK @v1 add to the list.
+    ekvs.add(kpExt.generateEncryptedKey(keyName));
+
+    // Decrypt ekvs
+    final List<KeyVersion> kvs = kpExt.decryptEncryptedKeys(ekvs);
+    assertEquals(ekvs.size(), kvs.size());
+
+    // Verify each kv is the same as the ekv decrypted alone
+    for (int i = 0; i < ekvs.size(); ++i) {
+      final KeyVersion kv = kvs.get(i);
+      assertEquals(KeyProviderCryptoExtension.EK, kv.getVersionName());
+      assertArrayEquals(kpExt.decryptEncryptedKey(ekvs.get(i)).getMaterial(),
+          kv.getMaterial());
+    }
+    assertTrue("Expected no decrypted keys",
+        kpExt.decryptEncryptedKeys(new ArrayList<EncryptedKeyVersion>())
+            .isEmpty());
+  }
+
   @Test
   public void testNonDefaultCryptoExtensionSelectionWithCachingKeyProvider()
           throws Exception {
@@ -31,22 +31,34 @@
 import java.net.UnknownHostException;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.crypto.key.KeyProvider;
+import org.apache.hadoop.crypto.key.KeyProvider.KeyVersion;
 import org.apache.hadoop.crypto.key.KeyProvider.Options;
 import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.net.ConnectTimeoutException;
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.SecurityUtil;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.client.AuthenticationException;
 import org.apache.hadoop.security.authorize.AuthorizationException;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.base.Supplier;
+
 import com.google.common.collect.Sets;
 
 public class TestLoadBalancingKMSClientProvider {
@@ -638,4 +650,261 @@ public void testClientRetriesWithAuthenticationExceptionWrappedinIOException()
     verify(p2, Mockito.times(1)).createKey(Mockito.eq("test3"),
             Mockito.any(Options.class));
   }
-}
\ No newline at end of file
+
+  private static EncryptedKeyVersion newEncryptedKey(int i) {
+    return EncryptedKeyVersion.createForDecryption("key1", "key1@0",
+        new byte[] {(byte) i}, new byte[] {(byte) i});
+  }
+
+  private static KeyVersion newDecryptedKey(EncryptedKeyVersion ekv) {
+    return new KMSClientProvider.KMSKeyVersion("key1", "EK",
+        ekv.getEncryptedKeyVersion().getMaterial());
+  }
+
+  /**
+   * A provider decrypting the keys as the current user, which records each
+   * decrypted key as user:key. The single decryptions count started down,
+   * then block until release is counted down. Unlike a mock, it doesn't
+   * serialize the concurrent calls.
+   */
+  private static class DecryptingProvider extends KMSClientProvider {
+    private final List<String> decrypted =
+        Collections.synchronizedList(new ArrayList<String>());
+    private final List<Integer> batchSizes =
+        Collections.synchronizedList(new ArrayList<Integer>());
+    private final AtomicInteger singles = new AtomicInteger();
+    private final CountDownLatch started;
+    private final CountDownLatch release;
+
+    DecryptingProvider(Configuration conf, CountDownLatch started,
+        CountDownLatch release) throws Exception {
+      super(new URI("kms://http@host1:9600/kms/foo"), conf);
+      this.started = started;
+      this.release = release;
+    }
+
+    @Override
+    public KeyVersion decryptEncryptedKey(EncryptedKeyVersion ekv)
+        throws IOException {
+      singles.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      return decrypt(ekv);
+    }
+
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs) throws IOException {
+      batchSizes.add(ekvs.size());
+      List<KeyVersion> keyVersions = new ArrayList<KeyVersion>();
+      for (EncryptedKeyVersion ekv : ekvs) {
+        keyVersions.add(decrypt(ekv));
+      }
+      return keyVersions;
+    }
+
+    private KeyVersion decrypt(EncryptedKeyVersion ekv) throws IOException {
+      byte key = ekv.getEncryptedKeyVersion().getMaterial()[0];
+      if (key < 0) {
+        throw new IOException("Invalid key " + key);
+      }
+      decrypted.add(
+          UserGroupInformation.getCurrentUser().getShortUserName() + ":" + key);
+      return newDecryptedKey(ekv);
+    }
+  }
+
+  /**
+   * Decrypt the keys concurrently, each as the given user. The first key of
+   * each user is sent first, and blocks the others until they all wait.
+   * @return the decrypted keys, or the exceptions thrown
+   */
+  private static Object[] decryptConcurrently(
+      final LoadBalancingKMSClientProvider kp, String[] users,
+      final int[] keys, final CountDownLatch started, CountDownLatch release)
+      throws Exception {
+    final Object[] results = new Object[users.length];
+    final List<Thread> first = new ArrayList<Thread>();
+    final List<Thread> others = new ArrayList<Thread>();
+    for (int i = 0; i < users.length; i++) {
+      final int n = i;
+      final UserGroupInformation ugi =
+          UserGroupInformation.createRemoteUser(users[i]);
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            results[n] = ugi.doAs(
+                new PrivilegedExceptionAction<KeyVersion>() {
+                  @Override
+                  public KeyVersion run() throws Exception {
+                    return kp.decryptEncryptedKey(
+                        newEncryptedKey(keys[n]));
+                  }
+                });
+          } catch (Exception e) {
+            results[n] = e;
+          }
+        }
+      };
+      if (Arrays.asList(users).indexOf(users[i]) == i) {
+        first.add(thread);
+      } else {
+        others.add(thread);
+      }
+    }
+    for (Thread thread : first) {
+      thread.start();
+    }
+    started.await();
+    for (Thread thread : others) {
+      thread.start();
+    }
+    GenericTestUtils.waitFor(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        for (Thread thread : others) {
+          if (thread.getState() != Thread.State.WAITING) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }, 10, 10000);
+    release.countDown();
+    for (Thread thread : first) {
+      thread.join();
+    }
+    for (Thread thread : others) {
+      thread.join();
+    }
+    return results;
+  }
+
+  /**
+   * Tests that the decryptions sent while another one is in progress are
+   * sent together in a batch.
+   */
+  @Test
+  public void testDecryptBatching() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPT_BATCH_SIZE,
+        10);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    DecryptingProvider p1 = new DecryptingProvider(conf, started, release);
+    LoadBalancingKMSClientProvider kp = new LoadBalancingKMSClientProvider(
+        new KMSClientProvider[] {p1}, 0, conf);
+
+    // the first decryption is sent alone, the others wait for it
+    Object[] results = decryptConcurrently(kp,
+        new String[] {"user1", "user1", "user1", "user1"},
+        new int[] {0, 1, 2, 3}, started, release);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals((byte) i, ((KeyVersion) results[i]).getMaterial()[0]);
+    }
+    assertEquals(1, p1.singles.get());
+    assertEquals(Arrays.asList(3), p1.batchSizes);
+  }
+
+  /**
+   * Tests that the decryptions of different users are not batched
+   * together, so that each key is decrypted as its user.
+   */
+  @Test
+  public void testDecryptBatchingPerUser() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPT_BATCH_SIZE,
+        10);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    DecryptingProvider p1 = new DecryptingProvider(conf, started, release);
+    LoadBalancingKMSClientProvider kp = new LoadBalancingKMSClientProvider(
+        new KMSClientProvider[] {p1}, 0, conf);
+
+    Object[] results = decryptConcurrently(kp,
+        new String[] {"alice", "bob", "alice", "bob", "alice", "bob"},
+        new int[] {0, 1, 2, 3, 4, 5}, started, release);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals((byte) i, ((KeyVersion) results[i]).getMaterial()[0]);
+    }
+    assertEquals(Sets.newHashSet("alice:0", "bob:1", "alice:2", "bob:3",
+        "alice:4", "bob:5"), Sets.newHashSet(p1.decrypted));
+    assertEquals(6, p1.decrypted.size());
+    // one single and one batch decryption per user
+    assertEquals(2, p1.singles.get());
+    assertEquals(Arrays.asList(2, 2), p1.batchSizes);
+  }
+
+  /**
+   * Tests that an invalid key only fails its own decryption when it is
+   * batched with other keys.
+   */
+  @Test
+  public void testDecryptBatchFailure() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPT_BATCH_SIZE,
+        10);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    DecryptingProvider p1 = new DecryptingProvider(conf, started, release);
+    LoadBalancingKMSClientProvider kp = new LoadBalancingKMSClientProvider(
+        new KMSClientProvider[] {p1}, 0, conf);
+
+    // the key -1 is invalid, and batched with the keys 1 and 3
+    Object[] results = decryptConcurrently(kp,
+        new String[] {"user1", "user1", "user1", "user1"},
+        new int[] {0, 1, -1, 3}, started, release);
+    assertEquals(0, ((KeyVersion) results[0]).getMaterial()[0]);
+    assertEquals(1, ((KeyVersion) results[1]).getMaterial()[0]);
+    assertTrue(results[2] instanceof IOException);
+    assertEquals(3, ((KeyVersion) results[3]).getMaterial()[0]);
+    assertEquals(Sets.newHashSet("user1:0", "user1:1", "user1:3"),
+        Sets.newHashSet(p1.decrypted));
+    // the batch fails, then its keys are decrypted one by one
+    assertEquals(Arrays.asList(3), p1.batchSizes);
+    assertEquals(4, p1.singles.get());
+  }
+
+  /**
+   * Tests that the decrypted keys are cached for each user.
+   */
+  @Test
+  public void testDecryptedKeyCache() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS,
+        60000);
+    KMSClientProvider p1 = mock(KMSClientProvider.class);
+    final EncryptedKeyVersion ekv = newEncryptedKey(1);
+    when(p1.decryptEncryptedKey(Mockito.any(EncryptedKeyVersion.class)))
+        .thenReturn(newDecryptedKey(ekv));
+    final LoadBalancingKMSClientProvider kp =
+        new LoadBalancingKMSClientProvider(new KMSClientProvider[] {p1}, 0,
+            conf);
+
+    assertEquals(1, kp.decryptEncryptedKey(ekv).getMaterial()[0]);
+    assertEquals(1, kp.decryptEncryptedKey(newEncryptedKey(1))
+        .getMaterial()[0]);
+    verify(p1, Mockito.times(1)).decryptEncryptedKey(ekv);
+
+    // another user can't get the key from the cache
+    UserGroupInformation.createRemoteUser("other").doAs(
+        new PrivilegedExceptionAction<KeyVersion>() {
+          @Override
+          public KeyVersion run() throws Exception {
+            return kp.decryptEncryptedKey(ekv);
+          }
+        });
+    verify(p1, Mockito.times(2)).decryptEncryptedKey(ekv);
+
+    // deleting a key empties the cache
+    kp.deleteKey("key1");
+    kp.decryptEncryptedKey(ekv);
+    verify(p1, Mockito.times(3)).decryptEncryptedKey(ekv);
+  }
+}
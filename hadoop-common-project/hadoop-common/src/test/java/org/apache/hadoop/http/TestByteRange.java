@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestByteRange {
+  private static List<ByteRange> ranges(long... offsets) {
+    ByteRange[] ranges = new ByteRange[offsets.length / 2];
+    for (int i = 0; i < ranges.length; i++) {
+      ranges[i] = new ByteRange(offsets[2 * i], offsets[2 * i + 1]);
+    }
+    return Arrays.asList(ranges);
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(ranges(0, 99), ByteRange.parse("bytes=0-99", 1000));
+    assertEquals(ranges(500, 999), ByteRange.parse("bytes=500-", 1000));
+    assertEquals(ranges(900, 999), ByteRange.parse("bytes=-100", 1000));
+    assertEquals(ranges(0, 999), ByteRange.parse("bytes=-2000", 1000));
+    // The end is capped to the length of the representation
+    assertEquals(ranges(990, 999), ByteRange.parse("bytes=990-2000", 1000));
+    assertEquals(ranges(0, 9, 20, 29),
+        ByteRange.parse("Bytes= 0-9 , 20-29", 1000));
+  }
+
+  @Test
+  public void testMerge() {
+    assertEquals(ranges(0, 29, 100, 109),
+        ByteRange.parse("bytes=100-109,10-29,0-9", 1000));
+    assertEquals(ranges(0, 49), ByteRange.parse("bytes=0-49,10-19", 1000));
+  }
+
+  @Test
+  public void testUnsatisfiable() {
+    assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+    assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+    assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+    // Satisfiable ranges are still served
+    assertEquals(ranges(0, 9), ByteRange.parse("bytes=2000-,0-9", 1000));
+    assertEquals("bytes */1000", ByteRange.unsatisfiedContentRange(1000));
+  }
+
+  @Test
+  public void testInvalid() {
+    assertNull(ByteRange.parse(null, 1000));
+    assertNull(ByteRange.parse("items=0-9", 1000));
+    assertNull(ByteRange.parse("bytes=9-0", 1000));
+    assertNull(ByteRange.parse("bytes=a-b", 1000));
+    assertNull(ByteRange.parse("bytes=10", 1000));
+    assertNull(ByteRange.parse("bytes=--1", 1000));
+    StringBuilder tooMany = new StringBuilder("bytes=0-0");
+    for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+      tooMany.append(',').append(2 * i).append('-').append(2 * i);
+    }
+    assertNull(ByteRange.parse(tooMany.toString(), 1000));
+  }
+
+  @Test
+  public void testMultipart() {
+    ByteRange range = new ByteRange(10, 19);
+    assertEquals("bytes 10-19/100", range.toContentRange(100));
+    String header = new String(
+        range.partHeader("b", "text/plain", 100), StandardCharsets.US_ASCII);
+    assertEquals("\r\n--b\r\nContent-Type: text/plain\r\n"
+        + "Content-Range: bytes 10-19/100\r\n\r\n", header);
+    assertEquals("\r\n--b--\r\n", new String(ByteRange.multipartEnd("b"),
+        StandardCharsets.US_ASCII));
+    assertEquals(header.length() + 10 + 9, ByteRange.multipartLength(
+        Arrays.asList(range), "b", "text/plain", 100));
+  }
+}
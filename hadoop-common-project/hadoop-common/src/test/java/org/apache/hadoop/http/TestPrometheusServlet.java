@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.http;
+
+import java.net.URL;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test the /prom endpoint, scraping the metrics of the default metrics
+ * system.
+ */
+public class TestPrometheusServlet extends HttpServerFunctionalTest {
+
+  @Metrics(about = "Test prometheus source", context = "test")
+  private static class PromTestSource {
+    @Metric("Test counter")
+    private MutableCounterLong testCounter;
+  }
+
+  @After
+  public void cleanup() {
+    DefaultMetricsSystem.shutdown();
+  }
+
+  private static String scrape(Configuration conf, long count)
+      throws Exception {
+    MetricsSystem ms = DefaultMetricsSystem.initialize("test");
+    PromTestSource source = ms.register("PromTest", "Prometheus test",
+        new PromTestSource());
+    source.testCounter.incr(count);
+    HttpServer2 server = createTestServer(conf);
+    try {
+      server.start();
+      ms.publishMetricsNow();
+      return readOutput(new URL(getServerURL(server), "/prom"));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testScrape() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setBoolean(CommonConfigurationKeys.HADOOP_PROMETHEUS_ENABLED, true);
+
+    String metrics = scrape(conf, 3);
+    assertTrue(metrics, metrics.contains(
+        "# TYPE prom_test_source_test_counter counter\n"));
+    assertTrue(metrics, metrics.matches(
+        "(?s).*\nprom_test_source_test_counter\\{context=\"test\""
+        + "[^}]*\\} 3\n.*"));
+
+    // The sink is registered again when the metrics system was shut down
+    DefaultMetricsSystem.shutdown();
+    metrics = scrape(conf, 5);
+    assertTrue(metrics, metrics.matches(
+        "(?s).*\nprom_test_source_test_counter\\{[^}]*\\} 5\n.*"));
+  }
+}
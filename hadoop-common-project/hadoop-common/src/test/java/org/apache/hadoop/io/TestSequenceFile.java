@@ -669,6 +669,128 @@ public void testRecursiveSeqFileCreate() throws IOException {
     // should succeed, fails if exception thrown
   }
 
+  @Test
+  public void testBlockIndex() throws IOException {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeys.IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY,
+        1024);
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path path = new Path(GenericTestUtils.getTempPath("blockIndex"), "file");
+    int count = 1000;
+    Random random = new Random(1);
+    int[] keys = new int[count];
+    SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(path),
+        SequenceFile.Writer.keyClass(IntWritable.class),
+        SequenceFile.Writer.valueClass(Text.class),
+        SequenceFile.Writer.compression(CompressionType.BLOCK,
+            new DefaultCodec()),
+        SequenceFile.Writer.blockIndex(true));
+    try {
+      for (int i = 0; i < count; i++) {
+        keys[i] = random.nextInt(100000) - 50000;
+        writer.append(new IntWritable(keys[i]), new Text("value" + i));
+      }
+    } finally {
+      writer.close();
+    }
+    assertTrue(fs.exists(SequenceFile.getBlockIndexPath(path)));
+
+    SequenceFile.Reader reader =
+        new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+    try {
+      List<SequenceFile.BlockInfo> index = reader.getBlockIndex();
+      assertNotNull(index);
+      assertTrue("Expected several blocks: " + index.size(), index.size() > 1);
+
+      // Read all the blocks at once and check them against the index
+      SequenceFile.RawBlock block = new SequenceFile.RawBlock();
+      DataInputBuffer in = new DataInputBuffer();
+      IntWritable key = new IntWritable();
+      Text value = new Text();
+      int record = 0;
+      for (SequenceFile.BlockInfo info : index) {
+        assertTrue(reader.nextBlock(block));
+        assertEquals(info.getPosition(), block.getPosition());
+        assertEquals(info.getRecords(), block.getRecords());
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < block.getRecords(); i++, record++) {
+          in.reset(block.getKeyData(), block.getKeyOffset(i),
+              block.getKeyLength(i));
+          key.readFields(in);
+          assertEquals(keys[record], key.get());
+          in.reset(block.getValueData(), block.getValueOffset(i),
+              block.getValueLength(i));
+          value.readFields(in);
+          assertEquals("value" + record, value.toString());
+          min = Math.min(min, key.get());
+          max = Math.max(max, key.get());
+        }
+        in.reset(info.getMinKey(), info.getMinKey().length);
+        key.readFields(in);
+        assertEquals(min, key.get());
+        in.reset(info.getMaxKey(), info.getMaxKey().length);
+        key.readFields(in);
+        assertEquals(max, key.get());
+      }
+      assertEquals(count, record);
+      assertFalse(reader.nextBlock(block));
+
+      // Skip to the last block
+      SequenceFile.BlockInfo last = index.get(index.size() - 1);
+      reader.seek(last.getPosition());
+      assertTrue(reader.nextBlock(block));
+      assertEquals(last.getRecords(), block.getRecords());
+
+      // A block can't be read from its middle
+      reader.seek(index.get(0).getPosition());
+      assertTrue(reader.next(key));
+      try {
+        reader.nextBlock(block);
+        fail("Expected an exception in the middle of a block");
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      reader.close();
+    }
+
+    // The file is readable record by record as before
+    reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+    try {
+      IntWritable key = new IntWritable();
+      Text value = new Text();
+      for (int i = 0; i < count; i++) {
+        assertTrue(reader.next(key, value));
+        assertEquals(keys[i], key.get());
+      }
+      assertFalse(reader.next(key, value));
+    } finally {
+      reader.close();
+    }
+
+    // The index of a previous file is ignored
+    writeTest(fs, 10, 1, path, CompressionType.BLOCK, new DefaultCodec());
+    reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+    try {
+      assertNull(reader.getBlockIndex());
+    } finally {
+      reader.close();
+    }
+
+    try {
+      SequenceFile.createWriter(conf, SequenceFile.Writer.file(path),
+          SequenceFile.Writer.keyClass(IntWritable.class),
+          SequenceFile.Writer.valueClass(Text.class),
+          SequenceFile.Writer.compression(CompressionType.RECORD),
+          SequenceFile.Writer.blockIndex(true));
+      fail("Expected an exception for a record-compressed file");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testSerializationAvailability() throws IOException {
     Configuration conf = new Configuration();
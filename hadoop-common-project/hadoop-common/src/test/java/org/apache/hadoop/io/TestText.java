@@ -22,10 +22,13 @@
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
 import java.util.Random;
 import com.google.common.base.Charsets;
 import com.google.common.primitives.Bytes;
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -447,4 +450,77 @@ public void testUtf8Length() {
             2, Text.utf8Length(new String(new char[]{(char)254})));
   }
 
+  @Test
+  public void testEncodeMatchesJdk() throws Exception {
+    String[] strings = {"", "ascii", "\u00e9t\u00e9", "\u20ac100",
+        "\ud83d\ude00 smile", "lone \ud800 high", "lone \udc00 low",
+        "end \ud800", "\ud800\ud800\udc00"};
+    for (String str : strings) {
+      byte[] expected = str.getBytes(StandardCharsets.UTF_8);
+      Text text = new Text(str);
+      assertEquals(str, expected.length, text.getLength());
+      assertArrayEquals(str, expected, text.copyBytes());
+      ByteBuffer bb = Text.encode(str);
+      assertEquals(str, expected.length, bb.limit());
+      assertEquals(str, new String(expected, StandardCharsets.UTF_8),
+          text.toString());
+    }
+    try {
+      Text.encode("lone \ud800 high", false);
+      fail("unpaired surrogate should not be encoded");
+    } catch (MalformedInputException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDecodeMalformed() throws Exception {
+    byte[][] inputs = {{'a', (byte) 0xe2, (byte) 0x82, 'b'},
+        {(byte) 0xed, (byte) 0xa0, (byte) 0x80}, {(byte) 0xc0, (byte) 0xaf},
+        {'a', (byte) 0xf0, (byte) 0x9f}, {(byte) 0xff}};
+    for (byte[] input : inputs) {
+      String expected = new String(input, StandardCharsets.UTF_8);
+      assertEquals(expected, Text.decode(input));
+      try {
+        Text.decode(input, 0, input.length, false);
+        fail("malformed input should not be decoded");
+      } catch (CharacterCodingException e) {
+        // expected
+      }
+    }
+    assertEquals("ok", Text.decode(new byte[] {'o', 'k'}, 0, 2, false));
+  }
+
+  @Test
+  public void testFindEdges() {
+    Text text = new Text("abcabc");
+    text.set("abc");
+    // bytes past the length must not match
+    assertEquals(-1, text.find("abca"));
+    assertEquals(-1, text.find("c", 3));
+    assertEquals(2, text.find("c", -1));
+  }
+
+  @Test
+  public void testTransform() {
+    Text src = new Text("Hello \u00c9T\u00c9 \ud801\udc00!");
+    Text dst = new Text("some previous content");
+    dst.transform(src, Character::toLowerCase);
+    assertEquals("hello \u00e9t\u00e9 \ud801\udc28!", dst.toString());
+    assertEquals("Hello \u00c9T\u00c9 \ud801\udc00!", src.toString());
+
+    // in place, growing the buffer
+    Text text = new Text("abc");
+    text.transform(text, cp -> cp == 'b' ? 0x1F600 : cp);
+    assertEquals("a\ud83d\ude00c", text.toString());
+
+    // malformed input and invalid results are replaced
+    Text malformed = new Text(new byte[] {'a', (byte) 0xe2, (byte) 0x82,
+        'b', (byte) 0xff});
+    text.transform(malformed, cp -> cp);
+    assertEquals("a\ufffdb\ufffd", text.toString());
+    text.transform(new Text("ab"), cp -> cp == 'a' ? 0xD800 : -1);
+    assertEquals("??", text.toString());
+  }
+
 }
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the {@link Text} conversions, next to the same
+ * conversions done with {@link String}. Run it with:
+ * <pre>
+ * java -cp ... org.apache.hadoop.io.TextBenchmark
+ * </pre>
+ * The strings are either ASCII only, or mix ASCII with two byte, three byte
+ * and supplementary characters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+  @Param({"16", "128", "1024"})
+  private int length;
+
+  @Param({"true", "false"})
+  private boolean ascii;
+
+  private String str;
+  private byte[] utf8;
+  private String what;
+  private Text text;
+  private Text to;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    StringBuilder b = new StringBuilder(length);
+    while (b.length() < length) {
+      int r = random.nextInt(ascii ? 64 : 80);
+      if (r < 64) {
+        b.append((char) ('0' + r));
+      } else if (r < 72) {
+        b.append((char) (0xe0 + r));
+      } else if (r < 78) {
+        b.append((char) (0x4e00 + r));
+      } else {
+        b.appendCodePoint(0x1F600 + r);
+      }
+    }
+    str = b.toString();
+    utf8 = str.getBytes(StandardCharsets.UTF_8);
+    what = str.substring(str.length() * 3 / 4);
+    text = new Text(str);
+    to = new Text();
+  }
+
+  @Benchmark
+  public void set(Blackhole bh) {
+    to.set(str);
+    bh.consume(to);
+  }
+
+  @Benchmark
+  public void stringGetBytes(Blackhole bh) {
+    bh.consume(str.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public void textToString(Blackhole bh) {
+    bh.consume(text.toString());
+  }
+
+  @Benchmark
+  public void newString(Blackhole bh) {
+    bh.consume(new String(utf8, StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public void find(Blackhole bh) {
+    bh.consume(text.find(what));
+  }
+
+  @Benchmark
+  public void stringIndexOf(Blackhole bh) {
+    bh.consume(str.indexOf(what));
+  }
+
+  @Benchmark
+  public void transform(Blackhole bh) {
+    to.transform(text, Character::toUpperCase);
+    bh.consume(to);
+  }
+
+  @Benchmark
+  public void stringToUpperCase(Blackhole bh) {
+    to.set(str.toUpperCase());
+    bh.consume(to);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(TextBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+}
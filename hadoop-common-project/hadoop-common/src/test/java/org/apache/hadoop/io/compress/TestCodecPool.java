@@ -18,6 +18,10 @@
 package org.apache.hadoop.io.compress;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -189,4 +193,41 @@ public void testDecompressorNotReturnSameInstance() {
       CodecPool.returnDecompressor(decompressor);
     }
   }
+
+  @Test(timeout = 10000)
+  public void testDirectCompressorPool() {
+    DirectCodec directCodec = new DirectCodec();
+    DirectCompressor comp1 = CodecPool.getDirectCompressor(directCodec);
+    DirectCompressor comp2 = CodecPool.getDirectCompressor(directCodec);
+    assertNotSame(comp1, comp2);
+    CodecPool.returnDirectCompressor(comp1);
+    CodecPool.returnDirectCompressor(comp1);
+    assertSame(comp1, CodecPool.getDirectCompressor(directCodec));
+    assertNotSame(comp1, CodecPool.getDirectCompressor(directCodec));
+    assertEquals(3, directCodec.created);
+    CodecPool.returnDirectCompressor(comp1);
+    CodecPool.returnDirectCompressor(comp2);
+  }
+
+  /** A codec creating direct compressors which aren't native */
+  private static class DirectCodec extends DefaultCodec
+      implements DirectCompressionCodec {
+    private int created = 0;
+
+    @Override
+    public DirectCompressor createDirectCompressor() {
+      created++;
+      return new DirectCompressor() {
+        @Override
+        public void compress(ByteBuffer src, ByteBuffer dst) {
+          dst.put(src);
+        }
+
+        @Override
+        public int maxCompressedLength(int uncompressedLength) {
+          return uncompressedLength;
+        }
+      };
+    }
+  }
 }
@@ -25,6 +25,7 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import org.apache.hadoop.io.DataInputBuffer;
@@ -315,6 +316,32 @@ public static byte[] generate(int size) {
     return array;
   }
 
+  @Test
+  public void testLz4DirectCompressor() throws IOException {
+    for (boolean useLz4HC : new boolean[] {false, true}) {
+      Lz4Compressor.Lz4DirectCompressor compressor =
+          new Lz4Compressor.Lz4DirectCompressor(useLz4HC);
+      Lz4Decompressor.Lz4DirectDecompressor decompressor =
+          new Lz4Decompressor.Lz4DirectDecompressor();
+      for (int size : new int[] {1, 4 * 1024, 256 * 1024}) {
+        byte[] rawData = generate(size);
+        ByteBuffer src = ByteBuffer.allocateDirect(size);
+        src.put(rawData).flip();
+        ByteBuffer compressed =
+            ByteBuffer.allocateDirect(compressor.maxCompressedLength(size));
+        compressor.compress(src, compressed);
+        assertEquals(0, src.remaining());
+        compressed.flip();
+
+        ByteBuffer uncompressed = ByteBuffer.allocateDirect(size);
+        decompressor.reset();
+        decompressor.decompress(compressed, uncompressed);
+        uncompressed.flip();
+        assertEquals(ByteBuffer.wrap(rawData), uncompressed);
+      }
+    }
+  }
+
   @Test
   public void testLz4CompressDecompressInMultiThreads() throws Exception {
     MultithreadedTestUtil.TestContext ctx = new MultithreadedTestUtil.TestContext();
@@ -329,6 +329,38 @@ public void testSnappyDirectBlockCompression() {
     }
   }
 
+  @Test
+  public void testSnappyDirectCompressor() throws IOException {
+    SnappyCompressor.SnappyDirectCompressor compressor =
+        new SnappyCompressor.SnappyDirectCompressor();
+    SnappyDirectDecompressor decompressor = new SnappyDirectDecompressor();
+    for (int size : new int[] {0, 1, 4 * 1024, 256 * 1024}) {
+      byte[] rawData = BytesGenerator.get(size);
+      ByteBuffer src = ByteBuffer.allocateDirect(Math.max(size, 1));
+      src.put(rawData).flip();
+      ByteBuffer compressed =
+          ByteBuffer.allocateDirect(compressor.maxCompressedLength(size));
+      compressor.compress(src, compressed);
+      assertEquals(0, src.remaining());
+      compressed.flip();
+
+      ByteBuffer uncompressed = ByteBuffer.allocateDirect(Math.max(size, 1));
+      decompressor.reset();
+      decompressor.decompress(compressed, uncompressed);
+      uncompressed.flip();
+      assertEquals(ByteBuffer.wrap(rawData), uncompressed);
+    }
+
+    // The destination must hold the worst case
+    ByteBuffer src = ByteBuffer.allocateDirect(1024);
+    try {
+      compressor.compress(src, ByteBuffer.allocateDirect(16));
+      fail("Expected an exception for a destination too small");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testSnappyCompressorDecopressorLogicWithCompressionStreams() {
     int BYTE_SIZE = 1024 * 100;
@@ -25,6 +25,7 @@
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.CompressorStream;
 import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.io.compress.DecompressorStream;
 import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.test.MultithreadedTestUtil;
@@ -49,6 +50,7 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -431,6 +433,34 @@ private void compressDecompressLoop(int rawDataSize) throws IOException {
     assertEquals(0, expected.remaining());
   }
 
+  @Test
+  public void testZStandardDirectCompressor() throws Exception {
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(CONFIGURATION);
+    DirectCompressor compressor = codec.createDirectCompressor();
+    assertNotNull(compressor);
+    ZStandardDecompressor.ZStandardDirectDecompressor decompressor =
+        new ZStandardDecompressor.ZStandardDirectDecompressor(4096);
+    for (int size : new int[] {1, 4 * 1024, 256 * 1024}) {
+      byte[] rawData = generate(size);
+      ByteBuffer src = ByteBuffer.allocateDirect(size);
+      src.put(rawData).flip();
+      ByteBuffer compressed =
+          ByteBuffer.allocateDirect(compressor.maxCompressedLength(size));
+      compressor.compress(src, compressed);
+      assertEquals(0, src.remaining());
+      compressed.flip();
+
+      ByteBuffer uncompressed = ByteBuffer.allocateDirect(size);
+      decompressor.reset();
+      while (!decompressor.finished()) {
+        decompressor.decompress(compressed, uncompressed);
+      }
+      uncompressed.flip();
+      assertEquals(ByteBuffer.wrap(rawData), uncompressed);
+    }
+  }
+
   @Test
   public void testReadingWithAStream() throws Exception {
     FileInputStream inputStream = FileUtils.openInputStream(compressedFile);
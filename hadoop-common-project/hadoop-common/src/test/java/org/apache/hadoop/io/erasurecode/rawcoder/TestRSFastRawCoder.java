@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.erasurecode.rawcoder;
+
+import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
+import org.apache.hadoop.io.erasurecode.rawcoder.util.RSFastUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the fast pure Java RS raw coder.
+ */
+public class TestRSFastRawCoder extends TestRSRawCoderBase {
+
+  @Before
+  public void setup() {
+    this.encoderFactoryClass = RSFastRawErasureCoderFactory.class;
+    this.decoderFactoryClass = RSFastRawErasureCoderFactory.class;
+    setAllowDump(false);
+  }
+
+  @Test
+  public void testCoding_6x3_multipleChunks() {
+    // Spans several coding loop chunks and leaves a tail of odd length.
+    baseChunkSize = RSFastUtil.CHUNK_SIZE * 2 + 11;
+    prepare(null, 6, 3, new int[]{0, 4}, new int[]{1});
+    testCodingDoMixAndTwice();
+  }
+
+  @Test
+  public void testDecodingTablesCache() throws Exception {
+    ErasureCoderOptions options = new ErasureCoderOptions(6, 3);
+    RSFastRawDecoder rsDecoder = new RSFastRawDecoder(options);
+    RSFastRawEncoder rsEncoder = new RSFastRawEncoder(options);
+
+    byte[][] data = new byte[9][];
+    for (int i = 0; i < 9; i++) {
+      data[i] = new byte[64];
+    }
+    for (int i = 0; i < 6; i++) {
+      for (int j = 0; j < 64; j++) {
+        data[i][j] = (byte) (i * 64 + j);
+      }
+    }
+    byte[][] parity = new byte[][] {data[6], data[7], data[8]};
+    rsEncoder.encode(new byte[][] {data[0], data[1], data[2], data[3],
+        data[4], data[5]}, parity);
+
+    // The same pattern twice, then a different one.
+    for (int erased : new int[] {1, 1, 3}) {
+      byte[][] inputs = data.clone();
+      inputs[erased] = null;
+      byte[][] outputs = new byte[][] {new byte[64]};
+      rsDecoder.decode(inputs, new int[] {erased}, outputs);
+      assertArrayEquals(data[erased], outputs[0]);
+    }
+    assertEquals(2, rsDecoder.getNumCachedPatterns());
+
+    // The cache is bounded, there are 84 ways to erase 3 of 9 units.
+    for (int a = 0; a < 9; a++) {
+      for (int b = a + 1; b < 9; b++) {
+        for (int c = b + 1; c < 9; c++) {
+          int[] erased = new int[] {a, b, c};
+          byte[][] inputs = data.clone();
+          byte[][] outputs = new byte[3][];
+          for (int i = 0; i < 3; i++) {
+            inputs[erased[i]] = null;
+            outputs[i] = new byte[64];
+          }
+          rsDecoder.decode(inputs, erased, outputs);
+          for (int i = 0; i < 3; i++) {
+            assertArrayEquals(data[erased[i]], outputs[i]);
+          }
+        }
+      }
+    }
+    assertTrue(rsDecoder.getNumCachedPatterns() <=
+        RSFastRawDecoder.MAX_CACHED_PATTERNS);
+  }
+}
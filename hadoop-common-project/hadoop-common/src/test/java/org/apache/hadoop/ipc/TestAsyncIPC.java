@@ -38,13 +38,16 @@
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TestAsyncIPC {
 
@@ -291,6 +294,50 @@ public void testCallGetReturnRpcResponseMultipleTimes() throws IOException,
     }
   }
 
+  @Test(timeout = 60000)
+  public void testAsyncCallCallback() throws Exception {
+    final int callCount = 20;
+    Server server = new TestIPC.TestServer(2, true, conf);
+    InetSocketAddress addr = NetUtils.getConnectAddress(server);
+    server.start();
+    final Client client = new Client(LongWritable.class, conf);
+    // The test runs in a thread of its own due to the timeout
+    Client.setAsynchronousMode(true);
+
+    try {
+      final CountDownLatch completed = new CountDownLatch(callCount);
+      final AtomicInteger callbacks = new AtomicInteger();
+      List<Future<LongWritable>> futures = new ArrayList<>();
+      List<Long> params = new ArrayList<>();
+      for (int i = 0; i < callCount; i++) {
+        final long param = TestIPC.RANDOM.nextLong();
+        Client.setAsyncCallCallback(() -> {
+          callbacks.incrementAndGet();
+          completed.countDown();
+        });
+        TestIPC.call(client, param, addr, conf);
+        futures.add(getAsyncRpcResponseFuture());
+        params.add(param);
+      }
+      // The callbacks fire without anybody waiting for the responses
+      assertTrue(completed.await(30, TimeUnit.SECONDS));
+      for (int i = 0; i < callCount; i++) {
+        Future<LongWritable> future = futures.get(i);
+        assertTrue(future.isDone());
+        assertEquals(params.get(i).longValue(),
+            future.get(0, TimeUnit.MILLISECONDS).get());
+      }
+
+      // The callback is only used for the next call
+      TestIPC.call(client, 0L, addr, conf);
+      getAsyncRpcResponseFuture().get();
+      assertEquals(callCount, callbacks.get());
+    } finally {
+      client.stop();
+      server.stop();
+    }
+  }
+
   @Test(timeout = 60000)
   public void testFutureGetWithTimeout() throws IOException,
       InterruptedException, ExecutionException {
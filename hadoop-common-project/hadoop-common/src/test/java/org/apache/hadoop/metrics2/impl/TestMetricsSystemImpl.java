@@ -394,6 +394,23 @@ public void flush() {
     ms.shutdown();
   }
 
+  @Test public void testRegisterSinkBeforeStart() {
+    MetricsSystemImpl ms = new MetricsSystemImpl("test");
+    MetricsSink sink = mock(MetricsSink.class);
+    ms.register("sink", "sink desc", sink);
+    assertNull(ms.getSinkAdapter("sink"));
+    ms.start();
+    assertSame(sink, ms.getSinkAdapter("sink").sink());
+    // Registering the same sink again is a no-op
+    ms.register("sink", "sink desc", sink);
+    ms.stop();
+    assertNull(ms.getSinkAdapter("sink"));
+    ms.start();
+    assertSame(sink, ms.getSinkAdapter("sink").sink());
+    ms.stop();
+    ms.shutdown();
+  }
+
   @Test public void testUnregisterSource() {
     MetricsSystem ms = new MetricsSystemImpl();
     TestSource ts1 = new TestSource("ts1");
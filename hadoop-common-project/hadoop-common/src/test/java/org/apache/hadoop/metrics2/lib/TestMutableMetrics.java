@@ -29,13 +29,21 @@
 import static org.mockito.Mockito.verify;
 import static org.junit.Assert.*;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsInfo;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsTag;
 import org.apache.hadoop.metrics2.util.Quantile;
+import org.apache.hadoop.metrics2.util.SampleStat;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -274,6 +282,176 @@ private static void snapshotMutableRatesWithAggregation(
     }
   }
 
+  /**
+   * Tests that the samples added by concurrent threads are all accounted
+   * for, with the same mean and variance as when added by one thread.
+   */
+  @Test public void testMutableStatManyThreads() throws Exception {
+    final MutableStat stat = new MutableStat("Test", "Test", "Ops", "Val",
+        true);
+    final SampleStat expected = new SampleStat();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; i++) {
+            stat.add(offset + i % 10);
+          }
+        }
+      };
+      for (int i = 0; i < 1000; i++) {
+        expected.add(offset + i % 10);
+      }
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    SampleStat actual = stat.lastStat();
+    assertEquals(8000, actual.numSamples());
+    assertEquals(expected.mean(), actual.mean(), 1e-9);
+    assertEquals(expected.stddev(), actual.stddev(), 1e-9);
+    assertEquals(0.0, actual.min(), EPSILON);
+    assertEquals(16.0, actual.max(), EPSILON);
+
+    MetricsRecordBuilder rb = mockMetricsRecordBuilder();
+    stat.snapshot(rb, false);
+    assertCounter("TestNumOps", 8000L, rb);
+    assertGauge("TestMaxVal", 16.0, rb);
+  }
+
+  /**
+   * Records the metrics of a snapshot, and waits for the writers to add
+   * samples after each one, so that they add samples during the snapshot.
+   */
+  private static class RacingRecordBuilder extends MetricsRecordBuilder {
+    private final Map<String, Number> values = new HashMap<String, Number>();
+    private final AtomicLong added;
+    private final AtomicBoolean stop;
+
+    RacingRecordBuilder(AtomicLong added, AtomicBoolean stop) {
+      this.added = added;
+      this.stop = stop;
+    }
+
+    private MetricsRecordBuilder put(MetricsInfo info, Number value) {
+      values.put(info.name(), value);
+      long target = added.get() + 1;
+      while (added.get() < target && !stop.get()) {
+        Thread.yield();
+      }
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder tag(MetricsInfo info, String value) {
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder add(MetricsTag tag) {
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder add(AbstractMetric metric) {
+      return put(metric, metric.value());
+    }
+
+    @Override
+    public MetricsRecordBuilder setContext(String value) {
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addCounter(MetricsInfo info, int value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addCounter(MetricsInfo info, long value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, int value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, long value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, float value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, double value) {
+      return put(info, value);
+    }
+
+    @Override
+    public MetricsCollector parent() {
+      return null;
+    }
+  }
+
+  /**
+   * Tests that the samples added while the stat is being snapshotted are
+   * counted exactly once, and that each record is consistent.
+   */
+  @Test public void testMutableStatSnapshotWhileAdding() throws Exception {
+    final MutableStat stat = new MutableStat("Test", "Test", "Ops", "Val",
+        true);
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicLong added = new AtomicLong();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          while (!stop.get()) {
+            stat.add(1);
+            added.incrementAndGet();
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    long numOps = 0;
+    for (int i = 0; i <= 100; i++) {
+      if (i == 100) {
+        // The last snapshot gets the remaining samples
+        stop.set(true);
+        for (Thread thread : threads) {
+          thread.join();
+        }
+      }
+      RacingRecordBuilder rb = new RacingRecordBuilder(added, stop);
+      stat.snapshot(rb, false);
+      if (rb.values.isEmpty()) {
+        continue;
+      }
+      long iNumOps = rb.values.get("TestINumOps").longValue();
+      assertEquals(numOps + iNumOps, rb.values.get("TestNumOps").longValue());
+      if (iNumOps > 0) {
+        assertEquals(1.0, rb.values.get("TestAvgVal").doubleValue(), EPSILON);
+        assertEquals(1.0, rb.values.get("TestIMinVal").doubleValue(),
+            EPSILON);
+        assertEquals(1.0, rb.values.get("TestIMaxVal").doubleValue(),
+            EPSILON);
+      }
+      numOps += iNumOps;
+    }
+    assertEquals(added.get(), numOps);
+  }
+
   /**
    * Tests that when using {@link MutableStat#add(long, long)}, even with a high
    * sample count, the mean does not lose accuracy.
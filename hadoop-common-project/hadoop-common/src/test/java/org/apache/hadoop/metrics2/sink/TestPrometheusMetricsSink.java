@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.sink;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricType;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.MetricsTag;
+import org.apache.hadoop.metrics2.impl.MsInfo;
+import org.junit.Test;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestPrometheusMetricsSink {
+
+  private AbstractMetric makeMetric(String name, MetricType type,
+      Number value) {
+    AbstractMetric metric = mock(AbstractMetric.class);
+    when(metric.name()).thenReturn(name);
+    when(metric.type()).thenReturn(type);
+    when(metric.value()).thenReturn(value);
+    return metric;
+  }
+
+  private MetricsRecord makeRecord(String name, List<MetricsTag> tags,
+      AbstractMetric... metrics) {
+    MetricsRecord record = mock(MetricsRecord.class);
+    when(record.name()).thenReturn(name);
+    when(record.tags()).thenReturn(tags);
+    when(record.metrics()).thenReturn(Arrays.asList(metrics));
+    return record;
+  }
+
+  @Test
+  public void testPrometheusName() {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    assertEquals("rpc_activity_for_port8020_rpc_queue_time_num_ops",
+        sink.prometheusName("RpcActivityForPort8020", "RpcQueueTimeNumOps"));
+    assertEquals("jvm_metrics_gc_count_par_new",
+        sink.prometheusName("JvmMetrics", "GcCountParNew"));
+    assertEquals("namenode_activity_files_created",
+        sink.prometheusName("namenode-activity", "FilesCreated"));
+  }
+
+  @Test
+  public void testWriteMetrics() throws IOException {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    List<MetricsTag> tags = Arrays.asList(
+        new MetricsTag(MsInfo.Context, "test"),
+        new MetricsTag(info("Port.Name", ""), "with \"quotes\"\\"),
+        new MetricsTag(MsInfo.Hostname, null));
+    sink.putMetrics(makeRecord("TestRecord", tags,
+        makeMetric("NumOps", MetricType.COUNTER, 3L),
+        makeMetric("QueueLength", MetricType.GAUGE, 7),
+        makeMetric("MaxTime", MetricType.GAUGE, Double.POSITIVE_INFINITY)));
+
+    String labels = "{context=\"test\",port_name=\"with \\\"quotes\\\"\\\\\"}";
+    StringWriter writer = new StringWriter();
+    sink.writeMetrics(writer);
+    assertEquals(
+        "# TYPE test_record_max_time gauge\n"
+        + "test_record_max_time" + labels + " +Inf\n"
+        + "# TYPE test_record_num_ops counter\n"
+        + "test_record_num_ops" + labels + " 3\n"
+        + "# TYPE test_record_queue_length gauge\n"
+        + "test_record_queue_length" + labels + " 7\n",
+        writer.toString());
+
+    // A record only carrying the changed metrics keeps the other samples
+    sink.putMetrics(makeRecord("TestRecord", tags,
+        makeMetric("NumOps", MetricType.COUNTER, 5L)));
+    writer = new StringWriter();
+    sink.writeMetrics(writer);
+    assertEquals(
+        "# TYPE test_record_max_time gauge\n"
+        + "test_record_max_time" + labels + " +Inf\n"
+        + "# TYPE test_record_num_ops counter\n"
+        + "test_record_num_ops" + labels + " 5\n"
+        + "# TYPE test_record_queue_length gauge\n"
+        + "test_record_queue_length" + labels + " 7\n",
+        writer.toString());
+  }
+
+  @Test
+  public void testEvictRecordsNotPut() throws IOException {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    List<MetricsTag> tags1 = Arrays.asList(
+        new MetricsTag(MsInfo.Context, "test1"));
+    List<MetricsTag> tags2 = Arrays.asList(
+        new MetricsTag(MsInfo.Context, "test2"));
+    sink.putMetrics(makeRecord("TestRecord", tags1,
+        makeMetric("NumOps", MetricType.COUNTER, 1L)));
+    sink.putMetrics(makeRecord("TestRecord", tags2,
+        makeMetric("NumOps", MetricType.COUNTER, 2L)));
+    sink.putMetrics(makeRecord("OtherRecord", tags2,
+        makeMetric("NumOps", MetricType.COUNTER, 3L)));
+    sink.flush();
+
+    // A record put without any changed metric keeps its samples
+    sink.putMetrics(makeRecord("TestRecord", tags1));
+    sink.flush();
+    StringWriter writer = new StringWriter();
+    sink.writeMetrics(writer);
+    assertEquals(
+        "# TYPE test_record_num_ops counter\n"
+        + "test_record_num_ops{context=\"test1\"} 1\n",
+        writer.toString());
+
+    sink.flush();
+    writer = new StringWriter();
+    sink.writeMetrics(writer);
+    assertEquals("", writer.toString());
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHistogramQuantiles {
+
+  HistogramQuantiles estimator;
+
+  @Before
+  public void init() {
+    estimator = new HistogramQuantiles(TestSampleQuantiles.quantiles);
+  }
+
+  /**
+   * Check that small values are exact and that larger values fall in a
+   * bucket reported close to them.
+   */
+  @Test
+  public void testBuckets() {
+    for (long v = 0; v < 128; v++) {
+      assertEquals(v, HistogramQuantiles.bucketValue(
+          HistogramQuantiles.bucket(v)));
+    }
+    assertEquals(0, HistogramQuantiles.bucket(-5));
+    int previous = HistogramQuantiles.bucket(127);
+    for (long v = 128; v < 100000; v++) {
+      int bucket = HistogramQuantiles.bucket(v);
+      assertTrue(bucket == previous || bucket == previous + 1);
+      previous = bucket;
+      long reported = HistogramQuantiles.bucketValue(bucket);
+      assertTrue("value " + v + " reported as " + reported,
+          Math.abs(reported - v) <= v / 128.0);
+    }
+    long reported = HistogramQuantiles.bucketValue(
+        HistogramQuantiles.bucket(Long.MAX_VALUE));
+    assertTrue(reported > 0 && reported >= Long.MAX_VALUE / 128 * 127);
+  }
+
+  @Test
+  public void testCountAndClear() {
+    assertEquals(0, estimator.getCount());
+    assertNull(estimator.snapshot());
+
+    estimator.insert(1337);
+    assertEquals(1, estimator.getCount());
+    for (Long value : estimator.snapshot().values()) {
+      assertEquals(1337, value, 1337 / 128);
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      estimator.insert(i);
+    }
+    estimator.clear();
+    assertEquals(0, estimator.getCount());
+    assertNull(estimator.snapshot());
+  }
+
+  /**
+   * Check that the estimates are within the value error of the buckets for
+   * randomly permuted streams of items.
+   */
+  @Test
+  public void testQuantileError() {
+    final int count = 100000;
+    Random r = new Random(0xDEADDEAD);
+    Long[] values = new Long[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = (long) (i + 1);
+    }
+    for (int i = 0; i < 3; i++) {
+      Collections.shuffle(Arrays.asList(values), r);
+      estimator.clear();
+      for (int j = 0; j < count; j++) {
+        estimator.insert(values[j]);
+      }
+      Map<Quantile, Long> snapshot = estimator.snapshot();
+      for (Quantile q : TestSampleQuantiles.quantiles) {
+        long actual = (long) (q.quantile * count);
+        long estimate = snapshot.get(q);
+        assertTrue("expected " + actual + ", estimated " + estimate,
+            Math.abs(estimate - actual) <= actual / 128 + 1);
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentInserts() throws Exception {
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            estimator.insert(i % 100);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(80000, estimator.getCount());
+    assertEquals(50L, (long) estimator.snapshot().get(
+        TestSampleQuantiles.quantiles[0]));
+  }
+}
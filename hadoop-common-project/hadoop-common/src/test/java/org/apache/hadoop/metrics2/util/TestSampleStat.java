@@ -64,4 +64,25 @@ public class TestSampleStat {
     assertEquals("max", SampleStat.MinMax.DEFAULT_MAX_VALUE, stat.max(), EPSILON);
   }
 
+  /**
+   * Merging stats gives the same result as adding all the samples to one
+   */
+  @Test public void testMerge() {
+    SampleStat all = new SampleStat();
+    SampleStat first = new SampleStat();
+    SampleStat second = new SampleStat();
+    for (int i = 1; i <= 10; i++) {
+      all.add(i * i);
+      (i % 3 == 0 ? first : second).add(i * i);
+    }
+    SampleStat merged = new SampleStat().add(first).add(second)
+        .add(new SampleStat());
+    assertEquals("num samples", all.numSamples(), merged.numSamples());
+    assertEquals("total", all.total(), merged.total(), 1e-9);
+    assertEquals("mean", all.mean(), merged.mean(), 1e-9);
+    assertEquals("variance", all.variance(), merged.variance(), 1e-9);
+    assertEquals("min", 1.0, merged.min(), EPSILON);
+    assertEquals("max", 100.0, merged.max(), EPSILON);
+  }
+
 }
@@ -17,17 +17,23 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.util.FakeTimer;
 import org.junit.Before;
@@ -35,6 +41,9 @@
 
 import com.google.common.base.Supplier;
 
+import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
@@ -70,6 +79,7 @@ public static class FakeGroupMapping extends ShellBasedUnixGroupsMapping {
     private static Set<String> allGroups = new HashSet<String>();
     private static Set<String> blackList = new HashSet<String>();
     private static int requestCount = 0;
+    private static int batchRequestCount = 0;
     private static long getGroupsDelayMs = 0;
     private static boolean throwException;
     private static volatile CountDownLatch latch = null;
@@ -91,6 +101,14 @@ public List<String> getGroups(String user) throws IOException {
       return new LinkedList<String>(allGroups);
     }
 
+    @Override
+    public Map<String, List<String>> getGroupsForUsers(
+        Collection<String> users) throws IOException {
+      TESTLOG.info("Getting groups for " + users);
+      batchRequestCount++;
+      return super.getGroupsForUsers(users);
+    }
+
     /**
      * Delay returning on a latch or a specific amount of time.
      */
@@ -130,6 +148,7 @@ public static void clearAll() throws IOException {
       blackList.clear();
       allGroups.clear();
       requestCount = 0;
+      batchRequestCount = 0;
       getGroupsDelayMs = 0;
       throwException = false;
       latch = null;
@@ -154,6 +173,10 @@ public static void resetRequestCount() {
       requestCount = 0;
     }
 
+    public static int getBatchRequestCount() {
+      return batchRequestCount;
+    }
+
     public static void setGetGroupsDelayMs(long delayMs) {
       getGroupsDelayMs = delayMs;
     }
@@ -678,6 +701,180 @@ public void testBackgroundRefreshCounters()
     waitForGroupCounters(groups, 0, 0, 5, 5);
   }
 
+  @Test
+  public void testBackgroundRefreshBatched()
+      throws IOException, InterruptedException {
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SECS, 1);
+    conf.setBoolean(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD,
+        true);
+    conf.setInt(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
+        1);
+    conf.setInt(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE,
+        10);
+    FakeTimer timer = new FakeTimer();
+    final Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+
+    // populate the cache
+    String[] users = {"one", "two", "three", "four", "five"};
+    for (String user : users) {
+      groups.getGroups(user);
+    }
+    int startingRequestCount = FakeGroupMapping.getRequestCount();
+
+    // expire the cache
+    timer.advance(2*1000);
+    FakeGroupMapping.pause();
+
+    // The only thread is blocked refreshing the first user, so the other
+    // refreshes wait in the queue
+    groups.getGroups(users[0]);
+    waitForGroupCounters(groups, 0, 1, 0, 0);
+    for (int i = 1; i < users.length; i++) {
+      groups.getGroups(users[i]);
+    }
+    waitForGroupCounters(groups, 4, 1, 0, 0);
+    FakeGroupMapping.resume();
+
+    // The queued users are then refreshed in a single batch
+    waitForGroupCounters(groups, 0, 0, 5, 0);
+    assertEquals(1, FakeGroupMapping.getBatchRequestCount());
+    assertEquals(startingRequestCount + 5, FakeGroupMapping.getRequestCount());
+  }
+
+  @Test
+  public void testBackgroundRefreshJitter()
+      throws IOException, InterruptedException {
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SECS, 100000);
+    conf.setBoolean(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD,
+        true);
+    conf.setFloat(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_JITTER,
+        1.0f);
+    FakeTimer timer = new FakeTimer();
+    final Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+
+    // populate the cache
+    groups.getGroups("me");
+    int startingRequestCount = FakeGroupMapping.getRequestCount();
+
+    // expire the cache
+    timer.advance(200000 * 1000);
+
+    // The refresh is delayed by up to the cache timeout, which is much
+    // longer than the test, and the old groups are served meanwhile
+    assertEquals(Arrays.asList(myGroups), groups.getGroups("me"));
+    waitForGroupCounters(groups, 1, 0, 0, 0);
+    Thread.sleep(200);
+    waitForGroupCounters(groups, 1, 0, 0, 0);
+    assertEquals(startingRequestCount, FakeGroupMapping.getRequestCount());
+  }
+
+  /** A mapping of its own, whose rate no other test adds to. */
+  public static class MeteredGroupMapping extends FakeGroupMapping {
+  }
+
+  @Test
+  public void testGroupsCacheMetrics() throws IOException {
+    conf.setClass(CommonConfigurationKeys.HADOOP_SECURITY_GROUP_MAPPING,
+        MeteredGroupMapping.class, ShellBasedUnixGroupsMapping.class);
+    final Groups groups = new Groups(conf);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+
+    MetricsRecordBuilder rb = getMetrics("UgiMetrics");
+    long hits = getLongCounter("GroupsCacheHits", rb);
+    long misses = getLongCounter("GroupsCacheMisses", rb);
+    long lookups = getLongCounter("GetGroupsNumOps", rb);
+
+    groups.getGroups("me");
+    groups.getGroups("me");
+    groups.getGroups("me");
+    groups.getGroups("you");
+
+    rb = getMetrics("UgiMetrics");
+    assertCounter("GroupsCacheHits", hits + 2, rb);
+    assertCounter("GroupsCacheMisses", misses + 2, rb);
+    assertCounter("GetGroupsNumOps", lookups + 2, rb);
+    // The lookups of the provider are counted in its own rate too, from
+    // the first one
+    assertCounter("GetGroupsMeteredGroupMappingNumOps", 2L, rb);
+  }
+
+  @Test
+  public void testWarmCache() throws Exception {
+    File warmFile =
+        new File(GenericTestUtils.getTestDir(), "TestGroupsCaching.cache");
+    warmFile.delete();
+    conf.set(CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_WARM_FILE,
+        warmFile.getPath());
+    conf.setBoolean(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD,
+        true);
+    Groups groups = new Groups(conf);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+    groups.getGroups("me");
+    groups.getGroups("you");
+    groups.saveWarmCache();
+    assertTrue(warmFile.exists());
+    assertEquals(PosixFilePermissions.fromString("rw-------"),
+        Files.getPosixFilePermissions(warmFile.toPath()));
+
+    // A new instance does not load the file by itself
+    int startingRequestCount = FakeGroupMapping.getRequestCount();
+    groups = new Groups(conf);
+    groups.getGroups("me");
+    assertEquals(startingRequestCount + 1, FakeGroupMapping.getRequestCount());
+
+    // Once loaded, the saved groups are served without waiting for the
+    // mapping, and are refreshed in the background at once
+    startingRequestCount = FakeGroupMapping.getRequestCount();
+    FakeGroupMapping.pause();
+    groups = new Groups(conf);
+    groups.loadWarmCache();
+    assertEquals(Arrays.asList(myGroups), groups.getGroups("me"));
+    assertEquals(Arrays.asList(myGroups), groups.getGroups("you"));
+    FakeGroupMapping.resume();
+    waitForGroupCounters(groups, 0, 0, 2, 0);
+    assertEquals(startingRequestCount + 2, FakeGroupMapping.getRequestCount());
+
+    // A saved cache too old to be trusted is ignored
+    startingRequestCount = FakeGroupMapping.getRequestCount();
+    assertTrue(warmFile.setLastModified(0));
+    groups = new Groups(conf);
+    groups.loadWarmCache();
+    assertEquals(startingRequestCount, FakeGroupMapping.getRequestCount());
+    groups.getGroups("me");
+    assertEquals(startingRequestCount + 1, FakeGroupMapping.getRequestCount());
+
+    // So is a saved cache other users can write
+    startingRequestCount = FakeGroupMapping.getRequestCount();
+    assertTrue(warmFile.setLastModified(System.currentTimeMillis()));
+    Files.setPosixFilePermissions(warmFile.toPath(),
+        PosixFilePermissions.fromString("rw-rw-rw-"));
+    groups = new Groups(conf);
+    groups.loadWarmCache();
+    groups.getGroups("me");
+    assertEquals(startingRequestCount + 1, FakeGroupMapping.getRequestCount());
+  }
+
   private void waitForGroupCounters(Groups groups, long expectedQueued,
       long expectedRunning, long expectedSuccess, long expectedExpection)
           throws InterruptedException {
@@ -20,11 +20,15 @@
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 
@@ -32,6 +36,7 @@
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -75,6 +80,56 @@ public void testGetGroups() throws IOException, NamingException {
     doTestGetGroups(Arrays.asList(testGroups));
   }
 
+  @Test
+  public void testGetGroupsForUsers() throws IOException, NamingException {
+    Configuration conf = new Configuration();
+    conf.set(LdapGroupsMapping.LDAP_URL_KEY, "ldap://test");
+    conf.set(LdapGroupsMapping.MEMBEROF_ATTR_KEY, "memberOf");
+    LdapGroupsMapping groupsMapping = getGroupsMapping();
+    groupsMapping.setConf(conf);
+
+    NamingEnumeration<SearchResult> users = mock(NamingEnumeration.class);
+    when(users.hasMoreElements()).thenReturn(true, true, false);
+    SearchResult alice = userResult("Alice",
+        "CN=abc,DC=foo,DC=bar,DC=com", "CN=xyz,DC=foo,DC=bar,DC=com");
+    SearchResult bob = userResult("bob", "CN=sss,CN=foo,DC=bar,DC=com");
+    when(users.nextElement()).thenReturn(bob, alice);
+    when(getContext().search(anyString(), anyString(), any(Object[].class),
+        any(SearchControls.class))).thenReturn(users);
+
+    Map<String, List<String>> groups = groupsMapping.getGroupsForUsers(
+        Arrays.asList("alice", "bob", "carol"));
+
+    Assert.assertEquals(Arrays.asList("abc", "xyz"), groups.get("alice"));
+    Assert.assertEquals(Arrays.asList("sss"), groups.get("bob"));
+    Assert.assertEquals(Collections.emptyList(), groups.get("carol"));
+
+    // All the users and their groups are found with a single query
+    ArgumentCaptor<String> filter = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<Object[]> filterArgs =
+        ArgumentCaptor.forClass(Object[].class);
+    verify(getContext(), times(1)).search(anyString(), filter.capture(),
+        filterArgs.capture(), any(SearchControls.class));
+    Assert.assertEquals("(|(&(objectClass=user)(sAMAccountName={0}))"
+        + "(&(objectClass=user)(sAMAccountName={1}))"
+        + "(&(objectClass=user)(sAMAccountName={2})))", filter.getValue());
+    Assert.assertArrayEquals(new Object[] {"alice", "bob", "carol"},
+        filterArgs.getValue());
+  }
+
+  private SearchResult userResult(String name, String... groupDNs) {
+    BasicAttributes attributes = new BasicAttributes();
+    attributes.put("sAMAccountName", name);
+    Attribute memberOf = new BasicAttribute("memberOf");
+    for (String groupDN : groupDNs) {
+      memberOf.add(groupDN);
+    }
+    attributes.put(memberOf);
+    SearchResult result = mock(SearchResult.class);
+    when(result.getAttributes()).thenReturn(attributes);
+    return result;
+  }
+
   private void doTestGetGroups(List<String> expectedGroups)
       throws IOException, NamingException {
     Configuration conf = new Configuration();
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.security.token.delegation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.security.token.Token;
+import org.apache.hadoop.security.token.delegation.TestDelegationToken.TestDelegationTokenIdentifier;
+import org.apache.hadoop.security.token.delegation.TestDelegationToken.TestDelegationTokenSecretManager;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JMH benchmark of the token verification of
+ * {@link AbstractDelegationTokenSecretManager}. Run it with:
+ * <pre>
+ * java -cp ... \
+ *   org.apache.hadoop.security.token.delegation.DelegationTokenBenchmark
+ * </pre>
+ * The "verify" group only verifies tokens. In the "verifyWithWriters" group
+ * other threads create, renew and cancel tokens at the same time. The
+ * number of threads of each method can be changed with the -tg option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DelegationTokenBenchmark {
+
+  /** Number of tokens to verify, a power of 2. */
+  private static final int NUM_TOKENS = 1 << 14;
+  private static final long DAY = 24 * 60 * 60 * 1000;
+
+  private TestDelegationTokenSecretManager secretManager;
+  private TestDelegationTokenIdentifier[] ids;
+  private byte[][] passwords;
+
+  @Setup
+  public void setup() throws IOException {
+    // Creating and renewing tokens logs at info level
+    GenericTestUtils.disableLog(
+        LoggerFactory.getLogger(AbstractDelegationTokenSecretManager.class));
+    secretManager = new TestDelegationTokenSecretManager(DAY, DAY, DAY, DAY);
+    secretManager.startThreads();
+    ids = new TestDelegationTokenIdentifier[NUM_TOKENS];
+    passwords = new byte[NUM_TOKENS][];
+    for (int i = 0; i < NUM_TOKENS; i++) {
+      Token<TestDelegationTokenIdentifier> token = newToken();
+      ids[i] = token.decodeIdentifier();
+      passwords[i] = token.getPassword();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    secretManager.stopThreads();
+  }
+
+  private Token<TestDelegationTokenIdentifier> newToken() {
+    return new Token<TestDelegationTokenIdentifier>(
+        new TestDelegationTokenIdentifier(new Text("user"),
+            new Text("renewer"), null), secretManager);
+  }
+
+  /** Position of each thread in the tokens to verify. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next = 0;
+
+    int nextToken() {
+      next = (next + 1) & (NUM_TOKENS - 1);
+      return next;
+    }
+  }
+
+  @Benchmark
+  @Group("verify")
+  @GroupThreads(4)
+  public void verify(Cursor cursor) throws IOException {
+    int n = cursor.nextToken();
+    secretManager.verifyToken(ids[n], passwords[n]);
+  }
+
+  @Benchmark
+  @Group("verifyWithWriters")
+  @GroupThreads(4)
+  public void verifyDuringWrites(Cursor cursor) throws IOException {
+    int n = cursor.nextToken();
+    secretManager.verifyToken(ids[n], passwords[n]);
+  }
+
+  @Benchmark
+  @Group("verifyWithWriters")
+  @GroupThreads(4)
+  public void createRenewCancel(Blackhole bh) throws IOException {
+    Token<TestDelegationTokenIdentifier> token = newToken();
+    bh.consume(secretManager.renewToken(token, "renewer"));
+    bh.consume(secretManager.cancelToken(token, "user"));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(DelegationTokenBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+}
@@ -542,6 +542,40 @@ public void testDelegationKeyEqualAndHash() {
     Assert.assertFalse(key2.equals(key3));
   }
 
+  @Test(timeout = 10000)
+  public void testVerifyTokenWithoutLock() throws Exception {
+    final TestDelegationTokenSecretManager dtSecretManager =
+        new TestDelegationTokenSecretManager(24*60*60*1000,
+            10*1000, 1*1000, 3600000);
+    try {
+      dtSecretManager.startThreads();
+      final Token<TestDelegationTokenIdentifier> token =
+          generateDelegationToken(dtSecretManager, "SomeUser", "JobTracker");
+      final TestDelegationTokenIdentifier identifier =
+          token.decodeIdentifier();
+      final List<Throwable> errors = new ArrayList<Throwable>();
+      Thread verifier = new Thread() {
+        @Override
+        public void run() {
+          try {
+            dtSecretManager.verifyToken(identifier, token.getPassword());
+          } catch (Throwable t) {
+            errors.add(t);
+          }
+        }
+      };
+      // Verifying a token must not wait for a renewal or a cancellation
+      // holding the monitor
+      synchronized (dtSecretManager) {
+        verifier.start();
+        verifier.join();
+      }
+      assertTrue(errors.toString(), errors.isEmpty());
+    } finally {
+      dtSecretManager.stopThreads();
+    }
+  }
+
   @Test
   public void testEmptyToken() throws IOException {
     Token<?> token1 = new Token<TokenIdentifier>();
@@ -20,6 +20,7 @@
 import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
 
 import org.apache.hadoop.fs.ChecksumException;
 import org.junit.Test;
@@ -198,6 +199,43 @@ private static ByteBuffer directify(ByteBuffer dataBuf) {
     return newBuf;
   }
 
+  /**
+   * The JDK algorithms checksum direct buffers in place, the pure Java ones
+   * through a copy. Both must agree on the sums and on the error position.
+   */
+  @Test
+  public void testVerifyChunkedDirect() throws Exception {
+    ByteBuffer data = directify(ByteBuffer.wrap(new byte[1025 + 2], 1, 1025));
+    for (int i = data.position(); i < data.limit(); i++) {
+      data.put(i, (byte) i);
+    }
+    ByteBuffer sums = ByteBuffer.allocateDirect(3 * 4);
+    DataChecksum.newDataChecksum(DataChecksum.Type.CRC32, BYTES_PER_CHUNK)
+        .calculateChunkedSums(data, sums);
+    assertEquals(1, data.position());
+    assertEquals(0, sums.position());
+
+    DataChecksum.verifyChunked(DataChecksum.Type.CRC32,
+        DataChecksum.newCrc32(), data, BYTES_PER_CHUNK, sums, "f", 0);
+    DataChecksum.verifyChunked(DataChecksum.Type.CRC32, new PureJavaCrc32(),
+        data, BYTES_PER_CHUNK, sums, "f", 0);
+
+    corruptBufferOffset(data, 1 + 2 * BYTES_PER_CHUNK);
+    for (Checksum algorithm : new Checksum[] {
+        DataChecksum.newCrc32(), new PureJavaCrc32()}) {
+      try {
+        DataChecksum.verifyChunked(DataChecksum.Type.CRC32, algorithm, data,
+            BYTES_PER_CHUNK, sums, "f", 100);
+        fail("Did not throw on bad data");
+      } catch (ChecksumException ce) {
+        assertEquals(100 + 2 * BYTES_PER_CHUNK, ce.getPos());
+      }
+      assertEquals(1, data.position());
+      assertEquals(1026, data.limit());
+      assertEquals(0, sums.position());
+    }
+  }
+
   @Test
   public void testCrc32() throws Exception {
     new Crc32PerformanceTest(8, 3, true).run();
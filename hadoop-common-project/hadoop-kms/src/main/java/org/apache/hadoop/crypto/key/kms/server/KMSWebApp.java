@@ -61,6 +61,8 @@ public class KMSWebApp implements ServletContextListener {
       "generate_eek.calls.meter";
   private static final String DECRYPT_EEK_METER = METRICS_PREFIX +
       "decrypt_eek.calls.meter";
+  private static final String DECRYPT_EEK_BATCH_METER = METRICS_PREFIX +
+      "decrypt_eek_batch.calls.meter";
   private static final String REENCRYPT_EEK_METER = METRICS_PREFIX +
       "reencrypt_eek.calls.meter";
   private static final String REENCRYPT_EEK_BATCH_METER = METRICS_PREFIX +
@@ -77,6 +79,7 @@ public class KMSWebApp implements ServletContextListener {
   private static Meter unauthorizedCallsMeter;
   private static Meter unauthenticatedCallsMeter;
   private static Meter decryptEEKCallsMeter;
+  private static Meter decryptEEKBatchCallsMeter;
   private static Meter reencryptEEKCallsMeter;
   private static Meter reencryptEEKBatchCallsMeter;
   private static Meter generateEEKCallsMeter;
@@ -138,6 +141,8 @@ public void contextInitialized(ServletContextEvent sce) {
           new Meter());
       decryptEEKCallsMeter = metricRegistry.register(DECRYPT_EEK_METER,
           new Meter());
+      decryptEEKBatchCallsMeter = metricRegistry.register(
+          DECRYPT_EEK_BATCH_METER, new Meter());
       reencryptEEKCallsMeter = metricRegistry.register(REENCRYPT_EEK_METER,
           new Meter());
       reencryptEEKBatchCallsMeter = metricRegistry.register(
@@ -255,6 +260,10 @@ public static Meter getDecryptEEKCallsMeter() {
     return decryptEEKCallsMeter;
   }
 
+  public static Meter getDecryptEEKBatchCallsMeter() {
+    return decryptEEKBatchCallsMeter;
+  }
+
   public static Meter getReencryptEEKCallsMeter() {
     return reencryptEEKCallsMeter;
   }
@@ -767,6 +767,18 @@ public Void call() throws Exception {
               ekv.getEncryptionKeyVersionName());
         }
 
+        // test decrypt batch
+        List<KeyVersion> kvs = kpExt.decryptEncryptedKeys(ekvs);
+        assertEquals(ekvs.size(), kvs.size());
+        assertArrayEquals(k1.getMaterial(), kvs.get(0).getMaterial());
+        for (int i = 0; i < ekvs.size(); i++) {
+          assertEquals(KeyProviderCryptoExtension.EK,
+              kvs.get(i).getVersionName());
+          assertArrayEquals(
+              kpExt.decryptEncryptedKey(ekvs.get(i)).getMaterial(),
+              kvs.get(i).getMaterial());
+        }
+
         // deleteKey()
         kp.deleteKey("k1");
 
@@ -1628,6 +1640,7 @@ public Void run() throws Exception {
               KeyProviderCryptoExtension kpCE = KeyProviderCryptoExtension.
                       createKeyProviderCryptoExtension(kp);
               kpCE.decryptEncryptedKey(encKv);
+              kpCE.decryptEncryptedKeys(Arrays.asList(encKv, encKv));
             } catch (Exception ex) {
               Assert.fail(ex.getMessage());
             }
@@ -71,6 +71,8 @@ public class DFSStripedInputStream extends DFSInputStream {
   private ByteBuffer parityBuf;
   private final ErasureCodingPolicy ecPolicy;
   private RawErasureDecoder decoder;
+  /** Whole stripes read by pread, null if disabled. */
+  private final StripeCache stripeCache;
 
   /**
    * Indicate the start/end offset of the current buffered stripe in the
@@ -107,6 +109,11 @@ public class DFSStripedInputStream extends DFSInputStream {
         dataBlkNum, parityBlkNum);
     decoder = CodecUtil.createRawDecoder(dfsClient.getConfiguration(),
         ecPolicy.getCodecName(), coderOptions);
+    long cacheStripes = dfsClient.getConf().getStripedReadCacheSize() /
+        ((long) cellSize * dataBlkNum);
+    stripeCache = cacheStripes > 0 ?
+        new StripeCache((int) Math.min(Integer.MAX_VALUE, cacheStripes)) :
+        null;
     if (DFSClient.LOG.isDebugEnabled()) {
       DFSClient.LOG.debug("Creating an striped input stream for file " + src);
     }
@@ -156,6 +163,11 @@ protected ByteBufferPool getBufferPool() {
     return BUFFER_POOL;
   }
 
+  @VisibleForTesting
+  StripeCache getStripeCache() {
+    return stripeCache;
+  }
+
   protected ThreadPoolExecutor getStripedReadsThreadPool(){
     return dfsClient.getStripedReadsThreadPool();
   }
@@ -198,6 +210,9 @@ public synchronized void close() throws IOException {
         decoder.release();
         decoder = null;
       }
+      if (stripeCache != null) {
+        stripeCache.clear();
+      }
     }
   }
 
@@ -471,6 +486,78 @@ protected void fetchBlockByteRange(LocatedBlock block, long start,
     // Refresh the striped block group
     LocatedStripedBlock blockGroup = getBlockGroupAt(block.getStartOffset());
 
+    final long stripeLen = (long) cellSize * dataBlkNum;
+    if (stripeCache != null &&
+        end / stripeLen - start / stripeLen < stripeCache.getCapacity()) {
+      fetchCachedStripes(blockGroup, start, end, buf, corruptedBlocks);
+    } else {
+      readByteRange(blockGroup, start, end, buf, corruptedBlocks);
+    }
+  }
+
+  /**
+   * Serve a pread from the cache of whole stripes. The missing stripes are
+   * read first, with adjacent ones coalesced into a single read, so that a
+   * sequence of small preads costs a read of each stripe from the
+   * DataNodes, and a decode of it if some of them are missing, only once.
+   */
+  private void fetchCachedStripes(LocatedStripedBlock blockGroup, long start,
+      long end, ByteBuffer buf, CorruptedBlocks corruptedBlocks)
+      throws IOException {
+    final long stripeLen = (long) cellSize * dataBlkNum;
+    final long groupLen = blockGroup.getBlockSize();
+    final long firstStripe = start / stripeLen;
+    final int numStripes = (int) (end / stripeLen - firstStripe + 1);
+    final ByteBuffer[] stripes = new ByteBuffer[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      long stripeStart = (firstStripe + i) * stripeLen;
+      int length = (int) Math.min(stripeLen, groupLen - stripeStart);
+      stripes[i] = stripeCache.get(blockGroup.getBlock(), firstStripe + i,
+          length);
+    }
+
+    for (int i = 0; i < numStripes;) {
+      if (stripes[i] != null) {
+        i++;
+        continue;
+      }
+      int j = i;
+      while (j + 1 < numStripes && stripes[j + 1] == null) {
+        j++;
+      }
+      long rangeStart = (firstStripe + i) * stripeLen;
+      long rangeEnd = Math.min((firstStripe + j + 1) * stripeLen, groupLen);
+      ByteBuffer range = ByteBuffer.allocate((int) (rangeEnd - rangeStart));
+      readByteRange(blockGroup, rangeStart, rangeEnd - 1, range,
+          corruptedBlocks);
+      range.flip();
+      for (int k = i; k <= j; k++) {
+        range.limit((int) Math.min(range.capacity(),
+            range.position() + stripeLen));
+        stripes[k] = range.slice();
+        range.position(range.limit());
+        stripeCache.put(blockGroup.getBlock(), firstStripe + k, stripes[k]);
+      }
+      i = j + 1;
+    }
+
+    for (int i = 0; i < numStripes; i++) {
+      long stripeStart = (firstStripe + i) * stripeLen;
+      ByteBuffer stripe = stripes[i];
+      stripe.position((int) (Math.max(start, stripeStart) - stripeStart));
+      stripe.limit((int) (Math.min(end + 1, stripeStart + stripeLen) -
+          stripeStart));
+      buf.put(stripe);
+    }
+  }
+
+  /**
+   * Read the range [start, end] of a block group into buf, reconstructing
+   * the data of missing blocks if necessary.
+   */
+  private void readByteRange(LocatedStripedBlock blockGroup, long start,
+      long end, ByteBuffer buf, CorruptedBlocks corruptedBlocks)
+      throws IOException {
     AlignedStripe[] stripes = StripedBlockUtil.divideByteRangeIntoStripes(
         ecPolicy, cellSize, blockGroup, start, end, buf);
     final LocatedBlock[] blks = StripedBlockUtil.parseStripedBlockGroup(
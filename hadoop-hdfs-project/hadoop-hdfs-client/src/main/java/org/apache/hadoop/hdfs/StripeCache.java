@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the data of whole stripes read by a
+ * {@link DFSStripedInputStream}, i.e. the data cells of a stripe after any
+ * decoding, keyed by block group and stripe index.
+ *
+ * The length of a stripe is part of its key, so that the trailing stripe of
+ * a block group that is still being written isn't served once the group has
+ * grown.
+ */
+@InterfaceAudience.Private
+class StripeCache {
+
+  private static final class Key {
+    private final long blockGroupId;
+    private final long generationStamp;
+    private final long stripeIndex;
+    private final int length;
+
+    Key(ExtendedBlock blockGroup, long stripeIndex, int length) {
+      this.blockGroupId = blockGroup.getBlockId();
+      this.generationStamp = blockGroup.getGenerationStamp();
+      this.stripeIndex = stripeIndex;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return blockGroupId == other.blockGroupId &&
+          generationStamp == other.generationStamp &&
+          stripeIndex == other.stripeIndex && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+      long h = blockGroupId * 31 + generationStamp;
+      h = h * 31 + stripeIndex;
+      return (int) (h ^ (h >>> 32)) * 31 + length;
+    }
+  }
+
+  private final int capacity;
+  private final LinkedHashMap<Key, ByteBuffer> stripes;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * @param capacity the maximum number of stripes to keep
+   */
+  StripeCache(final int capacity) {
+    Preconditions.checkArgument(capacity > 0);
+    this.capacity = capacity;
+    this.stripes = new LinkedHashMap<Key, ByteBuffer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, ByteBuffer> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return a read-only view of the cached data of the stripe, or null
+   */
+  synchronized ByteBuffer get(ExtendedBlock blockGroup, long stripeIndex,
+      int length) {
+    ByteBuffer data = stripes.get(new Key(blockGroup, stripeIndex, length));
+    if (data == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return data.duplicate();
+  }
+
+  /**
+   * Cache the data of a stripe. The buffer must not be modified afterwards.
+   */
+  synchronized void put(ExtendedBlock blockGroup, long stripeIndex,
+      ByteBuffer data) {
+    stripes.put(new Key(blockGroup, stripeIndex, data.remaining()),
+        data.asReadOnlyBuffer());
+  }
+
+  synchronized void clear() {
+    stripes.clear();
+  }
+
+  @VisibleForTesting
+  synchronized int size() {
+    return stripes.size();
+  }
+
+  @VisibleForTesting
+  synchronized long getHits() {
+    return hits;
+  }
+
+  @VisibleForTesting
+  synchronized long getMisses() {
+    return misses;
+  }
+}
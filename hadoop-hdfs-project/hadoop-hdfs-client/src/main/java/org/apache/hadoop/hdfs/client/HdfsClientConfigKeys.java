@@ -382,6 +382,8 @@ interface Mmap {
     long    CACHE_TIMEOUT_MS_DEFAULT  = 60*MINUTE;
     String  RETRY_TIMEOUT_MS_KEY = PREFIX + "retry.timeout.ms";
     long    RETRY_TIMEOUT_MS_DEFAULT = 5*MINUTE;
+    String  CACHED_READS_ENABLED_KEY = PREFIX + "cached-reads.enabled";
+    boolean CACHED_READS_ENABLED_DEFAULT = true;
   }
 
   /** dfs.client.hedged.read configuration properties */
@@ -404,6 +406,13 @@ interface StripedRead {
      * span 6 DNs, so this default value accommodates 3 read streams
      */
     int     THREADPOOL_SIZE_DEFAULT = 18;
+
+    /**
+     * Bytes of whole stripes each striped input stream caches for pread.
+     * 0 disables the cache.
+     */
+    String  CACHE_SIZE_KEY = PREFIX + "cache.size";
+    long    CACHE_SIZE_DEFAULT = 0;
   }
 
   /** dfs.http.client configuration properties */
@@ -358,7 +358,10 @@ public BlockReader build() throws IOException {
     }
     final ShortCircuitConf scConf = conf.getShortCircuitConf();
     try {
-      if (scConf.isShortCircuitLocalReads() && allowShortCircuitLocalReads) {
+      // The data of PROVIDED replicas isn't in local files, so don't ask the
+      // DataNode for file descriptors it can't pass.
+      if (scConf.isShortCircuitLocalReads() && allowShortCircuitLocalReads &&
+          storageType != StorageType.PROVIDED) {
         if (clientContext.getUseLegacyBlockReaderLocal()) {
           reader = getLegacyBlockReaderLocal();
           if (reader != null) {
@@ -32,6 +32,7 @@
 import org.apache.hadoop.hdfs.server.datanode.CachingStrategy;
 import org.apache.hadoop.hdfs.shortcircuit.ClientMmap;
 import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitReplica;
+import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitShm.Slot;
 import org.apache.hadoop.util.DataChecksum;
 import org.apache.hadoop.util.DirectBufferPool;
 import org.apache.hadoop.util.Timer;
@@ -42,6 +43,7 @@
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.EnumSet;
 import java.util.concurrent.locks.Lock;
@@ -249,6 +251,11 @@ public BlockReaderLocal build() {
    */
   private final Tracer tracer;
 
+  /**
+   * If true, replicas cached by the DataNode are read through a memory map.
+   */
+  private final boolean mmapCachedReads;
+
   private BlockReaderLocal(Builder builder) {
     this.replica = builder.replica;
     this.dataIn = replica.getDataStream().getChannel();
@@ -279,6 +286,8 @@ private BlockReaderLocal(Builder builder) {
     this.maxReadaheadLength = maxReadaheadChunks * bytesPerChecksum;
     this.storageType = builder.storageType;
     this.tracer = builder.tracer;
+    this.mmapCachedReads =
+        builder.shortCircuitConf.isShortCircuitMmapCachedReadsEnabled();
 
     if (builder.shortCircuitConf.isScrMetricsEnabled()) {
       metricsInitializationLock.lock();
@@ -434,8 +443,12 @@ public synchronized int read(ByteBuffer buf) throws IOException {
       LOG.trace(traceFormatStr + ": starting",
           buf.remaining(), block, filename, canSkipChecksum);
       int nRead;
+      ClientMmap clientMmap = null;
       try {
-        if (canSkipChecksum && zeroReadaheadRequested) {
+        clientMmap = canSkipChecksum ? getCachedReplicaMmap() : null;
+        if (clientMmap != null) {
+          nRead = readFromMmap(clientMmap.getMappedByteBuffer(), buf);
+        } else if (canSkipChecksum && zeroReadaheadRequested) {
           nRead = readWithoutBounceBuffer(buf);
         } else {
           nRead = readWithBounceBuffer(buf, canSkipChecksum);
@@ -444,6 +457,10 @@ public synchronized int read(ByteBuffer buf) throws IOException {
         LOG.trace(traceFormatStr + ": I/O error",
             buf.remaining(), block, filename, canSkipChecksum, e);
         throw e;
+      } finally {
+        if (clientMmap != null) {
+          clientMmap.close();
+        }
       }
       LOG.trace(traceFormatStr + ": returning {}",
           buf.remaining(), block, filename, canSkipChecksum, nRead);
@@ -453,6 +470,52 @@ public synchronized int read(ByteBuffer buf) throws IOException {
     }
   }
 
+  /**
+   * Get a memory map of the replica if the DataNode has cached it, so that
+   * reads of it don't do any I/O.  Must be called in a no-checksum context,
+   * which anchors the replica in memory for the duration of the read.
+   *
+   * @return         null if the replica isn't cached or can't be mapped;
+   *                 the ClientMmap otherwise, which the caller must close.
+   */
+  private ClientMmap getCachedReplicaMmap() throws IOException {
+    if (!mmapCachedReads) {
+      return null;
+    }
+    Slot slot = replica.getSlot();
+    if ((slot == null) || !slot.isAnchorable()) {
+      return null;
+    }
+    ClientMmap clientMmap = replica.getOrCreateClientMmap(false);
+    if ((clientMmap != null) &&
+        (clientMmap.getMappedByteBuffer().capacity() < dataIn.size())) {
+      // Replicas larger than 2GB are only partially mapped.
+      clientMmap.close();
+      return null;
+    }
+    return clientMmap;
+  }
+
+  /**
+   * Read by copying from a memory map of the replica.
+   */
+  private synchronized int readFromMmap(MappedByteBuffer map,
+      ByteBuffer buf) {
+    int total = Math.max(0, drainDataBuf(buf));
+    freeDataBufIfExists();
+    freeChecksumBufIfExists();
+    if (buf.hasRemaining() && (dataPos < map.capacity())) {
+      int nRead = (int) Math.min(buf.remaining(), map.capacity() - dataPos);
+      ByteBuffer src = map.duplicate();
+      src.position((int) dataPos);
+      src.limit((int) dataPos + nRead);
+      buf.put(src);
+      dataPos += nRead;
+      total += nRead;
+    }
+    return (total == 0 && (dataPos >= map.capacity())) ? -1 : total;
+  }
+
   private synchronized int readWithoutBounceBuffer(ByteBuffer buf)
       throws IOException {
     freeDataBufIfExists();
@@ -575,8 +638,13 @@ public synchronized int read(byte[] arr, int off, int len)
           + "filename={}, block={}, canSkipChecksum={})";
       LOG.trace(traceFormatStr + ": starting",
           arr.length, off, len, filename, block, canSkipChecksum);
+      ClientMmap clientMmap = null;
       try {
-        if (canSkipChecksum && zeroReadaheadRequested) {
+        clientMmap = canSkipChecksum ? getCachedReplicaMmap() : null;
+        if (clientMmap != null) {
+          nRead = readFromMmap(clientMmap.getMappedByteBuffer(),
+              ByteBuffer.wrap(arr, off, len));
+        } else if (canSkipChecksum && zeroReadaheadRequested) {
           nRead = readWithoutBounceBuffer(arr, off, len);
         } else {
           nRead = readWithBounceBuffer(arr, off, len, canSkipChecksum);
@@ -585,6 +653,10 @@ public synchronized int read(byte[] arr, int off, int len)
         LOG.trace(traceFormatStr + ": I/O error",
             arr.length, off, len, filename, block, canSkipChecksum, e);
         throw e;
+      } finally {
+        if (clientMmap != null) {
+          clientMmap.close();
+        }
       }
       LOG.trace(traceFormatStr + ": returning {}",
           arr.length, off, len, filename, block, canSkipChecksum, nRead);
@@ -141,6 +141,7 @@ public class DfsClientConf {
       replicaAccessorBuilderClasses;
 
   private final int stripedReadThreadpoolSize;
+  private final long stripedReadCacheSize;
 
   private final boolean dataTransferTcpNoDelay;
 
@@ -264,6 +265,12 @@ public DfsClientConf(Configuration conf) {
     Preconditions.checkArgument(stripedReadThreadpoolSize > 0, "The value of " +
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY +
         " must be greater than 0.");
+    stripedReadCacheSize = conf.getLongBytes(
+        HdfsClientConfigKeys.StripedRead.CACHE_SIZE_KEY,
+        HdfsClientConfigKeys.StripedRead.CACHE_SIZE_DEFAULT);
+    Preconditions.checkArgument(stripedReadCacheSize >= 0, "The value of " +
+        HdfsClientConfigKeys.StripedRead.CACHE_SIZE_KEY +
+        " must not be negative.");
     replicaAccessorBuilderClasses = loadReplicaAccessorBuilderClasses(conf);
   }
 
@@ -587,6 +594,13 @@ public int getStripedReadThreadpoolSize() {
     return stripedReadThreadpoolSize;
   }
 
+  /**
+   * @return the stripedReadCacheSize
+   */
+  public long getStripedReadCacheSize() {
+    return stripedReadCacheSize;
+  }
+
   /**
    * @return the replicaAccessorBuilderClasses
    */
@@ -627,6 +641,7 @@ public static class ShortCircuitConf {
     private final int scrMetricsSamplingPercentage;
 
     private final boolean shortCircuitMmapEnabled;
+    private final boolean shortCircuitMmapCachedReadsEnabled;
     private final int shortCircuitMmapCacheSize;
     private final long shortCircuitMmapCacheExpiryMs;
     private final long shortCircuitMmapCacheRetryTimeout;
@@ -703,6 +718,10 @@ public ShortCircuitConf(Configuration conf) {
       shortCircuitMmapCacheRetryTimeout = conf.getLong(
           Mmap.RETRY_TIMEOUT_MS_KEY,
           Mmap.RETRY_TIMEOUT_MS_DEFAULT);
+      shortCircuitMmapCachedReadsEnabled = shortCircuitMmapEnabled &&
+          conf.getBoolean(
+              Mmap.CACHED_READS_ENABLED_KEY,
+              Mmap.CACHED_READS_ENABLED_DEFAULT);
       shortCircuitCacheStaleThresholdMs = conf.getLong(
           ShortCircuit.REPLICA_STALE_THRESHOLD_MS_KEY,
           ShortCircuit.REPLICA_STALE_THRESHOLD_MS_DEFAULT);
@@ -800,6 +819,13 @@ public boolean isShortCircuitMmapEnabled() {
       return shortCircuitMmapEnabled;
     }
 
+    /**
+     * @return the shortCircuitMmapCachedReadsEnabled
+     */
+    public boolean isShortCircuitMmapCachedReadsEnabled() {
+      return shortCircuitMmapCachedReadsEnabled;
+    }
+
     /**
      * @return the shortCircuitMmapCacheSize
      */
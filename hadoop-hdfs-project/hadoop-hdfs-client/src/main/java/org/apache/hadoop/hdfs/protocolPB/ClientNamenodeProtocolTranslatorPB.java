@@ -314,6 +314,30 @@ public LocatedBlocks getBlockLocations(String src, long offset, long length)
         .setLength(length)
         .build();
     try {
+      if (Client.isAsynchronousMode()) {
+        rpcProxy.getBlockLocations(null, req);
+        final AsyncGet<Message, Exception> asyncReturnMessage
+            = ProtobufRpcEngine.getAsyncReturnMessage();
+        final AsyncGet<LocatedBlocks, Exception> asyncGet
+            = new AsyncGet<LocatedBlocks, Exception>() {
+          @Override
+          public LocatedBlocks get(long timeout, TimeUnit unit)
+              throws Exception {
+            GetBlockLocationsResponseProto resp =
+                (GetBlockLocationsResponseProto) asyncReturnMessage.get(
+                    timeout, unit);
+            return resp.hasLocations() ?
+                PBHelperClient.convert(resp.getLocations()) : null;
+          }
+
+          @Override
+          public boolean isDone() {
+            return asyncReturnMessage.isDone();
+          }
+        };
+        AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
+        return null;
+      }
       GetBlockLocationsResponseProto resp = rpcProxy.getBlockLocations(null,
           req);
       return resp.hasLocations() ?
@@ -897,6 +921,29 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
         .setSrc(src)
         .build();
     try {
+      if (Client.isAsynchronousMode()) {
+        rpcProxy.getFileInfo(null, req);
+        final AsyncGet<Message, Exception> asyncReturnMessage
+            = ProtobufRpcEngine.getAsyncReturnMessage();
+        final AsyncGet<HdfsFileStatus, Exception> asyncGet
+            = new AsyncGet<HdfsFileStatus, Exception>() {
+          @Override
+          public HdfsFileStatus get(long timeout, TimeUnit unit)
+              throws Exception {
+            GetFileInfoResponseProto res =
+                (GetFileInfoResponseProto) asyncReturnMessage.get(
+                    timeout, unit);
+            return res.hasFs() ? PBHelperClient.convert(res.getFs()) : null;
+          }
+
+          @Override
+          public boolean isDone() {
+            return asyncReturnMessage.isDone();
+          }
+        };
+        AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
+        return null;
+      }
       GetFileInfoResponseProto res = rpcProxy.getFileInfo(null, req);
       return res.hasFs() ? PBHelperClient.convert(res.getFs()) : null;
     } catch (ServiceException e) {
@@ -52,7 +52,9 @@
 import org.apache.hadoop.fs.http.server.HttpFSParametersProvider.XAttrNameParam;
 import org.apache.hadoop.fs.http.server.HttpFSParametersProvider.XAttrSetFlagParam;
 import org.apache.hadoop.fs.http.server.HttpFSParametersProvider.XAttrValueParam;
+import org.apache.hadoop.http.ByteRange;
 import org.apache.hadoop.http.JettyUtils;
+import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.lib.service.FileSystemAccess;
 import org.apache.hadoop.lib.service.FileSystemAccessException;
 import org.apache.hadoop.lib.service.Groups;
@@ -68,6 +70,7 @@
 import org.slf4j.MDC;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -78,6 +81,7 @@
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -92,6 +96,9 @@
 import java.util.List;
 import java.util.Map;
 
+import static org.apache.hadoop.hdfs.DFSConfigKeys.HTTPFS_BUFFER_SIZE_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.HTTP_BUFFER_SIZE_DEFAULT;
+
 /**
  * Main class of HttpFSServer server.
  * <p>
@@ -239,9 +246,19 @@ public InputStream run() throws Exception {
       Long len = params.get(LenParam.NAME, LenParam.class);
       AUDIT_LOG.info("[{}] offset [{}] len [{}]",
           new Object[] { path, offset, len });
-      InputStreamEntity entity = new InputStreamEntity(is, offset, len);
-      response =
-          Response.ok(entity).type(MediaType.APPLICATION_OCTET_STREAM).build();
+      int bufferSize = HttpFSServerWebApp.get().getConfig().getInt(
+          HTTPFS_BUFFER_SIZE_KEY, HTTP_BUFFER_SIZE_DEFAULT);
+      String range = request.getHeader(ByteRange.RANGE);
+      if (range == null) {
+        InputStreamEntity entity =
+            new InputStreamEntity(is, offset, len, bufferSize);
+        response = Response.ok(entity)
+            .type(MediaType.APPLICATION_OCTET_STREAM)
+            .header(ByteRange.ACCEPT_RANGES, ByteRange.BYTES).build();
+      } else {
+        response = openRanges(ugi, fs, path, is, offset, len, range,
+            bufferSize);
+      }
       break;
     }
     case GETFILESTATUS: {
@@ -433,6 +450,69 @@ public Response delete(@PathParam("path") String path,
     return response;
   }
 
+  /**
+   * Answers an OPEN request with a Range header. The offset and length
+   * parameters select the representation the ranges refer to.
+   */
+  private Response openRanges(UserGroupInformation ugi, final FileSystem fs,
+      final String path, InputStream is, long offset, long len, String range,
+      int bufferSize) throws IOException {
+    long fileLength;
+    try {
+      fileLength = ugi.doAs(new PrivilegedExceptionAction<Long>() {
+        @Override
+        public Long run() throws Exception {
+          return fs.getFileStatus(new org.apache.hadoop.fs.Path(path))
+              .getLen();
+        }
+      });
+    } catch (InterruptedException ie) {
+      IOUtils.closeStream(is);
+      Thread.currentThread().interrupt();
+      throw new IOException(ie);
+    } catch (IOException e) {
+      IOUtils.closeStream(is);
+      throw e;
+    }
+    long length = Math.max(fileLength - offset, 0);
+    if (len >= 0) {
+      length = Math.min(length, len);
+    }
+
+    List<ByteRange> ranges = ByteRange.parse(range, length);
+    if (ranges == null) {
+      return Response.ok(new InputStreamEntity(is, offset, length, bufferSize))
+          .type(MediaType.APPLICATION_OCTET_STREAM)
+          .header(ByteRange.ACCEPT_RANGES, ByteRange.BYTES).build();
+    }
+    if (ranges.isEmpty()) {
+      IOUtils.closeStream(is);
+      return Response.status(
+          HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+          .header(ByteRange.CONTENT_RANGE,
+              ByteRange.unsatisfiedContentRange(length)).build();
+    }
+    Response.ResponseBuilder builder =
+        Response.status(HttpServletResponse.SC_PARTIAL_CONTENT)
+        .header(ByteRange.ACCEPT_RANGES, ByteRange.BYTES);
+    if (ranges.size() == 1) {
+      ByteRange r = ranges.get(0);
+      builder.type(MediaType.APPLICATION_OCTET_STREAM)
+          .header(ByteRange.CONTENT_RANGE, r.toContentRange(length))
+          .header(HttpHeaders.CONTENT_LENGTH, r.getLength())
+          .entity(new InputStreamEntity(is, offset, length, ranges, null,
+              null, bufferSize));
+    } else {
+      String boundary = ByteRange.newBoundary();
+      builder.type(ByteRange.multipartContentType(boundary))
+          .header(HttpHeaders.CONTENT_LENGTH, ByteRange.multipartLength(
+              ranges, boundary, MediaType.APPLICATION_OCTET_STREAM, length))
+          .entity(new InputStreamEntity(is, offset, length, ranges, boundary,
+              MediaType.APPLICATION_OCTET_STREAM, bufferSize));
+    }
+    return builder.build();
+  }
+
   /**
    * Binding to handle POST requests.
    *
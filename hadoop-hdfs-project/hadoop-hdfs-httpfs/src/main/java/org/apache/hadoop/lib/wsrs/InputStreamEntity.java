@@ -19,36 +19,131 @@
 package org.apache.hadoop.lib.wsrs;
 
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.http.ByteRange;
+import org.apache.hadoop.io.ByteBufferPool;
+import org.apache.hadoop.io.ElasticByteBufferPool;
 import org.apache.hadoop.io.IOUtils;
 
 import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 @InterfaceAudience.Private
 public class InputStreamEntity implements StreamingOutput {
+  /**
+   * Copy buffers shared by the responses, so that streaming a file doesn't
+   * allocate a new buffer for every request.
+   */
+  private static final ByteBufferPool BUFFER_POOL = new ElasticByteBufferPool();
+  private static final int DEFAULT_BUFFER_SIZE = 4096;
+
   private InputStream is;
   private long offset;
   private long len;
+  private int bufferSize;
+  private List<ByteRange> ranges;
+  private long length;
+  private String boundary;
+  private String contentType;
 
-  public InputStreamEntity(InputStream is, long offset, long len) {
+  public InputStreamEntity(InputStream is, long offset, long len,
+      int bufferSize) {
     this.is = is;
     this.offset = offset;
     this.len = len;
+    this.bufferSize = bufferSize;
+  }
+
+  public InputStreamEntity(InputStream is, long offset, long len) {
+    this(is, offset, len, DEFAULT_BUFFER_SIZE);
   }
 
   public InputStreamEntity(InputStream is) {
     this(is, 0, -1);
   }
 
+  /**
+   * Creates an entity with ranges of a representation, see
+   * {@link ByteRange#parse(String, long)}.
+   *
+   * @param offset offset in the stream of the representation
+   * @param length length of the representation
+   * @param ranges ranges of the representation to write
+   * @param boundary boundary of a multipart/byteranges entity, null if the
+   *                 ranges are written as they are
+   * @param contentType content type of the parts of a multipart entity
+   */
+  public InputStreamEntity(InputStream is, long offset, long length,
+      List<ByteRange> ranges, String boundary, String contentType,
+      int bufferSize) {
+    this(is, offset, -1, bufferSize);
+    this.length = length;
+    this.ranges = ranges;
+    this.boundary = boundary;
+    this.contentType = contentType;
+  }
+
   @Override
   public void write(OutputStream os) throws IOException {
-    IOUtils.skipFully(is, offset);
-    if (len == -1) {
-      IOUtils.copyBytes(is, os, 4096, true);
+    ByteBuffer buffer = BUFFER_POOL.getBuffer(false, bufferSize);
+    try {
+      byte[] buf = buffer.array();
+      if (ranges == null) {
+        seek(0, offset);
+        copy(os, buf, len == -1 ? Long.MAX_VALUE : len, false);
+      } else {
+        long pos = 0;
+        for (ByteRange range : ranges) {
+          if (boundary != null) {
+            os.write(range.partHeader(boundary, contentType, length));
+          }
+          seek(pos, offset + range.getStart());
+          copy(os, buf, range.getLength(), true);
+          pos = offset + range.getEnd() + 1;
+        }
+        if (boundary != null) {
+          os.write(ByteRange.multipartEnd(boundary));
+        }
+      }
+      os.close();
+      os = null;
+      is.close();
+      is = null;
+    } finally {
+      BUFFER_POOL.putBuffer(buffer);
+      IOUtils.closeStream(os);
+      IOUtils.closeStream(is);
+    }
+  }
+
+  /** Move the stream from position pos to position target */
+  private void seek(long pos, long target) throws IOException {
+    if (is instanceof Seekable) {
+      ((Seekable) is).seek(target);
     } else {
-      IOUtils.copyBytes(is, os, len, true);
+      IOUtils.skipFully(is, target - pos);
+    }
+  }
+
+  private void copy(OutputStream os, byte[] buf, long count, boolean exact)
+      throws IOException {
+    long remaining = count;
+    while (remaining > 0) {
+      int n = is.read(buf, 0, (int) Math.min(buf.length, remaining));
+      if (n == -1) {
+        if (exact) {
+          throw new EOFException("Premature EOF, " + remaining
+              + " bytes of " + count + " were not read");
+        }
+        break;
+      }
+      os.write(buf, 0, n);
+      remaining -= n;
     }
   }
 }
@@ -22,8 +22,11 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.InputStream;
+import java.util.Arrays;
 
+import org.apache.hadoop.http.ByteRange;
 import org.junit.Test;
 
 public class TestInputStreamEntity {
@@ -45,4 +48,36 @@ public void test() throws Exception {
     assertEquals(baos.toByteArray()[0], 'b');
   }
 
+  @Test
+  public void testRanges() throws Exception {
+    InputStream is = new ByteArrayInputStream("abcdefghij".getBytes());
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    // The representation starts at offset 2 of the stream
+    InputStreamEntity i = new InputStreamEntity(is, 2, 8,
+        Arrays.asList(new ByteRange(1, 2), new ByteRange(5, 6)), null, null,
+        4);
+    i.write(baos);
+    assertEquals("dehi", new String(baos.toByteArray()));
+
+    is = new ByteArrayInputStream("abcdefghij".getBytes());
+    baos = new ByteArrayOutputStream();
+    i = new InputStreamEntity(is, 0, 10,
+        Arrays.asList(new ByteRange(0, 0), new ByteRange(9, 9)), "b",
+        "text/plain", 4);
+    i.write(baos);
+    assertEquals("\r\n--b\r\nContent-Type: text/plain\r\n"
+        + "Content-Range: bytes 0-0/10\r\n\r\na"
+        + "\r\n--b\r\nContent-Type: text/plain\r\n"
+        + "Content-Range: bytes 9-9/10\r\n\r\nj"
+        + "\r\n--b--\r\n", new String(baos.toByteArray()));
+  }
+
+  @Test(expected = EOFException.class)
+  public void testRangePastEnd() throws Exception {
+    InputStream is = new ByteArrayInputStream("abc".getBytes());
+    InputStreamEntity i = new InputStreamEntity(is, 0, 10,
+        Arrays.asList(new ByteRange(0, 9)), null, null, 4);
+    i.write(new ByteArrayOutputStream());
+  }
+
 }
@@ -31,6 +31,54 @@ public class NfsConfigKeys {
   public static final String DFS_NFS_FILE_DUMP_DIR_KEY = "nfs.dump.dir";
   public static final String DFS_NFS_FILE_DUMP_DIR_DEFAULT = "/tmp/.hdfs-nfs";
   
+  /*
+   * Out of order writes are kept in memory until the writes before them
+   * arrive. Once a file holds more than the per file limit, or all the files
+   * together hold more than the total limit, the writes are dumped to
+   * "nfs.dump.dir". When dumping is disabled, out of order writes beyond the
+   * total limit are rejected with NFS3ERR_JUKEBOX so that the client retries
+   * them.
+   */
+  public static final String NFS_WRITE_REORDER_FILE_MEMORY_KEY =
+      "nfs.write.reorder.file.memory";
+  public static final long NFS_WRITE_REORDER_FILE_MEMORY_DEFAULT =
+      1024 * 1024;
+  public static final String NFS_WRITE_REORDER_TOTAL_MEMORY_KEY =
+      "nfs.write.reorder.total.memory";
+  public static final long NFS_WRITE_REORDER_TOTAL_MEMORY_DEFAULT =
+      256 * 1024 * 1024;
+  /*
+   * Sequential writes are written back to HDFS in batches of up to this many
+   * bytes, and the pending commits are checked once per batch.
+   */
+  public static final String NFS_WRITE_COALESCE_BYTES_KEY =
+      "nfs.write.coalesce.bytes";
+  public static final int NFS_WRITE_COALESCE_BYTES_DEFAULT = 1024 * 1024;
+
+  /*
+   * Sequential reads of a file are served from a buffer filled ahead of them
+   * with this many bytes. The buffers of all the files are limited to the
+   * total memory. A readahead size of 0 disables readahead.
+   */
+  public static final String NFS_READ_READAHEAD_BYTES_KEY =
+      "nfs.read.readahead.bytes";
+  public static final int NFS_READ_READAHEAD_BYTES_DEFAULT = 4 * 1024 * 1024;
+  public static final String NFS_READ_READAHEAD_TOTAL_MEMORY_KEY =
+      "nfs.read.readahead.total.memory";
+  public static final long NFS_READ_READAHEAD_TOTAL_MEMORY_DEFAULT =
+      256 * 1024 * 1024;
+
+  /*
+   * The file attributes and name lookups returned by the NameNode are cached
+   * for this many milliseconds. The entries of the files changed through the
+   * gateway are invalidated right away. A TTL of 0 disables the cache.
+   */
+  public static final String NFS_ATTR_CACHE_TTL_MS_KEY =
+      "nfs.attr.cache.ttl.ms";
+  public static final long NFS_ATTR_CACHE_TTL_MS_DEFAULT = 1000;
+  public static final String NFS_ATTR_CACHE_SIZE_KEY = "nfs.attr.cache.size";
+  public static final int NFS_ATTR_CACHE_SIZE_DEFAULT = 64 * 1024;
+
   public static final String DFS_NFS_MAX_READ_TRANSFER_SIZE_KEY = "nfs.rtmax";
   public static final int DFS_NFS_MAX_READ_TRANSFER_SIZE_DEFAULT = 1024 * 1024;
   public static final String DFS_NFS_MAX_WRITE_TRANSFER_SIZE_KEY = "nfs.wtmax";
@@ -25,6 +25,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -42,11 +43,13 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +73,23 @@ class DFSClientCache {
   private final LoadingCache<DFSInputStreamCacheKey,
                           FSDataInputStream> inputstreamCache;
 
+  /**
+   * Cache that maps <DFSClient, inode path, nnid> to the buffer serving the
+   * sequential reads of the input stream. Null if readahead is disabled.
+   */
+  private final Cache<DFSInputStreamCacheKey,
+                          ReadaheadBuffer> readaheadCache;
+
+  /**
+   * Cache that maps <DFSClient, inode path, nnid> to the end offset of the
+   * last read of the input streams without a readahead buffer. A buffer is
+   * only allocated once the reads of the stream turn out sequential. Null
+   * if readahead is disabled.
+   */
+  private final Cache<DFSInputStreamCacheKey, Long> lastReadEndCache;
+
+  private final int readaheadSize;
+
   /**
    * Time to live for a DFSClient (in seconds).
    */
@@ -154,6 +174,35 @@ public int hashCode() {
         .removalListener(inputStreamRemovalListener())
         .build(inputStreamLoader());
 
+    this.readaheadSize = config.getInt(
+        NfsConfigKeys.NFS_READ_READAHEAD_BYTES_KEY,
+        NfsConfigKeys.NFS_READ_READAHEAD_BYTES_DEFAULT);
+    long readaheadMemory = config.getLong(
+        NfsConfigKeys.NFS_READ_READAHEAD_TOTAL_MEMORY_KEY,
+        NfsConfigKeys.NFS_READ_READAHEAD_TOTAL_MEMORY_DEFAULT);
+    if (readaheadSize > 0 && readaheadMemory >= readaheadSize) {
+      this.readaheadCache = CacheBuilder.newBuilder()
+          .maximumWeight(readaheadMemory)
+          .weigher(new Weigher<DFSInputStreamCacheKey, ReadaheadBuffer>() {
+            @Override
+            public int weigh(DFSInputStreamCacheKey key,
+                ReadaheadBuffer value) {
+              return value.getSize();
+            }
+          })
+          .expireAfterAccess(DEFAULT_DFS_INPUTSTREAM_CACHE_TTL,
+              TimeUnit.SECONDS)
+          .build();
+      this.lastReadEndCache = CacheBuilder.newBuilder()
+          .maximumSize(DEFAULT_DFS_INPUTSTREAM_CACHE_SIZE)
+          .expireAfterAccess(DEFAULT_DFS_INPUTSTREAM_CACHE_TTL,
+              TimeUnit.SECONDS)
+          .build();
+    } else {
+      this.readaheadCache = null;
+      this.lastReadEndCache = null;
+    }
+
     ShutdownHookManager.get().addShutdownHook(new CacheFinalizer(),
         SHUTDOWN_HOOK_PRIORITY);
   }
@@ -344,10 +393,54 @@ FSDataInputStream getDfsInputStream(String userName, String inodePath,
     return s;
   }
 
+  /**
+   * Get the readahead buffer of the input stream for a read of count bytes
+   * at offset. The buffer is only allocated for the second of two
+   * sequential reads, so random reads don't use any readahead memory.
+   *
+   * @return the readahead buffer of the input stream, null if readahead is
+   *         disabled or the reads of the stream aren't sequential
+   */
+  ReadaheadBuffer getReadaheadBuffer(String userName, String inodePath,
+                                     int namenodeId, long offset, int count) {
+    if (readaheadCache == null) {
+      return null;
+    }
+    DFSInputStreamCacheKey k =
+        new DFSInputStreamCacheKey(userName, inodePath, namenodeId);
+    ReadaheadBuffer buffer = readaheadCache.getIfPresent(k);
+    if (buffer != null) {
+      return buffer;
+    }
+
+    final Long lastReadEnd = lastReadEndCache.asMap().put(k, offset + count);
+    if (lastReadEnd == null || count >= readaheadSize
+        || Math.abs(offset - lastReadEnd) > readaheadSize) {
+      return null;
+    }
+    lastReadEndCache.invalidate(k);
+    try {
+      return readaheadCache.get(k, new Callable<ReadaheadBuffer>() {
+        @Override
+        public ReadaheadBuffer call() {
+          return new ReadaheadBuffer(readaheadSize, lastReadEnd);
+        }
+      });
+    } catch (ExecutionException e) {
+      LOG.warn("Failed to create the readahead buffer for user: {}",
+          userName, e);
+      return null;
+    }
+  }
+
   public void invalidateDfsInputStream(String userName, String inodePath,
                                        int namenodeId) {
     DFSInputStreamCacheKey k =
         new DFSInputStreamCacheKey(userName, inodePath, namenodeId);
     inputstreamCache.invalidate(k);
+    if (readaheadCache != null) {
+      readaheadCache.invalidate(k);
+      lastReadEndCache.invalidate(k);
+    }
   }
 }
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfigKeys;
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfiguration;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.nfs.nfs3.FileHandle;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * FileAttrCache keeps the file status returned by the NameNode for a short
+ * time, so that the GETATTR, LOOKUP and ACCESS calls NFS clients repeat for
+ * the same files don't all reach the NameNode.
+ *
+ * The status is cached for each DFSClient, i.e. for each user, since the
+ * NameNode checks the permissions of the user for every lookup. The name
+ * lookups only cache the file id of the name, whose status comes from the
+ * file id cache, so that a change of the file is seen through both.
+ *
+ * The gateway invalidates the entries of the files it changes itself. The
+ * changes made by other HDFS clients are seen after at most the TTL.
+ */
+class FileAttrCache {
+  private final boolean enabled;
+  /** File id path to the status of the file, per client */
+  private final Cache<String, ConcurrentMap<DFSClient, HdfsFileStatus>>
+      statuses;
+  /** Directory file id path and name to the file id of the name */
+  private final Cache<String, ConcurrentMap<DFSClient, Long>> lookups;
+  /**
+   * Incremented by every invalidation, so that a status fetched while an
+   * invalidation happens isn't cached.
+   */
+  private final AtomicLong invalidations = new AtomicLong(0);
+
+  FileAttrCache(NfsConfiguration config) {
+    this(config.getLong(NfsConfigKeys.NFS_ATTR_CACHE_TTL_MS_KEY,
+        NfsConfigKeys.NFS_ATTR_CACHE_TTL_MS_DEFAULT),
+        config.getInt(NfsConfigKeys.NFS_ATTR_CACHE_SIZE_KEY,
+            NfsConfigKeys.NFS_ATTR_CACHE_SIZE_DEFAULT));
+  }
+
+  /**
+   * @param ttlMs milliseconds an entry is kept, 0 or less disables the cache
+   * @param size maximum number of files and of names cached
+   */
+  FileAttrCache(long ttlMs, int size) {
+    this.enabled = ttlMs > 0 && size > 0;
+    long ttl = Math.max(ttlMs, 1);
+    int maxSize = Math.max(size, 1);
+    this.statuses = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+        .build();
+    this.lookups = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Get the status of a file from the cache, or from the NameNode.
+   *
+   * @return the status, null if the file doesn't exist
+   */
+  HdfsFileStatus getFileStatus(DFSClient client, String fileIdPath)
+      throws IOException {
+    if (!enabled) {
+      return Nfs3Utils.getFileStatus(client, fileIdPath);
+    }
+    HdfsFileStatus status = get(statuses, fileIdPath, client);
+    if (status != null) {
+      return status;
+    }
+    long invalidation = invalidations.get();
+    status = Nfs3Utils.getFileStatus(client, fileIdPath);
+    if (status != null && invalidation == invalidations.get()) {
+      put(statuses, fileIdPath, client, status);
+    }
+    return status;
+  }
+
+  /**
+   * Get the status of the file with the given name in a directory from the
+   * cache, or from the NameNode.
+   *
+   * @return the status, null if the file doesn't exist
+   */
+  HdfsFileStatus getFileStatus(DFSClient client, String dirFileIdPath,
+      String name) throws IOException {
+    String path = dirFileIdPath + "/" + name;
+    if (!enabled) {
+      return Nfs3Utils.getFileStatus(client, path);
+    }
+    Long fileId = get(lookups, path, client);
+    if (fileId != null) {
+      HdfsFileStatus status =
+          getFileStatus(client, Nfs3Utils.getFileIdPath(fileId));
+      if (status != null) {
+        return status;
+      }
+    }
+    long invalidation = invalidations.get();
+    HdfsFileStatus status = Nfs3Utils.getFileStatus(client, path);
+    if (status != null && invalidation == invalidations.get()) {
+      put(lookups, path, client, status.getFileId());
+      put(statuses, Nfs3Utils.getFileIdPath(status.getFileId()), client,
+          status);
+    }
+    return status;
+  }
+
+  /** Invalidate the status of a file changed by the gateway */
+  void invalidate(String fileIdPath) {
+    if (enabled) {
+      invalidations.incrementAndGet();
+      statuses.invalidate(fileIdPath);
+    }
+  }
+
+  void invalidate(FileHandle handle) {
+    invalidate(Nfs3Utils.getFileIdPath(handle));
+  }
+
+  /**
+   * Invalidate a name of a directory which is created, removed or renamed by
+   * the gateway, as well as the file it was pointing to and the directory.
+   */
+  void invalidate(FileHandle dirHandle, String name) {
+    if (!enabled) {
+      return;
+    }
+    invalidations.incrementAndGet();
+    String dirFileIdPath = Nfs3Utils.getFileIdPath(dirHandle);
+    String path = dirFileIdPath + "/" + name;
+    ConcurrentMap<DFSClient, Long> fileIds = lookups.getIfPresent(path);
+    lookups.invalidate(path);
+    if (fileIds != null) {
+      for (Long fileId : fileIds.values()) {
+        statuses.invalidate(Nfs3Utils.getFileIdPath(fileId));
+      }
+    }
+    statuses.invalidate(dirFileIdPath);
+  }
+
+  @VisibleForTesting
+  long size() {
+    return statuses.size() + lookups.size();
+  }
+
+  private static <T> T get(Cache<String, ConcurrentMap<DFSClient, T>> cache,
+      String path, DFSClient client) {
+    ConcurrentMap<DFSClient, T> values = cache.getIfPresent(path);
+    return values == null ? null : values.get(client);
+  }
+
+  private static <T> void put(Cache<String, ConcurrentMap<DFSClient, T>> cache,
+      String path, DFSClient client, T value) {
+    ConcurrentMap<DFSClient, T> values = cache.getIfPresent(path);
+    if (values == null) {
+      ConcurrentMap<DFSClient, T> newValues =
+          new ConcurrentHashMap<DFSClient, T>();
+      values = cache.asMap().putIfAbsent(path, newValues);
+      if (values == null) {
+        values = newValues;
+      }
+    }
+    values.put(client, value);
+  }
+}
@@ -51,6 +51,13 @@ public class Nfs3Metrics {
   final MutableQuantiles[] readNanosQuantiles;
   @Metric MutableRate write;
   final MutableQuantiles[] writeNanosQuantiles;
+  // Time from receiving a write to writing its data to HDFS
+  @Metric MutableRate writeBack;
+  final MutableQuantiles[] writeBackNanosQuantiles;
+  // Number of pending writes when an out of order write is buffered
+  final MutableQuantiles[] reorderDepthQuantiles;
+  // Out of order writes rejected for lack of memory
+  @Metric MutableCounterLong writesDeferred;
   @Metric MutableRate create;
   @Metric MutableRate mkdir;
   @Metric MutableRate symlink;
@@ -83,6 +90,8 @@ public Nfs3Metrics(String name, String sessionId, int[] intervals,
     final int len = intervals.length;
     readNanosQuantiles = new MutableQuantiles[len];
     writeNanosQuantiles = new MutableQuantiles[len];
+    writeBackNanosQuantiles = new MutableQuantiles[len];
+    reorderDepthQuantiles = new MutableQuantiles[len];
     commitNanosQuantiles = new MutableQuantiles[len];
 
     for (int i = 0; i < len; i++) {
@@ -91,6 +100,12 @@ public Nfs3Metrics(String name, String sessionId, int[] intervals,
           + interval + "s", "Read process in ns", "ops", "latency", interval);
       writeNanosQuantiles[i] = registry.newQuantiles("writeProcessNanos"
           + interval + "s", "Write process in ns", "ops", "latency", interval);
+      writeBackNanosQuantiles[i] = registry.newQuantiles("writeBackNanos"
+          + interval + "s", "Write back to HDFS in ns", "ops", "latency",
+          interval);
+      reorderDepthQuantiles[i] = registry.newQuantiles("reorderDepth"
+          + interval + "s", "Pending writes of a file on out of order write",
+          "ops", "depth", interval);
       commitNanosQuantiles[i] = registry.newQuantiles("commitProcessNanos"
           + interval + "s", "Commit process in ns", "ops", "latency", interval);
     }
@@ -157,6 +172,23 @@ public void addWrite(long latencyNanos) {
     }
   }
 
+  public void addWriteBack(long latencyNanos) {
+    writeBack.add(latencyNanos);
+    for (MutableQuantiles q : writeBackNanosQuantiles) {
+      q.add(latencyNanos);
+    }
+  }
+
+  public void addReorderDepth(long pendingWrites) {
+    for (MutableQuantiles q : reorderDepthQuantiles) {
+      q.add(pendingWrites);
+    }
+  }
+
+  public void incrWritesDeferred() {
+    writesDeferred.incr();
+  }
+
   public void addCreate(long latencyNanos) {
     create.add(latencyNanos);
   }
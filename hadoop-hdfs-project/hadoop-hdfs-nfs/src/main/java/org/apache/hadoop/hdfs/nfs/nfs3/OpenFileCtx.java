@@ -24,8 +24,10 @@
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -68,9 +70,6 @@
  */
 class OpenFileCtx {
   public static final Logger LOG = LoggerFactory.getLogger(OpenFileCtx.class);
-  
-  // Pending writes water mark for dump, 1MB
-  private static long DUMP_WRITE_WATER_MARK = 1024 * 1024;
 
   enum COMMIT_STATUS {
     COMMIT_FINISHED,
@@ -177,6 +176,10 @@ public String toString() {
   
   /** Tracks the data buffered in memory related to non sequential writes */
   private AtomicLong nonSequentialWriteInMemory;
+  /** Memory limits of the non sequential writes, shared by all the files */
+  private final WriteBufferBudget writeBudget;
+  /** Maximum bytes of sequential writes written back in one batch */
+  private final int coalesceBytes;
   
   private RandomAccessFile raf;
   private final String dumpFilePath;
@@ -216,8 +219,29 @@ private long updateNonSequentialWriteInMemory(long count) {
     Preconditions.checkState(newValue >= 0,
         "nonSequentialWriteInMemory is negative " + newValue
             + " after update with count " + count);
+    writeBudget.update(count);
     return newValue;
   }
+
+  /**
+   * Stop accounting the in memory data of a non sequential write, which is
+   * about to be written back to HDFS and can't be dumped anymore.
+   */
+  private void markNoDump(WriteCtx writeCtx) {
+    if (writeCtx.getDataState() == WriteCtx.DataState.ALLOW_DUMP) {
+      synchronized (writeCtx) {
+        if (writeCtx.getDataState() == WriteCtx.DataState.ALLOW_DUMP) {
+          writeCtx.setDataState(WriteCtx.DataState.NO_DUMP);
+          updateNonSequentialWriteInMemory(-writeCtx.getCount());
+        }
+      }
+    }
+  }
+
+  /** @return true if the in memory non sequential writes should be dumped */
+  private boolean needDump() {
+    return writeBudget.isExceeded(nonSequentialWriteInMemory.get());
+  }
   
   OpenFileCtx(HdfsDataOutputStream fos, Nfs3FileAttributes latestAttr,
       String dumpFilePath, DFSClient client, IdMappingServiceProvider iug) {
@@ -228,6 +252,14 @@ private long updateNonSequentialWriteInMemory(long count) {
   OpenFileCtx(HdfsDataOutputStream fos, Nfs3FileAttributes latestAttr,
       String dumpFilePath, DFSClient client, IdMappingServiceProvider iug,
       boolean aixCompatMode, NfsConfiguration config) {
+    this(fos, latestAttr, dumpFilePath, client, iug, aixCompatMode, config,
+        new WriteBufferBudget(config));
+  }
+
+  OpenFileCtx(HdfsDataOutputStream fos, Nfs3FileAttributes latestAttr,
+      String dumpFilePath, DFSClient client, IdMappingServiceProvider iug,
+      boolean aixCompatMode, NfsConfiguration config,
+      WriteBufferBudget writeBudget) {
     this.fos = fos;
     this.latestAttr = latestAttr;
     this.aixCompatMode = aixCompatMode;
@@ -246,6 +278,10 @@ private long updateNonSequentialWriteInMemory(long count) {
     dumpOut = null;
     raf = null;
     nonSequentialWriteInMemory = new AtomicLong(0);
+    this.writeBudget = writeBudget;
+    this.coalesceBytes = config.getInt(
+        NfsConfigKeys.NFS_WRITE_COALESCE_BYTES_KEY,
+        NfsConfigKeys.NFS_WRITE_COALESCE_BYTES_DEFAULT);
   
     this.dumpFilePath = dumpFilePath;  
     enabledDump = dumpFilePath != null;
@@ -275,13 +311,13 @@ private void waitForDump() {
       return;
     }
 
-    if (nonSequentialWriteInMemory.get() < DUMP_WRITE_WATER_MARK) {
+    if (!needDump()) {
       return;
     }
 
     // wake up the dumper thread to dump the data
     synchronized (this) {
-      if (nonSequentialWriteInMemory.get() >= DUMP_WRITE_WATER_MARK) {
+      if (needDump()) {
         LOG.debug("Asking dumper to dump...");
         if (dumpThread == null) {
           dumpThread = new Daemon(new Dumper());
@@ -291,7 +327,7 @@ private void waitForDump() {
         }
       }
       
-      while (nonSequentialWriteInMemory.get() >= DUMP_WRITE_WATER_MARK) {
+      while (enabledDump && needDump()) {
         try {
           this.wait();
         } catch (InterruptedException ignored) {
@@ -376,11 +412,11 @@ private void dump() {
     public void run() {
       while (activeState && enabledDump) {
         try {
-          if (nonSequentialWriteInMemory.get() >= DUMP_WRITE_WATER_MARK) {
+          if (needDump()) {
             dump();
           }
           synchronized (OpenFileCtx.this) {
-            if (nonSequentialWriteInMemory.get() < DUMP_WRITE_WATER_MARK) {
+            if (!needDump()) {
               OpenFileCtx.this.notifyAll();
               try {
                 OpenFileCtx.this.wait();
@@ -403,6 +439,10 @@ public void run() {
           activeState = false;
         }
       }
+      // unblock the threads waiting for a dump which won't happen anymore
+      synchronized (OpenFileCtx.this) {
+        OpenFileCtx.this.notifyAll();
+      }
     }
   }
   
@@ -646,6 +686,21 @@ private void receivedNewWriteInternal(DFSClient dfsClient,
     WccAttr preOpAttr = latestAttr.getWccAttr();
     int count = request.getCount();
 
+    if (!enabledDump && request.getOffset() > nextOffset.get()
+        && nonSequentialWriteInMemory.get() > 0 && writeBudget.isExhausted()) {
+      // The out of order writes can't be dumped and there is no memory left
+      // to keep them. Let the client retry once the gaps are filled.
+      LOG.info("Out of order writes exceed the memory limit, ask the client " +
+          "to retry the write at offset {}", request.getOffset());
+      RpcProgramNfs3.metrics.incrWritesDeferred();
+      WccData fileWcc = new WccData(preOpAttr, latestAttr);
+      WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3ERR_JUKEBOX,
+          fileWcc, 0, stableHow, Nfs3Constant.WRITE_COMMIT_VERF);
+      Nfs3Utils.writeChannel(channel,
+          response.serialize(new XDR(), xid, new VerifierNone()), xid);
+      return;
+    }
+
     WriteCtx writeCtx = addWritesToCache(request, channel, xid);
     if (writeCtx == null) {
       // offset < nextOffset
@@ -655,6 +710,7 @@ private void receivedNewWriteInternal(DFSClient dfsClient,
       // Check and start writing back if necessary
       boolean startWriting = checkAndStartWrite(asyncDataService, writeCtx);
       if (!startWriting) {
+        RpcProgramNfs3.metrics.addReorderDepth(pendingWrites.size());
         // offset > nextOffset. check if we need to dump data
         waitForDump();
         
@@ -885,6 +941,11 @@ synchronized COMMIT_STATUS checkCommitInternal(long commitOffset,
         // co >= nextOffset
         if (checkSequential(co, nextOffset.get())) {
           return handleSpecialWait(fromRead, co, channel, xid, preOpAttr);
+        } else if (writeBudget.isExhausted()) {
+          // Don't let the client send more out of order writes until the
+          // written back ones release some memory.
+          LOG.debug("Out of order writes exceed the memory limit");
+          return handleSpecialWait(fromRead, co, channel, xid, preOpAttr);
         } else {
           LOG.debug("return COMMIT_SPECIAL_SUCCESS");
           return COMMIT_STATUS.COMMIT_SPECIAL_SUCCESS;
@@ -956,20 +1017,50 @@ public synchronized boolean streamCleanup(FileHandle handle,
     return flag;
   }
   
+  /**
+   * Get (and remove) the next sequential WriteCtxs from {@link #pendingWrites}
+   * if possible, up to {@link #coalesceBytes} of data. A stable write ends the
+   * batch since it is synced right after being written.
+   *
+   * @return An empty list if {@link #pendingWrites} is empty, or the next
+   *         WriteCtx's offset is larger than nextOffSet.
+   */
+  private synchronized List<WriteCtx> offerNextToWrite() {
+    List<WriteCtx> batch = new ArrayList<WriteCtx>();
+    long bytes = 0;
+    do {
+      WriteCtx toWrite = offerNextToWrite(batch.isEmpty());
+      if (toWrite == null) {
+        break;
+      }
+      batch.add(toWrite);
+      bytes += toWrite.getCount();
+      if (toWrite.getStableHow() != WriteStableHow.UNSTABLE) {
+        break;
+      }
+    } while (bytes < coalesceBytes);
+    return batch;
+  }
+
   /**
    * Get (and remove) the next WriteCtx from {@link #pendingWrites} if possible.
-   * 
+   *
+   * @param first whether the WriteCtx would be the first of its batch, the
+   *              write back stops if no first WriteCtx can be found
    * @return Null if {@link #pendingWrites} is null, or the next WriteCtx's
    *         offset is larger than nextOffSet.
    */
-  private synchronized WriteCtx offerNextToWrite() {
+  private WriteCtx offerNextToWrite(boolean first) {
     if (pendingWrites.isEmpty()) {
+      if (!first) {
+        return null;
+      }
       LOG.debug("The async write task has no pending writes, fileId: {}",
           latestAttr.getFileId());
       // process pending commit again to handle this race: a commit is added
-      // to pendingCommits map just after the last doSingleWrite returns.
+      // to pendingCommits map just after the last doWrites returns.
       // There is no pending write and the commit should be handled by the
-      // last doSingleWrite. Due to the race, the commit is left along and
+      // last doWrites. Due to the race, the commit is left along and
       // can't be processed until cleanup. Therefore, we should do another
       // processCommits to fix the race issue.
       processCommits(nextOffset.get()); // nextOffset has same value as
@@ -987,6 +1078,9 @@ private synchronized WriteCtx offerNextToWrite() {
 
     long offset = nextOffset.get();
     if (range.getMin() > offset) {
+      if (!first) {
+        return null;
+      }
       LOG.debug("The next sequential write has not arrived yet");
       processCommits(nextOffset.get()); // handle race
       this.asyncStatus = false;
@@ -999,6 +1093,7 @@ private synchronized WriteCtx offerNextToWrite() {
       LOG.warn("Got an overlapping write {}, nextOffset={}. " +
           "Remove and trim it", range, offset);
       pendingWrites.remove(range);
+      markNoDump(toWrite);
       trimWriteRequest(toWrite, offset);
       // update nextOffset
       nextOffset.addAndGet(toWrite.getCount());
@@ -1024,10 +1119,10 @@ void executeWriteBack() {
     try {
       while (activeState) {
         // asyncStatus could be changed to false in offerNextToWrite()
-        WriteCtx toWrite = offerNextToWrite();
-        if (toWrite != null) {
+        List<WriteCtx> toWrite = offerNextToWrite();
+        if (!toWrite.isEmpty()) {
           // Do the write
-          doSingleWrite(toWrite);
+          doWrites(toWrite);
           updateLastAccessTime();
         } else {
           break;
@@ -1120,7 +1215,45 @@ private void processCommits(long offset) {
     }
   }
   
-  private void doSingleWrite(final WriteCtx writeCtx) {
+  /**
+   * Write a batch of sequential writes back to HDFS and reply to them. The
+   * pending commits are processed once the whole batch is written.
+   */
+  private void doWrites(final List<WriteCtx> writes) {
+    int i = 0;
+    try {
+      for (; i < writes.size(); i++) {
+        doSingleWrite(writes.get(i));
+      }
+      // Handle the waiting commits without holding any lock
+      WriteCtx last = writes.get(writes.size() - 1);
+      processCommits(last.getOffset() + last.getCount());
+    } catch (IOException e) {
+      WriteCtx failed = writes.get(i);
+      LOG.error("Error writing to fileHandle {} at offset {} and length {}",
+          failed.getHandle().dumpFileHandle(), failed.getOffset(),
+          failed.getCount(), e);
+      for (; i < writes.size(); i++) {
+        WriteCtx writeCtx = writes.get(i);
+        // The writes are not in pendingWrites anymore, so cleanup() won't
+        // release their memory
+        markNoDump(writeCtx);
+        if (!writeCtx.getReplied()) {
+          WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3ERR_IO);
+          Nfs3Utils.writeChannel(writeCtx.getChannel(), response.serialize(
+              new XDR(), writeCtx.getXid(), new VerifierNone()),
+              writeCtx.getXid());
+          // Keep stream open. Either client retries or SteamMonitor closes it.
+        }
+      }
+
+      LOG.info("Clean up open file context for fileId: {}",
+          latestAttr.getFileId());
+      cleanup();
+    }
+  }
+
+  private void doSingleWrite(final WriteCtx writeCtx) throws IOException {
     Channel channel = writeCtx.getChannel();
     int xid = writeCtx.getXid();
 
@@ -1134,84 +1267,53 @@ private void doSingleWrite(final WriteCtx writeCtx) {
           handle.dumpFileHandle(), offset, count, stableHow.name());
     }
 
-    try {
-      // The write is not protected by lock. asyncState is used to make sure
-      // there is one thread doing write back at any time    
-      writeCtx.writeData(fos);
-      RpcProgramNfs3.metrics.incrBytesWritten(writeCtx.getCount());
-      
-      long flushedOffset = getFlushedOffset();
-      if (flushedOffset != (offset + count)) {
-        throw new IOException("output stream is out of sync, pos="
-            + flushedOffset + " and nextOffset should be"
-            + (offset + count));
-      }
-      
+    // The write is not protected by lock. asyncState is used to make sure
+    // there is one thread doing write back at any time    
+    writeCtx.writeData(fos);
+    RpcProgramNfs3.metrics.incrBytesWritten(writeCtx.getCount());
+    RpcProgramNfs3.metrics.addWriteBack(
+        Nfs3Utils.getElapsedTime(writeCtx.startTime));
 
-      // Reduce memory occupation size if request was allowed dumped
-      if (writeCtx.getDataState() == WriteCtx.DataState.ALLOW_DUMP) {
-        synchronized (writeCtx) {
-          if (writeCtx.getDataState() == WriteCtx.DataState.ALLOW_DUMP) {
-            writeCtx.setDataState(WriteCtx.DataState.NO_DUMP);
-            updateNonSequentialWriteInMemory(-count);
-            if (LOG.isDebugEnabled()) {
-              LOG.debug("After writing {} at offset {}, " +
-                      "updated the memory count, new value: {}",
-                  handle.dumpFileHandle(), offset,
-                  nonSequentialWriteInMemory.get());
-            }
-          }
-        }
-      }
-      
-      if (!writeCtx.getReplied()) {
-        if (stableHow != WriteStableHow.UNSTABLE) {
-          LOG.info("Do sync for stable write: {}", writeCtx);
-          try {
-            if (stableHow == WriteStableHow.DATA_SYNC) {
-              fos.hsync();
-            } else {
-              Preconditions.checkState(stableHow == WriteStableHow.FILE_SYNC,
-                  "Unknown WriteStableHow: " + stableHow);
-              // Sync file data and length
-              fos.hsync(EnumSet.of(SyncFlag.UPDATE_LENGTH));
-            }
-          } catch (IOException e) {
-            LOG.error("hsync failed with writeCtx: {}", writeCtx, e);
-            throw e;
+    long flushedOffset = getFlushedOffset();
+    if (flushedOffset != (offset + count)) {
+      throw new IOException("output stream is out of sync, pos="
+          + flushedOffset + " and nextOffset should be"
+          + (offset + count));
+    }
+
+    // Reduce memory occupation size if request was allowed dumped
+    markNoDump(writeCtx);
+
+    if (!writeCtx.getReplied()) {
+      if (stableHow != WriteStableHow.UNSTABLE) {
+        LOG.info("Do sync for stable write: {}", writeCtx);
+        try {
+          if (stableHow == WriteStableHow.DATA_SYNC) {
+            fos.hsync();
+          } else {
+            Preconditions.checkState(stableHow == WriteStableHow.FILE_SYNC,
+                "Unknown WriteStableHow: " + stableHow);
+            // Sync file data and length
+            fos.hsync(EnumSet.of(SyncFlag.UPDATE_LENGTH));
           }
+        } catch (IOException e) {
+          LOG.error("hsync failed with writeCtx: {}", writeCtx, e);
+          throw e;
         }
-        
-        WccAttr preOpAttr = latestAttr.getWccAttr();
-        WccData fileWcc = new WccData(preOpAttr, latestAttr);
-        if (writeCtx.getOriginalCount() != WriteCtx.INVALID_ORIGINAL_COUNT) {
-          LOG.warn("Return original count: {} instead of real data count: {}",
-              writeCtx.getOriginalCount(), count);
-          count = writeCtx.getOriginalCount();
-        }
-        WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3_OK,
-            fileWcc, count, stableHow, Nfs3Constant.WRITE_COMMIT_VERF);
-        RpcProgramNfs3.metrics.addWrite(Nfs3Utils.getElapsedTime(writeCtx.startTime));
-        Nfs3Utils.writeChannel(channel, response.serialize(
-            new XDR(), xid, new VerifierNone()), xid);
-      }
-      
-      // Handle the waiting commits without holding any lock
-      processCommits(writeCtx.getOffset() + writeCtx.getCount());
-     
-    } catch (IOException e) {
-      LOG.error("Error writing to fileHandle {} at offset {} and length {}",
-          handle.dumpFileHandle(), offset, count, e);
-      if (!writeCtx.getReplied()) {
-        WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3ERR_IO);
-        Nfs3Utils.writeChannel(channel, response.serialize(
-            new XDR(), xid, new VerifierNone()), xid);
-        // Keep stream open. Either client retries or SteamMonitor closes it.
       }
 
-      LOG.info("Clean up open file context for fileId: {}",
-          latestAttr.getFileId());
-      cleanup();
+      WccAttr preOpAttr = latestAttr.getWccAttr();
+      WccData fileWcc = new WccData(preOpAttr, latestAttr);
+      if (writeCtx.getOriginalCount() != WriteCtx.INVALID_ORIGINAL_COUNT) {
+        LOG.warn("Return original count: {} instead of real data count: {}",
+            writeCtx.getOriginalCount(), count);
+        count = writeCtx.getOriginalCount();
+      }
+      WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3_OK,
+          fileWcc, count, stableHow, Nfs3Constant.WRITE_COMMIT_VERF);
+      RpcProgramNfs3.metrics.addWrite(Nfs3Utils.getElapsedTime(writeCtx.startTime));
+      Nfs3Utils.writeChannel(channel, response.serialize(
+          new XDR(), xid, new VerifierNone()), xid);
     }
   }
 
@@ -1249,6 +1351,7 @@ synchronized void cleanup() {
       LOG.info("Fail pending write: {}, nextOffset={}", key, nextOffset.get());
       
       WriteCtx writeCtx = pendingWrites.remove(key);
+      markNoDump(writeCtx);
       if (!writeCtx.getReplied()) {
         WccData fileWcc = new WccData(preOpAttr, latestAttr);
         WRITE3Response response = new WRITE3Response(Nfs3Status.NFS3ERR_IO,
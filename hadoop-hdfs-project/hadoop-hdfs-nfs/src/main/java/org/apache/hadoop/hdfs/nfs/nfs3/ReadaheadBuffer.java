@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.PositionedReadable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * ReadaheadBuffer serves the sequential reads of one file from a buffer
+ * filled ahead of them with a single positional read.
+ *
+ * NFS clients split a sequential read into many requests of rsize bytes,
+ * several of them in flight at once, so the requests reach the gateway
+ * slightly out of order. A read is considered sequential when it starts
+ * within one buffer size of where the previous read ended. Other reads go
+ * directly to the input stream, as before.
+ *
+ * The gateway only appends to files, so the buffered data stays valid. A
+ * read past the end of the buffered data refills the buffer, which makes
+ * data appended since the buffer was filled visible.
+ *
+ * The buffer is filled without holding the lock of the ReadaheadBuffer, so
+ * the other reads of the file aren't blocked by the fill. They go directly
+ * to the input stream until it is done.
+ */
+class ReadaheadBuffer {
+  private final byte[] buffer;
+  /** Offset in the file of the first byte of the buffer */
+  private long bufferOffset = 0;
+  /** Number of valid bytes in the buffer */
+  private int bufferLength = 0;
+  /** End offset of the last read, -1 before the first read */
+  private long lastReadEnd;
+  /** True while a read fills the buffer */
+  private boolean filling = false;
+
+  ReadaheadBuffer(int size) {
+    this(size, -1);
+  }
+
+  /**
+   * @param lastReadEnd end offset of the last read of the file, -1 if none
+   */
+  ReadaheadBuffer(int size, long lastReadEnd) {
+    Preconditions.checkArgument(size > 0, "Invalid readahead size: %s", size);
+    this.buffer = new byte[size];
+    this.lastReadEnd = lastReadEnd;
+  }
+
+  /**
+   * Read up to count bytes of the file at the given offset.
+   *
+   * @param in the input stream of the file
+   * @return the number of bytes read, -1 if offset is at or past the end of
+   *         the file
+   */
+  int read(PositionedReadable in, long offset, byte[] data, int count)
+      throws IOException {
+    boolean fill;
+    synchronized (this) {
+      boolean sequential = lastReadEnd >= 0
+          && Math.abs(offset - lastReadEnd) <= buffer.length;
+      lastReadEnd = offset + count;
+
+      if (isBuffered(offset, count)) {
+        return copy(offset, data, count);
+      }
+      fill = sequential && count < buffer.length && !filling;
+      if (fill) {
+        // Nothing reads the buffer until the fill is done
+        filling = true;
+        bufferLength = 0;
+      }
+    }
+    if (!fill) {
+      return in.read(offset, data, 0, count);
+    }
+
+    boolean filled = false;
+    try {
+      int length = fill(in, offset);
+      synchronized (this) {
+        bufferOffset = offset;
+        bufferLength = length;
+        filling = false;
+        filled = true;
+        return copy(offset, data, count);
+      }
+    } finally {
+      if (!filled) {
+        synchronized (this) {
+          filling = false;
+        }
+      }
+    }
+  }
+
+  private boolean isBuffered(long offset, int count) {
+    return offset >= bufferOffset
+        && offset + count <= bufferOffset + bufferLength;
+  }
+
+  private int copy(long offset, byte[] data, int count) {
+    int start = (int) (offset - bufferOffset);
+    int n = Math.min(count, bufferLength - start);
+    if (n <= 0) {
+      return -1;
+    }
+    System.arraycopy(buffer, start, data, 0, n);
+    return n;
+  }
+
+  /**
+   * Fill the buffer with the data of the file from the given offset.
+   *
+   * @return the number of bytes read into the buffer
+   */
+  private int fill(PositionedReadable in, long offset) throws IOException {
+    int length = 0;
+    while (length < buffer.length) {
+      int n = in.read(offset + length, buffer, length,
+          buffer.length - length);
+      if (n <= 0) {
+        break;
+      }
+      length += n;
+    }
+    return length;
+  }
+
+  int getSize() {
+    return buffer.length;
+  }
+
+  @VisibleForTesting
+  synchronized long getBufferOffset() {
+    return bufferOffset;
+  }
+}
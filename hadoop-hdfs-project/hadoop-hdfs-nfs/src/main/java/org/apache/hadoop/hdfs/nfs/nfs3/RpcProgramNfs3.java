@@ -150,6 +150,7 @@ public class RpcProgramNfs3 extends RpcProgram implements Nfs3Interface {
 
   private final NfsConfiguration config;
   private final WriteManager writeManager;
+  private final FileAttrCache attrCache;
   private final IdMappingServiceProvider iug;
   private final DFSClientCache clientCache;
 
@@ -185,7 +186,8 @@ public RpcProgramNfs3(NfsConfiguration config, DatagramSocket registrationSocket
         NfsConfigKeys.AIX_COMPAT_MODE_KEY,
         NfsConfigKeys.AIX_COMPAT_MODE_DEFAULT);
     exports = NfsExports.getInstance(config);
-    writeManager = new WriteManager(iug, config, aixCompatMode);
+    attrCache = new FileAttrCache(config);
+    writeManager = new WriteManager(iug, config, aixCompatMode, attrCache);
     clientCache = new DFSClientCache(config);
     replication = (short) config.getInt(DFSConfigKeys.DFS_REPLICATION_KEY,
         DFSConfigKeys.DFS_REPLICATION_DEFAULT);
@@ -460,7 +462,11 @@ SETATTR3Response setattr(XDR xdr, SecurityHandler securityHandler,
             preOpWcc, preOpAttr));
       }
 
-      setattrInternal(dfsClient, fileIdPath, request.getAttr(), true);
+      try {
+        setattrInternal(dfsClient, fileIdPath, request.getAttr(), true);
+      } finally {
+        attrCache.invalidate(handle);
+      }
       Nfs3FileAttributes postOpAttr = Nfs3Utils.getFileAttr(dfsClient,
           fileIdPath, iug);
       WccData wccData = new WccData(preOpWcc, postOpAttr);
@@ -791,8 +797,14 @@ READ3Response read(XDR xdr, SecurityHandler securityHandler,
             return new READ3Response(Nfs3Status.NFS3ERR_ACCES);
         }
 
+        ReadaheadBuffer readahead = clientCache.getReadaheadBuffer(userName,
+            Nfs3Utils.getFileIdPath(handle), namenodeId, offset, buffSize);
         try {
-          readCount = fis.read(offset, readbuffer, 0, count);
+          if (readahead == null) {
+            readCount = fis.read(offset, readbuffer, 0, buffSize);
+          } else {
+            readCount = readahead.read(fis, offset, readbuffer, buffSize);
+          }
           metrics.incrBytesRead(readCount);
         } catch (IOException e) {
           // TODO: A cleaner way is to throw a new type of exception
@@ -807,8 +819,16 @@ READ3Response read(XDR xdr, SecurityHandler securityHandler,
         }
       }
 
-      attrs = Nfs3Utils.getFileAttr(dfsClient, Nfs3Utils.getFileIdPath(handle),
-          iug);
+      // The cached status is good enough for the attributes, but not to tell
+      // the client it reached the end of a file which may have grown.
+      String fileIdPath = Nfs3Utils.getFileIdPath(handle);
+      HdfsFileStatus fstat = attrCache.getFileStatus(dfsClient, fileIdPath);
+      if (fstat == null
+          || offset + Math.max(readCount, 0) >= fstat.getLen()) {
+        attrs = Nfs3Utils.getFileAttr(dfsClient, fileIdPath, iug);
+      } else {
+        attrs = Nfs3Utils.getNfs3FileAttrFromFileStatus(fstat, iug);
+      }
       if (readCount < count) {
         LOG.info("Partial read. Asked offset: {} count: {} and read back: {} " +
                 "file size: {}", offset, count, readCount, attrs.getSize());
@@ -1002,6 +1022,7 @@ preOpDirAttr, new WccData(Nfs3Utils.getWccAttr(preOpDirAttr),
         }
         setattrInternal(dfsClient, fileIdPath, setAttr3, false);
       }
+      attrCache.invalidate(dirHandle, fileName);
 
       postOpObjAttr = Nfs3Utils.getFileAttr(dfsClient, fileIdPath, iug);
       dirWcc = Nfs3Utils.createWccData(Nfs3Utils.getWccAttr(preOpDirAttr),
@@ -1024,6 +1045,7 @@ preOpDirAttr, new WccData(Nfs3Utils.getWccAttr(preOpDirAttr),
 
     } catch (IOException e) {
       LOG.error("Exception", e);
+      attrCache.invalidate(dirHandle, fileName);
       if (fos != null) {
         try {
           fos.close();
@@ -1112,7 +1134,9 @@ MKDIR3Response mkdir(XDR xdr, SecurityHandler securityHandler,
           SetAttrField.MODE) ? new FsPermission((short) setAttr3.getMode())
           : FsPermission.getDefault().applyUMask(umask);
 
-      if (!dfsClient.mkdirs(fileIdPath, permission, false)) {
+      boolean created = dfsClient.mkdirs(fileIdPath, permission, false);
+      attrCache.invalidate(dirHandle, fileName);
+      if (!created) {
         WccData dirWcc = Nfs3Utils.createWccData(
             Nfs3Utils.getWccAttr(preOpDirAttr), dfsClient, dirFileIdPath, iug);
         return new MKDIR3Response(Nfs3Status.NFS3ERR_IO, null, null, dirWcc);
@@ -1212,6 +1236,7 @@ REMOVE3Response remove(XDR xdr, SecurityHandler securityHandler,
       }
 
       boolean result = dfsClient.delete(fileIdPath, false);
+      attrCache.invalidate(dirHandle, fileName);
       WccData dirWcc = Nfs3Utils.createWccData(
           Nfs3Utils.getWccAttr(preOpDirAttr), dfsClient, dirFileIdPath, iug);
 
@@ -1298,6 +1323,7 @@ RMDIR3Response rmdir(XDR xdr, SecurityHandler securityHandler,
       }
 
       boolean result = dfsClient.delete(fileIdPath, false);
+      attrCache.invalidate(dirHandle, fileName);
       WccData dirWcc = Nfs3Utils.createWccData(
           Nfs3Utils.getWccAttr(preOpDirAttr), dfsClient, dirFileIdPath, iug);
       if (!result) {
@@ -1398,6 +1424,8 @@ RENAME3Response rename(XDR xdr, SecurityHandler securityHandler,
       String dst = toDirFileIdPath + "/" + toName;
 
       dfsClient.rename(src, dst, Options.Rename.NONE);
+      attrCache.invalidate(fromHandle, fromName);
+      attrCache.invalidate(toHandle, toName);
 
       // Assemble the reply
       fromDirWcc = Nfs3Utils.createWccData(Nfs3Utils.getWccAttr(fromPreOpAttr),
@@ -1472,6 +1500,7 @@ SYMLINK3Response symlink(XDR xdr, SecurityHandler securityHandler,
       dirWcc.setPreOpAttr(preOpAttr);
 
       dfsClient.createSymlink(symData, linkIdPath, false);
+      attrCache.invalidate(dirHandle, name);
       // Set symlink attr is considered as to change the attr of the target
       // file. So no need to set symlink attr here after it's created.
 
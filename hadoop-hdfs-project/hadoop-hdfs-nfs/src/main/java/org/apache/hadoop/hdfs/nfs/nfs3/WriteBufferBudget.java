@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfigKeys;
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfiguration;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * WriteBufferBudget accounts the out of order writes held in memory by all
+ * the {@link OpenFileCtx} of the gateway. Each file dumps its writes once it
+ * holds more than its own limit, but many files each below their limit can
+ * still exhaust the heap together. The files consult the shared budget to
+ * dump, or reject writes, before that happens.
+ */
+class WriteBufferBudget {
+  private final long fileLimit;
+  private final long totalLimit;
+  private final AtomicLong used = new AtomicLong(0);
+
+  WriteBufferBudget(NfsConfiguration config) {
+    this(config.getLong(NfsConfigKeys.NFS_WRITE_REORDER_FILE_MEMORY_KEY,
+        NfsConfigKeys.NFS_WRITE_REORDER_FILE_MEMORY_DEFAULT),
+        config.getLong(NfsConfigKeys.NFS_WRITE_REORDER_TOTAL_MEMORY_KEY,
+            NfsConfigKeys.NFS_WRITE_REORDER_TOTAL_MEMORY_DEFAULT));
+  }
+
+  /**
+   * @param fileLimit bytes of out of order writes a file may hold in memory
+   * @param totalLimit bytes of out of order writes all the files may hold in
+   *                   memory, a value of 0 or less means no limit
+   */
+  WriteBufferBudget(long fileLimit, long totalLimit) {
+    Preconditions.checkArgument(fileLimit > 0,
+        "Invalid per file reorder memory: %s", fileLimit);
+    this.fileLimit = fileLimit;
+    this.totalLimit = totalLimit;
+  }
+
+  /** Increase or decrease the memory held by out of order writes */
+  long update(long delta) {
+    return used.addAndGet(delta);
+  }
+
+  /**
+   * @param fileBytes memory held by the out of order writes of one file
+   * @return true if the file should not keep more out of order writes in
+   *         memory
+   */
+  boolean isExceeded(long fileBytes) {
+    if (fileBytes >= fileLimit) {
+      return true;
+    }
+    return fileBytes > 0 && isExhausted();
+  }
+
+  /** @return true if all the files together exceed the total limit */
+  boolean isExhausted() {
+    return totalLimit > 0 && used.get() >= totalLimit;
+  }
+
+  @VisibleForTesting
+  long getUsed() {
+    return used.get();
+  }
+}
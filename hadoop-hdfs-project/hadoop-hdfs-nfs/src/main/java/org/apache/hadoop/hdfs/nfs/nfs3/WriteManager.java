@@ -30,6 +30,7 @@
 import org.apache.hadoop.hdfs.nfs.conf.NfsConfiguration;
 import org.apache.hadoop.hdfs.nfs.nfs3.OpenFileCtx.COMMIT_STATUS;
 import org.apache.hadoop.hdfs.protocol.AlreadyBeingCreatedException;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.nfs.NfsFileType;
 import org.apache.hadoop.nfs.nfs3.FileHandle;
@@ -70,6 +71,12 @@ public class WriteManager {
 
   private final OpenFileCtxCache fileContextCache;
 
+  /** Memory of the out of order writes of all the open files */
+  private final WriteBufferBudget writeBudget;
+
+  /** Recently fetched file attributes */
+  private final FileAttrCache attrCache;
+
   static public class MultipleCachedStreamException extends IOException {
     private static final long serialVersionUID = 1L;
 
@@ -84,6 +91,11 @@ boolean addOpenFileStream(FileHandle h, OpenFileCtx ctx) {
   
   WriteManager(IdMappingServiceProvider iug, final NfsConfiguration config,
       boolean aixCompatMode) {
+    this(iug, config, aixCompatMode, new FileAttrCache(config));
+  }
+
+  WriteManager(IdMappingServiceProvider iug, final NfsConfiguration config,
+      boolean aixCompatMode, FileAttrCache attrCache) {
     this.iug = iug;
     this.config = config;
     this.aixCompatMode = aixCompatMode;
@@ -99,6 +111,8 @@ boolean addOpenFileStream(FileHandle h, OpenFileCtx ctx) {
         NfsConfigKeys.DFS_NFS_MAX_OPEN_FILES_DEFAULT);
     LOG.info("Maximum open streams is "+ maxStreams);
     this.fileContextCache = new OpenFileCtxCache(config, streamTimeout);
+    this.writeBudget = new WriteBufferBudget(config);
+    this.attrCache = attrCache;
   }
 
   void startAsyncDataService() {
@@ -179,10 +193,16 @@ void handleWrite(DFSClient dfsClient, WRITE3Request request, Channel channel,
       }
 
       // Add open stream
-      String writeDumpDir = config.get(NfsConfigKeys.DFS_NFS_FILE_DUMP_DIR_KEY,
-          NfsConfigKeys.DFS_NFS_FILE_DUMP_DIR_DEFAULT);
-      openFileCtx = new OpenFileCtx(fos, latestAttr, writeDumpDir + "/"
-          + fileHandle.getFileId(), dfsClient, iug, aixCompatMode, config);
+      String dumpFilePath = null;
+      if (config.getBoolean(NfsConfigKeys.DFS_NFS_FILE_DUMP_KEY,
+          NfsConfigKeys.DFS_NFS_FILE_DUMP_DEFAULT)) {
+        String writeDumpDir = config.get(
+            NfsConfigKeys.DFS_NFS_FILE_DUMP_DIR_KEY,
+            NfsConfigKeys.DFS_NFS_FILE_DUMP_DIR_DEFAULT);
+        dumpFilePath = writeDumpDir + "/" + fileHandle.getFileId();
+      }
+      openFileCtx = new OpenFileCtx(fos, latestAttr, dumpFilePath, dfsClient,
+          iug, aixCompatMode, config, writeBudget);
 
       if (!addOpenFileStream(fileHandle, openFileCtx)) {
         LOG.info("Can't add new stream. Close it. Tell client to retry.");
@@ -307,6 +327,7 @@ void handleCommit(DFSClient dfsClient, FileHandle fileHandle,
     
     // Send out the response
     Nfs3FileAttributes postOpAttr = null;
+    attrCache.invalidate(fileHandle);
     try {
       postOpAttr =
           getFileAttr(dfsClient, new FileHandle(preOpAttr.getFileId(),
@@ -323,12 +344,15 @@ void handleCommit(DFSClient dfsClient, FileHandle fileHandle,
   }
 
   /**
-   * If the file is in cache, update the size based on the cached data size
+   * If the file is in cache, update the size based on the cached data size.
+   * The attributes may come from the {@link FileAttrCache}.
    */
   Nfs3FileAttributes getFileAttr(DFSClient client, FileHandle fileHandle,
       IdMappingServiceProvider iug) throws IOException {
     String fileIdPath = Nfs3Utils.getFileIdPath(fileHandle);
-    Nfs3FileAttributes attr = Nfs3Utils.getFileAttr(client, fileIdPath, iug);
+    HdfsFileStatus fstat = attrCache.getFileStatus(client, fileIdPath);
+    Nfs3FileAttributes attr = fstat == null ? null
+        : Nfs3Utils.getNfs3FileAttrFromFileStatus(fstat, iug);
     if (attr != null) {
       OpenFileCtx openFileCtx = fileContextCache.get(fileHandle);
       if (openFileCtx != null) {
@@ -341,8 +365,10 @@ Nfs3FileAttributes getFileAttr(DFSClient client, FileHandle fileHandle,
 
   Nfs3FileAttributes getFileAttr(DFSClient client, FileHandle dirHandle,
       String fileName, int namenodeId) throws IOException {
-    String fileIdPath = Nfs3Utils.getFileIdPath(dirHandle) + "/" + fileName;
-    Nfs3FileAttributes attr = Nfs3Utils.getFileAttr(client, fileIdPath, iug);
+    HdfsFileStatus fstat = attrCache.getFileStatus(client,
+        Nfs3Utils.getFileIdPath(dirHandle), fileName);
+    Nfs3FileAttributes attr = fstat == null ? null
+        : Nfs3Utils.getNfs3FileAttrFromFileStatus(fstat, iug);
 
     if ((attr != null) && (attr.getType() == NfsFileType.NFSREG.toValue())) {
       OpenFileCtx openFileCtx = fileContextCache.get(new FileHandle(attr
@@ -356,6 +382,10 @@ Nfs3FileAttributes getFileAttr(DFSClient client, FileHandle dirHandle,
     return attr;
   }
 
+  FileAttrCache getAttrCache() {
+    return attrCache;
+  }
+
   @VisibleForTesting
   OpenFileCtxCache getOpenFileCtxCache() {
     return this.fileContextCache;
@@ -21,6 +21,9 @@
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -28,6 +31,7 @@
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfigKeys;
 import org.apache.hadoop.hdfs.nfs.conf.NfsConfiguration;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.junit.Test;
@@ -100,6 +104,36 @@ public void testGetUserGroupInformation() throws IOException {
             is(UserGroupInformation.AuthenticationMethod.PROXY));
   }
 
+  @Test
+  public void testReadaheadBufferAllocation() throws IOException {
+    NfsConfiguration conf = new NfsConfiguration();
+    conf.set(FileSystem.FS_DEFAULT_NAME_KEY, "hdfs://localhost");
+    conf.setInt(NfsConfigKeys.NFS_READ_READAHEAD_BYTES_KEY, 1000);
+    DFSClientCache cache = new DFSClientCache(conf);
+    int namenodeId = Nfs3Utils.getNamenodeId(conf);
+
+    // Random reads don't get a buffer
+    assertNull(cache.getReadaheadBuffer("user", "/a", namenodeId, 0, 100));
+    assertNull(
+        cache.getReadaheadBuffer("user", "/a", namenodeId, 50000, 100));
+    assertNull(
+        cache.getReadaheadBuffer("user", "/a", namenodeId, 20000, 100));
+    // Nor do reads as large as the buffer
+    assertNull(
+        cache.getReadaheadBuffer("user", "/a", namenodeId, 20100, 1000));
+
+    // A sequential read gets one, which the following reads keep using
+    ReadaheadBuffer buffer =
+        cache.getReadaheadBuffer("user", "/a", namenodeId, 21100, 100);
+    assertNotNull(buffer);
+    assertSame(buffer,
+        cache.getReadaheadBuffer("user", "/a", namenodeId, 0, 100));
+    assertNull(cache.getReadaheadBuffer("user", "/b", namenodeId, 0, 100));
+
+    cache.invalidateDfsInputStream("user", "/a", namenodeId);
+    assertNull(cache.getReadaheadBuffer("user", "/a", namenodeId, 100, 100));
+  }
+
   private static boolean isDfsClientClose(DFSClient c) {
     try {
       c.exists("");
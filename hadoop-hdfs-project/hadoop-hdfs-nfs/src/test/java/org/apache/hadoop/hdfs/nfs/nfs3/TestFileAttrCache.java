@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.nfs.nfs3.FileHandle;
+import org.junit.Test;
+
+public class TestFileAttrCache {
+  private static HdfsFileStatus status(long fileId, long length) {
+    return new HdfsFileStatus.Builder().fileId(fileId).length(length).build();
+  }
+
+  @Test
+  public void testFileStatus() throws IOException {
+    DFSClient client = mock(DFSClient.class);
+    String path = Nfs3Utils.getFileIdPath(1);
+    when(client.getFileLinkInfo(path)).thenReturn(status(1, 10));
+    FileAttrCache cache = new FileAttrCache(60000, 100);
+
+    assertEquals(10, cache.getFileStatus(client, path).getLen());
+    assertEquals(10, cache.getFileStatus(client, path).getLen());
+    verify(client, times(1)).getFileLinkInfo(path);
+
+    // Another user gets its own status from the NameNode
+    DFSClient other = mock(DFSClient.class);
+    assertNull(cache.getFileStatus(other, path));
+    verify(other, times(1)).getFileLinkInfo(path);
+
+    when(client.getFileLinkInfo(path)).thenReturn(status(1, 20));
+    cache.invalidate(new FileHandle(1));
+    assertEquals(20, cache.getFileStatus(client, path).getLen());
+    verify(client, times(2)).getFileLinkInfo(path);
+  }
+
+  @Test
+  public void testLookup() throws IOException {
+    DFSClient client = mock(DFSClient.class);
+    String dirPath = Nfs3Utils.getFileIdPath(1);
+    String path = dirPath + "/a";
+    String fileIdPath = Nfs3Utils.getFileIdPath(2);
+    when(client.getFileLinkInfo(path)).thenReturn(status(2, 10));
+    FileAttrCache cache = new FileAttrCache(60000, 100);
+
+    assertEquals(2, cache.getFileStatus(client, dirPath, "a").getFileId());
+    assertEquals(2, cache.getFileStatus(client, dirPath, "a").getFileId());
+    // The lookup also cached the status of the file id
+    assertEquals(10, cache.getFileStatus(client, fileIdPath).getLen());
+    verify(client, times(1)).getFileLinkInfo(path);
+    verify(client, times(0)).getFileLinkInfo(fileIdPath);
+
+    // Renaming another file over the name changes the file it points to
+    when(client.getFileLinkInfo(path)).thenReturn(status(3, 30));
+    cache.invalidate(new FileHandle(1), "a");
+    assertEquals(3, cache.getFileStatus(client, dirPath, "a").getFileId());
+    verify(client, times(2)).getFileLinkInfo(path);
+    // and the file which had the name is fetched again
+    cache.getFileStatus(client, fileIdPath);
+    verify(client, times(1)).getFileLinkInfo(fileIdPath);
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    DFSClient client = mock(DFSClient.class);
+    String path = Nfs3Utils.getFileIdPath(1);
+    when(client.getFileLinkInfo(path)).thenReturn(status(1, 10));
+    FileAttrCache cache = new FileAttrCache(0, 100);
+
+    cache.getFileStatus(client, path);
+    cache.getFileStatus(client, path);
+    verify(client, times(2)).getFileLinkInfo(path);
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.junit.Test;
+
+public class TestReadaheadBuffer {
+  /** A file in memory which counts the reads reaching it */
+  static class CountingFile implements PositionedReadable {
+    private final byte[] data;
+    private int reads = 0;
+
+    CountingFile(int length) {
+      data = new byte[length];
+      for (int i = 0; i < length; i++) {
+        data[i] = (byte) i;
+      }
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) {
+      reads++;
+      if (position >= data.length) {
+        return -1;
+      }
+      int n = (int) Math.min(length, data.length - position);
+      System.arraycopy(data, (int) position, buffer, offset, n);
+      return n;
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset,
+        int length) throws IOException {
+      if (read(position, buffer, offset, length) < length) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer) throws IOException {
+      readFully(position, buffer, 0, buffer.length);
+    }
+
+    byte[] range(long offset, int count) {
+      return Arrays.copyOfRange(data, (int) offset, (int) offset + count);
+    }
+  }
+
+  private static void assertRead(ReadaheadBuffer readahead, CountingFile file,
+      long offset, int count) throws IOException {
+    byte[] data = new byte[count];
+    assertEquals(count, readahead.read(file, offset, data, count));
+    assertArrayEquals(file.range(offset, count), data);
+  }
+
+  @Test
+  public void testSequentialReads() throws IOException {
+    CountingFile file = new CountingFile(1000);
+    ReadaheadBuffer readahead = new ReadaheadBuffer(100);
+
+    // The first read can't tell whether the reads are sequential
+    assertRead(readahead, file, 0, 10);
+    assertEquals(1, file.reads);
+
+    // The second one fills the buffer, which serves the next ones
+    for (int offset = 10; offset < 110; offset += 10) {
+      assertRead(readahead, file, offset, 10);
+    }
+    assertEquals(2, file.reads);
+    assertEquals(10, readahead.getBufferOffset());
+
+    // Slightly out of order reads are still served from the buffer
+    assertRead(readahead, file, 120, 10);
+    assertEquals(3, file.reads);
+    assertEquals(120, readahead.getBufferOffset());
+    assertRead(readahead, file, 140, 10);
+    assertRead(readahead, file, 130, 10);
+    assertEquals(3, file.reads);
+  }
+
+  @Test
+  public void testRandomReads() throws IOException {
+    CountingFile file = new CountingFile(10000);
+    ReadaheadBuffer readahead = new ReadaheadBuffer(100);
+    assertRead(readahead, file, 0, 10);
+    assertRead(readahead, file, 5000, 10);
+    assertRead(readahead, file, 2000, 10);
+    assertEquals(3, file.reads);
+    assertEquals(0, readahead.getBufferOffset());
+
+    // Reads as large as the buffer are never buffered
+    assertRead(readahead, file, 2010, 100);
+    assertEquals(4, file.reads);
+  }
+
+  @Test
+  public void testEndOfFile() throws IOException {
+    CountingFile file = new CountingFile(150);
+    ReadaheadBuffer readahead = new ReadaheadBuffer(100);
+    assertRead(readahead, file, 0, 10);
+    assertRead(readahead, file, 140, 10);
+
+    byte[] data = new byte[10];
+    assertEquals(-1, readahead.read(file, 150, data, 10));
+    assertEquals(5, readahead.read(file, 145, data, 10));
+    assertArrayEquals(file.range(145, 5), Arrays.copyOf(data, 5));
+  }
+
+  @Test
+  public void testKnownLastRead() throws IOException {
+    CountingFile file = new CountingFile(1000);
+    // A buffer created for a sequential read fills at once
+    ReadaheadBuffer readahead = new ReadaheadBuffer(100, 10);
+    assertRead(readahead, file, 10, 10);
+    assertRead(readahead, file, 20, 10);
+    assertEquals(1, file.reads);
+  }
+
+  @Test(timeout = 10000)
+  public void testReadsDuringFill() throws Exception {
+    final CountDownLatch fillStarted = new CountDownLatch(1);
+    final CountDownLatch fillAllowed = new CountDownLatch(1);
+    final CountingFile file = new CountingFile(1000) {
+      @Override
+      public int read(long position, byte[] buffer, int offset, int length) {
+        if (length == 100 && fillStarted.getCount() > 0) {
+          fillStarted.countDown();
+          try {
+            fillAllowed.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.read(position, buffer, offset, length);
+      }
+    };
+    final ReadaheadBuffer readahead = new ReadaheadBuffer(100, 10);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> fill = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          assertRead(readahead, file, 10, 10);
+          return null;
+        }
+      });
+      fillStarted.await();
+
+      // The other reads aren't blocked by the fill, they go to the file
+      assertRead(readahead, file, 20, 10);
+      assertRead(readahead, file, 30, 10);
+      assertEquals(2, file.reads);
+
+      fillAllowed.countDown();
+      fill.get();
+      assertEquals(10, readahead.getBufferOffset());
+      assertRead(readahead, file, 40, 10);
+      assertEquals(3, file.reads);
+    } finally {
+      fillAllowed.countDown();
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.nfs.nfs3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfigKeys;
+import org.apache.hadoop.hdfs.nfs.conf.NfsConfiguration;
+import org.junit.Test;
+
+public class TestWriteBufferBudget {
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFileLimit() {
+    new WriteBufferBudget(0, 100);
+  }
+
+  @Test
+  public void testFileLimit() {
+    WriteBufferBudget budget = new WriteBufferBudget(10, 100);
+    assertFalse(budget.isExceeded(0));
+    assertFalse(budget.isExceeded(9));
+    assertTrue(budget.isExceeded(10));
+  }
+
+  @Test
+  public void testTotalLimit() {
+    WriteBufferBudget budget = new WriteBufferBudget(10, 20);
+    assertEquals(8, budget.update(8));
+    assertEquals(16, budget.update(8));
+    assertFalse(budget.isExhausted());
+    assertFalse(budget.isExceeded(8));
+
+    assertEquals(24, budget.update(8));
+    assertTrue(budget.isExhausted());
+    // Every file holding data in memory should give it up
+    assertTrue(budget.isExceeded(1));
+    // A file without data in memory has nothing to dump
+    assertFalse(budget.isExceeded(0));
+
+    assertEquals(16, budget.update(-8));
+    assertFalse(budget.isExhausted());
+    assertFalse(budget.isExceeded(8));
+  }
+
+  @Test
+  public void testNoTotalLimit() {
+    NfsConfiguration config = new NfsConfiguration();
+    config.setLong(NfsConfigKeys.NFS_WRITE_REORDER_TOTAL_MEMORY_KEY, 0);
+    WriteBufferBudget budget = new WriteBufferBudget(config);
+    budget.update(Long.MAX_VALUE / 2);
+    assertFalse(budget.isExhausted());
+    assertFalse(budget.isExceeded(1));
+    assertTrue(budget.isExceeded(
+        NfsConfigKeys.NFS_WRITE_REORDER_FILE_MEMORY_DEFAULT));
+  }
+}
@@ -267,7 +267,84 @@ public void testCheckCommitLargeFileUpload() throws IOException {
     Assert.assertTrue(ret == COMMIT_STATUS.COMMIT_FINISHED);
     
   }
+
+  @Test
+  // Commits of non-sequential writes make the client wait while the out of
+  // order writes of all the files exceed their memory limit.
+  public void testCheckCommitLargeFileUploadMemoryExhausted()
+      throws IOException {
+    DFSClient dfsClient = Mockito.mock(DFSClient.class);
+    Nfs3FileAttributes attr = new Nfs3FileAttributes();
+    HdfsDataOutputStream fos = Mockito.mock(HdfsDataOutputStream.class);
+    Mockito.when(fos.getPos()).thenReturn((long) 8);
+
+    NfsConfiguration conf = new NfsConfiguration();
+    conf.setBoolean(NfsConfigKeys.LARGE_FILE_UPLOAD, true);
+    WriteBufferBudget budget = new WriteBufferBudget(10, 20);
+    OpenFileCtx ctx = new OpenFileCtx(fos, attr, "/dumpFilePath", dfsClient,
+        new ShellBasedIdMapping(conf), false, conf, budget);
+    ctx.setNextOffsetForTest(10);
+    ctx.getPendingWritesForTest().put(new OffsetRange(12, 15),
+        new WriteCtx(null, 0, 0, 0, null, null, null, 0, false, null));
+
+    Channel ch = Mockito.mock(Channel.class);
+    COMMIT_STATUS ret = ctx.checkCommitInternal(16, ch, 1, attr, false);
+    assertEquals(COMMIT_STATUS.COMMIT_SPECIAL_SUCCESS, ret);
+
+    // Other files hold the whole memory budget
+    budget.update(20);
+    ret = ctx.checkCommitInternal(16, ch, 1, attr, false);
+    assertEquals(COMMIT_STATUS.COMMIT_SPECIAL_WAIT, ret);
+    assertEquals(1, ctx.getPendingCommitsForTest().size());
+
+    budget.update(-20);
+    ret = ctx.checkCommitInternal(16, ch, 1, attr, false);
+    assertEquals(COMMIT_STATUS.COMMIT_SPECIAL_SUCCESS, ret);
+  }
   
+  @Test
+  // A failed write back releases the memory of the out of order writes of its
+  // batch, which were already removed from the pending writes.
+  public void testFailedWriteBackReleasesMemory() throws IOException {
+    DFSClient dfsClient = Mockito.mock(DFSClient.class);
+    Nfs3FileAttributes attr = new Nfs3FileAttributes();
+    HdfsDataOutputStream fos = Mockito.mock(HdfsDataOutputStream.class);
+    Mockito.doThrow(new IOException("Injected write failure")).when(fos)
+        .write(Mockito.any(byte[].class), Mockito.anyInt(), Mockito.anyInt());
+    AsyncDataService asyncDataService = Mockito.mock(AsyncDataService.class);
+    Channel ch = Mockito.mock(Channel.class);
+
+    NfsConfiguration conf = new NfsConfiguration();
+    ShellBasedIdMapping iug = new ShellBasedIdMapping(conf);
+    WriteBufferBudget budget = new WriteBufferBudget(1024, 0);
+    OpenFileCtx ctx = new OpenFileCtx(fos, attr, "/dumpFilePath", dfsClient,
+        iug, false, conf, budget);
+    FileHandle handle = new FileHandle(1);
+
+    Nfs3Metrics metrics = RpcProgramNfs3.metrics;
+    RpcProgramNfs3.metrics = Mockito.mock(Nfs3Metrics.class);
+    try {
+      // An out of order write is kept in memory
+      ctx.receivedNewWrite(dfsClient, new WRITE3Request(handle, 10, 10,
+          WriteStableHow.UNSTABLE, ByteBuffer.wrap(new byte[10])), ch, 1,
+          asyncDataService, iug);
+      assertEquals(10, budget.getUsed());
+
+      // The sequential write starts the write back of both writes, which
+      // fails
+      ctx.receivedNewWrite(dfsClient, new WRITE3Request(handle, 0, 10,
+          WriteStableHow.UNSTABLE, ByteBuffer.wrap(new byte[10])), ch, 2,
+          asyncDataService, iug);
+      Mockito.verify(asyncDataService).execute(Mockito.any(Runnable.class));
+      ctx.executeWriteBack();
+    } finally {
+      RpcProgramNfs3.metrics = metrics;
+    }
+
+    assertTrue(ctx.getPendingWritesForTest().isEmpty());
+    assertEquals(0, budget.getUsed());
+  }
+
   @Test
   public void testCheckCommitAixCompatMode() throws IOException {
     DFSClient dfsClient = Mockito.mock(DFSClient.class);
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.protocolPB;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBlockLocationsRequestProto;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetBlockLocationsResponseProto;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetFileInfoRequestProto;
+import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.GetFileInfoResponseProto;
+import org.apache.hadoop.hdfs.server.federation.router.RouterRpcServer;
+import org.apache.hadoop.ipc.ProtobufRpcEngine;
+import org.apache.hadoop.ipc.ProtobufRpcEngineCallback;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.RpcController;
+import com.google.protobuf.ServiceException;
+
+/**
+ * This class is used on the server side of the Router. Calls come across the
+ * wire for the protocol {@link ClientNamenodeProtocolPB}. When the Router
+ * sends the calls to the Namenodes asynchronously, the responses of the
+ * supported calls are deferred until the Namenodes respond, so the handlers
+ * are not blocked in the meantime. The other calls are translated and
+ * processed like in {@link ClientNamenodeProtocolServerSideTranslatorPB}.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Stable
+public class RouterClientProtocolServerSideTranslatorPB
+    extends ClientNamenodeProtocolServerSideTranslatorPB {
+
+  private final RouterRpcServer server;
+
+  /**
+   * Constructor.
+   * @param server The Router RPC server handling the calls.
+   * @throws IOException
+   */
+  public RouterClientProtocolServerSideTranslatorPB(RouterRpcServer server)
+      throws IOException {
+    super(server);
+    this.server = server;
+  }
+
+  @Override
+  public GetBlockLocationsResponseProto getBlockLocations(
+      RpcController controller, GetBlockLocationsRequestProto req)
+      throws ServiceException {
+    if (!isAsync()) {
+      return super.getBlockLocations(controller, req);
+    }
+    try {
+      CompletableFuture<LocatedBlocks> future = server.getBlockLocationsAsync(
+          req.getSrc(), req.getOffset(), req.getLength());
+      return respond(future, b -> {
+        GetBlockLocationsResponseProto.Builder builder =
+            GetBlockLocationsResponseProto.newBuilder();
+        if (b != null) {
+          builder.setLocations(PBHelperClient.convert(b));
+        }
+        return builder.build();
+      });
+    } catch (IOException e) {
+      throw new ServiceException(e);
+    }
+  }
+
+  @Override
+  public GetFileInfoResponseProto getFileInfo(RpcController controller,
+      GetFileInfoRequestProto req) throws ServiceException {
+    if (!isAsync()) {
+      return super.getFileInfo(controller, req);
+    }
+    try {
+      CompletableFuture<HdfsFileStatus> future =
+          server.getFileInfoAsync(req.getSrc());
+      return respond(future, result -> {
+        GetFileInfoResponseProto.Builder builder =
+            GetFileInfoResponseProto.newBuilder();
+        if (result != null) {
+          builder.setFs(PBHelperClient.convert(result));
+        }
+        return builder.build();
+      });
+    } catch (IOException e) {
+      throw new ServiceException(e);
+    }
+  }
+
+  private boolean isAsync() {
+    return server.getRPCClient().isAsyncEnabled();
+  }
+
+  /**
+   * Respond to the current call with the result of a future. If the future
+   * is already completed, the response is returned. Otherwise, the response
+   * of the call is deferred until the future completes and null is returned.
+   *
+   * @param future Future with the result of the call.
+   * @param converter Converts the result into the response.
+   * @return The response, null if deferred.
+   * @throws IOException If the call failed.
+   */
+  private static <T, R extends Message> R respond(CompletableFuture<T> future,
+      Function<T, R> converter) throws IOException {
+    if (future.isDone()) {
+      try {
+        return converter.apply(future.join());
+      } catch (CompletionException | CancellationException e) {
+        throw toIOException(e);
+      }
+    }
+    final ProtobufRpcEngineCallback callback =
+        ProtobufRpcEngine.Server.registerForDeferredResponse();
+    future.whenComplete((result, t) -> {
+      if (t != null) {
+        callback.error(toIOException(t));
+        return;
+      }
+      R response;
+      try {
+        response = converter.apply(result);
+      } catch (RuntimeException e) {
+        callback.error(e);
+        return;
+      }
+      callback.setResponse(response);
+    });
+    return null;
+  }
+
+  private static IOException toIOException(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      t = t.getCause();
+    }
+    if (t instanceof IOException) {
+      return (IOException) t;
+    }
+    return new IOException(t);
+  }
+}
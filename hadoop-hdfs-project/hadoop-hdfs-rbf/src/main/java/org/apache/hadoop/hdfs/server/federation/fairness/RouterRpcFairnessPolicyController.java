@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.fairness;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * Interface to define the policy to share the capacity of the Router between
+ * the nameservices. A permit is acquired before proxying a call to a
+ * nameservice and released once the Namenode replied.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public interface RouterRpcFairnessPolicyController {
+
+  /**
+   * Request a permit to proxy a call to a nameservice. It may wait for a
+   * bounded time for another call to release its permit.
+   *
+   * @param nsId Nameservice identifier.
+   * @return If the call can be proxied, false if it should be rejected.
+   */
+  boolean acquirePermit(String nsId);
+
+  /**
+   * Release a permit acquired with {@link #acquirePermit}.
+   *
+   * @param nsId Nameservice identifier.
+   */
+  void releasePermit(String nsId);
+
+  /**
+   * Stop the controller and release its resources.
+   */
+  void shutdown();
+
+  /**
+   * Get the permits still available for each nameservice.
+   *
+   * @return JSON string with the available permits per nameservice.
+   */
+  String getAvailableHandlerOnPerNs();
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.fairness;
+
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT_DEFAULT;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIR_HANDLER_COUNT_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIR_HANDLER_WEIGHT_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_DEFAULT;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSUtilClient;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.eclipse.jetty.util.ajax.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Static policy which assigns a fixed share of the Router handlers to each of
+ * the nameservices in {@link DFSUtilClient#getNameServiceIds}. A nameservice
+ * gets the handlers set in
+ * dfs.federation.router.fairness.handler.count.&lt;nsId&gt;, the other
+ * nameservices split the remaining handlers in proportion to
+ * dfs.federation.router.fairness.handler.weight.&lt;nsId&gt; (1 by default).
+ * Calls to a nameservice without permits left wait for
+ * dfs.federation.router.fairness.acquire.timeout and are then rejected.
+ * Calls to nameservices which are not configured are not limited.
+ */
+public class StaticRouterRpcFairnessPolicyController implements
+    RouterRpcFairnessPolicyController {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(StaticRouterRpcFairnessPolicyController.class);
+
+  /** Permits per nameservice. */
+  private final Map<String, Semaphore> permits = new TreeMap<>();
+  /** Milliseconds to wait for a permit. */
+  private final long acquireTimeoutMs;
+
+  public StaticRouterRpcFairnessPolicyController(Configuration conf) {
+    this.acquireTimeoutMs = conf.getTimeDuration(
+        DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT,
+        DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT_DEFAULT, TimeUnit.MILLISECONDS);
+    int handlerCount = conf.getInt(DFS_ROUTER_HANDLER_COUNT_KEY,
+        DFS_ROUTER_HANDLER_COUNT_DEFAULT);
+
+    List<String> nsIds = new ArrayList<>(DFSUtilClient.getNameServiceIds(conf));
+    Collections.sort(nsIds);
+    if (nsIds.isEmpty()) {
+      LOG.warn("No nameservices configured in {}, calls are not limited",
+          HdfsClientConfigKeys.DFS_NAMESERVICES);
+      return;
+    }
+
+    // First the nameservices with a fixed number of handlers
+    int remaining = handlerCount;
+    Map<String, Integer> weights = new TreeMap<>();
+    int totalWeight = 0;
+    for (String nsId : nsIds) {
+      int count = conf.getInt(DFS_ROUTER_FAIR_HANDLER_COUNT_KEY_PREFIX + nsId,
+          0);
+      if (count > 0) {
+        this.permits.put(nsId, new Semaphore(count));
+        remaining -= count;
+      } else {
+        int weight = conf.getInt(
+            DFS_ROUTER_FAIR_HANDLER_WEIGHT_KEY_PREFIX + nsId, 1);
+        if (weight <= 0) {
+          throw new IllegalArgumentException("Invalid weight " + weight +
+              " for " + nsId + ", it must be positive");
+        }
+        weights.put(nsId, weight);
+        totalWeight += weight;
+      }
+    }
+    if (remaining < weights.size()) {
+      throw new IllegalArgumentException("Not enough handlers (" +
+          handlerCount + ") to assign the ones configured for each " +
+          "nameservice and one for each of " + weights.keySet());
+    }
+
+    // Then split the remaining handlers by weight
+    for (Entry<String, Integer> entry : weights.entrySet()) {
+      int count = (int) Math.max(1L,
+          (long) remaining * entry.getValue() / totalWeight);
+      this.permits.put(entry.getKey(), new Semaphore(count));
+    }
+    LOG.info("Assigned the {} handlers to the nameservices: {}",
+        handlerCount, getAvailableHandlerOnPerNs());
+  }
+
+  @Override
+  public boolean acquirePermit(String nsId) {
+    Semaphore semaphore = this.permits.get(nsId);
+    if (semaphore == null) {
+      return true;
+    }
+    try {
+      return semaphore.tryAcquire(this.acquireTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public void releasePermit(String nsId) {
+    Semaphore semaphore = this.permits.get(nsId);
+    if (semaphore != null) {
+      semaphore.release();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    // Nothing to do
+  }
+
+  @Override
+  public String getAvailableHandlerOnPerNs() {
+    Map<String, Integer> available = new TreeMap<>();
+    for (Entry<String, Semaphore> entry : this.permits.entrySet()) {
+      available.put(entry.getKey(), entry.getValue().availablePermits());
+    }
+    return JSON.toString(available);
+  }
+
+  @VisibleForTesting
+  int getAvailablePermits(String nsId) {
+    Semaphore semaphore = this.permits.get(nsId);
+    return semaphore == null ? -1 : semaphore.availablePermits();
+  }
+}
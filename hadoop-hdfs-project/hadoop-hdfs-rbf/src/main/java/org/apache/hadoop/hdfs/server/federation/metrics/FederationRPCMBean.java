@@ -44,6 +44,38 @@ public interface FederationRPCMBean {
 
   long getProxyOpNotImplemented();
 
+  /**
+   * Get the number of operations which got a permit of a nameservice.
+   * @return Number of operations which got a permit.
+   */
+  long getProxyOpPermitAccepted();
+
+  /**
+   * Get the number of operations rejected because all the permits of their
+   * nameservice were in use.
+   * @return Number of operations rejected for lack of permits.
+   */
+  long getProxyOpPermitRejected();
+
+  /**
+   * JSON representation of the operations which got a permit per nameservice.
+   * @return JSON string representation.
+   */
+  String getProxyOpPermitAcceptedPerNs();
+
+  /**
+   * JSON representation of the operations rejected for lack of permits per
+   * nameservice.
+   * @return JSON string representation.
+   */
+  String getProxyOpPermitRejectedPerNs();
+
+  /**
+   * JSON representation of the permits available per nameservice.
+   * @return JSON string representation.
+   */
+  String getAvailableHandlerOnPerNs();
+
   long getProxyOpRetries();
 
   long getRouterFailureStateStoreOps();
@@ -20,6 +20,11 @@
 import static org.apache.hadoop.metrics2.impl.MsInfo.ProcessName;
 import static org.apache.hadoop.metrics2.impl.MsInfo.SessionId;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hdfs.server.federation.router.RouterRpcServer;
 import org.apache.hadoop.metrics2.MetricsSystem;
@@ -29,6 +34,7 @@
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.eclipse.jetty.util.ajax.JSON;
 
 /**
  * Implementation of the RPC metrics collector.
@@ -60,6 +66,16 @@ public class FederationRPCMetrics implements FederationRPCMBean {
   private MutableCounterLong proxyOpNotImplemented;
   @Metric("Number of operation retries")
   private MutableCounterLong proxyOpRetries;
+  @Metric("Number of operations which got a permit of a nameservice")
+  private MutableCounterLong proxyOpPermitAccepted;
+  @Metric("Number of operations rejected for lack of permits")
+  private MutableCounterLong proxyOpPermitRejected;
+  /** Operations which got a permit per nameservice. */
+  private final Map<String, LongAdder> proxyOpPermitAcceptedPerNs =
+      new ConcurrentHashMap<>();
+  /** Operations rejected for lack of permits per nameservice. */
+  private final Map<String, LongAdder> proxyOpPermitRejectedPerNs =
+      new ConcurrentHashMap<>();
 
   @Metric("Failed requests due to State Store unavailable")
   private MutableCounterLong routerFailureStateStore;
@@ -147,6 +163,57 @@ public long getProxyOpRetries() {
     return proxyOpRetries.value();
   }
 
+  public void incrProxyOpPermitAccepted(String nsId) {
+    proxyOpPermitAccepted.incr();
+    proxyOpPermitAcceptedPerNs.computeIfAbsent(nsId, k -> new LongAdder())
+        .increment();
+  }
+
+  @Override
+  public long getProxyOpPermitAccepted() {
+    return proxyOpPermitAccepted.value();
+  }
+
+  @Override
+  public String getProxyOpPermitAcceptedPerNs() {
+    return toJSON(proxyOpPermitAcceptedPerNs);
+  }
+
+  public void incrProxyOpPermitRejected(String nsId) {
+    proxyOpPermitRejected.incr();
+    proxyOpPermitRejectedPerNs.computeIfAbsent(nsId, k -> new LongAdder())
+        .increment();
+  }
+
+  @Override
+  public long getProxyOpPermitRejected() {
+    return proxyOpPermitRejected.value();
+  }
+
+  @Override
+  public String getProxyOpPermitRejectedPerNs() {
+    return toJSON(proxyOpPermitRejectedPerNs);
+  }
+
+  @Override
+  public String getAvailableHandlerOnPerNs() {
+    return rpcServer.getRPCClient().getRouterRpcFairnessPolicyController()
+        .getAvailableHandlerOnPerNs();
+  }
+
+  /**
+   * Convert counters per nameservice into JSON.
+   * @param counters Counters per nameservice.
+   * @return JSON string representation.
+   */
+  private static String toJSON(Map<String, LongAdder> counters) {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return JSON.toString(values);
+  }
+
   public void incrRouterFailureStateStore() {
     routerFailureStateStore.incr();
   }
@@ -143,6 +143,13 @@ public void proxyOpComplete(boolean success) {
     }
   }
 
+  @Override
+  public void proxyOpCompleteAsync(boolean success, long proxyTime) {
+    if (success && proxyTime >= 0) {
+      metrics.addProxyTime(proxyTime);
+    }
+  }
+
   @Override
   public void proxyOpFailureStandby() {
     metrics.incrProxyOpFailureStandby();
@@ -158,6 +165,16 @@ public void proxyOpFailureClientOverloaded() {
     metrics.incrProxyOpFailureClientOverloaded();
   }
 
+  @Override
+  public void proxyOpPermitAccepted(String nsId) {
+    metrics.incrProxyOpPermitAccepted(nsId);
+  }
+
+  @Override
+  public void proxyOpPermitRejected(String nsId) {
+    metrics.incrProxyOpPermitRejected(nsId);
+  }
+
   @Override
   public void proxyOpNotImplemented() {
     metrics.incrProxyOpNotImplemented();
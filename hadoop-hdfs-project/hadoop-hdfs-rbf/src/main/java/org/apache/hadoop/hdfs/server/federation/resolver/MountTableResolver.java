@@ -39,8 +39,7 @@
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
 import org.apache.hadoop.conf.Configuration;
@@ -68,7 +67,9 @@
  * {@link org.apache.hadoop.hdfs.server.federation.router.Router Router} to map
  * the global HDFS view to the remote namespaces. This is similar to
  * {@link org.apache.hadoop.fs.viewfs.ViewFs ViewFs}.
- * This is implemented as a tree.
+ * This is implemented as a trie of path components in an immutable
+ * {@link MountTableTrie}. The updates build a new trie and replace the
+ * current one, so the lookups do not take any lock.
  */
 public class MountTableResolver
     implements FileSubclusterResolver, StateStoreCache {
@@ -84,19 +85,23 @@
   private MountTableStore mountTableStore;
 
   /** If the tree has been initialized. */
-  private boolean init = false;
-  /** Path -> Remote HDFS location. */
-  private final TreeMap<String, MountTable> tree = new TreeMap<>();
+  private volatile boolean init = false;
+  /** Path -> Remote HDFS location, only modified with the write lock. */
+  private final TreeMap<String, MountTable> entries = new TreeMap<>();
+  /**
+   * Snapshot of the entries for the lookups. Null if the entries were
+   * modified by {@link #addEntry} or {@link #removeEntry} and the next lookup
+   * has to build it. {@link #refreshEntries} replaces it at once.
+   */
+  private volatile MountTableTrie tree = MountTableTrie.EMPTY;
   /** Path -> Remote location. */
   private final Cache<String, PathLocation> locationCache;
 
   /** Default nameservice when no mount matches the math. */
   private String defaultNameService = "";
 
-  /** Synchronization for both the tree and the cache. */
-  private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-  private final Lock readLock = readWriteLock.readLock();
-  private final Lock writeLock = readWriteLock.writeLock();
+  /** Serializes the updates of the tree. The lookups do not take it. */
+  private final Lock writeLock = new ReentrantLock();
 
 
   @VisibleForTesting
@@ -197,7 +202,8 @@ public void addEntry(final MountTable entry) {
     writeLock.lock();
     try {
       String srcPath = entry.getSourcePath();
-      this.tree.put(srcPath, entry);
+      this.entries.put(srcPath, entry);
+      this.tree = null;
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -213,7 +219,9 @@ public void addEntry(final MountTable entry) {
   public void removeEntry(final String srcPath) {
     writeLock.lock();
     try {
-      this.tree.remove(srcPath);
+      if (this.entries.remove(srcPath) != null) {
+        this.tree = null;
+      }
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -221,7 +229,9 @@ public void removeEntry(final String srcPath) {
   }
 
   /**
-   * Invalidates all cache entries below this path. It requires the write lock.
+   * Invalidates all cache entries below this path. It requires the write lock
+   * and must be called after the tree is replaced, see
+   * {@link #getDestinationForPath}.
    *
    * @param path Source path.
    */
@@ -267,6 +277,8 @@ public void refreshEntries(final Collection<MountTable> entries) {
     // The tree read/write must be atomic
     writeLock.lock();
     try {
+      List<String> invalidated = new LinkedList<>();
+
       // New entries
       Map<String, MountTable> newEntries = new ConcurrentHashMap<>();
       for (MountTable entry : entries) {
@@ -276,16 +288,13 @@ public void refreshEntries(final Collection<MountTable> entries) {
 
       // Old entries (reversed to sort from the leaves to the root)
       Set<String> oldEntries = new TreeSet<>(Collections.reverseOrder());
-      for (MountTable entry : getTreeValues("/")) {
-        String srcPath = entry.getSourcePath();
-        oldEntries.add(srcPath);
-      }
+      oldEntries.addAll(this.entries.keySet());
 
       // Entries that need to be removed
       for (String srcPath : oldEntries) {
         if (!newEntries.containsKey(srcPath)) {
-          this.tree.remove(srcPath);
-          invalidateLocationCache(srcPath);
+          this.entries.remove(srcPath);
+          invalidated.add(srcPath);
           LOG.info("Removed stale mount point {} from resolver", srcPath);
         }
       }
@@ -295,21 +304,30 @@ public void refreshEntries(final Collection<MountTable> entries) {
         String srcPath = entry.getSourcePath();
         if (!oldEntries.contains(srcPath)) {
           // Add node, it does not exist
-          this.tree.put(srcPath, entry);
-          invalidateLocationCache(srcPath);
+          this.entries.put(srcPath, entry);
+          invalidated.add(srcPath);
           LOG.info("Added new mount point {} to resolver", srcPath);
         } else {
           // Node exists, check for updates
-          MountTable existingEntry = this.tree.get(srcPath);
+          MountTable existingEntry = this.entries.get(srcPath);
           if (existingEntry != null && !existingEntry.equals(entry)) {
             LOG.info("Entry has changed from \"{}\" to \"{}\"",
                 existingEntry, entry);
-            this.tree.put(srcPath, entry);
-            invalidateLocationCache(srcPath);
+            this.entries.put(srcPath, entry);
+            invalidated.add(srcPath);
             LOG.info("Updated mount point {} in resolver", srcPath);
           }
         }
       }
+
+      // Publish the new tree before invalidating the locations built with
+      // the old one
+      if (!invalidated.isEmpty() || this.tree == null) {
+        this.tree = new MountTableTrie(this.entries);
+        for (String srcPath : invalidated) {
+          invalidateLocationCache(srcPath);
+        }
+      }
     } finally {
       writeLock.unlock();
     }
@@ -347,8 +365,9 @@ public void clear() {
     LOG.info("Clearing all mount location caches");
     writeLock.lock();
     try {
+      this.entries.clear();
+      this.tree = MountTableTrie.EMPTY;
       this.locationCache.invalidateAll();
-      this.tree.clear();
     } finally {
       writeLock.unlock();
     }
@@ -358,31 +377,46 @@ public void clear() {
   public PathLocation getDestinationForPath(final String path)
       throws IOException {
     verifyMountTable();
-    readLock.lock();
+    final MountTableTrie current = getTree();
     try {
       Callable<? extends PathLocation> meh = new Callable<PathLocation>() {
         @Override
         public PathLocation call() throws Exception {
-          return lookupLocation(path);
+          return lookupLocation(current, path);
         }
       };
-      return this.locationCache.get(path, meh);
+      PathLocation location = this.locationCache.get(path, meh);
+      if (current != this.tree) {
+        // The tree was updated while resolving, the location we may have
+        // cached could have been built with the old tree after the update
+        // invalidated the cache
+        this.locationCache.invalidate(path);
+      }
+      return location;
     } catch (ExecutionException e) {
       throw new IOException(e);
-    } finally {
-      readLock.unlock();
     }
   }
 
   /**
-   * Build the path location to insert into the cache atomically. It must hold
-   * the read lock.
+   * Build the path location to insert into the cache.
    * @param path Path to check/insert.
    * @return New remote location.
    */
   public PathLocation lookupLocation(final String path) {
+    return lookupLocation(getTree(), path);
+  }
+
+  /**
+   * Build the path location with a snapshot of the mount table.
+   * @param snapshot Snapshot of the mount table.
+   * @param path Path to check/insert.
+   * @return New remote location.
+   */
+  private PathLocation lookupLocation(
+      final MountTableTrie snapshot, final String path) {
     PathLocation ret = null;
-    MountTable entry = findDeepest(path);
+    MountTable entry = snapshot.findDeepest(path);
     if (entry != null) {
       ret = buildLocation(path, entry);
     } else {
@@ -405,7 +439,7 @@ public PathLocation lookupLocation(final String path) {
    */
   public MountTable getMountPoint(final String path) throws IOException {
     verifyMountTable();
-    return findDeepest(path);
+    return getTree().findDeepest(path);
   }
 
   @Override
@@ -413,48 +447,41 @@ public List<String> getMountPoints(final String path) throws IOException {
     verifyMountTable();
 
     Set<String> children = new TreeSet<>();
-    readLock.lock();
-    try {
-      String from = path;
-      String to = path + Character.MAX_VALUE;
-      SortedMap<String, MountTable> subMap = this.tree.subMap(from, to);
-
-      boolean exists = false;
-      for (String subPath : subMap.keySet()) {
-        String child = subPath;
-
-        // Special case for /
-        if (!path.equals(Path.SEPARATOR)) {
-          // Get the children
-          int ini = path.length();
-          child = subPath.substring(ini);
-        }
+    SortedMap<String, MountTable> subMap = getTree().subMap(path);
 
-        if (child.isEmpty()) {
-          // This is a mount point but without children
-          exists = true;
-        } else if (child.startsWith(Path.SEPARATOR)) {
-          // This is a mount point with children
-          exists = true;
-          child = child.substring(1);
-
-          // We only return immediate children
-          int fin = child.indexOf(Path.SEPARATOR);
-          if (fin > -1) {
-            child = child.substring(0, fin);
-          }
-          if (!child.isEmpty()) {
-            children.add(child);
-          }
-        }
+    boolean exists = false;
+    for (String subPath : subMap.keySet()) {
+      String child = subPath;
+
+      // Special case for /
+      if (!path.equals(Path.SEPARATOR)) {
+        // Get the children
+        int ini = path.length();
+        child = subPath.substring(ini);
       }
-      if (!exists) {
-        return null;
+
+      if (child.isEmpty()) {
+        // This is a mount point but without children
+        exists = true;
+      } else if (child.startsWith(Path.SEPARATOR)) {
+        // This is a mount point with children
+        exists = true;
+        child = child.substring(1);
+
+        // We only return immediate children
+        int fin = child.indexOf(Path.SEPARATOR);
+        if (fin > -1) {
+          child = child.substring(0, fin);
+        }
+        if (!child.isEmpty()) {
+          children.add(child);
+        }
       }
-      return new LinkedList<>(children);
-    } finally {
-      readLock.unlock();
     }
+    if (!exists) {
+      return null;
+    }
+    return new LinkedList<>(children);
   }
 
   /**
@@ -482,12 +509,29 @@ private void verifyMountTable() throws StateStoreUnavailableException {
 
   @Override
   public String toString() {
-    readLock.lock();
-    try {
-      return this.tree.toString();
-    } finally {
-      readLock.unlock();
+    return getTree().toString();
+  }
+
+  /**
+   * Get the current snapshot of the mount table, building it if the entries
+   * were modified since the last one.
+   * @return Snapshot of the mount table.
+   */
+  private MountTableTrie getTree() {
+    MountTableTrie current = this.tree;
+    if (current == null) {
+      writeLock.lock();
+      try {
+        current = this.tree;
+        if (current == null) {
+          current = new MountTableTrie(this.entries);
+          this.tree = current;
+        }
+      } finally {
+        writeLock.unlock();
+      }
     }
+    return current;
   }
 
   /**
@@ -531,27 +575,6 @@ public String getDefaultNamespace() {
     return this.defaultNameService;
   }
 
-  /**
-   * Find the deepest mount point for a path.
-   * @param path Path to look for.
-   * @return Mount table entry.
-   */
-  private MountTable findDeepest(final String path) {
-    readLock.lock();
-    try {
-      Entry<String, MountTable> entry = this.tree.floorEntry(path);
-      while (entry != null && !isParentEntry(path, entry.getKey())) {
-        entry = this.tree.lowerEntry(entry.getKey());
-      }
-      if (entry == null) {
-        return null;
-      }
-      return entry.getValue();
-    } finally {
-      readLock.unlock();
-    }
-  }
-
   /**
    * Get the mount table entries under a path.
    * @param path Path to search from.
@@ -569,20 +592,13 @@ private List<MountTable> getTreeValues(final String path) {
    */
   private List<MountTable> getTreeValues(final String path, boolean reverse) {
     LinkedList<MountTable> ret = new LinkedList<>();
-    readLock.lock();
-    try {
-      String from = path;
-      String to = path + Character.MAX_VALUE;
-      SortedMap<String, MountTable> subMap = this.tree.subMap(from, to);
-      for (MountTable entry : subMap.values()) {
-        if (!reverse) {
-          ret.add(entry);
-        } else {
-          ret.addFirst(entry);
-        }
+    SortedMap<String, MountTable> subMap = getTree().subMap(path);
+    for (MountTable entry : subMap.values()) {
+      if (!reverse) {
+        ret.add(entry);
+      } else {
+        ret.addFirst(entry);
       }
-    } finally {
-      readLock.unlock();
     }
     return ret;
   }
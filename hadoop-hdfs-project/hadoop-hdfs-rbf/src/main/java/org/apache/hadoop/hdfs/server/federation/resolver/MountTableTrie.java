@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.resolver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+
+/**
+ * Immutable snapshot of the mount table. It keeps the entries both sorted by
+ * source path, to list the mount points under a path, and in a trie of path
+ * components, to find the deepest mount point of a path with one map lookup
+ * per component.
+ *
+ * The {@link MountTableResolver} never modifies a snapshot: it builds a new
+ * one after the updates and publishes it atomically, so the lookups need no
+ * locks and are not blocked by the refreshes of the mount table.
+ */
+final class MountTableTrie {
+
+  /** Node of the trie for one path component. */
+  private static final class Node {
+    /** Mount point at this path, null if it is only a parent of others. */
+    private MountTable entry;
+    /** Child components, only modified while building the trie. */
+    private Map<String, Node> children = Collections.emptyMap();
+
+    private Node getOrAddChild(String name) {
+      if (children.isEmpty()) {
+        children = new HashMap<>();
+      }
+      return children.computeIfAbsent(name, k -> new Node());
+    }
+  }
+
+  /** Snapshot without any mount point. */
+  static final MountTableTrie EMPTY =
+      new MountTableTrie(new TreeMap<String, MountTable>());
+
+  /** Source path -> mount table entry, never modified. */
+  private final NavigableMap<String, MountTable> entries;
+  /** Root of the trie, for the path /. */
+  private final Node root = new Node();
+
+  /**
+   * Build a snapshot of the mount table.
+   *
+   * @param entries Source path -> mount table entry, copied.
+   */
+  MountTableTrie(SortedMap<String, MountTable> entries) {
+    this.entries =
+        Collections.unmodifiableNavigableMap(new TreeMap<>(entries));
+    for (Map.Entry<String, MountTable> entry : this.entries.entrySet()) {
+      Node node = root;
+      String path = entry.getKey();
+      int start = 1;
+      while (start < path.length()) {
+        int end = path.indexOf(Path.SEPARATOR_CHAR, start);
+        if (end < 0) {
+          end = path.length();
+        }
+        node = node.getOrAddChild(path.substring(start, end));
+        start = end + 1;
+      }
+      node.entry = entry.getValue();
+    }
+  }
+
+  /**
+   * Find the deepest mount point for a path: the mount point at the path or
+   * at its closest parent.
+   *
+   * @param path Absolute path to look for.
+   * @return Mount table entry or null if the path is not under a mount point.
+   */
+  MountTable findDeepest(String path) {
+    if (!path.startsWith(Path.SEPARATOR)) {
+      return null;
+    }
+    Node node = root;
+    MountTable deepest = root.entry;
+    int start = 1;
+    while (start < path.length()) {
+      int end = path.indexOf(Path.SEPARATOR_CHAR, start);
+      if (end < 0) {
+        end = path.length();
+      }
+      node = node.children.get(path.substring(start, end));
+      if (node == null) {
+        break;
+      }
+      if (node.entry != null) {
+        deepest = node.entry;
+      }
+      start = end + 1;
+    }
+    return deepest;
+  }
+
+  /**
+   * Get the entries with a source path starting with a prefix, sorted by
+   * source path.
+   *
+   * @param prefix Prefix of the source paths.
+   * @return Read only view of the entries.
+   */
+  SortedMap<String, MountTable> subMap(String prefix) {
+    return entries.subMap(prefix, prefix + Character.MAX_VALUE);
+  }
+
+  @Override
+  public String toString() {
+    return entries.toString();
+  }
+}
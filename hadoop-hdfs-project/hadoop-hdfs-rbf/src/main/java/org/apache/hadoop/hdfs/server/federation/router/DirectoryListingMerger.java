@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+import org.apache.hadoop.hdfs.DFSUtil;
+import org.apache.hadoop.hdfs.protocol.DirectoryListing;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+
+/**
+ * Merges the pages of a directory listing returned by each subcluster and the
+ * mount points under the directory into a single page for the client.
+ *
+ * Each subcluster returns its entries after startAfter sorted by name. They
+ * are merged one entry at a time, without copying the pages. An entry is
+ * only returned once all the subclusters with more entries than their page
+ * have returned a name after it. Otherwise the client would continue the
+ * listing after it and skip the entries those subclusters did not return
+ * yet. The page is also limited to the listing limit of the Router, and the
+ * entries left out are counted as remaining. The client asks for them with
+ * the last name of the page as startAfter.
+ */
+final class DirectoryListingMerger {
+
+  /** Position in the page returned by one subcluster. */
+  private static final class Cursor {
+    private final HdfsFileStatus[] entries;
+    private int next = 0;
+
+    private Cursor(HdfsFileStatus[] entries) {
+      this.entries = entries;
+    }
+
+    private String name() {
+      return entries[next].getLocalName();
+    }
+
+    private boolean advance() {
+      return ++next < entries.length;
+    }
+
+    private int left() {
+      return entries.length - next;
+    }
+  }
+
+  private DirectoryListingMerger() {
+  }
+
+  /**
+   * Merge the listings of the subclusters and the mount points.
+   *
+   * @param listings Page of each subcluster, null for the ones without the
+   *                 directory.
+   * @param mountPoints Names of the mount points in the directory, sorted.
+   * @param mountPointStatus Builds the status of a mount point by name.
+   * @param startAfter Name to list after, the same sent to the subclusters.
+   * @param limit Maximum number of entries to return.
+   * @return Merged page of the listing.
+   */
+  static DirectoryListing merge(Collection<DirectoryListing> listings,
+      List<String> mountPoints,
+      Function<String, HdfsFileStatus> mountPointStatus,
+      byte[] startAfter, int limit) {
+
+    PriorityQueue<Cursor> queue = new PriorityQueue<>(
+        Math.max(1, listings.size()),
+        (c1, c2) -> c1.name().compareTo(c2.name()));
+    // Last name we can return without skipping entries of a subcluster
+    String lastName = null;
+    int remainingEntries = 0;
+    for (DirectoryListing listing : listings) {
+      if (listing == null) {
+        continue;
+      }
+      HdfsFileStatus[] partialListing = listing.getPartialListing();
+      int length = partialListing.length;
+      if (length > 0) {
+        queue.add(new Cursor(partialListing));
+        String lastLocalName = partialListing[length - 1].getLocalName();
+        if (listing.hasMore() &&
+            (lastName == null || lastName.compareTo(lastLocalName) > 0)) {
+          lastName = lastLocalName;
+        }
+      }
+      remainingEntries += listing.getRemainingEntries();
+    }
+
+    // The mount points after startAfter
+    String startAfterName = DFSUtil.bytes2String(startAfter);
+    Iterator<String> mountIt = null;
+    String mountPoint = null;
+    if (mountPoints != null) {
+      mountIt = mountPoints.iterator();
+      mountPoint = nextMountPoint(mountIt, startAfterName);
+    }
+
+    List<HdfsFileStatus> merged = new ArrayList<>();
+    while (!queue.isEmpty() || mountPoint != null) {
+      String name = queue.isEmpty() ? null : queue.peek().name();
+      if (name == null ||
+          (mountPoint != null && mountPoint.compareTo(name) <= 0)) {
+        name = mountPoint;
+      }
+      if ((lastName != null && name.compareTo(lastName) > 0) ||
+          merged.size() >= limit) {
+        break;
+      }
+
+      // Take the entry from every subcluster with it
+      HdfsFileStatus status = null;
+      while (!queue.isEmpty() && queue.peek().name().equals(name)) {
+        Cursor cursor = queue.poll();
+        if (status == null) {
+          status = cursor.entries[cursor.next];
+        }
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+      if (name.equals(mountPoint)) {
+        // The mount point hides the entry in the subclusters
+        status = mountPointStatus.apply(mountPoint);
+        mountPoint = nextMountPoint(mountIt, startAfterName);
+      }
+      merged.add(status);
+    }
+
+    // Entries left for the next pages
+    for (Cursor cursor : queue) {
+      remainingEntries += cursor.left();
+    }
+    while (mountPoint != null) {
+      remainingEntries++;
+      mountPoint = mountIt.hasNext() ? mountIt.next() : null;
+    }
+
+    HdfsFileStatus[] combinedData = new HdfsFileStatus[merged.size()];
+    return new DirectoryListing(merged.toArray(combinedData),
+        remainingEntries);
+  }
+
+  private static String nextMountPoint(
+      Iterator<String> it, String startAfter) {
+    while (it.hasNext()) {
+      String mountPoint = it.next();
+      if (mountPoint.compareTo(startAfter) > 0) {
+        return mountPoint;
+      }
+    }
+    return null;
+  }
+}
@@ -22,11 +22,13 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URLConnection;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.server.federation.fairness.RouterRpcFairnessPolicyController;
 import org.apache.hadoop.hdfs.server.federation.resolver.ActiveNamenodeResolver;
 import org.apache.hadoop.hdfs.server.federation.resolver.FileSubclusterResolver;
 import org.apache.hadoop.hdfs.server.federation.store.StateStoreService;
@@ -187,6 +189,35 @@ public static ActiveNamenodeResolver newActiveNamenodeResolver(
     return newInstance(conf, stateStore, StateStoreService.class, clazz);
   }
 
+  /**
+   * Creates an instance of a RouterRpcFairnessPolicyController from the
+   * configuration.
+   *
+   * @param conf Configuration that defines the fairness controller class.
+   * @return New fairness policy controller.
+   * @throws IllegalArgumentException If the policy is not properly configured.
+   */
+  public static RouterRpcFairnessPolicyController newFairnessPolicyController(
+      Configuration conf) {
+    Class<? extends RouterRpcFairnessPolicyController> clazz = conf.getClass(
+        RBFConfigKeys.DFS_ROUTER_FAIRNESS_POLICY_CONTROLLER_CLASS,
+        RBFConfigKeys.DFS_ROUTER_FAIRNESS_POLICY_CONTROLLER_CLASS_DEFAULT,
+        RouterRpcFairnessPolicyController.class);
+    try {
+      Constructor<? extends RouterRpcFairnessPolicyController> constructor =
+          clazz.getConstructor(Configuration.class);
+      return constructor.newInstance(conf);
+    } catch (InvocationTargetException e) {
+      // Do not start with a wrong configuration of the permits
+      throw new IllegalArgumentException("Cannot create " +
+          clazz.getSimpleName() + ": " + e.getCause().getMessage(),
+          e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException(
+          "Cannot create " + clazz.getSimpleName(), e);
+    }
+  }
+
   /**
    * Check if the given path is the child of parent path.
    * @param path Path to be check.
@@ -39,6 +39,7 @@
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -53,20 +54,25 @@
 import org.apache.hadoop.hdfs.NameNodeProxiesClient.ProxyAndInfo;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.hdfs.server.federation.fairness.RouterRpcFairnessPolicyController;
 import org.apache.hadoop.hdfs.server.federation.resolver.ActiveNamenodeResolver;
 import org.apache.hadoop.hdfs.server.federation.resolver.FederationNamenodeContext;
 import org.apache.hadoop.hdfs.server.federation.resolver.FederationNamenodeServiceState;
 import org.apache.hadoop.hdfs.server.federation.resolver.RemoteLocation;
+import org.apache.hadoop.io.retry.AsyncCallHandler;
 import org.apache.hadoop.io.retry.RetryPolicies;
 import org.apache.hadoop.io.retry.RetryPolicy;
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction.RetryDecision;
+import org.apache.hadoop.ipc.Client;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.ipc.StandbyException;
 import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.concurrent.AsyncGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
@@ -81,6 +87,9 @@
  * <li>invokeConcurrent Make concurrent requests to multiple namespaces and
  * return all of the results.
  * </ul>
+ * invokeSequentialAsync makes the same requests as invokeSequential without
+ * waiting for the responses of the NNs in the calling thread.
+ * <p>
  * Also maintains a cached pool of connections to NNs. Connections are managed
  * by the ConnectionManager and are unique to each user + NN. The size of the
  * connection pool can be configured. Larger pools allow for more simultaneous
@@ -102,10 +111,20 @@ public class RouterRpcClient {
   private final ConnectionManager connectionManager;
   /** Service to run asynchronous calls. */
   private final ThreadPoolExecutor executorService;
+  /** Service to complete the calls sent asynchronously, null if disabled. */
+  private final ThreadPoolExecutor asyncResponderService;
+  /**
+   * Service to proxy synchronously the retries of the calls sent
+   * asynchronously, so they don't block the responders. Null if disabled.
+   */
+  private final ThreadPoolExecutor asyncRetryService;
   /** Retry policy for router -> NN communication. */
   private final RetryPolicy retryPolicy;
   /** Optional perf monitor. */
   private final RouterRpcMonitor rpcMonitor;
+  /** Permits to proxy calls to each nameservice. */
+  private final RouterRpcFairnessPolicyController
+      routerRpcFairnessPolicyController;
 
   /** Pattern to parse a stack trace line. */
   private static final Pattern STACK_TRACE_PATTERN =
@@ -145,8 +164,37 @@ public RouterRpcClient(Configuration conf, String identifier,
     this.executorService = new ThreadPoolExecutor(numThreads, numThreads,
         0L, TimeUnit.MILLISECONDS, workQueue, threadFactory);
 
+    if (conf.getBoolean(
+        RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_ENABLE,
+        RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_ENABLE_DEFAULT)) {
+      int numResponders = conf.getInt(
+          RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_RESPONDER_COUNT,
+          RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_RESPONDER_COUNT_DEFAULT);
+      ThreadFactory responderThreadFactory = new ThreadFactoryBuilder()
+          .setNameFormat("RPC Router Async Responder-%d")
+          .build();
+      this.asyncResponderService = new ThreadPoolExecutor(
+          numResponders, numResponders, 0L, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(), responderThreadFactory);
+      int numRetryThreads = conf.getInt(
+          RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_RETRY_THREADS_SIZE,
+          RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_RETRY_THREADS_SIZE_DEFAULT);
+      ThreadFactory retryThreadFactory = new ThreadFactoryBuilder()
+          .setNameFormat("RPC Router Async Retry-%d")
+          .build();
+      this.asyncRetryService = new ThreadPoolExecutor(
+          numRetryThreads, numRetryThreads, 0L, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(), retryThreadFactory);
+    } else {
+      this.asyncResponderService = null;
+      this.asyncRetryService = null;
+    }
+
     this.rpcMonitor = monitor;
 
+    this.routerRpcFairnessPolicyController =
+        FederationUtil.newFairnessPolicyController(conf);
+
     int maxFailoverAttempts = conf.getInt(
         HdfsClientConfigKeys.Failover.MAX_ATTEMPTS_KEY,
         HdfsClientConfigKeys.Failover.MAX_ATTEMPTS_DEFAULT);
@@ -182,6 +230,34 @@ public void shutdown() {
     if (this.executorService != null) {
       this.executorService.shutdownNow();
     }
+    if (this.asyncResponderService != null) {
+      this.asyncResponderService.shutdownNow();
+    }
+    if (this.asyncRetryService != null) {
+      this.asyncRetryService.shutdownNow();
+    }
+    if (this.routerRpcFairnessPolicyController != null) {
+      this.routerRpcFairnessPolicyController.shutdown();
+    }
+  }
+
+  /**
+   * Check if the calls to the NNs can be sent asynchronously.
+   *
+   * @return If invokeSequentialAsync can be used.
+   */
+  public boolean isAsyncEnabled() {
+    return this.asyncResponderService != null;
+  }
+
+  /**
+   * Get the policy sharing the calls between the nameservices.
+   *
+   * @return Fairness policy controller.
+   */
+  public RouterRpcFairnessPolicyController
+      getRouterRpcFairnessPolicyController() {
+    return this.routerRpcFairnessPolicyController;
   }
 
   /**
@@ -322,7 +398,8 @@ private RetryDecision shouldRetry(final IOException ioe, final int retryCount,
   /**
    * Invokes a method against the ClientProtocol proxy server. If a standby
    * exception is generated by the call to the client, retries using the
-   * alternate server.
+   * alternate server. The call holds a permit of the nameservice until the
+   * Namenode replies, see {@link RouterRpcFairnessPolicyController}.
    *
    * Re-throws exceptions generated by the remote RPC call as either
    * RemoteException or IOException.
@@ -346,6 +423,25 @@ private Object invokeMethod(
           " with params " + Arrays.toString(params) + " from " + this.routerId);
     }
 
+    String nsId = namenodes.get(0).getNameserviceId();
+    acquirePermit(nsId, method);
+    try {
+      return invokeMethodWithPermit(ugi, namenodes, protocol, method, params);
+    } finally {
+      releasePermit(nsId);
+    }
+  }
+
+  /**
+   * Invokes a method against the namenodes of a nameservice while holding a
+   * permit of the nameservice. See {@link #invokeMethod}.
+   */
+  private Object invokeMethodWithPermit(
+      final UserGroupInformation ugi,
+      final List<? extends FederationNamenodeContext> namenodes,
+      final Class<?> protocol, final Method method, final Object... params)
+          throws IOException {
+
     Object ret = null;
     if (rpcMonitor != null) {
       rpcMonitor.proxyOp();
@@ -425,6 +521,216 @@ private Object invokeMethod(
     throw new StandbyException(msg);
   }
 
+  /**
+   * Sends a ClientProtocol call to the first NN of a nameservice without
+   * waiting for its response. The response is processed by a responder
+   * thread. If the call cannot be sent asynchronously, or the NN asks for a
+   * retry or a failover, the call falls back to {@link #invokeMethod}.
+   *
+   * @param ugi User group information.
+   * @param namenodes A prioritized list of namenodes within the same
+   *                  nameservice.
+   * @param protocol Protocol of the method.
+   * @param method Remote ClientProtcol method to invoke. The ClientProtocol
+   *               translator must support it in asynchronous mode.
+   * @param params Variable list of parameters matching the method.
+   * @return Future with the result of invoking the method.
+   */
+  private CompletableFuture<Object> invokeMethodAsync(
+      final UserGroupInformation ugi,
+      final List<? extends FederationNamenodeContext> namenodes,
+      final Class<?> protocol, final Method method, final Object... params) {
+
+    if (namenodes == null || namenodes.isEmpty()) {
+      return failedFuture(new IOException("No namenodes to invoke " +
+          method.getName() + " with params " + Arrays.toString(params) +
+          " from " + this.routerId));
+    }
+
+    final FederationNamenodeContext namenode = namenodes.get(0);
+    final String nsId = namenode.getNameserviceId();
+    try {
+      acquirePermit(nsId, method);
+    } catch (IOException ioe) {
+      return failedFuture(ioe);
+    }
+    final CompletableFuture<Void> received = new CompletableFuture<>();
+    final ConnectionContext connection;
+    final AsyncGet<Object, Exception> asyncGet;
+    final long proxyStart = System.nanoTime();
+    try {
+      connection = this.getConnection(
+          ugi, nsId, namenode.getRpcAddress(), protocol);
+      try {
+        final Object proxy = connection.getClient().getProxy();
+        Client.setAsynchronousMode(true);
+        Client.setAsyncCallCallback(() -> received.complete(null));
+        method.invoke(proxy, params);
+        asyncGet = AsyncCallHandler.getAsyncReturn();
+      } finally {
+        Client.setAsynchronousMode(false);
+        Client.setAsyncCallCallback(null);
+      }
+    } catch (Exception e) {
+      // For example, over the limit of asynchronous calls
+      LOG.debug("Cannot send {} asynchronously to {}, sending it synchronously",
+          method.getName(), nsId, e);
+      releasePermit(nsId);
+      return invokeMethodSync(ugi, namenodes, protocol, method, params);
+    }
+    if (this.rpcMonitor != null) {
+      this.rpcMonitor.proxyOp();
+    }
+
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+    received.thenRunAsync(() -> {
+      // The retries get a permit of their own
+      releasePermit(nsId);
+      try {
+        Object ret = asyncGet.get(0, TimeUnit.MILLISECONDS);
+        if (this.rpcMonitor != null) {
+          this.rpcMonitor.proxyOpCompleteAsync(
+              true, System.nanoTime() - proxyStart);
+        }
+        future.complete(ret);
+      } catch (Exception e) {
+        completeAsyncFailure(e, nsId, future,
+            () -> invokeMethodSync(ugi, namenodes, protocol, method, params));
+      } finally {
+        connection.release();
+      }
+    }, this.asyncResponderService);
+    return future;
+  }
+
+  /**
+   * Handle the failure of a call sent asynchronously, in the same way as
+   * {@link #invoke} and {@link #invokeMethod} handle a synchronous one.
+   *
+   * @param e Exception of the call.
+   * @param nsId Nameservice identifier.
+   * @param future Future to complete.
+   * @param retry Retries the call synchronously with failover.
+   */
+  private void completeAsyncFailure(Exception e, String nsId,
+      CompletableFuture<Object> future,
+      Callable<CompletableFuture<Object>> retry) {
+    if (!(e instanceof IOException)) {
+      if (this.rpcMonitor != null) {
+        this.rpcMonitor.proxyOpFailureCommunicate();
+        this.rpcMonitor.proxyOpCompleteAsync(false, -1);
+      }
+      future.completeExceptionally(new IOException(e));
+      return;
+    }
+    IOException ioe = (IOException) e;
+    try {
+      RetryDecision decision = shouldRetry(ioe, 0, nsId);
+      if (decision == RetryDecision.RETRY ||
+          decision == RetryDecision.FAILOVER_AND_RETRY) {
+        if (this.rpcMonitor != null) {
+          if (decision == RetryDecision.RETRY) {
+            this.rpcMonitor.proxyOpRetries();
+          } else {
+            this.rpcMonitor.proxyOpFailureStandby();
+          }
+        }
+        retry.call().whenComplete((ret, t) -> {
+          if (t == null) {
+            future.complete(ret);
+          } else {
+            future.completeExceptionally(t);
+          }
+        });
+        return;
+      }
+      if (ioe instanceof RemoteException) {
+        RemoteException re = (RemoteException) ioe;
+        ioe = re.unwrapRemoteException();
+        ioe = getCleanException(ioe);
+      }
+      if (this.rpcMonitor != null) {
+        if (ioe instanceof RemoteException) {
+          this.rpcMonitor.proxyOpCompleteAsync(true, -1);
+        } else {
+          this.rpcMonitor.proxyOpFailureCommunicate();
+          this.rpcMonitor.proxyOpCompleteAsync(false, -1);
+        }
+      }
+      future.completeExceptionally(ioe);
+    } catch (IOException ex) {
+      future.completeExceptionally(ex);
+    } catch (Exception ex) {
+      future.completeExceptionally(new IOException(ex));
+    }
+  }
+
+  /**
+   * Run {@link #invokeMethod} in a retry thread. It blocks until the NNs
+   * respond, so it can't run in a responder or in the handler of the call.
+   *
+   * @return Future with the result of invoking the method.
+   */
+  private CompletableFuture<Object> invokeMethodSync(
+      final UserGroupInformation ugi,
+      final List<? extends FederationNamenodeContext> namenodes,
+      final Class<?> protocol, final Method method, final Object... params) {
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+    try {
+      this.asyncRetryService.execute(() -> {
+        try {
+          future.complete(
+              invokeMethod(ugi, namenodes, protocol, method, params));
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(new IOException(
+          "Router is shutting down, cannot proxy " + method.getName(), e));
+    }
+    return future;
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(t);
+    return future;
+  }
+
+  /**
+   * Get a permit to proxy a call to a nameservice.
+   *
+   * @param nsId Nameservice identifier.
+   * @param method Method to proxy.
+   * @throws StandbyException If all the permits of the nameservice are in use,
+   *                          so the client can try another Router.
+   */
+  private void acquirePermit(final String nsId, final Method method)
+      throws StandbyException {
+    if (this.routerRpcFairnessPolicyController.acquirePermit(nsId)) {
+      if (this.rpcMonitor != null) {
+        this.rpcMonitor.proxyOpPermitAccepted(nsId);
+      }
+      return;
+    }
+    if (this.rpcMonitor != null) {
+      this.rpcMonitor.proxyOpPermitRejected(nsId);
+    }
+    LOG.debug("Not enough permits to proxy {} to {}", method.getName(), nsId);
+    throw new StandbyException("Router " + this.routerId +
+        " has no permits left to proxy " + method.getName() + " to " + nsId);
+  }
+
+  /**
+   * Release a permit acquired with {@link #acquirePermit}.
+   *
+   * @param nsId Nameservice identifier.
+   */
+  private void releasePermit(final String nsId) {
+    this.routerRpcFairnessPolicyController.releasePermit(nsId);
+  }
+
   /**
    * Invokes a method on the designated object. Catches exceptions specific to
    * the invocation.
@@ -773,6 +1079,121 @@ public <T> T invokeSequential(
     return ret;
   }
 
+  /**
+   * Invokes sequential proxy calls to different locations like
+   * {@link #invokeSequential(List, RemoteMethod, Class, Object)}, without
+   * blocking the calling thread while the NNs process them. Each location is
+   * called once the response of the previous one is received, by a responder
+   * thread.
+   *
+   * @param locations List of locations/nameservices to call sequentially.
+   * @param remoteMethod The remote method and parameters to invoke. The
+   *          ClientProtocol translator must support it in asynchronous mode.
+   * @param expectedResultClass In order to be considered a positive result, the
+   *          return type must be of this class.
+   * @param expectedResultValue In order to be considered a positive result, the
+   *          return value must equal the value of this object.
+   * @return Future with the result of the first successful call, or if no
+   *         calls are successful, the result of the first RPC call executed.
+   *         If the success condition is not met, it fails with the first
+   *         remote exception generated.
+   * @throws IOException If the user cannot be determined.
+   */
+  public <T> CompletableFuture<T> invokeSequentialAsync(
+      final List<? extends RemoteLocationContext> locations,
+      final RemoteMethod remoteMethod, Class<T> expectedResultClass,
+      Object expectedResultValue) throws IOException {
+    Preconditions.checkState(isAsyncEnabled(),
+        "Asynchronous calls to the namenodes are disabled");
+    final UserGroupInformation ugi = RouterRpcServer.getRemoteUser();
+    final Method m = remoteMethod.getMethod();
+    AsyncSequentialCall<T> call = new AsyncSequentialCall<>(ugi, locations,
+        remoteMethod, m, expectedResultClass, expectedResultValue);
+    call.invokeNext();
+    return call.future;
+  }
+
+  /**
+   * State of a sequential invocation done with asynchronous calls. It is only
+   * accessed by one thread at a time, as each call is made once the previous
+   * one is completed.
+   */
+  private final class AsyncSequentialCall<T> {
+    private final UserGroupInformation ugi;
+    private final List<? extends RemoteLocationContext> locations;
+    private final RemoteMethod remoteMethod;
+    private final Method m;
+    private final Class<T> expectedResultClass;
+    private final Object expectedResultValue;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private int nextLocation = 0;
+    private Object firstResult = null;
+    private IOException firstThrownException = null;
+
+    AsyncSequentialCall(UserGroupInformation ugi,
+        List<? extends RemoteLocationContext> locations,
+        RemoteMethod remoteMethod, Method m, Class<T> expectedResultClass,
+        Object expectedResultValue) {
+      this.ugi = ugi;
+      this.locations = locations;
+      this.remoteMethod = remoteMethod;
+      this.m = m;
+      this.expectedResultClass = expectedResultClass;
+      this.expectedResultValue = expectedResultValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void invokeNext() {
+      if (nextLocation >= locations.size()) {
+        if (firstThrownException != null) {
+          future.completeExceptionally(firstThrownException);
+        } else {
+          future.complete((T) firstResult);
+        }
+        return;
+      }
+      final RemoteLocationContext loc = locations.get(nextLocation++);
+      final String ns = loc.getNameserviceId();
+      CompletableFuture<Object> result;
+      try {
+        List<? extends FederationNamenodeContext> namenodes =
+            getNamenodesForNameservice(ns);
+        Class<?> proto = remoteMethod.getProtocol();
+        Object[] params = remoteMethod.getParams(loc);
+        result = invokeMethodAsync(ugi, namenodes, proto, m, params);
+      } catch (IOException ioe) {
+        result = failedFuture(ioe);
+      }
+      result.whenComplete((ret, t) -> {
+        if (t == null) {
+          if (isExpectedClass(expectedResultClass, ret) &&
+              isExpectedValue(expectedResultValue, ret)) {
+            // Valid result, stop here
+            future.complete((T) ret);
+            return;
+          }
+          if (firstResult == null) {
+            firstResult = ret;
+          }
+        } else if (t instanceof IOException) {
+          // Localize the exception and move on
+          IOException ioe = processException((IOException) t, loc);
+          if (firstThrownException == null) {
+            firstThrownException = ioe;
+          }
+        } else {
+          LOG.error("Unexpected exception {} proxying {} to {}",
+              t.getClass(), m.getName(), ns, t);
+          if (firstThrownException == null) {
+            firstThrownException = new IOException(
+                "Unexpected exception proxying API " + t.getMessage(), t);
+          }
+        }
+        invokeNext();
+      });
+    }
+  }
+
   /**
    * Exception messages might contain local subcluster paths. This method
    * generates a new exception with the proper message.
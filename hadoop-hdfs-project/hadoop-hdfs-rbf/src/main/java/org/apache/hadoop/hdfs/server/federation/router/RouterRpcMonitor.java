@@ -64,6 +64,14 @@ void init(
    */
   void proxyOpComplete(boolean success);
 
+  /**
+   * Mark a proxy operation as completed from a thread other than the one
+   * which started proxying it.
+   * @param success If the operation was successful.
+   * @param proxyTime Time waiting for the Namenode in nanoseconds.
+   */
+  void proxyOpCompleteAsync(boolean success, long proxyTime);
+
   /**
    * Failed to proxy an operation to a Namenode because it was in standby.
    */
@@ -81,6 +89,19 @@ void init(
    */
   void proxyOpFailureClientOverloaded();
 
+  /**
+   * Got a permit to proxy an operation to a nameservice.
+   * @param nsId Nameservice identifier.
+   */
+  void proxyOpPermitAccepted(String nsId);
+
+  /**
+   * Failed to proxy an operation to a nameservice because all its permits
+   * were in use.
+   * @param nsId Nameservice identifier.
+   */
+  void proxyOpPermitRejected(String nsId);
+
   /**
    * Failed to proxy an operation because it is not implemented.
    */
@@ -32,6 +32,7 @@
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -43,6 +44,7 @@
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.crypto.CryptoProtocolVersion;
@@ -107,6 +109,7 @@
 import org.apache.hadoop.hdfs.protocolPB.ClientNamenodeProtocolServerSideTranslatorPB;
 import org.apache.hadoop.hdfs.protocolPB.NamenodeProtocolPB;
 import org.apache.hadoop.hdfs.protocolPB.NamenodeProtocolServerSideTranslatorPB;
+import org.apache.hadoop.hdfs.protocolPB.RouterClientProtocolServerSideTranslatorPB;
 import org.apache.hadoop.hdfs.security.token.block.DataEncryptionKey;
 import org.apache.hadoop.hdfs.security.token.block.ExportedBlockKeys;
 import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier;
@@ -207,6 +210,9 @@ public class RouterRpcServer extends AbstractService
   /** NamenodeProtocol calls. */
   private final RouterNamenodeProtocol nnProto;
 
+  /** Maximum number of entries in a page of a listing. */
+  private final int listLimit;
+
 
   /**
    * Construct a router RPC server.
@@ -232,6 +238,9 @@ public RouterRpcServer(Configuration configuration, Router router,
         DFSConfigKeys.DFS_PERMISSIONS_SUPERUSERGROUP_KEY,
         DFSConfigKeys.DFS_PERMISSIONS_SUPERUSERGROUP_DEFAULT);
 
+    this.listLimit = Math.max(1, this.conf.getInt(
+        DFSConfigKeys.DFS_LIST_LIMIT, DFSConfigKeys.DFS_LIST_LIMIT_DEFAULT));
+
     // RPC server settings
     int handlerCount = this.conf.getInt(DFS_ROUTER_HANDLER_COUNT_KEY,
         DFS_ROUTER_HANDLER_COUNT_DEFAULT);
@@ -254,7 +263,7 @@ public RouterRpcServer(Configuration configuration, Router router,
 
     ClientNamenodeProtocolServerSideTranslatorPB
         clientProtocolServerTranslator =
-            new ClientNamenodeProtocolServerSideTranslatorPB(this);
+            new RouterClientProtocolServerSideTranslatorPB(this);
     BlockingService clientNNPbService = ClientNamenodeProtocol
         .newReflectiveBlockingService(clientProtocolServerTranslator);
 
@@ -531,6 +540,28 @@ public LocatedBlocks getBlockLocations(String src, final long offset,
         LocatedBlocks.class, null);
   }
 
+  /**
+   * Asynchronous version of {@link #getBlockLocations(String, long, long)}.
+   * The handler is not blocked while the Namenodes process the call.
+   *
+   * @param src Path of the file.
+   * @param offset Range start.
+   * @param length Range length.
+   * @return Future with the located blocks.
+   * @throws IOException If the call cannot be sent.
+   */
+  public CompletableFuture<LocatedBlocks> getBlockLocationsAsync(String src,
+      final long offset, final long length) throws IOException {
+    checkOperation(OperationCategory.READ);
+
+    List<RemoteLocation> locations = getLocationsForPath(src, false);
+    RemoteMethod remoteMethod = new RemoteMethod("getBlockLocations",
+        new Class<?>[] {String.class, long.class, long.class},
+        new RemoteParam(), offset, length);
+    return rpcClient.invokeSequentialAsync(locations, remoteMethod,
+        LocatedBlocks.class, null);
+  }
+
   @Override // ClientProtocol
   public FsServerDefaults getServerDefaults() throws IOException {
     checkOperation(OperationCategory.READ);
@@ -1076,84 +1107,45 @@ public DirectoryListing getListing(String src, byte[] startAfter,
         rpcClient.invokeConcurrent(
             locations, method, false, false, DirectoryListing.class);
 
-    Map<String, HdfsFileStatus> nnListing = new TreeMap<>();
-    int totalRemainingEntries = 0;
-    int remainingEntries = 0;
     boolean namenodeListingExists = false;
     if (listings != null) {
-      // Check the subcluster listing with the smallest name
-      String lastName = null;
       for (Entry<RemoteLocation, DirectoryListing> entry :
           listings.entrySet()) {
-        RemoteLocation location = entry.getKey();
-        DirectoryListing listing = entry.getValue();
-        if (listing == null) {
-          LOG.debug("Cannot get listing from {}", location);
+        if (entry.getValue() == null) {
+          LOG.debug("Cannot get listing from {}", entry.getKey());
         } else {
-          totalRemainingEntries += listing.getRemainingEntries();
-          HdfsFileStatus[] partialListing = listing.getPartialListing();
-          int length = partialListing.length;
-          if (length > 0) {
-            HdfsFileStatus lastLocalEntry = partialListing[length-1];
-            String lastLocalName = lastLocalEntry.getLocalName();
-            if (lastName == null || lastName.compareTo(lastLocalName) > 0) {
-              lastName = lastLocalName;
-            }
-          }
-        }
-      }
-
-      // Add existing entries
-      for (Object value : listings.values()) {
-        DirectoryListing listing = (DirectoryListing) value;
-        if (listing != null) {
           namenodeListingExists = true;
-          for (HdfsFileStatus file : listing.getPartialListing()) {
-            String filename = file.getLocalName();
-            if (totalRemainingEntries > 0 && filename.compareTo(lastName) > 0) {
-              // Discarding entries further than the lastName
-              remainingEntries++;
-            } else {
-              nnListing.put(filename, file);
-            }
-          }
-          remainingEntries += listing.getRemainingEntries();
         }
       }
+    } else {
+      listings = Collections.emptyMap();
     }
 
     // Add mount points at this level in the tree
     final List<String> children = subclusterResolver.getMountPoints(src);
-    if (children != null) {
-      // Get the dates for each mount point
-      Map<String, Long> dates = getMountPointDates(src);
-
-      // Create virtual folder with the mount name
-      for (String child : children) {
-        long date = 0;
-        if (dates != null && dates.containsKey(child)) {
-          date = dates.get(child);
-        }
-        // TODO add number of children
-        HdfsFileStatus dirStatus = getMountPointStatus(child, 0, date);
-
-        // This may overwrite existing listing entries with the mount point
-        // TODO don't add if already there?
-        nnListing.put(child, dirStatus);
-      }
-    }
-
-    if (!namenodeListingExists && nnListing.size() == 0) {
+    if (!namenodeListingExists && (children == null || children.isEmpty())) {
       // NN returns a null object if the directory cannot be found and has no
       // listing. If we didn't retrieve any NN listing data, and there are no
       // mount points here, return null.
       return null;
     }
 
-    // Generate combined listing
-    HdfsFileStatus[] combinedData = new HdfsFileStatus[nnListing.size()];
-    combinedData = nnListing.values().toArray(combinedData);
-    return new DirectoryListing(combinedData, remainingEntries);
+    // Get the dates for each mount point
+    final Map<String, Long> dates =
+        children == null ? null : getMountPointDates(src);
+
+    // Generate combined listing, the mount points may overwrite existing
+    // listing entries
+    return DirectoryListingMerger.merge(listings.values(), children,
+        child -> {
+          long date = 0;
+          if (dates != null && dates.containsKey(child)) {
+            date = dates.get(child);
+          }
+          // TODO add number of children
+          return getMountPointStatus(child, 0, date);
+        },
+        startAfter, this.listLimit);
   }
 
   @Override // ClientProtocol
@@ -1176,20 +1168,69 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
 
     // If there is no real path, check mount points
     if (ret == null) {
-      List<String> children = subclusterResolver.getMountPoints(src);
-      if (children != null && !children.isEmpty()) {
-        Map<String, Long> dates = getMountPointDates(src);
-        long date = 0;
-        if (dates != null && dates.containsKey(src)) {
-          date = dates.get(src);
-        }
-        ret = getMountPointStatus(src, children.size(), date);
-      }
+      ret = getMountPointStatus(src, getRemoteUser());
     }
 
     return ret;
   }
 
+  /**
+   * Asynchronous version of {@link #getFileInfo(String)}. The handler is not
+   * blocked while the Namenodes process the call, unless the path is in all
+   * the subclusters.
+   *
+   * @param src Path of the file or directory.
+   * @return Future with the file status, null if it doesn't exist.
+   * @throws IOException If the call cannot be sent.
+   */
+  public CompletableFuture<HdfsFileStatus> getFileInfoAsync(final String src)
+      throws IOException {
+    if (isPathAll(src)) {
+      // The locations are checked concurrently
+      return CompletableFuture.completedFuture(getFileInfo(src));
+    }
+    checkOperation(OperationCategory.READ);
+
+    final List<RemoteLocation> locations = getLocationsForPath(src, false);
+    RemoteMethod method = new RemoteMethod("getFileInfo",
+        new Class<?>[] {String.class}, new RemoteParam());
+    // The response is not processed by the handler of the caller
+    final UserGroupInformation ugi = getRemoteUser();
+    return rpcClient.invokeSequentialAsync(
+        locations, method, HdfsFileStatus.class, null).thenCompose(ret -> {
+          CompletableFuture<HdfsFileStatus> future = new CompletableFuture<>();
+          try {
+            // If there is no real path, check mount points
+            future.complete(ret != null ? ret : getMountPointStatus(src, ugi));
+          } catch (IOException e) {
+            future.completeExceptionally(e);
+          }
+          return future;
+        });
+  }
+
+  /**
+   * Get the status of a path which is only a parent of mount points.
+   *
+   * @param src Path to check.
+   * @param ugi User the status is for.
+   * @return Status of the mount point parent, null if there is none.
+   * @throws IOException If the mount points cannot be resolved.
+   */
+  private HdfsFileStatus getMountPointStatus(String src,
+      UserGroupInformation ugi) throws IOException {
+    List<String> children = subclusterResolver.getMountPoints(src);
+    if (children != null && !children.isEmpty()) {
+      Map<String, Long> dates = getMountPointDates(src);
+      long date = 0;
+      if (dates != null && dates.containsKey(src)) {
+        date = dates.get(src);
+      }
+      return getMountPointStatus(src, children.size(), date, ugi);
+    }
+    return null;
+  }
+
   /**
    * Get the file info from all the locations.
    *
@@ -2416,18 +2457,38 @@ private long getModifiedTime(Map<String, Long> ret, String path,
    */
   private HdfsFileStatus getMountPointStatus(
       String name, int childrenNum, long date) {
+    try {
+      return getMountPointStatus(name, childrenNum, date, getRemoteUser());
+    } catch (IOException e) {
+      LOG.error("Cannot get the remote user: {}", e.getMessage());
+      return getMountPointStatus(name, childrenNum, date, null);
+    }
+  }
+
+  /**
+   * Create a new file status for a mount point.
+   *
+   * @param name Name of the mount point.
+   * @param childrenNum Number of children.
+   * @param date Map with the dates.
+   * @param ugi User owning the mount point, null for the super user.
+   * @return New HDFS file status representing a mount point.
+   */
+  private HdfsFileStatus getMountPointStatus(
+      String name, int childrenNum, long date, UserGroupInformation ugi) {
     long modTime = date;
     long accessTime = date;
     FsPermission permission = FsPermission.getDirDefault();
     String owner = this.superUser;
     String group = this.superGroup;
-    try {
-      // TODO support users, it should be the user for the pointed folder
-      UserGroupInformation ugi = getRemoteUser();
-      owner = ugi.getUserName();
-      group = ugi.getPrimaryGroupName();
-    } catch (IOException e) {
-      LOG.error("Cannot get the remote user: {}", e.getMessage());
+    if (ugi != null) {
+      try {
+        // TODO support users, it should be the user for the pointed folder
+        owner = ugi.getUserName();
+        group = ugi.getPrimaryGroupName();
+      } catch (IOException e) {
+        LOG.error("Cannot get the groups of {}: {}", ugi, e.getMessage());
+      }
     }
     long inodeId = 0;
     return new HdfsFileStatus.Builder()
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.fairness;
+
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIRNESS_POLICY_CONTROLLER_CLASS;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIR_HANDLER_COUNT_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_FAIR_HANDLER_WEIGHT_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY;
+import static org.apache.hadoop.test.GenericTestUtils.assertExceptionContains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.server.federation.router.FederationUtil;
+import org.junit.Test;
+
+/**
+ * Test the static split of the Router handlers between the nameservices.
+ */
+public class TestRouterRpcFairnessPolicyController {
+
+  private static Configuration createConf(int handlers) {
+    Configuration conf = new Configuration(false);
+    conf.setClass(DFS_ROUTER_FAIRNESS_POLICY_CONTROLLER_CLASS,
+        StaticRouterRpcFairnessPolicyController.class,
+        RouterRpcFairnessPolicyController.class);
+    conf.setInt(DFS_ROUTER_HANDLER_COUNT_KEY, handlers);
+    conf.set(HdfsClientConfigKeys.DFS_NAMESERVICES, "ns0,ns1,ns2");
+    conf.set(DFS_ROUTER_FAIRNESS_ACQUIRE_TIMEOUT, "10ms");
+    return conf;
+  }
+
+  private static StaticRouterRpcFairnessPolicyController create(
+      Configuration conf) {
+    return (StaticRouterRpcFairnessPolicyController)
+        FederationUtil.newFairnessPolicyController(conf);
+  }
+
+  @Test
+  public void testDefaultPolicy() {
+    Configuration conf = new Configuration(false);
+    RouterRpcFairnessPolicyController controller =
+        FederationUtil.newFairnessPolicyController(conf);
+    assertTrue(controller instanceof NoRouterRpcFairnessPolicyController);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(controller.acquirePermit("ns0"));
+    }
+  }
+
+  @Test
+  public void testEvenSplit() {
+    StaticRouterRpcFairnessPolicyController controller =
+        create(createConf(30));
+    assertEquals(10, controller.getAvailablePermits("ns0"));
+    assertEquals(10, controller.getAvailablePermits("ns1"));
+    assertEquals(10, controller.getAvailablePermits("ns2"));
+  }
+
+  @Test
+  public void testCountsAndWeights() {
+    Configuration conf = createConf(30);
+    conf.setInt(DFS_ROUTER_FAIR_HANDLER_COUNT_KEY_PREFIX + "ns0", 6);
+    conf.setInt(DFS_ROUTER_FAIR_HANDLER_WEIGHT_KEY_PREFIX + "ns1", 3);
+    StaticRouterRpcFairnessPolicyController controller = create(conf);
+    assertEquals(6, controller.getAvailablePermits("ns0"));
+    assertEquals(18, controller.getAvailablePermits("ns1"));
+    assertEquals(6, controller.getAvailablePermits("ns2"));
+  }
+
+  @Test
+  public void testAcquireAndRelease() {
+    Configuration conf = createConf(6);
+    StaticRouterRpcFairnessPolicyController controller = create(conf);
+    assertTrue(controller.acquirePermit("ns0"));
+    assertTrue(controller.acquirePermit("ns0"));
+    // The permits of ns0 are exhausted but not the ones of the others
+    assertFalse(controller.acquirePermit("ns0"));
+    assertTrue(controller.acquirePermit("ns1"));
+    assertEquals(1, controller.getAvailablePermits("ns1"));
+
+    controller.releasePermit("ns0");
+    assertTrue(controller.acquirePermit("ns0"));
+
+    // Nameservices which are not configured are not limited
+    for (int i = 0; i < 10; i++) {
+      assertTrue(controller.acquirePermit("unknown"));
+    }
+    controller.releasePermit("unknown");
+    assertEquals(-1, controller.getAvailablePermits("unknown"));
+  }
+
+  @Test
+  public void testNotEnoughHandlers() {
+    Configuration conf = createConf(10);
+    conf.setInt(DFS_ROUTER_FAIR_HANDLER_COUNT_KEY_PREFIX + "ns0", 9);
+    try {
+      create(conf);
+      fail("There are not enough handlers for ns1 and ns2");
+    } catch (IllegalArgumentException e) {
+      assertExceptionContains("Not enough handlers", e);
+    }
+  }
+
+  @Test
+  public void testInvalidWeight() {
+    Configuration conf = createConf(10);
+    conf.setInt(DFS_ROUTER_FAIR_HANDLER_WEIGHT_KEY_PREFIX + "ns2", 0);
+    try {
+      create(conf);
+      fail("The weight must be positive");
+    } catch (IllegalArgumentException e) {
+      assertExceptionContains("Invalid weight 0 for ns2", e);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.resolver;
+
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_DEFAULT_NAMESERVICE;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.FEDERATION_MOUNT_TABLE_MAX_CACHE_SIZE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the path resolution of the {@link MountTableResolver}.
+ * Run it with:
+ * <pre>
+ * java -cp ... \
+ *   org.apache.hadoop.hdfs.server.federation.resolver.MountTableResolverBenchmark
+ * </pre>
+ * The mount points are spread in a tree with depth 2 to 4. The resolved paths
+ * are files a couple of levels under them, more than fit in the location
+ * cache, so most of the lookups go to the mount table.
+ * The "refresh" group resolves paths while another thread refreshes the
+ * mount table with one mount point changed every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MountTableResolverBenchmark {
+
+  /** Number of distinct paths to resolve. */
+  private static final int NUM_PATHS = 1 << 16;
+
+  @Param({"1000", "20000"})
+  private int numMountPoints;
+
+  @Param({"10000"})
+  private int cacheSize;
+
+  private MountTableResolver resolver;
+  private List<MountTable> entries;
+  private String[] paths;
+  private int refreshes = 0;
+
+  @Setup
+  public void setup() {
+    Configuration conf = new Configuration(false);
+    conf.setInt(FEDERATION_MOUNT_TABLE_MAX_CACHE_SIZE, cacheSize);
+    conf.set(DFS_ROUTER_DEFAULT_NAMESERVICE, "ns0");
+    resolver = new MountTableResolver(conf);
+
+    Random random = new Random(0);
+    entries = new ArrayList<>(numMountPoints);
+    List<String> mountPoints = new ArrayList<>(numMountPoints);
+    for (int i = 0; i < numMountPoints; i++) {
+      StringBuilder src = new StringBuilder();
+      int depth = 2 + random.nextInt(3);
+      for (int d = 0; d < depth; d++) {
+        src.append("/dir").append(random.nextInt(d == 0 ? 32 : 256));
+      }
+      String srcPath = src.toString() + "-" + i;
+      mountPoints.add(srcPath);
+      entries.add(newEntry(srcPath, "ns" + (i % 8)));
+    }
+    resolver.refreshEntries(entries);
+
+    paths = new String[NUM_PATHS];
+    for (int i = 0; i < NUM_PATHS; i++) {
+      String mountPoint = mountPoints.get(random.nextInt(numMountPoints));
+      paths[i] = mountPoint + "/sub" + random.nextInt(16) +
+          "/file" + random.nextInt(1024);
+    }
+  }
+
+  private static MountTable newEntry(String srcPath, String nsId) {
+    try {
+      return MountTable.newInstance(srcPath,
+          Collections.singletonMap(nsId, srcPath));
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /** Position of each thread in the paths to resolve. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next = 0;
+
+    String nextPath(String[] paths) {
+      next = (next + 1) & (NUM_PATHS - 1);
+      return paths[next];
+    }
+  }
+
+  @Benchmark
+  @Group("resolve")
+  @GroupThreads(4)
+  public void getDestinationForPath(Cursor cursor, Blackhole bh)
+      throws IOException {
+    bh.consume(resolver.getDestinationForPath(cursor.nextPath(paths)));
+  }
+
+  @Benchmark
+  @Group("mountPoint")
+  @GroupThreads(4)
+  public void getMountPoint(Cursor cursor, Blackhole bh) throws IOException {
+    bh.consume(resolver.getMountPoint(cursor.nextPath(paths)));
+  }
+
+  @Benchmark
+  @Group("refresh")
+  @GroupThreads(4)
+  public void resolveDuringRefresh(Cursor cursor, Blackhole bh)
+      throws IOException {
+    bh.consume(resolver.getDestinationForPath(cursor.nextPath(paths)));
+  }
+
+  @Benchmark
+  @Group("refresh")
+  @GroupThreads(1)
+  public void refresh() {
+    // Move one mount point to another nameservice
+    int index = refreshes++ % numMountPoints;
+    MountTable old = entries.get(index);
+    entries.set(index, newEntry(old.getSourcePath(), "ns" + refreshes % 8));
+    resolver.refreshEntries(entries);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(MountTableResolverBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+}
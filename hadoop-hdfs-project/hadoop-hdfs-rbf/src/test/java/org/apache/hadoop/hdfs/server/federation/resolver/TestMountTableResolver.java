@@ -32,6 +32,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hdfs.server.federation.router.Router;
@@ -201,6 +203,17 @@ public void testGetMountPoint() throws IOException {
 
     mtEntry = mountTable.getMountPoint("/user/a1");
     assertTrue(mtEntry.getSourcePath().equals("/user"));
+
+    mtEntry = mountTable.getMountPoint("/user//a");
+    assertTrue(mtEntry.getSourcePath().equals("/user"));
+
+    mtEntry = mountTable.getMountPoint("/user/a/demo/test/b/c");
+    assertTrue(mtEntry.getSourcePath().equals("/user/a/demo/test/b"));
+
+    mtEntry = mountTable.getMountPoint("/user/a/demo/test");
+    assertTrue(mtEntry.getSourcePath().equals("/user/a"));
+
+    assertNull(mountTable.getMountPoint("user/a"));
   }
 
   @Test
@@ -525,4 +538,50 @@ public void testLocationCache() throws Exception {
     mountTable.removeEntry("/testlocationcache");
     mountTable.removeEntry("/anothertestlocationcache");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testLookupsDuringRefresh() throws Exception {
+    final String path = "/testrefresh/file";
+    final List<MountTable> entries1 = new ArrayList<>();
+    entries1.add(MountTable.newInstance("/testrefresh",
+        getMountTableEntry("1", "/testrefresh")));
+    final List<MountTable> entries2 = new ArrayList<>();
+    entries2.add(MountTable.newInstance("/testrefresh",
+        getMountTableEntry("2", "/testrefresh")));
+    mountTable.refreshEntries(entries1);
+
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final AtomicReference<String> error = new AtomicReference<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread reader = new Thread(() -> {
+        while (!done.get()) {
+          try {
+            String dest = mountTable.getDestinationForPath(path).toString();
+            if (!dest.equals("1->" + path) && !dest.equals("2->" + path)) {
+              error.set("Unexpected destination " + dest);
+            }
+          } catch (IOException e) {
+            error.set(e.toString());
+          }
+        }
+      });
+      reader.start();
+      readers.add(reader);
+    }
+
+    // The lookups are not blocked by the refreshes and do not keep
+    // locations built with a previous version of the mount table
+    for (int i = 0; i < 1000; i++) {
+      mountTable.refreshEntries(i % 2 == 0 ? entries2 : entries1);
+    }
+    mountTable.refreshEntries(entries2);
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(error.get());
+    assertEquals("2->" + path,
+        mountTable.getDestinationForPath(path).toString());
+  }
+}
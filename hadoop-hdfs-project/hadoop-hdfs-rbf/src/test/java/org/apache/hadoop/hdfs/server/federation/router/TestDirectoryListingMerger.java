@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.apache.hadoop.hdfs.DFSUtil;
+import org.apache.hadoop.hdfs.protocol.DirectoryListing;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.junit.Test;
+
+/**
+ * Test the merge of the directory listings of multiple subclusters in the
+ * Router.
+ */
+public class TestDirectoryListingMerger {
+
+  private static final Function<String, HdfsFileStatus> MOUNT_POINT =
+      name -> status(name, 42);
+
+  private static HdfsFileStatus status(String name, long length) {
+    return new HdfsFileStatus.Builder()
+        .path(DFSUtil.string2Bytes(name))
+        .length(length)
+        .build();
+  }
+
+  /**
+   * Emulate a Namenode returning a page of a sorted directory.
+   */
+  private static DirectoryListing page(List<String> dir, String startAfter,
+      int limit) {
+    List<HdfsFileStatus> entries = new ArrayList<>();
+    int remaining = 0;
+    for (String name : dir) {
+      if (name.compareTo(startAfter) > 0) {
+        if (entries.size() < limit) {
+          entries.add(status(name, 0));
+        } else {
+          remaining++;
+        }
+      }
+    }
+    return new DirectoryListing(
+        entries.toArray(new HdfsFileStatus[entries.size()]), remaining);
+  }
+
+  private static String[] names(DirectoryListing listing) {
+    HdfsFileStatus[] statuses = listing.getPartialListing();
+    String[] ret = new String[statuses.length];
+    for (int i = 0; i < statuses.length; i++) {
+      ret[i] = statuses[i].getLocalName();
+    }
+    return ret;
+  }
+
+  @Test
+  public void testMergeSinglePage() {
+    DirectoryListing ns0 = page(Arrays.asList("a", "c", "e"), "", 10);
+    DirectoryListing ns1 = page(Arrays.asList("b", "c", "d"), "", 10);
+    DirectoryListing merged = DirectoryListingMerger.merge(
+        Arrays.asList(ns0, null, ns1), Arrays.asList("bb", "d"), MOUNT_POINT,
+        HdfsFileStatus.EMPTY_NAME, 100);
+    assertArrayEquals(new String[] {"a", "b", "bb", "c", "d", "e"},
+        names(merged));
+    assertFalse(merged.hasMore());
+    // The mount point replaces the entry with the same name
+    assertEquals(42, merged.getPartialListing()[4].getLen());
+  }
+
+  @Test
+  public void testPagingWithStartAfter() {
+    // Three subclusters with different sizes, pages of 3 entries
+    List<List<String>> dirs = new ArrayList<>();
+    TreeSet<String> expected = new TreeSet<>();
+    for (int ns = 0; ns < 3; ns++) {
+      List<String> dir = new ArrayList<>();
+      for (int i = 0; i < 5 + ns * 7; i++) {
+        String name = String.format("file-%03d", i * (ns + 2));
+        dir.add(name);
+      }
+      Collections.sort(dir);
+      dirs.add(dir);
+      expected.addAll(dir);
+    }
+    List<String> mountPoints = Arrays.asList("file-001", "file-045", "zzz");
+    expected.addAll(mountPoints);
+
+    List<String> listed = new ArrayList<>();
+    byte[] startAfter = HdfsFileStatus.EMPTY_NAME;
+    int pages = 0;
+    DirectoryListing merged;
+    do {
+      String after = DFSUtil.bytes2String(startAfter);
+      List<DirectoryListing> listings = new ArrayList<>();
+      for (List<String> dir : dirs) {
+        listings.add(page(dir, after, 3));
+      }
+      merged = DirectoryListingMerger.merge(
+          listings, mountPoints, MOUNT_POINT, startAfter, 4);
+      assertTrue(merged.getPartialListing().length <= 4);
+      listed.addAll(Arrays.asList(names(merged)));
+      startAfter = merged.getLastName();
+      pages++;
+    } while (merged.hasMore() && pages < 100);
+
+    // Every entry once and in order
+    assertEquals(new ArrayList<>(expected), listed);
+  }
+
+  @Test
+  public void testOnlyMountPoints() {
+    List<String> mountPoints = Arrays.asList("a", "b", "c");
+    DirectoryListing merged = DirectoryListingMerger.merge(
+        Collections.emptyList(), mountPoints, MOUNT_POINT,
+        HdfsFileStatus.EMPTY_NAME, 2);
+    assertArrayEquals(new String[] {"a", "b"}, names(merged));
+    assertEquals(1, merged.getRemainingEntries());
+
+    merged = DirectoryListingMerger.merge(Collections.emptyList(),
+        mountPoints, MOUNT_POINT, DFSUtil.string2Bytes("b"), 2);
+    assertArrayEquals(new String[] {"c"}, names(merged));
+    assertFalse(merged.hasMore());
+  }
+}
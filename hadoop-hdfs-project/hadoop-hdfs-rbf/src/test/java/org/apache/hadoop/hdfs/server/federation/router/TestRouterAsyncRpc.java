@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.FederationTestUtils.simulateSlowNamenode;
+import static org.apache.hadoop.test.GenericTestUtils.assertExceptionContains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.ha.HAServiceProtocol.HAServiceState;
+import org.apache.hadoop.hdfs.protocol.ClientProtocol;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MockResolver;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.NamenodeContext;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.hdfs.server.federation.resolver.FileSubclusterResolver;
+import org.apache.hadoop.hdfs.server.federation.resolver.NamenodeStatusReport;
+import org.apache.hadoop.hdfs.server.namenode.FSNamesystem;
+import org.apache.hadoop.hdfs.server.namenode.ha.HAContext;
+import org.apache.hadoop.hdfs.server.protocol.NamespaceInfo;
+import org.apache.hadoop.net.NetUtils;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Time;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+
+/**
+ * Test the Router proxying calls to the Namenodes asynchronously. This
+ * feature is managed by {@link RBFConfigKeys#DFS_ROUTER_CLIENT_ASYNC_ENABLE}.
+ */
+public class TestRouterAsyncRpc {
+
+  /** Path which only contains a mount point. */
+  private static final String MOUNT_PARENT = "/asyncmountparent";
+
+  private static MiniRouterDFSCluster cluster;
+  private static NamenodeContext nn0;
+  private static RouterContext router;
+  private static ClientProtocol routerProtocol;
+  private static String routerDir;
+
+  /** Resolver with a mount point in {@link #MOUNT_PARENT}. */
+  public static class MountPointResolver extends MockResolver {
+    public MountPointResolver(Configuration conf, Router router) {
+      super(conf, router);
+    }
+
+    @Override
+    public List<String> getMountPoints(String path) throws IOException {
+      if (MOUNT_PARENT.equals(path)) {
+        return Collections.singletonList("child");
+      }
+      return super.getMountPoints(path);
+    }
+  }
+
+  @BeforeClass
+  public static void globalSetUp() throws Exception {
+    cluster = new MiniRouterDFSCluster(false, 2);
+    // The tests only use empty files
+    cluster.setNumDatanodesPerNameservice(0);
+    // The Router proxies the calls of other users
+    Configuration nnConf = new Configuration(false);
+    String routerUser =
+        UserGroupInformation.getCurrentUser().getShortUserName();
+    nnConf.set("hadoop.proxyuser." + routerUser + ".hosts", "*");
+    nnConf.set("hadoop.proxyuser." + routerUser + ".groups", "*");
+    cluster.addNamenodeOverrides(nnConf);
+    cluster.startCluster();
+
+    Configuration routerConf = new RouterConfigBuilder()
+        .metrics()
+        .rpc()
+        .build();
+    routerConf.setBoolean(RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_ENABLE, true);
+    // A single handler, which must not wait for the Namenodes
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY, 1);
+    // A single responder, which must not run the retries
+    routerConf.setInt(
+        RBFConfigKeys.DFS_ROUTER_CLIENT_ASYNC_RESPONDER_COUNT, 1);
+    routerConf.setClass(RBFConfigKeys.FEDERATION_FILE_RESOLVER_CLIENT_CLASS,
+        MountPointResolver.class, FileSubclusterResolver.class);
+    // Fail fast on the subclusters which are down
+    routerConf.setInt(
+        CommonConfigurationKeys.IPC_CLIENT_CONNECT_MAX_RETRIES_KEY, 0);
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.installMockLocations();
+    cluster.createTestDirectoriesNamenode();
+
+    String ns0 = cluster.getNameservices().get(0);
+    nn0 = cluster.getNamenode(ns0, null);
+    routerDir = cluster.getFederatedTestDirectoryForNS(ns0);
+    router = cluster.getRandomRouter();
+    routerProtocol = router.getClient().getNamenode();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  private static String createFile(String name) throws Exception {
+    String ns0 = nn0.getNameserviceId();
+    FileSystem nnFs = nn0.getFileSystem();
+    nnFs.create(
+        new Path(cluster.getNamenodeTestDirectoryForNS(ns0), name)).close();
+    return routerDir + "/" + name;
+  }
+
+  @Test
+  public void testGetFileInfo() throws Exception {
+    String file = createFile("getfileinfo");
+    HdfsFileStatus status = routerProtocol.getFileInfo(file);
+    assertNotNull(status);
+    assertFalse(status.isDirectory());
+    assertEquals(0, status.getLen());
+
+    assertTrue(routerProtocol.getFileInfo(routerDir).isDirectory());
+    assertNull(routerProtocol.getFileInfo(routerDir + "/nonexistent"));
+  }
+
+  @Test
+  public void testGetBlockLocations() throws Exception {
+    String file = createFile("getblocklocations");
+    LocatedBlocks blocks = routerProtocol.getBlockLocations(file, 0, 1);
+    assertNotNull(blocks);
+    assertEquals(0, blocks.getFileLength());
+    assertEquals(0, blocks.locatedBlockCount());
+
+    try {
+      routerProtocol.getBlockLocations(routerDir + "/nonexistent", 0, 1);
+      fail("Getting the blocks of a missing file should fail");
+    } catch (FileNotFoundException e) {
+      assertExceptionContains("nonexistent", e);
+    }
+  }
+
+  @Test
+  public void testHandlerNotBlocked() throws Exception {
+    final String file = createFile("slow");
+    final int numOps = 4;
+    final int delaySeconds = 2;
+
+    FSNamesystem namesystem = nn0.getNamenode().getNamesystem();
+    HAContext haContext = namesystem.getHAContext();
+    simulateSlowNamenode(nn0.getNamenode(), delaySeconds);
+    ExecutorService exec = Executors.newFixedThreadPool(numOps);
+    try {
+      long start = Time.monotonicNow();
+      List<Future<HdfsFileStatus>> futures = new ArrayList<>();
+      for (int i = 0; i < numOps; i++) {
+        futures.add(exec.submit(() -> routerProtocol.getFileInfo(file)));
+      }
+      for (Future<HdfsFileStatus> future : futures) {
+        assertNotNull(future.get());
+      }
+      long elapsed = Time.monotonicNow() - start;
+      // With the handler waiting for the Namenode, the ops would be serial
+      assertTrue("Took " + elapsed + " ms",
+          elapsed < (numOps - 1) * delaySeconds * 1000);
+    } finally {
+      exec.shutdownNow();
+      Whitebox.setInternalState(namesystem, "haContext", haContext);
+    }
+  }
+
+  @Test
+  public void testGetFileInfoMountPoint() throws Exception {
+    UserGroupInformation user = UserGroupInformation.createUserForTesting(
+        "asyncuser", new String[] {"asyncgroup"});
+    final ClientProtocol userProtocol =
+        router.getClient(user).getNamenode();
+    HdfsFileStatus status = user.doAs(
+        new PrivilegedExceptionAction<HdfsFileStatus>() {
+          @Override
+          public HdfsFileStatus run() throws IOException {
+            return userProtocol.getFileInfo(MOUNT_PARENT);
+          }
+        });
+    assertNotNull(status);
+    assertTrue(status.isDirectory());
+    assertEquals(1, status.getChildrenNum());
+    // The mount point belongs to the caller, not to the Router
+    assertEquals("asyncuser", status.getOwner());
+    assertEquals("asyncgroup", status.getGroup());
+  }
+
+  @Test
+  public void testGetFileInfoFailingSubcluster() throws Exception {
+    createFile("failingsubcluster");
+
+    // A subcluster which is down, before the one with the file
+    String nsFail = "nsfail";
+    NamenodeStatusReport report = new NamenodeStatusReport(nsFail, "nn0",
+        "localhost:" + NetUtils.getFreeSocketPort(), "localhost:0",
+        "localhost:0", "localhost:0");
+    report.setHAServiceState(HAServiceState.ACTIVE);
+    report.setNamespaceInfo(new NamespaceInfo(
+        1, "testclusterid", "bp-" + nsFail, 0, "testbuild", "testversion"));
+    MockResolver namenodeResolver =
+        (MockResolver) router.getRouter().getNamenodeResolver();
+    namenodeResolver.registerNamenode(report);
+    MockResolver resolver =
+        (MockResolver) router.getRouter().getSubclusterResolver();
+    String ns0 = nn0.getNameserviceId();
+    resolver.addLocation("/failing", nsFail, "/failing");
+    resolver.addLocation("/failing", ns0,
+        cluster.getNamenodeTestDirectoryForNS(ns0));
+
+    final int numOps = 4;
+    ExecutorService exec = Executors.newFixedThreadPool(numOps);
+    try {
+      // The subcluster which is down is retried out of the responder
+      List<Future<HdfsFileStatus>> futures = new ArrayList<>();
+      for (int i = 0; i < numOps; i++) {
+        futures.add(exec.submit(() -> routerProtocol.getFileInfo(
+            "/failing/failingsubcluster")));
+      }
+      for (Future<HdfsFileStatus> future : futures) {
+        HdfsFileStatus status = future.get();
+        assertNotNull(status);
+        assertFalse(status.isDirectory());
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+}
@@ -68,6 +68,9 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_WEBHDFS_NETTY_HIGH_WATERMARK =
       "dfs.webhdfs.netty.high.watermark";
   public static final int  DFS_WEBHDFS_NETTY_HIGH_WATERMARK_DEFAULT = 65535;
+  public static final String  DFS_WEBHDFS_NETTY_READ_CHUNK_SIZE =
+      "dfs.webhdfs.netty.read.chunk.size";
+  public static final int  DFS_WEBHDFS_NETTY_READ_CHUNK_SIZE_DEFAULT = 65536;
   public static final String  DFS_WEBHDFS_UGI_EXPIRE_AFTER_ACCESS_KEY =
       "dfs.webhdfs.ugi.expire.after.access";
   public static final int     DFS_WEBHDFS_UGI_EXPIRE_AFTER_ACCESS_DEFAULT =
@@ -380,6 +383,22 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_NAMENODE_PATH_BASED_CACHE_REFRESH_INTERVAL_MS =
       "dfs.namenode.path.based.cache.refresh.interval.ms";
   public static final long    DFS_NAMENODE_PATH_BASED_CACHE_REFRESH_INTERVAL_MS_DEFAULT = 30000L;
+  public static final String  DFS_NAMENODE_CACHING_AUTO_ENABLED_KEY =
+      "dfs.namenode.caching.auto.enabled";
+  public static final boolean DFS_NAMENODE_CACHING_AUTO_ENABLED_DEFAULT = false;
+  public static final String  DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_KEY =
+      "dfs.namenode.caching.auto.min.accesses";
+  public static final long    DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_DEFAULT = 64;
+  public static final String  DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY =
+      "dfs.namenode.caching.auto.limit";
+  public static final long    DFS_NAMENODE_CACHING_AUTO_LIMIT_DEFAULT =
+      1024L * 1024 * 1024;
+  public static final String  DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_KEY =
+      "dfs.namenode.caching.auto.max.tracked.files";
+  public static final int     DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_DEFAULT = 100000;
+  public static final String  DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_KEY =
+      "dfs.namenode.caching.auto.max.files.per.rescan";
+  public static final int     DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_DEFAULT = 1000;
 
   /** Pending period of block deletion since NameNode startup */
   public static final String  DFS_NAMENODE_STARTUP_DELAY_BLOCK_DELETION_SEC_KEY = "dfs.namenode.startup.delay.block.deletion.sec";
@@ -584,6 +603,8 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final int     DFS_BALANCER_MAX_NO_MOVE_INTERVAL_DEFAULT = 60*1000; // One minute
   public static final String  DFS_BALANCER_MAX_ITERATION_TIME_KEY = "dfs.balancer.max-iteration-time";
   public static final long    DFS_BALANCER_MAX_ITERATION_TIME_DEFAULT = 20 * 60 * 1000L; // 20 mins
+  public static final String  DFS_BALANCER_MAX_STRAGGLER_WAIT_TIME_KEY = "dfs.balancer.max-straggler-wait-time";
+  public static final long    DFS_BALANCER_MAX_STRAGGLER_WAIT_TIME_DEFAULT = 0;
 
 
   public static final String  DFS_MOVER_MOVEDWINWIDTH_KEY = "dfs.mover.movedWinWidth";
@@ -640,6 +661,16 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.datanode.ec.reconstruction.xmits.weight";
   public static final float   DFS_DN_EC_RECONSTRUCTION_XMITS_WEIGHT_DEFAULT =
       0.5f;
+  public static final String  DFS_DN_EC_RECONSTRUCTION_PIPELINE_DEPTH_KEY =
+      "dfs.datanode.ec.reconstruction.pipeline.depth";
+  public static final int     DFS_DN_EC_RECONSTRUCTION_PIPELINE_DEPTH_DEFAULT =
+      0;
+  public static final String
+      DFS_DN_EC_RECONSTRUCTION_PIPELINE_MEMORY_BUDGET_KEY =
+      "dfs.datanode.ec.reconstruction.pipeline.memory.budget";
+  public static final long
+      DFS_DN_EC_RECONSTRUCTION_PIPELINE_MEMORY_BUDGET_DEFAULT =
+      256L * 1024 * 1024;
 
   public static final String
       DFS_DATANODE_DIRECTORYSCAN_THROTTLE_LIMIT_MS_PER_SEC_KEY =
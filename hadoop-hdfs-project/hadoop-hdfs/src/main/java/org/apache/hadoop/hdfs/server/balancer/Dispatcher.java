@@ -30,6 +30,7 @@
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +44,8 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -139,6 +142,16 @@ public class Dispatcher {
   private BlockPlacementPolicies placementPolicies;
 
   private long maxIterationTime;
+  /**
+   * How long to wait for the moves still running once all the sources are
+   * done dispatching, before cancelling them. 0 to wait for all of them.
+   */
+  private final long maxStragglerWait;
+  /** Set once the stragglers of the iteration are cancelled. */
+  private volatile boolean movesCancelled = false;
+
+  /** Rates and planned bytes of the datanodes, shared by the iterations. */
+  private final MovePlanner planner;
 
   static class Allocator {
     private final int max;
@@ -237,6 +250,8 @@ public class PendingMove {
     private Source source;
     private DDatanode proxySource;
     private StorageGroup target;
+    /** The connection to the target, while the move is dispatched. */
+    private volatile Socket sock;
 
     private PendingMove(Source source, StorageGroup target) {
       this.source = source;
@@ -327,8 +342,13 @@ && addTo(loc)) {
           return true;
         }
       }
-      // find out a non-busy replica
-      for (StorageGroup loc : reportedBlock.getLocations()) {
+      // find out a non-busy replica, the fastest first
+      final List<StorageGroup> locations =
+          new ArrayList<>(reportedBlock.getLocations());
+      Collections.sort(locations, (a, b) -> Double.compare(
+          planner.getRate(b.getDatanodeInfo()),
+          planner.getRate(a.getDatanodeInfo())));
+      for (StorageGroup loc : locations) {
         if (addTo(loc)) {
           return true;
         }
@@ -348,9 +368,16 @@ private boolean addTo(StorageGroup g) {
 
     /** Dispatch the move to the proxy source & wait for the response. */
     private void dispatch() {
-      Socket sock = new Socket();
+      final Socket sock = new Socket();
+      this.sock = sock;
       DataOutputStream out = null;
       DataInputStream in = null;
+      final DatanodeInfo sourceDn = source.getDatanodeInfo();
+      final DatanodeInfo proxyDn = proxySource.datanode;
+      final DatanodeInfo targetDn = target.getDatanodeInfo();
+      final long numBytes = reportedBlock.getNumBytes();
+      planner.moveStarted(sourceDn, proxyDn, targetDn, numBytes);
+      long moveTime = -1;
       try {
         if (source.isIterationOver()){
           LOG.info("Cancel moving " + this +
@@ -358,6 +385,12 @@ private void dispatch() {
               " dfs.balancer.max-iteration-time is passed.");
           throw new IOException("Block move cancelled.");
         }
+        if (movesCancelled) {
+          LOG.info("Cancel moving " + this + " as the moves still in"
+              + " progress after dfs.balancer.max-straggler-wait-time are"
+              + " cancelled.");
+          throw new IOException("Block move cancelled.");
+        }
         LOG.info("Start moving " + this);
         assert !(reportedBlock instanceof DBlockStriped);
 
@@ -389,8 +422,10 @@ private void dispatch() {
         in = new DataInputStream(new BufferedInputStream(unbufIn,
             ioFileBufferSize));
 
+        final long moveStart = Time.monotonicNow();
         sendRequest(out, eb, accessToken);
         receiveResponse(in);
+        moveTime = Time.monotonicNow() - moveStart;
         nnc.getBytesMoved().addAndGet(reportedBlock.getNumBytes());
         target.getDDatanode().setHasSuccess();
         LOG.info("Successfully moved " + this);
@@ -419,6 +454,7 @@ private void dispatch() {
 
         proxySource.removePendingBlock(this);
         target.getDDatanode().removePendingBlock(this);
+        planner.moveFinished(proxyDn, targetDn, numBytes, moveTime);
 
         synchronized (this) {
           reset();
@@ -437,9 +473,17 @@ private void sendRequest(DataOutputStream out, ExtendedBlock eb,
           null);
     }
 
+    /**
+     * Stop the move, if it is dispatched, by closing its connection to the
+     * target. The move fails at once instead of waiting for the response.
+     */
+    private void cancel() {
+      IOUtils.closeSocket(sock);
+    }
+
     /** Check whether to continue waiting for response */
     private boolean stopWaitingForResponse(long startTime) {
-      return source.isIterationOver() ||
+      return source.isIterationOver() || movesCancelled ||
           (blockMoveTimeout > 0 &&
           (Time.monotonicNow() - startTime > blockMoveTimeout));
     }
@@ -464,6 +508,7 @@ private void receiveResponse(DataInputStream in) throws IOException {
 
     /** reset the object */
     private void reset() {
+      sock = null;
       reportedBlock = null;
       source = null;
       proxySource = null;
@@ -722,6 +767,11 @@ synchronized boolean removePendingBlock(PendingMove pendingBlock) {
       return pendings.remove(pendingBlock);
     }
 
+    /** @return the scheduled block moves of the node */
+    synchronized List<PendingMove> getPendingBlocks() {
+      return new ArrayList<PendingMove>(pendings);
+    }
+
     void setHasFailure() {
       this.hasFailure = true;
     }
@@ -877,6 +927,11 @@ private boolean isGoodBlockCandidate(DBlock block) {
      * @return a move that's good for the source to dispatch immediately.
      */
     private PendingMove chooseNextMove() {
+      // Serve the targets expected to finish last first, so that the slow
+      // ones are kept busy from the start instead of becoming stragglers.
+      if (tasks.size() > 1) {
+        sortByExpectedTime(tasks, t -> t.target.getDatanodeInfo());
+      }
       for (Iterator<Task> i = tasks.iterator(); i.hasNext();) {
         final Task task = i.next();
         final DDatanode target = task.target.getDDatanode();
@@ -1057,6 +1112,11 @@ public Dispatcher(NameNodeConnector nnc, Set<String> includedNodes,
         HdfsClientConfigKeys.DFS_CLIENT_USE_DN_HOSTNAME_DEFAULT);
     placementPolicies = new BlockPlacementPolicies(conf, null, cluster, null);
     this.maxIterationTime = maxIterationTime;
+    this.maxStragglerWait = conf.getTimeDuration(
+        DFSConfigKeys.DFS_BALANCER_MAX_STRAGGLER_WAIT_TIME_KEY,
+        DFSConfigKeys.DFS_BALANCER_MAX_STRAGGLER_WAIT_TIME_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    this.planner = nnc.getMovePlanner();
   }
 
   public DistributedFileSystem getDistributedFileSystem() {
@@ -1180,7 +1240,8 @@ public boolean dispatchAndCheckContinue() throws InterruptedException {
    */
   private long dispatchBlockMoves() throws InterruptedException {
     final long bytesLastMoved = getBytesMoved();
-    final Future<?>[] futures = new Future<?>[sources.size()];
+    final List<Source> plan = planMoves();
+    final Future<?>[] futures = new Future<?>[plan.size()];
 
     int concurrentThreads = Math.min(sources.size(),
         ((ThreadPoolExecutor)dispatchExecutor).getCorePoolSize());
@@ -1211,7 +1272,7 @@ private long dispatchBlockMoves() throws InterruptedException {
     }
 
     long dSec = 0;
-    final Iterator<Source> i = sources.iterator();
+    final Iterator<Source> i = plan.iterator();
     for (int j = 0; j < futures.length; j++) {
       final Source s = i.next();
       final long delay = dSec * 1000;
@@ -1238,12 +1299,54 @@ public void run() {
       }
     }
 
-    // wait for all reportedBlock moving to be done
-    waitForMoveCompletion(targets);
+    // wait for all reportedBlock moving to be done, cancelling the stragglers
+    waitForMoveCompletion(targets, maxStragglerWait);
 
     return getBytesMoved() - bytesLastMoved;
   }
 
+  /**
+   * Plan the moves of all the sources together. The bytes every datanode is
+   * to send or receive are registered with the {@link MovePlanner}, then the
+   * sources are ordered by the time they are expected to take, the longest
+   * first. With more sources than dispatcher threads this keeps the slow
+   * sources from being started last and holding the end of the iteration.
+   *
+   * @return the sources in the order to dispatch them
+   */
+  private List<Source> planMoves() {
+    planner.resetPlannedBytes();
+    for (Source s : sources) {
+      for (Task t : s.tasks) {
+        planner.addPlannedBytes(s.getDatanodeInfo(), t.size);
+        planner.addPlannedBytes(t.target.getDatanodeInfo(), t.size);
+      }
+    }
+    final List<Source> plan = new ArrayList<>(sources);
+    sortByExpectedTime(plan, Source::getDatanodeInfo);
+    if (LOG.isDebugEnabled() && !plan.isEmpty()) {
+      LOG.debug("Planned " + plan.size() + " sources, the first one "
+          + plan.get(0).getDisplayName() + " is expected to take "
+          + (long) planner.getExpectedTime(plan.get(0).getDatanodeInfo())
+          + " ms");
+    }
+    return plan;
+  }
+
+  /**
+   * Sort by decreasing time the datanodes are expected to need to move the
+   * bytes planned for them.
+   */
+  private <T> void sortByExpectedTime(List<T> items,
+      Function<T, DatanodeInfo> datanode) {
+    final Map<T, Double> times = new HashMap<>();
+    for (T item : items) {
+      times.put(item, planner.getExpectedTime(datanode.apply(item)));
+    }
+    Collections.sort(items, (a, b) -> Double.compare(times.get(b),
+        times.get(a)));
+  }
+
   /**
    * Wait for all reportedBlock move confirmations.
    * @return true if there is failed move execution
@@ -1271,6 +1374,56 @@ public static boolean waitForMoveCompletion(
     }
   }
 
+  /**
+   * Wait for the reportedBlock move confirmations. When maxWait is positive,
+   * the moves still running after maxWait milliseconds are cancelled, and
+   * this waits for them to stop. No move of the iteration is running once
+   * this returns, so the next iteration starts with the per datanode and the
+   * mover thread limits free.
+   * @return true if there is failed move execution
+   */
+  @VisibleForTesting
+  boolean waitForMoveCompletion(Iterable<? extends StorageGroup> targets,
+      long maxWait) {
+    if (maxWait > 0) {
+      final long start = Time.monotonicNow();
+      long remaining = maxWait;
+      while (!isPendingQEmpty(targets) && remaining > 0) {
+        try {
+          Thread.sleep(Math.min(1000, remaining));
+        } catch (InterruptedException ignored) {
+        }
+        remaining = maxWait - (Time.monotonicNow() - start);
+      }
+      if (!isPendingQEmpty(targets)) {
+        LOG.info("Cancel the block moves still in progress after "
+            + maxWait + " ms.");
+        cancelMoves(targets);
+      }
+    }
+    return waitForMoveCompletion(targets);
+  }
+
+  private static boolean isPendingQEmpty(
+      Iterable<? extends StorageGroup> targets) {
+    for (StorageGroup t : targets) {
+      if (!t.getDDatanode().isPendingQEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Cancel the scheduled and the dispatched moves to the targets. */
+  private void cancelMoves(Iterable<? extends StorageGroup> targets) {
+    movesCancelled = true;
+    for (StorageGroup t : targets) {
+      for (PendingMove p : t.getDDatanode().getPendingBlocks()) {
+        p.cancel();
+      }
+    }
+  }
+
   /**
    * Check any of the block movements are failed due to block pinning errors. If
    * yes, add the failed blockId and its respective source node location to the
@@ -1370,6 +1523,7 @@ void reset(Configuration conf) {
     sources.clear();
 
     moverThreadAllocator.reset();
+    movesCancelled = false;
     for(StorageGroup t : targets) {
       t.getDDatanode().shutdownMoveExecutor();
     }
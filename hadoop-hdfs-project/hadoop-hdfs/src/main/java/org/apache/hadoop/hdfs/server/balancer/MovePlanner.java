@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.balancer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Keeps track of how fast the datanodes move blocks and of the bytes planned
+ * and in flight for each of them, so that the {@link Dispatcher} can plan the
+ * moves of all the sources together instead of each source greedily.
+ *
+ * The rate of a datanode is a moving average of the throughput of the
+ * replaceBlock operations it took part in, as proxy or as target, measured
+ * from the request to its final response. A move is limited by the slower
+ * of the two, so a fast datanode paired with a slow one gets a pessimistic
+ * sample; the average forgives it over the next moves.
+ *
+ * An instance lives as long as the {@link NameNodeConnector}, so the rates
+ * are carried over from one iteration to the next.
+ */
+@InterfaceAudience.Private
+class MovePlanner {
+  /** Weight of a new sample in the moving average of the rate. */
+  private static final double SAMPLE_WEIGHT = 0.25;
+
+  private static class NodeStats {
+    /** Bytes per millisecond of a single move, 0 if not known yet. */
+    private double rate = 0;
+    /** Bytes assigned to the datanode and not dispatched yet. */
+    private long plannedBytes = 0;
+    /** Bytes of the moves dispatched and not finished yet. */
+    private long inFlightBytes = 0;
+  }
+
+  private final Map<String, NodeStats> nodes = new HashMap<>();
+  private double rateSum = 0;
+  private int rateCount = 0;
+
+  private NodeStats getStats(DatanodeInfo dn) {
+    NodeStats stats = nodes.get(dn.getDatanodeUuid());
+    if (stats == null) {
+      stats = new NodeStats();
+      nodes.put(dn.getDatanodeUuid(), stats);
+    }
+    return stats;
+  }
+
+  private static DatanodeInfo[] nodesOf(DatanodeInfo from,
+      DatanodeInfo to) {
+    // A move within a datanode only counts once
+    return from.equals(to) ? new DatanodeInfo[] {to}
+        : new DatanodeInfo[] {from, to};
+  }
+
+  /** Forget the bytes planned by a previous iteration. */
+  synchronized void resetPlannedBytes() {
+    for (NodeStats stats : nodes.values()) {
+      stats.plannedBytes = 0;
+    }
+  }
+
+  /** Assign bytes to receive (or send) to a datanode. */
+  synchronized void addPlannedBytes(DatanodeInfo dn, long bytes) {
+    getStats(dn).plannedBytes += bytes;
+  }
+
+  /** A block move from source to target through proxy was dispatched. */
+  synchronized void moveStarted(DatanodeInfo source, DatanodeInfo proxy,
+      DatanodeInfo target, long bytes) {
+    for (DatanodeInfo dn : nodesOf(source, target)) {
+      final NodeStats stats = getStats(dn);
+      stats.plannedBytes = Math.max(0, stats.plannedBytes - bytes);
+    }
+    for (DatanodeInfo dn : nodesOf(proxy, target)) {
+      getStats(dn).inFlightBytes += bytes;
+    }
+  }
+
+  /**
+   * A block move finished.
+   * @param millis the time the move took, or a negative value if it failed
+   */
+  synchronized void moveFinished(DatanodeInfo proxy, DatanodeInfo target,
+      long bytes, long millis) {
+    final double sample = millis >= 0 ? (double) bytes / Math.max(1, millis)
+        : 0;
+    for (DatanodeInfo dn : nodesOf(proxy, target)) {
+      final NodeStats stats = getStats(dn);
+      stats.inFlightBytes = Math.max(0, stats.inFlightBytes - bytes);
+      if (sample > 0) {
+        if (stats.rate == 0) {
+          stats.rate = sample;
+          rateCount++;
+        } else {
+          rateSum -= stats.rate;
+          stats.rate += SAMPLE_WEIGHT * (sample - stats.rate);
+        }
+        rateSum += stats.rate;
+      }
+    }
+  }
+
+  /**
+   * @return the rate of a datanode in bytes per millisecond; the average of
+   * the known rates for the datanodes without any move yet, and 1 if no
+   * rate is known at all.
+   */
+  synchronized double getRate(DatanodeInfo dn) {
+    final NodeStats stats = nodes.get(dn.getDatanodeUuid());
+    if (stats != null && stats.rate > 0) {
+      return stats.rate;
+    }
+    return rateCount > 0 ? rateSum / rateCount : 1;
+  }
+
+  /**
+   * @return the time the datanode needs to move the bytes planned for it and
+   * in flight, in the unit of {@link #getRate}.
+   */
+  synchronized double getExpectedTime(DatanodeInfo dn) {
+    final NodeStats stats = nodes.get(dn.getDatanodeUuid());
+    if (stats == null) {
+      return 0;
+    }
+    return (stats.plannedBytes + stats.inFlightBytes) / getRate(dn);
+  }
+
+  @VisibleForTesting
+  synchronized long getInFlightBytes(DatanodeInfo dn) {
+    final NodeStats stats = nodes.get(dn.getDatanodeUuid());
+    return stats == null ? 0 : stats.inFlightBytes;
+  }
+}
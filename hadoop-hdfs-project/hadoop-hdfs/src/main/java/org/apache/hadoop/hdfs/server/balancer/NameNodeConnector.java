@@ -114,6 +114,7 @@ public static void setWrite2IdFile(boolean write2IdFile) {
   private final OutputStream out;
   private final List<Path> targetPaths;
   private final AtomicLong bytesMoved = new AtomicLong();
+  private final MovePlanner movePlanner = new MovePlanner();
 
   private final int maxNotChangedIterations;
   private int notChangedIterations = 0;
@@ -161,6 +162,11 @@ AtomicLong getBytesMoved() {
     return bytesMoved;
   }
 
+  /** @return the planner shared by the iterations on this namenode. */
+  MovePlanner getMovePlanner() {
+    return movePlanner;
+  }
+
   /** @return blocks with locations. */
   public BlocksWithLocations getBlocks(DatanodeInfo datanode, long size, long
       minBlockSize)
@@ -284,6 +284,8 @@ public void close() throws IOException {
   private void rescan() throws InterruptedException {
     scannedDirectives = 0;
     scannedBlocks = 0;
+    // Roll the access counts outside of the namesystem lock.
+    List<Long> hotFiles = cacheManager.rollHotFiles();
     try {
       namesystem.writeLock();
       try {
@@ -299,6 +301,7 @@ private void rescan() throws InterruptedException {
 
       resetStatistics();
       rescanCacheDirectives();
+      rescanHotFiles(hotFiles);
       rescanCachedBlockMap();
       blockManager.getDatanodeManager().resetLastCachingDirectiveSentTime();
     } finally {
@@ -451,6 +454,61 @@ private void rescanFile(CacheDirective directive, INodeFile file) {
         file.getFullPathName(), cachedTotal, neededTotal);
   }
 
+  /**
+   * Cache a single replica of the blocks of the files opened most often since
+   * the last scan, up to the limit of bytes for automatic caching. Blocks
+   * of files which are no longer hot are uncached by
+   * {@link #rescanCachedBlockMap()} as their mark isn't updated.
+   *
+   * @param hotFiles inode ids of the hot files, hottest first.
+   */
+  private void rescanHotFiles(List<Long> hotFiles) {
+    final long limit = cacheManager.getAutoCachingLimit();
+    long bytesNeeded = 0;
+    for (long inodeId : hotFiles) {
+      if (bytesNeeded >= limit) {
+        break;
+      }
+      INode node = namesystem.getFSDirectory().getInode(inodeId);
+      if (node == null || !node.isFile()) {
+        continue;
+      }
+      INodeFile file = node.asFile();
+      if (file.isStriped()) {
+        // Striped blocks aren't cached by the DataNodes.
+        continue;
+      }
+      long fileSize = file.computeFileSizeNotIncludingLastUcBlock();
+      if (bytesNeeded + fileSize > limit) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Not caching hot file {} of {} bytes: {} of the {} " +
+              "bytes for automatic caching are used", file.getFullPathName(),
+              fileSize, bytesNeeded, limit);
+        }
+        continue;
+      }
+      bytesNeeded += fileSize;
+      for (BlockInfo blockInfo : file.getBlocks()) {
+        if (!blockInfo.isComplete()) {
+          continue;
+        }
+        CachedBlock ncblock = new CachedBlock(blockInfo.getBlockId(), (short) 1,
+            mark);
+        CachedBlock ocblock = cachedBlocks.get(ncblock);
+        if (ocblock == null) {
+          cachedBlocks.put(ncblock);
+        } else if (mark != ocblock.getMark()) {
+          // Blocks already marked in this scan are cached by a directive
+          // with a replication of at least one.
+          ocblock.setReplicationAndMark((short) 1, mark);
+        }
+      }
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Caching hot file {}", file.getFullPathName());
+      }
+    }
+  }
+
   private String findReasonForNotCaching(CachedBlock cblock,
       BlockInfo blockInfo) {
     if (blockInfo == null) {
@@ -1904,6 +1904,20 @@ public ShortCircuitFdsUnsupportedException(String msg) {
     }
   }
 
+  /**
+   * The replica of a block can't be passed as file descriptors, although
+   * the DataNode supports short-circuit reads of other blocks, e.g. because
+   * it is in PROVIDED storage.
+   */
+  @InterfaceAudience.LimitedPrivate("HDFS")
+  static public class ShortCircuitFdsUnsupportedForBlockException
+      extends IOException {
+    private static final long serialVersionUID = 1L;
+    public ShortCircuitFdsUnsupportedForBlockException(String msg) {
+      super(msg);
+    }
+  }
+
   @InterfaceAudience.LimitedPrivate("HDFS")
   static public class ShortCircuitFdsVersionException extends IOException {
     private static final long serialVersionUID = 1L;
@@ -1927,14 +1941,23 @@ FileInputStream[] requestShortCircuitFdsForRead(final ExtendedBlock blk,
         blkVersion + ", but the highest format version you can read is " +
         maxVersion);
     }
+    FsVolumeSpi volume = data.getVolume(blk);
+    if (volume != null && volume.getStorageType() == StorageType.PROVIDED) {
+      throw new ShortCircuitFdsUnsupportedForBlockException("The replica of " +
+          blk + " is in PROVIDED storage and can only be read through the " +
+          "DataNode");
+    }
     metrics.incrBlocksGetLocalPathInfo();
     FileInputStream fis[] = new FileInputStream[2];
+    InputStream blockIn = null;
     
     try {
-      fis[0] = (FileInputStream)data.getBlockInputStream(blk, 0);
+      blockIn = data.getBlockInputStream(blk, 0);
+      fis[0] = (FileInputStream) blockIn;
       fis[1] = DatanodeUtil.getMetaDataInputStream(blk, data);
     } catch (ClassCastException e) {
       LOG.debug("requestShortCircuitFdsForRead failed", e);
+      IOUtils.cleanupWithLogger(LOG, blockIn);
       throw new ShortCircuitFdsUnsupportedException("This DataNode's " +
           "FsDatasetSpi does not support short-circuit local reads");
     }
@@ -53,6 +53,7 @@
 import org.apache.hadoop.hdfs.server.datanode.BlockChecksumHelper.ReplicatedBlockChecksumComputer;
 import org.apache.hadoop.hdfs.server.datanode.BlockChecksumHelper.BlockGroupNonStripedChecksumComputer;
 import org.apache.hadoop.hdfs.server.datanode.DataNode.ShortCircuitFdsUnsupportedException;
+import org.apache.hadoop.hdfs.server.datanode.DataNode.ShortCircuitFdsUnsupportedForBlockException;
 import org.apache.hadoop.hdfs.server.datanode.DataNode.ShortCircuitFdsVersionException;
 import org.apache.hadoop.hdfs.server.datanode.ShortCircuitRegistry.NewShmInfo;
 import org.apache.hadoop.hdfs.server.protocol.DatanodeRegistration;
@@ -380,6 +381,12 @@ public void requestShortCircuitFds(final ExtendedBlock blk,
       } catch (ShortCircuitFdsUnsupportedException e) {
         bld.setStatus(ERROR_UNSUPPORTED);
         bld.setMessage(e.getMessage());
+      } catch (ShortCircuitFdsUnsupportedForBlockException e) {
+        // Setting the access version tells the client that only this block
+        // can't be read by short-circuit, not all the blocks of this node.
+        bld.setStatus(ERROR_UNSUPPORTED);
+        bld.setShortCircuitAccessVersion(DataNode.CURRENT_BLOCK_FORMAT_VERSION);
+        bld.setMessage(e.getMessage());
       } catch (IOException e) {
         bld.setStatus(ERROR);
         bld.setMessage(e.getMessage());
@@ -1158,7 +1165,7 @@ public void replaceBlock(final ExtendedBlock block,
       // Move the block to different storage in the same datanode
       if (proxySource.equals(datanode.getDatanodeId())) {
         ReplicaInfo oldReplica = datanode.data.moveBlockAcrossStorage(block,
-            storageType, storageId);
+            storageType, storageId, dataXceiverServer.balanceThrottler);
         if (oldReplica != null) {
           LOG.info("Moved {} from StorageType {} to {}",
               block, oldReplica.getVolume().getStorageType(), storageType);
@@ -43,6 +43,8 @@
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -864,17 +866,31 @@ private long getDiskBandwidth(DiskBalancerWorkItem item) {
      */
     private long computeDelay(long bytesCopied, long timeUsed,
                               DiskBalancerWorkItem item) {
+      final long megaByte = 1024 * 1024;
+      // The time the copy should have taken at the configured bandwidth.
+      final long expected = MILLISECONDS.convert(bytesCopied, SECONDS)
+          / (getDiskBandwidth(item) * megaByte);
+      final long delay = expected - timeUsed;
+      return (delay <= 0) ? 0 : delay;
+    }
 
-      // we had an overflow, ignore this reading and continue.
-      if (timeUsed == 0) {
-        return 0;
+    /**
+     * Checks if two volumes are on the same local filesystem. Blocks are moved
+     * between such volumes with hard links, which don't use disk bandwidth.
+     *
+     * @param source - source volume
+     * @param dest   - destination volume
+     * @return true if both volumes are on the same filesystem.
+     */
+    private boolean isOnSameFileSystem(FsVolumeSpi source, FsVolumeSpi dest) {
+      try {
+        return Files.getFileStore(Paths.get(source.getBaseURI())).equals(
+            Files.getFileStore(Paths.get(dest.getBaseURI())));
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("Unable to compare the filesystems of {} and {}",
+            source.getBaseURI(), dest.getBaseURI(), e);
+        return false;
       }
-      final int megaByte = 1024 * 1024;
-      long bytesInMB = bytesCopied / megaByte;
-      long lastThroughput = bytesInMB / SECONDS.convert(timeUsed,
-          TimeUnit.MILLISECONDS);
-      long delay = (bytesInMB / getDiskBandwidth(item)) - lastThroughput;
-      return (delay <= 0) ? 0 : MILLISECONDS.convert(delay, TimeUnit.SECONDS);
     }
 
     /**
@@ -1028,6 +1044,7 @@ public void copyBlocks(VolumePair pair, DiskBalancerWorkItem item) {
         return;
       }
 
+      final boolean sameFileSystem = isOnSameFileSystem(source, dest);
       List<FsVolumeSpi.BlockIterator> poolIters = new LinkedList<>();
       startTime = Time.now();
       item.setStartTime(startTime);
@@ -1086,7 +1103,8 @@ public void copyBlocks(VolumePair pair, DiskBalancerWorkItem item) {
               long begin = System.nanoTime();
               this.dataset.moveBlockAcrossVolumes(block, dest);
               long now = System.nanoTime();
-              timeUsed = (now - begin) > 0 ? now - begin : 0;
+              timeUsed = (now - begin) > 0 ?
+                  TimeUnit.NANOSECONDS.toMillis(now - begin) : 0;
             } else {
 
               // Technically it is possible for us to find a smaller block and
@@ -1107,8 +1125,11 @@ public void copyBlocks(VolumePair pair, DiskBalancerWorkItem item) {
             // copy more than Max MB/sec. we sleep enough time
             // to make sure that our promise is good on average.
             // Because we sleep, if a shutdown or cancel call comes in
-            // we exit via Thread Interrupted exception.
-            Thread.sleep(computeDelay(block.getNumBytes(), timeUsed, item));
+            // we exit via Thread Interrupted exception. Linked blocks
+            // don't consume disk bandwidth.
+            if (!sameFileSystem) {
+              Thread.sleep(computeDelay(block.getNumBytes(), timeUsed, item));
+            }
 
             // We delay updating the info to avoid confusing the user.
             // This way we report the copy only if it is under the
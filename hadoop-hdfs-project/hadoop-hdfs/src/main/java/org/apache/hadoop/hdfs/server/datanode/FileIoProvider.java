@@ -28,6 +28,7 @@
 import org.apache.hadoop.hdfs.server.common.Storage;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.impl.FsDatasetUtil;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.nativeio.NativeIO;
@@ -84,6 +85,8 @@ public class FileIoProvider {
   private final DataNode datanode;
 
   private static final int LEN_INT = 4;
+  /** Bytes transferred by transferFile between two throttling calls. */
+  private static final long TRANSFER_FILE_CHUNK_SIZE = 1024 * 1024;
 
   /**
    * @param conf  Configuration object. May be null. When null,
@@ -635,6 +638,84 @@ public void nativeCopyFileUnbuffered(
     }
   }
 
+  /**
+   * Copy the src file to the target with {@link FileChannel#transferTo},
+   * so the data doesn't go through user space, in chunks throttled by the
+   * given throttler.
+   *
+   * @param volume  target volume. null if unavailable.
+   * @param src  an existing file to copy.
+   * @param target  the new file.
+   * @param throttler  throttler of the copy. null for no throttling.
+   * @throws IOException
+   */
+  public void transferFile(
+      @Nullable FsVolumeSpi volume, File src, File target,
+      @Nullable DataTransferThrottler throttler) throws IOException {
+    final long length = src.length();
+    final long begin = profilingEventHook.beforeFileIo(volume, NATIVE_COPY,
+        length);
+    try {
+      faultInjectorEventHook.beforeFileIo(volume, NATIVE_COPY, length);
+      final File parentFile = target.getParentFile();
+      if (parentFile != null && !parentFile.mkdirs() &&
+          !parentFile.isDirectory()) {
+        throw new IOException("Destination '" + parentFile
+            + "' directory cannot be created");
+      }
+      try (FileInputStream in = new FileInputStream(src);
+           FileOutputStream out = new FileOutputStream(target);
+           FileChannel inCh = in.getChannel();
+           FileChannel outCh = out.getChannel()) {
+        final long size = inCh.size();
+        long position = 0;
+        while (position < size) {
+          final long n = inCh.transferTo(position,
+              Math.min(TRANSFER_FILE_CHUNK_SIZE, size - position), outCh);
+          position += n;
+          if (throttler != null) {
+            throttler.throttle(n);
+          }
+        }
+      }
+      if (src.length() != target.length()) {
+        throw new IOException("Failed to copy full contents from '" + src
+            + "' to '" + target + "'");
+      }
+      if (!target.setLastModified(src.lastModified())) {
+        LOG.debug("Failed to preserve last modified date from '{}' to '{}'",
+            src, target);
+      }
+      profilingEventHook.afterFileIo(volume, NATIVE_COPY, begin, length);
+    } catch(Exception e) {
+      onFailure(volume, begin);
+      throw e;
+    }
+  }
+
+  /**
+   * See {@link HardLink#createHardLink(File, File)}.
+   *
+   * @param volume  target volume. null if unavailable.
+   * @param src  an existing file.
+   * @param target  the new link, on the same filesystem as src.
+   * @throws IOException if the link cannot be created, for instance because
+   *                     src and target are on different filesystems.
+   */
+  public void createHardLink(
+      @Nullable FsVolumeSpi volume, File src, File target)
+      throws IOException {
+    final long begin = profilingEventHook.beforeMetadataOp(volume, MOVE);
+    try {
+      faultInjectorEventHook.beforeMetadataOp(volume, MOVE);
+      HardLink.createHardLink(src, target);
+      profilingEventHook.afterMetadataOp(volume, MOVE, begin);
+    } catch(Exception e) {
+      onFailure(volume, begin);
+      throw e;
+    }
+  }
+
   /**
    * See {@link File#mkdirs()}.
    *
@@ -36,6 +36,7 @@
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi.ScanInfo;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.LengthInputStream;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.nativeio.NativeIO;
 import org.apache.hadoop.util.DataChecksum;
@@ -408,6 +409,17 @@ public void copyBlockdata(URI destination) throws IOException {
         getVolume(), getBlockFile(), new File(destination), true);
   }
 
+  @Override
+  public void copyBlockdata(URI destination, DataTransferThrottler throttler)
+      throws IOException {
+    if (throttler == null) {
+      copyBlockdata(destination);
+      return;
+    }
+    getFileIoProvider().transferFile(
+        getVolume(), getBlockFile(), new File(destination), throttler);
+  }
+
   /**
    * Get input stream for a local file and optionally seek to the offset.
    * @param f path to the file
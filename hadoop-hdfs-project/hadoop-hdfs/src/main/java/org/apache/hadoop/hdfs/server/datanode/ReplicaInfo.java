@@ -29,6 +29,7 @@
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi.ScanInfo;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.LengthInputStream;
 import org.apache.hadoop.hdfs.server.protocol.ReplicaRecoveryInfo;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.util.LightWeightResizableGSet;
 
 /**
@@ -279,6 +280,23 @@ abstract public boolean getPinning(LocalFileSystem localFS)
 
   abstract public void copyBlockdata(URI destination) throws IOException;
 
+  /**
+   * Copy the block data to the destination, throttled by the given
+   * throttler. By default the data is copied at once and the throttler
+   * accounts for it afterwards.
+   *
+   * @param destination where to copy the block data
+   * @param throttler throttler of the copy, null for no throttling
+   * @throws IOException
+   */
+  public void copyBlockdata(URI destination, DataTransferThrottler throttler)
+      throws IOException {
+    copyBlockdata(destination);
+    if (throttler != null) {
+      throttler.throttle(getBlockDataLength());
+    }
+  }
+
   /**
    * Number of bytes originally reserved for this replica. The actual
    * reservation is adjusted as data is written to disk.
@@ -31,6 +31,7 @@
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +46,8 @@
 @InterfaceAudience.Private
 public final class ErasureCodingWorker {
   private static final Logger LOG = DataNode.LOG;
+  /** Number of bytes per permit of the reconstruction memory budget. */
+  private static final int PIPELINE_BUDGET_UNIT = 1024;
 
   private final DataNode datanode;
   private final Configuration conf;
@@ -52,6 +55,10 @@ public final class ErasureCodingWorker {
 
   private ThreadPoolExecutor stripedReconstructionPool;
   private ThreadPoolExecutor stripedReadPool;
+  private ThreadPoolExecutor stripedWritePool;
+
+  private final int pipelineDepth;
+  private final Semaphore pipelineBudget;
 
   public ErasureCodingWorker(Configuration conf, DataNode datanode) {
     this.datanode = datanode;
@@ -65,12 +72,49 @@ public ErasureCodingWorker(Configuration conf, DataNode datanode) {
             DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_XMITS_WEIGHT_KEY +
             ", it can not be negative value (" + this.xmitWeight + ").");
 
+    this.pipelineDepth = conf.getInt(
+        DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_PIPELINE_DEPTH_KEY,
+        DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_PIPELINE_DEPTH_DEFAULT);
+    long budget = conf.getLongBytes(
+        DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_PIPELINE_MEMORY_BUDGET_KEY,
+        DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_PIPELINE_MEMORY_BUDGET_DEFAULT);
+    Preconditions.checkArgument(budget >= 0,
+        "Invalid value configured for " +
+            DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_PIPELINE_MEMORY_BUDGET_KEY +
+            ", it can not be negative value (" + budget + ").");
+    this.pipelineBudget = new Semaphore(
+        (int) Math.min(Integer.MAX_VALUE, budget / PIPELINE_BUDGET_UNIT));
+
     initializeStripedReadThreadPool();
+    if (pipelineDepth > 0) {
+      initializeStripedWriteThreadPool();
+    }
     initializeStripedBlkReconstructionThreadPool(conf.getInt(
         DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_THREADS_KEY,
         DFSConfigKeys.DFS_DN_EC_RECONSTRUCTION_THREADS_DEFAULT));
   }
 
+  private void initializeStripedWriteThreadPool() {
+    LOG.debug("Using pipelined striped writes; depth={}", pipelineDepth);
+
+    // One thread per running reconstruction task, which are bounded by the
+    // reconstruction thread pool.
+    stripedWritePool = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+        60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        new Daemon.DaemonFactory() {
+          private final AtomicInteger threadIndex = new AtomicInteger(0);
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = super.newThread(r);
+            t.setName("stripedWrite-" + threadIndex.getAndIncrement());
+            return t;
+          }
+        });
+    stripedWritePool.allowCoreThreadTimeOut(true);
+  }
+
   private void initializeStripedReadThreadPool() {
     LOG.debug("Using striped reads");
 
@@ -165,8 +209,27 @@ CompletionService<Void> createReadService() {
     return new ExecutorCompletionService<>(stripedReadPool);
   }
 
+  /**
+   * Create and start the pipeline writing the data reconstructed by a task.
+   *
+   * @return the pipeline, or null if pipelining is disabled
+   */
+  StripedWritePipeline createWritePipeline(
+      StripedWritePipeline.StripeSender sender) {
+    if (pipelineDepth <= 0) {
+      return null;
+    }
+    StripedWritePipeline pipeline = new StripedWritePipeline(sender,
+        pipelineDepth, pipelineBudget, PIPELINE_BUDGET_UNIT);
+    pipeline.start(stripedWritePool);
+    return pipeline;
+  }
+
   public void shutDown() {
     stripedReconstructionPool.shutdown();
     stripedReadPool.shutdown();
+    if (stripedWritePool != null) {
+      stripedWritePool.shutdown();
+    }
   }
 }
@@ -35,6 +35,8 @@ class StripedBlockReconstructor extends StripedReconstructor
     implements Runnable {
 
   private StripedWriter stripedWriter;
+  /** Writes the reconstructed data, null if it is written in lock step. */
+  private StripedWritePipeline pipeline;
 
   StripedBlockReconstructor(ErasureCodingWorker worker,
       StripedReconstructionInfo stripedReconInfo) {
@@ -50,6 +52,7 @@ boolean hasValidTargets() {
 
   @Override
   public void run() {
+    long start = Time.monotonicNow();
     try {
       initDecoderIfNecessary();
 
@@ -73,14 +76,30 @@ public void run() {
       metrics.incrECReconstructionBytesRead(getBytesRead());
       metrics.incrECReconstructionRemoteBytesRead(getRemoteBytesRead());
       metrics.incrECReconstructionBytesWritten(getBytesWritten());
+      metrics.addECReconstructionThroughput(getBytesWritten(),
+          Time.monotonicNow() - start);
       getStripedReader().close();
-      stripedWriter.close();
+      if (pipeline != null) {
+        // The writer thread may still be sending an aborted stripe
+        pipeline.closeWhenWriterStopped(stripedWriter::close);
+      } else {
+        stripedWriter.close();
+      }
       cleanup();
     }
   }
 
   @Override
   void reconstruct() throws IOException {
+    pipeline = createWritePipeline(stripedWriter);
+    if (pipeline == null) {
+      reconstructInLockStep();
+    } else {
+      reconstructPipelined(pipeline);
+    }
+  }
+
+  private void reconstructInLockStep() throws IOException {
     while (getPositionInBlock() < getMaxTargetLength()) {
       DataNodeFaultInjector.get().stripedBlockReconstruction();
       long remaining = getMaxTargetLength() - getPositionInBlock();
@@ -116,6 +135,76 @@ void reconstruct() throws IOException {
     }
   }
 
+  /**
+   * Read and decode the stripes while the previous ones are being written by
+   * the pipeline.
+   */
+  private void reconstructPipelined(StripedWritePipeline pipeline)
+      throws IOException {
+    final DataNodeMetrics metrics = getDatanode().getMetrics();
+    boolean success = false;
+    try {
+      while (getPositionInBlock() < getMaxTargetLength()) {
+        DataNodeFaultInjector.get().stripedBlockReconstruction();
+        long remaining = getMaxTargetLength() - getPositionInBlock();
+        final int toReconstructLen =
+            (int) Math.min(getStripedReader().getBufferSize(), remaining);
+
+        long start = Time.monotonicNow();
+        getStripedReader().readMinimumSources(toReconstructLen);
+        long readEnd = Time.monotonicNow();
+
+        int[] realWriters = stripedWriter.getRealTargetWriters();
+        if (realWriters.length == 0) {
+          throw new IOException("Transfer failed for all targets.");
+        }
+        ByteBuffer[] outputs = decodeTargets(realWriters, toReconstructLen);
+        long decodeEnd = Time.monotonicNow();
+
+        long waitBefore = pipeline.getWaitTimeMillis();
+        pipeline.submit(realWriters, outputs);
+
+        metrics.incrECReconstructionReadTime(readEnd - start);
+        metrics.incrECReconstructionDecodingTime(decodeEnd - readEnd);
+        metrics.incrECReconstructionPipelineWaitTime(
+            pipeline.getWaitTimeMillis() - waitBefore);
+
+        updatePositionInBlock(toReconstructLen);
+
+        getStripedReader().clearBuffers();
+      }
+      pipeline.finish();
+      success = true;
+    } finally {
+      if (!success) {
+        pipeline.abort();
+      }
+    }
+  }
+
+  private ByteBuffer[] decodeTargets(int[] realWriters, int toReconstructLen)
+      throws IOException {
+    ByteBuffer[] inputs = getStripedReader().getInputBuffers(toReconstructLen);
+
+    int[] erasedIndices = stripedWriter.getTargetIndices(realWriters);
+    ByteBuffer[] outputs =
+        stripedWriter.allocateTargetBuffers(realWriters, toReconstructLen);
+
+    long start = System.nanoTime();
+    try {
+      getDecoder().decode(inputs, erasedIndices, outputs);
+    } catch (IOException | RuntimeException e) {
+      stripedWriter.release(
+          new StripedWritePipeline.Stripe(realWriters, outputs, 0));
+      throw e;
+    }
+    long end = System.nanoTime();
+    this.getDatanode().getMetrics().incrECDecodingTime(end - start);
+
+    stripedWriter.updateTargetBuffers(realWriters, outputs, toReconstructLen);
+    return outputs;
+  }
+
   private void reconstructTargets(int toReconstructLen) throws IOException {
     ByteBuffer[] inputs = getStripedReader().getInputBuffers(toReconstructLen);
 
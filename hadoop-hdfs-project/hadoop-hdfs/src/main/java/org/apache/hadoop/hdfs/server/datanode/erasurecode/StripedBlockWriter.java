@@ -162,38 +162,47 @@ private void init() throws IOException {
    * Send data to targets.
    */
   void transferData2Target(byte[] packetBuf) throws IOException {
-    if (targetBuffer.remaining() == 0) {
+    transferData2Target(packetBuf, targetBuffer);
+  }
+
+  /**
+   * Send the remaining bytes of the given buffer to the target. Used by the
+   * reconstruction pipeline, which decodes into buffers of its own.
+   */
+  void transferData2Target(byte[] packetBuf, ByteBuffer data)
+      throws IOException {
+    if (data.remaining() == 0) {
       return;
     }
 
-    if (targetBuffer.isDirect()) {
+    if (data.isDirect()) {
       ByteBuffer directCheckSumBuf =
           BUFFER_POOL.getBuffer(true, stripedWriter.getChecksumBuf().length);
       stripedWriter.getChecksum().calculateChunkedSums(
-          targetBuffer, directCheckSumBuf);
+          data, directCheckSumBuf);
       directCheckSumBuf.get(stripedWriter.getChecksumBuf());
       BUFFER_POOL.putBuffer(directCheckSumBuf);
     } else {
       stripedWriter.getChecksum().calculateChunkedSums(
-          targetBuffer.array(), 0, targetBuffer.remaining(),
-          stripedWriter.getChecksumBuf(), 0);
+          data.array(), data.arrayOffset() + data.position(),
+          data.remaining(), stripedWriter.getChecksumBuf(), 0);
     }
 
     int ckOff = 0;
-    while (targetBuffer.remaining() > 0) {
+    while (data.remaining() > 0) {
       DFSPacket packet = new DFSPacket(packetBuf,
           stripedWriter.getMaxChunksPerPacket(),
           blockOffset4Target, seqNo4Target++,
           stripedWriter.getChecksumSize(), false);
       int maxBytesToPacket = stripedWriter.getMaxChunksPerPacket()
           * stripedWriter.getBytesPerChecksum();
-      int toWrite = targetBuffer.remaining() > maxBytesToPacket ?
-          maxBytesToPacket : targetBuffer.remaining();
+      int toWrite = data.remaining() > maxBytesToPacket ?
+          maxBytesToPacket : data.remaining();
       int ckLen = ((toWrite - 1) / stripedWriter.getBytesPerChecksum() + 1)
           * stripedWriter.getChecksumSize();
       packet.writeChecksum(stripedWriter.getChecksumBuf(), ckOff, ckLen);
       ckOff += ckLen;
-      packet.writeData(targetBuffer, toWrite);
+      packet.writeData(data, toWrite);
 
       // Send packet
       packet.writeTo(targetOutputStream);
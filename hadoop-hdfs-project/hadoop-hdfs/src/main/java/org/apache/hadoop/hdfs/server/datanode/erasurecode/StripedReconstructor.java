@@ -226,6 +226,11 @@ CompletionService<Void> createReadService() {
     return erasureCodingWorker.createReadService();
   }
 
+  StripedWritePipeline createWritePipeline(
+      StripedWritePipeline.StripeSender sender) {
+    return erasureCodingWorker.createWritePipeline(sender);
+  }
+
   ExtendedBlock getBlockGroup() {
     return blockGroup;
   }
@@ -0,0 +1,323 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode.erasurecode;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.server.datanode.DataNode;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples the transfer of reconstructed data to the targets from reading
+ * and decoding, so that the network reads and decoding of the next stripe
+ * overlap with the writes of the previous ones.
+ *
+ * The reconstruction thread decodes each stripe into buffers of its own and
+ * hands them to {@link #submit}. A single writer thread per task drains a
+ * bounded queue of decoded stripes and sends them to the targets in order,
+ * which keeps the packets of every target sequential.
+ *
+ * The buffers queued by all the tasks of a DataNode are bounded by a
+ * memory budget shared through the {@link ErasureCodingWorker}. A task
+ * without any stripe in flight may always queue one, so a task can't be
+ * starved by the budget being held by others.
+ *
+ * The writer thread may still be sending a stripe when the task aborts, so
+ * the task closes the sender through {@link #closeWhenWriterStopped}.
+ */
+@InterfaceAudience.Private
+class StripedWritePipeline {
+  private static final Logger LOG = DataNode.LOG;
+
+  /** Marks the end of the stripes in the queue. */
+  private static final Stripe END_OF_STRIPES = new Stripe(null, null, 0);
+
+  /**
+   * Decoded data of one stripe: for each target that was alive when the
+   * stripe was decoded, a buffer holding the bytes to send.
+   */
+  static final class Stripe {
+    private final int[] targets;
+    private final ByteBuffer[] buffers;
+    private final int budgetPermits;
+
+    Stripe(int[] targets, ByteBuffer[] buffers, int budgetPermits) {
+      this.targets = targets;
+      this.buffers = buffers;
+      this.budgetPermits = budgetPermits;
+    }
+
+    int[] getTargets() {
+      return targets;
+    }
+
+    ByteBuffer[] getBuffers() {
+      return buffers;
+    }
+  }
+
+  /** Sends the buffers of a stripe, returns the number of live targets. */
+  interface StripeSender {
+    int send(Stripe stripe) throws IOException;
+
+    void release(Stripe stripe);
+  }
+
+  private final StripeSender sender;
+  private final BlockingQueue<Stripe> queue;
+  private final Semaphore budget;
+  private final int budgetUnit;
+
+  /** Stripes submitted and not yet released by the writer thread. */
+  private int inFlight = 0;
+  private volatile IOException failure;
+  private boolean finished = false;
+  private long waitTimeMillis = 0;
+  /** Whether the writer thread has returned. */
+  private boolean writerStopped = false;
+  /** Closes the sender once the writer thread returns. */
+  private Runnable closer;
+
+  /**
+   * @param sender sends the stripes to the targets
+   * @param depth the number of decoded stripes that may wait for the writer
+   * @param budget permits of the shared memory budget
+   * @param budgetUnit number of bytes per permit of the budget
+   */
+  StripedWritePipeline(StripeSender sender, int depth, Semaphore budget,
+      int budgetUnit) {
+    Preconditions.checkArgument(depth > 0);
+    this.sender = sender;
+    this.queue = new ArrayBlockingQueue<>(depth + 1);
+    this.budget = budget;
+    this.budgetUnit = budgetUnit;
+  }
+
+  /**
+   * Start the writer thread.
+   */
+  void start(Executor executor) {
+    executor.execute(this::writeStripes);
+  }
+
+  /**
+   * Queue a decoded stripe for the writer thread. Blocks while the queue is
+   * full or the shared memory budget is exhausted, unless this task has no
+   * stripe in flight.
+   *
+   * @param targets indices of the targets the buffers are for
+   * @param buffers the decoded data, owned by the pipeline from now on
+   * @throws IOException if writing to all the targets failed
+   */
+  void submit(int[] targets, ByteBuffer[] buffers) throws IOException {
+    long start = Time.monotonicNow();
+    Stripe stripe = null;
+    try {
+      stripe = new Stripe(targets, buffers, reserve(buffers));
+      synchronized (this) {
+        inFlight++;
+      }
+      checkFailure();
+      queue.put(stripe);
+    } catch (IOException | InterruptedException e) {
+      if (stripe != null) {
+        release(stripe);
+      } else {
+        sender.release(new Stripe(targets, buffers, 0));
+      }
+      if (e instanceof InterruptedException) {
+        throw new InterruptedIOException("Interrupted while queueing " +
+            "reconstructed data");
+      }
+      throw (IOException) e;
+    } finally {
+      waitTimeMillis += Time.monotonicNow() - start;
+    }
+  }
+
+  private int reserve(ByteBuffer[] buffers)
+      throws IOException, InterruptedException {
+    long bytes = 0;
+    for (ByteBuffer buffer : buffers) {
+      bytes += buffer.capacity();
+    }
+    int permits = (int) Math.min(Integer.MAX_VALUE,
+        (bytes + budgetUnit - 1) / budgetUnit);
+    while (!budget.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+      checkFailure();
+      synchronized (this) {
+        if (inFlight == 0) {
+          // Over-commit by a single stripe instead of waiting for others.
+          return 0;
+        }
+      }
+    }
+    return permits;
+  }
+
+  /**
+   * Wait for all the queued stripes to be written.
+   *
+   * @throws IOException if writing to all the targets failed
+   */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      queue.put(END_OF_STRIPES);
+      synchronized (this) {
+        while (inFlight > 0) {
+          wait(100);
+        }
+      }
+    } catch (InterruptedException e) {
+      abort();
+      throw new InterruptedIOException("Interrupted while waiting for " +
+          "reconstructed data to be written");
+    }
+    checkFailure();
+  }
+
+  /**
+   * Drop the stripes which aren't written yet and stop the writer thread.
+   */
+  void abort() {
+    if (failure == null) {
+      failure = new IOException("Reconstruction aborted");
+    }
+    Stripe stripe;
+    while ((stripe = queue.poll()) != null) {
+      if (stripe != END_OF_STRIPES) {
+        release(stripe);
+      }
+    }
+    queue.offer(END_OF_STRIPES);
+  }
+
+  /**
+   * Close the sender once the writer thread doesn't use it anymore: now if
+   * the writer thread has returned, else by the writer thread when it
+   * returns. The pipeline must be finished or aborted.
+   */
+  void closeWhenWriterStopped(Runnable close) {
+    synchronized (this) {
+      if (!writerStopped) {
+        closer = close;
+        return;
+      }
+    }
+    close.run();
+  }
+
+  @VisibleForTesting
+  synchronized boolean isWriterStopped() {
+    return writerStopped;
+  }
+
+  /**
+   * Milliseconds the reconstruction thread was blocked by the pipeline,
+   * because the writer thread or the memory budget was the bottleneck.
+   */
+  long getWaitTimeMillis() {
+    return waitTimeMillis;
+  }
+
+  @VisibleForTesting
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  private void checkFailure() throws IOException {
+    IOException e = failure;
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  private void writeStripes() {
+    try {
+      writeStripesUntilEnd();
+    } finally {
+      Runnable close;
+      synchronized (this) {
+        writerStopped = true;
+        close = closer;
+        closer = null;
+      }
+      if (close != null) {
+        close.run();
+      }
+    }
+  }
+
+  private void writeStripesUntilEnd() {
+    try {
+      while (true) {
+        Stripe stripe = queue.take();
+        if (stripe == END_OF_STRIPES) {
+          return;
+        }
+        try {
+          if (failure == null && sender.send(stripe) == 0) {
+            failure = new IOException("Transfer failed for all targets.");
+          }
+        } catch (Throwable t) {
+          LOG.warn("Failed to write reconstructed data", t);
+          failure = t instanceof IOException ? (IOException) t :
+              new IOException(t);
+        } finally {
+          release(stripe);
+        }
+      }
+    } catch (InterruptedException e) {
+      LOG.info("Reconstruction writer interrupted");
+      failure = new InterruptedIOException("Reconstruction writer " +
+          "interrupted");
+      Stripe stripe;
+      while ((stripe = queue.poll()) != null) {
+        if (stripe != END_OF_STRIPES) {
+          release(stripe);
+        }
+      }
+    }
+  }
+
+  private void release(Stripe stripe) {
+    sender.release(stripe);
+    if (stripe.budgetPermits > 0) {
+      budget.release(stripe.budgetPermits);
+    }
+    synchronized (this) {
+      inFlight--;
+      notifyAll();
+    }
+  }
+}
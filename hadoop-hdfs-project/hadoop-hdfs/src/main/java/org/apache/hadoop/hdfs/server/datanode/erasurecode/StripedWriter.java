@@ -26,6 +26,7 @@
 import org.apache.hadoop.hdfs.server.datanode.CachingStrategy;
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.util.DataChecksum;
+import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 
 import java.io.IOException;
@@ -35,9 +36,13 @@
 
 /**
  * Manage striped writers that writes to a target with reconstructed data.
+ *
+ * When reconstruction is pipelined, the reconstructed data is sent by the
+ * thread of a {@link StripedWritePipeline}, which may mark targets as failed
+ * while the reconstruction thread decodes the next stripes.
  */
 @InterfaceAudience.Private
-class StripedWriter {
+class StripedWriter implements StripedWritePipeline.StripeSender {
   private static final Logger LOG = DataNode.LOG;
   private final static int WRITE_PACKET_SIZE = 64 * 1024;
 
@@ -198,6 +203,111 @@ private StripedBlockWriter createWriter(short index) throws IOException {
         targetStorageTypes[index], targetStorageIds[index]);
   }
 
+  /**
+   * Send a stripe decoded for the pipeline to its targets which are still
+   * alive.
+   *
+   * @return the number of targets alive after sending
+   */
+  @Override
+  public int send(StripedWritePipeline.Stripe stripe) {
+    long start = Time.monotonicNow();
+    int[] stripeWriters = stripe.getTargets();
+    ByteBuffer[] buffers = stripe.getBuffers();
+    for (int j = 0; j < stripeWriters.length; j++) {
+      int i = stripeWriters[j];
+      if (isTargetAlive(i)) {
+        try {
+          writers[i].transferData2Target(packetBuf, buffers[j]);
+        } catch (IOException e) {
+          LOG.warn(e.getMessage());
+          setTargetFailed(i);
+        }
+      }
+    }
+    datanode.getMetrics().incrECReconstructionWriteTime(
+        Time.monotonicNow() - start);
+    return getRealTargets();
+  }
+
+  @Override
+  public void release(StripedWritePipeline.Stripe stripe) {
+    long bytes = 0;
+    for (ByteBuffer buffer : stripe.getBuffers()) {
+      bytes += buffer.capacity();
+      reconstructor.freeBuffer(buffer);
+    }
+    datanode.getMetrics().decrECReconstructionPipelineBufferedBytes(bytes);
+  }
+
+  private synchronized boolean isTargetAlive(int i) {
+    return targetsStatus[i];
+  }
+
+  private synchronized void setTargetFailed(int i) {
+    targetsStatus[i] = false;
+  }
+
+  /**
+   * Indices of the writers whose targets haven't failed so far.
+   */
+  synchronized int[] getRealTargetWriters() {
+    int[] results = new int[getRealTargets()];
+    int m = 0;
+    for (int i = 0; i < targets.length; i++) {
+      if (targetsStatus[i]) {
+        results[m++] = i;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * The internal block indices of the targets of the given writers.
+   */
+  int[] getTargetIndices(int[] realWriters) {
+    int[] results = new int[realWriters.length];
+    for (int j = 0; j < realWriters.length; j++) {
+      results[j] = targetIndices[realWriters[j]];
+    }
+    return results;
+  }
+
+  /**
+   * Allocate the buffers to decode a stripe into for the pipeline, one for
+   * each of the given writers, with toReconstructLen bytes remaining.
+   */
+  ByteBuffer[] allocateTargetBuffers(int[] realWriters,
+      int toReconstructLen) {
+    ByteBuffer[] buffers = new ByteBuffer[realWriters.length];
+    long bytes = 0;
+    for (int j = 0; j < realWriters.length; j++) {
+      buffers[j] = allocateWriteBuffer();
+      buffers[j].clear();
+      buffers[j].limit(toReconstructLen);
+      bytes += buffers[j].capacity();
+    }
+    datanode.getMetrics().incrECReconstructionPipelineBufferedBytes(bytes);
+    return buffers;
+  }
+
+  /**
+   * Trim the decoded buffers of a stripe to the lengths of their blocks,
+   * see {@link #updateRealTargetBuffers}.
+   */
+  void updateTargetBuffers(int[] realWriters, ByteBuffer[] buffers,
+      int toReconstructLen) {
+    for (int j = 0; j < realWriters.length; j++) {
+      long blockLen = reconstructor.getBlockLen(targetIndices[realWriters[j]]);
+      long remaining = blockLen - reconstructor.getPositionInBlock();
+      if (remaining <= 0) {
+        buffers[j].limit(0);
+      } else if (remaining < toReconstructLen) {
+        buffers[j].limit((int) remaining);
+      }
+    }
+  }
+
   ByteBuffer allocateWriteBuffer() {
     return reconstructor.allocateBuffer(reconstructor.getBufferSize());
   }
@@ -206,7 +316,7 @@ int getTargets() {
     return targets.length;
   }
 
-  private int getRealTargets() {
+  private synchronized int getRealTargets() {
     int m = 0;
     for (int i = 0; i < targets.length; i++) {
       if (targetsStatus[i]) {
@@ -60,6 +60,7 @@
 import org.apache.hadoop.hdfs.server.protocol.ReplicaRecoveryInfo;
 import org.apache.hadoop.hdfs.server.protocol.StorageReport;
 import org.apache.hadoop.hdfs.server.protocol.VolumeFailureSummary;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.util.ReflectionUtils;
 
 /**
@@ -627,6 +628,16 @@ void onCompleteLazyPersist(String bpId, long blockId,
    ReplicaInfo moveBlockAcrossStorage(final ExtendedBlock block,
         StorageType targetStorageType, String storageId) throws IOException;
 
+  /**
+   * Move block from one storage to another storage, throttling the copy of
+   * the data if it has to be copied.
+   */
+  default ReplicaInfo moveBlockAcrossStorage(final ExtendedBlock block,
+      StorageType targetStorageType, String storageId,
+      DataTransferThrottler throttler) throws IOException {
+    return moveBlockAcrossStorage(block, targetStorageType, storageId);
+  }
+
   /**
    * Set a block to be pinned on this datanode so that it cannot be moved
    * by Balancer/Mover.
@@ -60,6 +60,7 @@
 import org.apache.hadoop.hdfs.server.datanode.FileIoProvider;
 import org.apache.hadoop.hdfs.server.datanode.FinalizedReplica;
 import org.apache.hadoop.hdfs.server.datanode.LocalReplica;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.util.AutoCloseableLock;
 import org.apache.hadoop.hdfs.protocol.Block;
 import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
@@ -873,18 +874,40 @@ static File moveBlockFiles(Block b, ReplicaInfo replicaInfo, File destdir)
   static File[] copyBlockFiles(long blockId, long genStamp,
       ReplicaInfo srcReplica, File destRoot, boolean calculateChecksum,
       int smallBufferSize, final Configuration conf) throws IOException {
+    return copyBlockFiles(blockId, genStamp, srcReplica, destRoot,
+        calculateChecksum, smallBufferSize, conf, null);
+  }
+
+  static File[] copyBlockFiles(long blockId, long genStamp,
+      ReplicaInfo srcReplica, File destRoot, boolean calculateChecksum,
+      int smallBufferSize, final Configuration conf,
+      DataTransferThrottler throttler) throws IOException {
     final File destDir = DatanodeUtil.idToBlockDir(destRoot, blockId);
     // blockName is same as the filename for the block
     final File dstFile = new File(destDir, srcReplica.getBlockName());
     final File dstMeta = FsDatasetUtil.getMetaFile(dstFile, genStamp);
     return copyBlockFiles(srcReplica, dstMeta, dstFile, calculateChecksum,
-        smallBufferSize, conf);
+        smallBufferSize, conf, throttler);
   }
 
   static File[] copyBlockFiles(ReplicaInfo srcReplica, File dstMeta,
                                File dstFile, boolean calculateChecksum,
                                int smallBufferSize, final Configuration conf)
       throws IOException {
+    return copyBlockFiles(srcReplica, dstMeta, dstFile, calculateChecksum,
+        smallBufferSize, conf, null);
+  }
+
+  /**
+   * Copy the block and meta files of the replica, throttling the copy of the
+   * block data with the given throttler if not null.
+   * @return the new meta and block files.
+   * @throws IOException
+   */
+  static File[] copyBlockFiles(ReplicaInfo srcReplica, File dstMeta,
+      File dstFile, boolean calculateChecksum, int smallBufferSize,
+      final Configuration conf, DataTransferThrottler throttler)
+      throws IOException {
 
     if (calculateChecksum) {
       computeChecksum(srcReplica, dstMeta, smallBufferSize, conf);
@@ -897,7 +920,7 @@ static File[] copyBlockFiles(ReplicaInfo srcReplica, File dstMeta,
       }
     }
     try {
-      srcReplica.copyBlockdata(dstFile.toURI());
+      srcReplica.copyBlockdata(dstFile.toURI(), throttler);
     } catch (IOException e) {
       throw new IOException("Failed to copy " + srcReplica + " block file to "
           + dstFile, e);
@@ -913,6 +936,28 @@ static File[] copyBlockFiles(ReplicaInfo srcReplica, File dstMeta,
     return new File[] {dstMeta, dstFile};
   }
 
+  /**
+   * Hard link the block and meta files of the given replica into the given
+   * destination, which must be on the same filesystem.
+   * @return the new meta and block files.
+   * @throws IOException if the files cannot be linked.
+   */
+  static File[] linkBlockFiles(long blockId, long genStamp,
+      LocalReplica srcReplica, File destRoot) throws IOException {
+    final File destDir = DatanodeUtil.idToBlockDir(destRoot, blockId);
+    final File dstFile = new File(destDir, srcReplica.getBlockName());
+    final File dstMeta = FsDatasetUtil.getMetaFile(dstFile, genStamp);
+    final FileIoProvider fileIoProvider = srcReplica.getFileIoProvider();
+    final FsVolumeSpi volume = srcReplica.getVolume();
+    fileIoProvider.mkdirsWithExistsCheck(volume, destDir);
+    fileIoProvider.createHardLink(volume, srcReplica.getMetaFile(), dstMeta);
+    fileIoProvider.createHardLink(volume, srcReplica.getBlockFile(), dstFile);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Linked " + srcReplica.getBlockURI() + " to " + dstFile);
+    }
+    return new File[] {dstMeta, dstFile};
+  }
+
   /**
    * Move block files from one storage to another storage.
    * @return Returns the Old replicaInfo
@@ -922,6 +967,21 @@ static File[] copyBlockFiles(ReplicaInfo srcReplica, File dstMeta,
   public ReplicaInfo moveBlockAcrossStorage(ExtendedBlock block,
       StorageType targetStorageType, String targetStorageId)
       throws IOException {
+    return moveBlockAcrossStorage(block, targetStorageType, targetStorageId,
+        null);
+  }
+
+  /**
+   * Move block files from one storage to another storage. The files are hard
+   * linked when both storages are on the same filesystem, otherwise the block
+   * data is copied, throttled by the given throttler.
+   * @return Returns the Old replicaInfo
+   * @throws IOException
+   */
+  @Override
+  public ReplicaInfo moveBlockAcrossStorage(ExtendedBlock block,
+      StorageType targetStorageType, String targetStorageId,
+      DataTransferThrottler throttler) throws IOException {
     ReplicaInfo replicaInfo = getReplicaInfo(block);
     if (replicaInfo.getState() != ReplicaState.FINALIZED) {
       throw new ReplicaNotFoundException(
@@ -950,7 +1010,7 @@ public ReplicaInfo moveBlockAcrossStorage(ExtendedBlock block,
           block.getNumBytes());
     }
     try {
-      moveBlock(block, replicaInfo, volumeRef);
+      moveBlock(block, replicaInfo, volumeRef, throttler);
     } finally {
       if (volumeRef != null) {
         volumeRef.close();
@@ -973,8 +1033,14 @@ public ReplicaInfo moveBlockAcrossStorage(ExtendedBlock block,
   @VisibleForTesting
   ReplicaInfo moveBlock(ExtendedBlock block, ReplicaInfo replicaInfo,
       FsVolumeReference volumeRef) throws IOException {
+    return moveBlock(block, replicaInfo, volumeRef, null);
+  }
+
+  private ReplicaInfo moveBlock(ExtendedBlock block, ReplicaInfo replicaInfo,
+      FsVolumeReference volumeRef, DataTransferThrottler throttler)
+      throws IOException {
     ReplicaInfo newReplicaInfo = copyReplicaToVolume(block, replicaInfo,
-        volumeRef);
+        volumeRef, throttler);
     finalizeNewReplica(newReplicaInfo, block);
     removeOldReplica(replicaInfo, newReplicaInfo, block.getBlockPoolId());
     return newReplicaInfo;
@@ -1008,10 +1074,16 @@ private void cleanupReplica(String bpid, ReplicaInfo replicaInfo) {
   @VisibleForTesting
   ReplicaInfo copyReplicaToVolume(ExtendedBlock block, ReplicaInfo replicaInfo,
       FsVolumeReference volumeRef) throws IOException {
+    return copyReplicaToVolume(block, replicaInfo, volumeRef, null);
+  }
+
+  private ReplicaInfo copyReplicaToVolume(ExtendedBlock block,
+      ReplicaInfo replicaInfo, FsVolumeReference volumeRef,
+      DataTransferThrottler throttler) throws IOException {
     FsVolumeImpl targetVolume = (FsVolumeImpl) volumeRef.getVolume();
     // Copy files to temp dir first
     ReplicaInfo newReplicaInfo = targetVolume.moveBlockToTmpLocation(block,
-        replicaInfo, smallBufferSize, conf);
+        replicaInfo, smallBufferSize, conf, throttler);
     return newReplicaInfo;
   }
 
@@ -26,6 +26,8 @@
 import java.io.RandomAccessFile;
 import java.net.URI;
 import java.nio.channels.ClosedChannelException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
@@ -76,6 +78,7 @@
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.impl.RamDiskReplicaTracker.RamDiskReplica;
 import org.apache.hadoop.hdfs.server.protocol.DatanodeStorage;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.util.CloseableReferenceCount;
 import org.apache.hadoop.util.DiskChecker.DiskErrorException;
 import org.apache.hadoop.util.Time;
@@ -133,6 +136,8 @@ public class FsVolumeImpl implements FsVolumeSpi {
   protected volatile long configuredCapacity;
   private final FileIoProvider fileIoProvider;
   private final DataNodeVolumeMetrics metrics;
+  /** The filesystem of the volume, looked up on first use. */
+  private volatile FileStore fileStore;
 
   /**
    * Per-volume worker pool that processes new blocks to cache.
@@ -1432,11 +1437,41 @@ public ReplicaInfo moveBlockToTmpLocation(ExtendedBlock block,
       ReplicaInfo replicaInfo,
       int smallBufferSize,
       Configuration conf) throws IOException {
+    return moveBlockToTmpLocation(block, replicaInfo, smallBufferSize, conf,
+        null);
+  }
 
-    File[] blockFiles = FsDatasetImpl.copyBlockFiles(block.getBlockId(),
-        block.getGenerationStamp(), replicaInfo,
-        getTmpDir(block.getBlockPoolId()),
-        replicaInfo.isOnTransientStorage(), smallBufferSize, conf);
+  /**
+   * Create a temporary replica of the given replica on this volume.
+   *
+   * When the replica is on the same filesystem as this volume, for instance
+   * two storage types configured on the same mount, its files are hard
+   * linked: no data is read or written, and the source replica stays valid
+   * until the new one is finalized, as with a copy. Otherwise the files are
+   * copied and the copy of the block data is throttled by the throttler.
+   */
+  public ReplicaInfo moveBlockToTmpLocation(ExtendedBlock block,
+      ReplicaInfo replicaInfo, int smallBufferSize, Configuration conf,
+      DataTransferThrottler throttler) throws IOException {
+    final File tmpDir = getTmpDir(block.getBlockPoolId());
+    File[] blockFiles = null;
+    if (replicaInfo instanceof LocalReplica
+        && !replicaInfo.isOnTransientStorage()
+        && isOnSameFileSystem(replicaInfo.getVolume())) {
+      try {
+        blockFiles = FsDatasetImpl.linkBlockFiles(block.getBlockId(),
+            block.getGenerationStamp(), (LocalReplica) replicaInfo, tmpDir);
+      } catch (IOException e) {
+        LOG.warn("Failed to link " + replicaInfo + " to " + tmpDir
+            + ", copying it instead", e);
+      }
+    }
+    if (blockFiles == null) {
+      blockFiles = FsDatasetImpl.copyBlockFiles(block.getBlockId(),
+          block.getGenerationStamp(), replicaInfo, tmpDir,
+          replicaInfo.isOnTransientStorage(), smallBufferSize, conf,
+          throttler);
+    }
 
     ReplicaInfo newReplicaInfo = new ReplicaBuilder(ReplicaState.TEMPORARY)
         .setBlockId(replicaInfo.getBlockId())
@@ -1449,6 +1484,33 @@ public ReplicaInfo moveBlockToTmpLocation(ExtendedBlock block,
     return newReplicaInfo;
   }
 
+  /**
+   * @return true if the given volume is on the same local filesystem as this
+   * one, so that files can be hard linked from one to the other.
+   */
+  @VisibleForTesting
+  boolean isOnSameFileSystem(FsVolumeSpi other) {
+    if (other == this) {
+      return true;
+    }
+    if (!(other instanceof FsVolumeImpl)) {
+      return false;
+    }
+    final FileStore store = getFileStore();
+    return store != null && store.equals(((FsVolumeImpl) other).getFileStore());
+  }
+
+  private FileStore getFileStore() {
+    if (fileStore == null && currentDir != null) {
+      try {
+        fileStore = Files.getFileStore(currentDir.toPath());
+      } catch (IOException e) {
+        LOG.debug("Failed to get the filesystem of {}", currentDir, e);
+      }
+    }
+    return fileStore;
+  }
+
   public File[] copyBlockToLazyPersistLocation(String bpId, long blockId,
       long genStamp,
       ReplicaInfo replicaInfo,
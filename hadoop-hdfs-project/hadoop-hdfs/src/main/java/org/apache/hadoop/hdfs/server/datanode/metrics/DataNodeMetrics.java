@@ -32,6 +32,7 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStat;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.source.JvmMetrics;
@@ -159,6 +160,13 @@ public class DataNodeMetrics {
   private MutableCounterLong ecReconstructionDecodingTimeMillis;
   @Metric("Milliseconds spent on write by erasure coding worker")
   private MutableCounterLong ecReconstructionWriteTimeMillis;
+  @Metric("Milliseconds erasure coding worker waited for the write pipeline")
+  private MutableCounterLong ecReconstructionPipelineWaitTimeMillis;
+  @Metric("Bytes of reconstructed data waiting to be written")
+  private MutableGaugeLong ecReconstructionPipelineBufferedBytes;
+  @Metric(value = "Throughput of erasure coding reconstruction tasks",
+      sampleName = "Tasks", valueName = "BytesPerSec")
+  private MutableStat ecReconstructionThroughput;
 
   final MetricsRegistry registry = new MetricsRegistry("datanode");
   final String name;
@@ -526,6 +534,29 @@ public void incrECReconstructionDecodingTime(long millis) {
     ecReconstructionDecodingTimeMillis.incr(millis);
   }
 
+  public void incrECReconstructionPipelineWaitTime(long millis) {
+    ecReconstructionPipelineWaitTimeMillis.incr(millis);
+  }
+
+  public void incrECReconstructionPipelineBufferedBytes(long bytes) {
+    ecReconstructionPipelineBufferedBytes.incr(bytes);
+  }
+
+  public void decrECReconstructionPipelineBufferedBytes(long bytes) {
+    ecReconstructionPipelineBufferedBytes.decr(bytes);
+  }
+
+  /**
+   * Record the throughput of a finished reconstruction task.
+   * @param bytes bytes written to the targets
+   * @param millis duration of the task
+   */
+  public void addECReconstructionThroughput(long bytes, long millis) {
+    if (millis > 0) {
+      ecReconstructionThroughput.add(bytes * 1000 / millis);
+    }
+  }
+
   public DataNodeUsageReport getDNUsageReport(long timeSinceLastReport) {
     return dnUsageReportUtil.getUsageReport(bytesWritten.value(), bytesRead
             .value(), totalWriteTime.value(), totalReadTime.value(),
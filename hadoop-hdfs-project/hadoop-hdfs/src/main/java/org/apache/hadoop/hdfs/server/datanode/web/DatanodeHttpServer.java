@@ -28,6 +28,7 @@
 
 import io.netty.bootstrap.ChannelFactory;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
@@ -167,6 +168,8 @@ protected void initChannel(SocketChannel ch) throws Exception {
         }
       });
 
+      this.httpServer.childOption(ChannelOption.ALLOCATOR,
+          PooledByteBufAllocator.DEFAULT);
       this.httpServer.childOption(
           ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK,
           conf.getInt(
@@ -222,7 +225,8 @@ protected void initChannel(SocketChannel ch) throws Exception {
                 new ChunkedWriteHandler(),
                 new URLDispatcher(jettyAddr, conf, confForCreate));
           }
-        });
+        })
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
     } else {
       this.httpsServer = null;
       this.sslFactory = null;
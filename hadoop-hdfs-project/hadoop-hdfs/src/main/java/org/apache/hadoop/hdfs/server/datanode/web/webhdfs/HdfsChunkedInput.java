@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode.web.webhdfs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
+import org.apache.hadoop.http.ByteRange;
+import org.apache.hadoop.io.IOUtils;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Streams ranges of a file to a Netty channel, as the body of a whole,
+ * single range or multipart/byteranges response.
+ *
+ * Each chunk is read through ByteBufferReadable straight into a buffer of
+ * the channel allocator. With the pooled direct allocator of the DataNode,
+ * the data is copied once from the block reader to the buffer handed to the
+ * socket, instead of going through the byte array of a ChunkedStream.
+ */
+class HdfsChunkedInput implements ChunkedInput<ByteBuf> {
+  private final DFSClient client;
+  private final HdfsDataInputStream in;
+  /** Offset in the file of the representation the ranges refer to */
+  private final long offset;
+  /** Length of the representation the ranges refer to */
+  private final long length;
+  private final List<ByteRange> ranges;
+  private final int chunkSize;
+  /** Boundary of the multipart response, null for a single range */
+  private final String boundary;
+  private final String contentType;
+
+  private int current = 0;
+  private long remaining = -1;
+  private boolean partHeaderSent = false;
+  private boolean endOfInput = false;
+
+  /**
+   * @param offset offset in the file of the representation
+   * @param length length of the representation
+   * @param ranges ranges of the representation to send
+   * @param boundary boundary of a multipart/byteranges response, null if
+   *                 the ranges are sent as they are
+   */
+  HdfsChunkedInput(DFSClient client, HdfsDataInputStream in, long offset,
+      long length, List<ByteRange> ranges, int chunkSize, String boundary,
+      String contentType) {
+    this.client = client;
+    this.in = in;
+    this.offset = offset;
+    this.length = length;
+    this.ranges = ranges;
+    this.chunkSize = chunkSize;
+    this.boundary = boundary;
+    this.contentType = contentType;
+  }
+
+  @Override
+  public boolean isEndOfInput() {
+    return endOfInput;
+  }
+
+  @Override
+  public void close() throws Exception {
+    IOUtils.cleanup(WebHdfsHandler.LOG, in);
+    client.close();
+  }
+
+  @Override
+  public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+    if (endOfInput) {
+      return null;
+    }
+    if (current == ranges.size()) {
+      endOfInput = true;
+      return boundary == null ? null
+          : Unpooled.wrappedBuffer(ByteRange.multipartEnd(boundary));
+    }
+
+    ByteRange range = ranges.get(current);
+    if (boundary != null && !partHeaderSent) {
+      partHeaderSent = true;
+      return Unpooled.wrappedBuffer(
+          range.partHeader(boundary, contentType, length));
+    }
+    if (remaining < 0) {
+      in.seek(offset + range.getStart());
+      remaining = range.getLength();
+    }
+
+    int size = (int) Math.min(chunkSize, remaining);
+    ByteBuf buf = ctx.alloc().buffer(size);
+    boolean release = true;
+    try {
+      ByteBuffer nioBuf = buf.nioBuffer(buf.writerIndex(), size);
+      int n = in.read(nioBuf);
+      if (n < 0) {
+        throw new EOFException("Unexpected end of file at "
+            + in.getPos() + ", expected " + remaining + " more bytes");
+      }
+      buf.writerIndex(buf.writerIndex() + n);
+      release = false;
+      remaining -= n;
+    } finally {
+      if (release) {
+        buf.release();
+      }
+    }
+
+    if (remaining == 0) {
+      current++;
+      remaining = -1;
+      partHeaderSent = false;
+      if (current == ranges.size() && boundary == null) {
+        endOfInput = true;
+      }
+    }
+    return buf;
+  }
+}
@@ -28,7 +28,6 @@
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.QueryStringDecoder;
-import io.netty.handler.stream.ChunkedStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -37,6 +36,7 @@
 import org.apache.hadoop.fs.permission.FsCreateModes;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
 import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier;
@@ -47,13 +47,12 @@
 import org.apache.hadoop.hdfs.web.resources.PostOpParam;
 import org.apache.hadoop.hdfs.web.resources.PutOpParam;
 import org.apache.hadoop.hdfs.web.resources.UserParam;
+import org.apache.hadoop.http.ByteRange;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
-import org.apache.hadoop.util.LimitInputStream;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -61,7 +60,9 @@
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedExceptionAction;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT;
 import static io.netty.handler.codec.http.HttpHeaders.Names.ACCESS_CONTROL_ALLOW_HEADERS;
@@ -82,6 +83,8 @@
 import static io.netty.handler.codec.http.HttpResponseStatus.CREATED;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.PARTIAL_CONTENT;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 import static org.apache.hadoop.hdfs.protocol.HdfsConstants.HDFS_URI_SCHEME;
 import static org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier.HDFS_DELEGATION_KIND;
@@ -101,6 +104,7 @@ public class WebHdfsHandler extends SimpleChannelInboundHandler<HttpRequest> {
 
   private final Configuration conf;
   private final Configuration confForCreate;
+  private final int readChunkSize;
 
   private String path;
   private ParameterParser params;
@@ -111,6 +115,9 @@ public WebHdfsHandler(Configuration conf, Configuration confForCreate)
     throws IOException {
     this.conf = conf;
     this.confForCreate = confForCreate;
+    this.readChunkSize = conf.getInt(
+        DFSConfigKeys.DFS_WEBHDFS_NETTY_READ_CHUNK_SIZE,
+        DFSConfigKeys.DFS_WEBHDFS_NETTY_READ_CHUNK_SIZE_DEFAULT);
     /** set user pattern based on configuration file */
     UserParam.setUserPattern(
         conf.get(HdfsClientConfigKeys.DFS_WEBHDFS_USER_PATTERN_KEY,
@@ -170,7 +177,7 @@ public void handle(ChannelHandlerContext ctx, HttpRequest req)
       onAppend(ctx);
     } else if (GetOpParam.Op.OPEN.name().equalsIgnoreCase(op)
       && method == GET) {
-      onOpen(ctx);
+      onOpen(ctx, req);
     } else if(GetOpParam.Op.GETFILECHECKSUM.name().equalsIgnoreCase(op)
       && method == GET) {
       onGetFileChecksum(ctx);
@@ -245,7 +252,8 @@ private void onAppend(ChannelHandlerContext ctx) throws IOException {
       new HdfsWriter(dfsClient, out, resp));
   }
 
-  private void onOpen(ChannelHandlerContext ctx) throws IOException {
+  private void onOpen(ChannelHandlerContext ctx, HttpRequest req)
+      throws IOException {
     final String nnId = params.namenodeId();
     final int bufferSize = params.bufferSize();
     final long offset = params.offset();
@@ -258,32 +266,59 @@ private void onOpen(ChannelHandlerContext ctx) throws IOException {
     headers.set(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
     headers.set(CONTENT_TYPE, APPLICATION_OCTET_STREAM);
     headers.set(CONNECTION, CLOSE);
+    headers.set(ByteRange.ACCEPT_RANGES, ByteRange.BYTES);
 
     final DFSClient dfsclient = newDfsClient(nnId, conf);
-    HdfsDataInputStream in = dfsclient.createWrappedInputStream(
-      dfsclient.open(path, bufferSize, true));
-    in.seek(offset);
+    HdfsDataInputStream in = null;
+    try {
+      in = dfsclient.createWrappedInputStream(
+          dfsclient.open(path, bufferSize, true));
+      in.seek(offset);
+    } catch (IOException e) {
+      IOUtils.cleanup(LOG, in, dfsclient);
+      throw e;
+    }
 
-    long contentLength = in.getVisibleLength() - offset;
+    // The offset and length parameters select the representation the Range
+    // header, if any, refers to.
+    long contentLength = Math.max(in.getVisibleLength() - offset, 0);
     if (length >= 0) {
       contentLength = Math.min(contentLength, length);
     }
-    final InputStream data;
-    if (contentLength >= 0) {
+    List<ByteRange> ranges = ByteRange.parse(
+        req.headers().get(ByteRange.RANGE), contentLength);
+    String boundary = null;
+    if (ranges == null) {
+      ranges = contentLength == 0 ? Collections.<ByteRange>emptyList()
+          : Collections.singletonList(new ByteRange(0, contentLength - 1));
       headers.set(CONTENT_LENGTH, contentLength);
-      data = new LimitInputStream(in, contentLength);
+    } else if (ranges.isEmpty()) {
+      IOUtils.cleanup(LOG, in, dfsclient);
+      resp = new DefaultFullHttpResponse(HTTP_1_1,
+          REQUESTED_RANGE_NOT_SATISFIABLE, Unpooled.EMPTY_BUFFER);
+      resp.headers().set(ByteRange.CONTENT_RANGE,
+          ByteRange.unsatisfiedContentRange(contentLength));
+      resp.headers().set(CONTENT_LENGTH, 0);
+      resp.headers().set(CONNECTION, CLOSE);
+      ctx.writeAndFlush(resp).addListener(ChannelFutureListener.CLOSE);
+      return;
+    } else if (ranges.size() == 1) {
+      resp.setStatus(PARTIAL_CONTENT);
+      headers.set(ByteRange.CONTENT_RANGE,
+          ranges.get(0).toContentRange(contentLength));
+      headers.set(CONTENT_LENGTH, ranges.get(0).getLength());
     } else {
-      data = in;
+      resp.setStatus(PARTIAL_CONTENT);
+      boundary = ByteRange.newBoundary();
+      headers.set(CONTENT_TYPE, ByteRange.multipartContentType(boundary));
+      headers.set(CONTENT_LENGTH, ByteRange.multipartLength(ranges, boundary,
+          APPLICATION_OCTET_STREAM, contentLength));
     }
 
     ctx.write(resp);
-    ctx.writeAndFlush(new ChunkedStream(data) {
-      @Override
-      public void close() throws Exception {
-        super.close();
-        dfsclient.close();
-      }
-    }).addListener(ChannelFutureListener.CLOSE);
+    ctx.writeAndFlush(new HdfsChunkedInput(dfsclient, in, offset,
+        contentLength, ranges, readChunkSize, boundary,
+        APPLICATION_OCTET_STREAM)).addListener(ChannelFutureListener.CLOSE);
   }
 
   private void onGetFileChecksum(ChannelHandlerContext ctx) throws IOException {
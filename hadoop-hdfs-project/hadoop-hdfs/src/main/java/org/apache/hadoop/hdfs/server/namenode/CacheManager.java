@@ -17,6 +17,16 @@
  */
 package org.apache.hadoop.hdfs.server.namenode;
 
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_ENABLED_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_ENABLED_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_LIMIT_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_PATH_BASED_CACHE_BLOCK_MAP_ALLOCATION_PERCENT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_PATH_BASED_CACHE_BLOCK_MAP_ALLOCATION_PERCENT_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LIST_CACHE_DIRECTIVES_NUM_RESPONSES;
@@ -176,6 +186,16 @@ public class CacheManager {
    */
   private CacheReplicationMonitor monitor;
 
+  /**
+   * Tracks the hot files for automatic caching, null if disabled.
+   */
+  private final HotFileTracker hotFileTracker;
+
+  /**
+   * Maximum number of bytes of hot files to cache automatically.
+   */
+  private final long autoCachingLimit;
+
   public static final class PersistState {
     public final CacheManagerSection section;
     public final List<CachePoolInfoProto> pools;
@@ -215,6 +235,27 @@ public PersistState(CacheManagerSection section,
           LightWeightGSet.computeCapacity(cachedBlocksPercent,
               "cachedBlocks"));
 
+    this.autoCachingLimit = conf.getLongBytes(
+        DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY,
+        DFS_NAMENODE_CACHING_AUTO_LIMIT_DEFAULT);
+    boolean autoCachingEnabled = conf.getBoolean(
+        DFS_NAMENODE_CACHING_AUTO_ENABLED_KEY,
+        DFS_NAMENODE_CACHING_AUTO_ENABLED_DEFAULT);
+    if (autoCachingEnabled && autoCachingLimit <= 0) {
+      LOG.warn("Automatic caching of hot files is disabled as {} is {}",
+          DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY, autoCachingLimit);
+    }
+    if (autoCachingEnabled && autoCachingLimit > 0) {
+      this.hotFileTracker = new HotFileTracker(
+          conf.getLong(DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_KEY,
+              DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_DEFAULT),
+          conf.getInt(DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_KEY,
+              DFS_NAMENODE_CACHING_AUTO_MAX_TRACKED_FILES_DEFAULT),
+          conf.getInt(DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_KEY,
+              DFS_NAMENODE_CACHING_AUTO_MAX_FILES_PER_RESCAN_DEFAULT));
+    } else {
+      this.hotFileTracker = null;
+    }
   }
 
   /**
@@ -226,6 +267,9 @@ void clear() {
     directivesByPath.clear();
     cachePools.clear();
     nextDirectiveId = 1;
+    if (hotFileTracker != null) {
+      hotFileTracker.clear();
+    }
   }
 
   public void startMonitorThread() {
@@ -277,6 +321,42 @@ public Collection<CacheDirective> getCacheDirectives() {
     return Collections.unmodifiableCollection(directivesById.values());
   }
   
+  /**
+   * @return true if the hot files are cached automatically.
+   */
+  public boolean isAutoCachingEnabled() {
+    return hotFileTracker != null;
+  }
+
+  /**
+   * @return the maximum number of bytes of hot files to cache.
+   */
+  public long getAutoCachingLimit() {
+    return autoCachingLimit;
+  }
+
+  /**
+   * Count an open of a file for automatic caching. Doesn't need the
+   * namesystem lock.
+   */
+  void recordAccess(long inodeId) {
+    if (hotFileTracker != null) {
+      hotFileTracker.recordAccess(inodeId);
+    }
+  }
+
+  /**
+   * Get the inode ids of the hot files, hottest first and at most
+   * dfs.namenode.caching.auto.max.files.per.rescan of them, and decay the
+   * counts of opens. Called by the CacheReplicationMonitor once per scan.
+   */
+  public List<Long> rollHotFiles() {
+    if (hotFileTracker == null) {
+      return Collections.emptyList();
+    }
+    return hotFileTracker.rollHotFiles();
+  }
+
   @VisibleForTesting
   public GSet<CachedBlock, CachedBlock> getCachedBlocks() {
     assert namesystem.hasReadLock();
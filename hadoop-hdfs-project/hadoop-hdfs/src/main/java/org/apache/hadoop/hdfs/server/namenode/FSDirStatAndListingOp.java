@@ -181,7 +181,8 @@ static GetBlockLocationsResult getBlockLocations(
       boolean updateAccessTime = fsd.isAccessTimeSupported()
           && !iip.isSnapshot()
           && now > inode.getAccessTime() + fsd.getAccessTimePrecision();
-      return new GetBlockLocationsResult(updateAccessTime, blocks);
+      return new GetBlockLocationsResult(updateAccessTime, blocks,
+          inode.getId());
     } finally {
       fsd.readUnlock();
     }
@@ -590,13 +591,15 @@ private static QuotaUsage getQuotaUsageInt(FSDirectory fsd, INodesInPath iip)
   static class GetBlockLocationsResult {
     final boolean updateAccessTime;
     final LocatedBlocks blocks;
+    final long inodeId;
     boolean updateAccessTime() {
       return updateAccessTime;
     }
     private GetBlockLocationsResult(
-        boolean updateAccessTime, LocatedBlocks blocks) {
+        boolean updateAccessTime, LocatedBlocks blocks, long inodeId) {
       this.updateAccessTime = updateAccessTime;
       this.blocks = blocks;
+      this.inodeId = inodeId;
     }
   }
 }
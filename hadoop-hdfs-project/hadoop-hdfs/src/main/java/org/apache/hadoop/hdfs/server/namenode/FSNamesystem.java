@@ -1949,6 +1949,7 @@ LocatedBlocks getBlockLocations(String clientMachine, String srcArg,
     }
 
     logAuditEvent(true, operationName, srcArg);
+    cacheManager.recordAccess(res.inodeId);
 
     if (!isInSafeMode() && res.updateAccessTime()) {
       String src = srcArg;
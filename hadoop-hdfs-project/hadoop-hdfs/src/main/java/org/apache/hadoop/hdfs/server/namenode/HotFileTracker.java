@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts the opens of files, by inode id, to find the hot files for
+ * automatic caching.
+ *
+ * The counts are updated without taking the namesystem lock. They are
+ * halved every time the hot files are rolled, so a file steadily opened n
+ * times between two rolls converges to a count of about 2n, and a file that
+ * isn't opened anymore is forgotten after a few rolls.
+ */
+@InterfaceAudience.Private
+class HotFileTracker {
+  private final long minAccesses;
+  private final int maxTrackedFiles;
+  private final int maxHotFiles;
+  private final Map<Long, AtomicLong> accesses = new ConcurrentHashMap<>();
+  private final AtomicInteger numTracked = new AtomicInteger();
+
+  /**
+   * @param minAccesses the count from which a file is hot
+   * @param maxTrackedFiles the maximum number of files whose opens are
+   *                        counted
+   * @param maxHotFiles the maximum number of hot files returned by a roll
+   */
+  HotFileTracker(long minAccesses, int maxTrackedFiles, int maxHotFiles) {
+    Preconditions.checkArgument(minAccesses > 0);
+    Preconditions.checkArgument(maxTrackedFiles > 0);
+    Preconditions.checkArgument(maxHotFiles > 0);
+    this.minAccesses = minAccesses;
+    this.maxTrackedFiles = maxTrackedFiles;
+    this.maxHotFiles = maxHotFiles;
+  }
+
+  /**
+   * Count an open of the file with the given inode id.
+   */
+  void recordAccess(long inodeId) {
+    AtomicLong count = accesses.get(inodeId);
+    if (count == null) {
+      if (numTracked.get() >= maxTrackedFiles) {
+        return;
+      }
+      AtomicLong newCount = new AtomicLong();
+      count = accesses.putIfAbsent(inodeId, newCount);
+      if (count == null) {
+        numTracked.incrementAndGet();
+        count = newCount;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  /**
+   * Get the hot files, hottest first, then decay all the counts.
+   *
+   * @return the inode ids of the hottest files whose count reached the
+   *         minimum, at most maxHotFiles of them
+   */
+  List<Long> rollHotFiles() {
+    List<Map.Entry<Long, Long>> hot = new ArrayList<>();
+    Iterator<Map.Entry<Long, AtomicLong>> it = accesses.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Long, AtomicLong> entry = it.next();
+      long current = entry.getValue().getAndUpdate(c -> c >>> 1);
+      if (current >= minAccesses) {
+        hot.add(new AbstractMap.SimpleImmutableEntry<>(
+            entry.getKey(), current));
+      } else if (current == 0) {
+        // Opens racing with the removal are lost, which is harmless.
+        it.remove();
+        numTracked.decrementAndGet();
+      }
+    }
+    Collections.sort(hot, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+    int numHot = Math.min(hot.size(), maxHotFiles);
+    List<Long> inodeIds = new ArrayList<>(numHot);
+    for (Map.Entry<Long, Long> entry : hot.subList(0, numHot)) {
+      inodeIds.add(entry.getKey());
+    }
+    return inodeIds;
+  }
+
+  /**
+   * Forget all the counts.
+   */
+  void clear() {
+    accesses.clear();
+    numTracked.set(0);
+  }
+
+  int getNumTrackedFiles() {
+    return numTracked.get();
+  }
+}
@@ -21,6 +21,7 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.protocol.Block;
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicy;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
@@ -48,6 +49,7 @@
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
@@ -219,6 +221,90 @@ public void testPread() throws Exception {
     in.close();
   }
 
+  @Test
+  public void testPreadWithStripeCache() throws Exception {
+    final int numBlocks = 2;
+    DFSTestUtil.createStripedFile(cluster, filePath, null, numBlocks,
+        stripesPerBlock, false, ecPolicy);
+    LocatedBlocks lbs = fs.getClient().namenode.getBlockLocations(
+        filePath.toString(), 0, blockGroupSize * numBlocks);
+    int fileLen = blockGroupSize * numBlocks;
+    int stripeLen = cellSize * dataBlocks;
+
+    byte[] expected = new byte[fileLen];
+    for (int bgIdx = 0; bgIdx < numBlocks; bgIdx++) {
+      LocatedStripedBlock bg = (LocatedStripedBlock) (lbs.get(bgIdx));
+      for (int i = 0; i < dataBlocks; i++) {
+        Block blk = new Block(bg.getBlock().getBlockId() + i,
+            stripesPerBlock * cellSize,
+            bg.getBlock().getGenerationStamp());
+        cluster.injectBlocks(i, Arrays.asList(blk),
+            bg.getBlock().getBlockPoolId());
+      }
+      for (int i = 0; i < stripesPerBlock; i++) {
+        for (int j = 0; j < dataBlocks; j++) {
+          for (int k = 0; k < cellSize; k++) {
+            int posInBlk = i * cellSize + k;
+            int posInFile = i * stripeLen + j * cellSize + k;
+            expected[bgIdx * blockGroupSize + posInFile] =
+                SimulatedFSDataset.simulatedByte(
+                    new Block(bg.getBlock().getBlockId() + j), posInBlk);
+          }
+        }
+      }
+    }
+
+    Configuration clientConf = new Configuration(conf);
+    // Room for 3 stripes.
+    clientConf.setLong(HdfsClientConfigKeys.StripedRead.CACHE_SIZE_KEY,
+        3L * stripeLen);
+    try (DFSClient client = new DFSClient(
+        cluster.getNameNode().getNameNodeAddress(), clientConf);
+         DFSStripedInputStream in = new DFSStripedInputStream(client,
+             filePath.toString(), false, ecPolicy, null)) {
+      StripeCache cache = in.getStripeCache();
+      assertEquals(3, cache.getCapacity());
+
+      // Small preads within the first stripe read it once.
+      byte[] buf = new byte[100];
+      for (int offset : new int[] {0, 1, cellSize - 50, stripeLen - 100}) {
+        assertEquals(buf.length, in.read(offset, buf, 0, buf.length));
+        assertArrayEquals(
+            Arrays.copyOfRange(expected, offset, offset + buf.length), buf);
+      }
+      assertEquals(1, cache.size());
+      assertEquals(1, cache.getMisses());
+      assertEquals(3, cache.getHits());
+
+      // A pread across the first 2 stripes only reads the second one.
+      buf = new byte[stripeLen];
+      assertEquals(buf.length, in.read(stripeLen / 2, buf, 0, buf.length));
+      assertArrayEquals(Arrays.copyOfRange(expected, stripeLen / 2,
+          stripeLen / 2 + buf.length), buf);
+      assertEquals(2, cache.size());
+      assertEquals(2, cache.getMisses());
+
+      // The stripes of the second block group are read together and evict
+      // the least recently used one.
+      buf = new byte[fileLen];
+      assertEquals(fileLen, in.read(0, buf, 0, fileLen));
+      assertArrayEquals(expected, buf);
+      assertEquals(3, cache.size());
+      assertEquals(4, cache.getMisses());
+
+      // Small preads all over the file.
+      Random random = new Random();
+      buf = new byte[1000];
+      for (int i = 0; i < 100; i++) {
+        int offset = random.nextInt(fileLen - buf.length);
+        assertEquals(buf.length, in.read(offset, buf, 0, buf.length));
+        assertArrayEquals(
+            Arrays.copyOfRange(expected, offset, offset + buf.length), buf);
+      }
+      assertTrue(cache.size() <= 3);
+    }
+  }
+
   @Test
   public void testPreadWithDNFailure() throws Exception {
     final int numBlocks = 4;
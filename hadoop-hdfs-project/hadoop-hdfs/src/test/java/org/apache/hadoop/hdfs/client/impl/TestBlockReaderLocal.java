@@ -25,6 +25,7 @@
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
 
@@ -126,6 +127,9 @@ public void setup(File blockFile, boolean usingChecksums)
         throws IOException {
       // default: no-op
     }
+    public void setReplica(ShortCircuitReplica replica) {
+      // default: no-op
+    }
     public void doTest(BlockReaderLocal reader, byte original[])
         throws IOException {
       // default: no-op
@@ -201,6 +205,7 @@ public void runBlockReaderLocalTest(BlockReaderLocalTest test,
           new ShortCircuitReplica(key, dataIn, metaIn, shortCircuitCache,
               Time.now(), shm.allocAndRegisterSlot(
                   ExtendedBlockId.fromExtendedBlock(block)));
+      test.setReplica(replica);
       blockReaderLocal = new BlockReaderLocal.Builder(
               new DfsClientConf.ShortCircuitConf(conf)).
           setFilename(TEST_PATH.getName()).
@@ -380,6 +385,74 @@ public void testBlockReaderLocalByteBufferReadsNoChecksumNoReadahead()
         false, 0);
   }
 
+  /**
+   * Test reads of a replica cached by the DataNode, which are served from a
+   * memory map of the replica when checksums are skipped.
+   */
+  private static class TestBlockReaderLocalCachedReplicaReads
+      extends BlockReaderLocalTest {
+    private final boolean cachedReadsEnabled;
+    private ShortCircuitReplica replica;
+
+    TestBlockReaderLocalCachedReplicaReads(boolean cachedReadsEnabled) {
+      this.cachedReadsEnabled = cachedReadsEnabled;
+    }
+
+    @Override
+    public void setConfiguration(HdfsConfiguration conf) {
+      conf.setBoolean(HdfsClientConfigKeys.Mmap.CACHED_READS_ENABLED_KEY,
+          cachedReadsEnabled);
+    }
+
+    @Override
+    public void setReplica(ShortCircuitReplica replica) {
+      this.replica = replica;
+      // This is what the DataNode does once it has cached the replica.
+      replica.getSlot().makeAnchorable();
+    }
+
+    @Override
+    public void doTest(BlockReaderLocal reader, byte original[])
+        throws IOException {
+      byte arr[] = new byte[TEST_LENGTH];
+      reader.readFully(arr, 0, 512);
+      assertArrayRegionsEqual(original, 0, arr, 0, 512);
+      ByteBuffer buf = ByteBuffer.wrap(arr);
+      readFully(reader, buf, 512, 1000);
+      assertArrayRegionsEqual(original, 512, arr, 512, 1000);
+      reader.skip(100); // skip from offset 1512 to offset 1612
+      reader.readFully(arr, 1612, TEST_LENGTH - 1612);
+      assertArrayRegionsEqual(original, 1612, arr, 1612,
+          TEST_LENGTH - 1612);
+      Assert.assertEquals(-1, reader.read(arr, 0, 1));
+      buf.clear();
+      Assert.assertEquals(-1, reader.read(buf));
+      Assert.assertEquals(cachedReadsEnabled, replica.hasMmap());
+    }
+  }
+
+  @Test
+  public void testBlockReaderLocalCachedReplicaReads() throws IOException {
+    runBlockReaderLocalTest(
+        new TestBlockReaderLocalCachedReplicaReads(true), false,
+        HdfsClientConfigKeys.DFS_DATANODE_READAHEAD_BYTES_DEFAULT);
+  }
+
+  @Test
+  public void testBlockReaderLocalCachedReplicaReadsNoReadahead()
+      throws IOException {
+    runBlockReaderLocalTest(
+        new TestBlockReaderLocalCachedReplicaReads(true), false, 0);
+  }
+
+  @Test
+  public void testBlockReaderLocalCachedReplicaReadsDisabled()
+      throws IOException {
+    runBlockReaderLocalTest(
+        new TestBlockReaderLocalCachedReplicaReads(false), false,
+        HdfsClientConfigKeys.DFS_DATANODE_READAHEAD_BYTES_DEFAULT);
+  }
+
   /**
    * Test reads that bypass the bounce buffer (because they are aligned
    * and bigger than the readahead).
@@ -789,6 +862,63 @@ private void testStatistics(boolean isShortCircuit) throws Exception {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testShortCircuitReadOfErasureCodedFile() throws IOException {
+    Assume.assumeTrue(DomainSocket.getLoadingFailureReason() == null);
+    HdfsConfiguration conf = new HdfsConfiguration();
+    TemporarySocketDirectory sockDir = new TemporarySocketDirectory();
+    conf.set(DFSConfigKeys.DFS_DOMAIN_SOCKET_PATH_KEY,
+        new File(sockDir.getDir(), "TestScrErasureCoded.%d.sock").
+            getAbsolutePath());
+    conf.setBoolean(HdfsClientConfigKeys.Read.ShortCircuit.KEY, true);
+    DomainSocket.disableBindPathValidation();
+    // Every internal block is on a local DataNode, so none of them should
+    // be read over TCP.
+    DFSInputStream.tcpReadsDisabledForTesting = true;
+
+    final ErasureCodingPolicy ecPolicy =
+        StripedFileTestUtil.getDefaultECPolicy();
+    final int numDataNodes =
+        ecPolicy.getNumDataUnits() + ecPolicy.getNumParityUnits();
+    final int length = ecPolicy.getCellSize() * (numDataNodes + 1) + 123;
+    final long randomSeed = 4567L;
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(numDataNodes).build()) {
+      cluster.waitActive();
+      DistributedFileSystem fs = cluster.getFileSystem();
+      fs.enableErasureCodingPolicy(ecPolicy.getName());
+      Path ecDir = new Path("/ec");
+      fs.mkdirs(ecDir);
+      fs.setErasureCodingPolicy(ecDir, ecPolicy.getName());
+      Path ecFile = new Path(ecDir, "file");
+      DFSTestUtil.createFile(fs, ecFile, length, (short) 1, randomSeed);
+      byte[] expected =
+          DFSTestUtil.calculateFileContentsFromSeed(randomSeed, length);
+
+      byte[] buf = new byte[length];
+      try (HdfsDataInputStream in = (HdfsDataInputStream) fs.open(ecFile)) {
+        IOUtils.readFully(in, buf, 0, length);
+        Assert.assertArrayEquals(expected, buf);
+        ReadStatistics stats = in.getReadStatistics();
+        Assert.assertEquals(BlockType.STRIPED, stats.getBlockType());
+        Assert.assertEquals(length, stats.getTotalShortCircuitBytesRead());
+      }
+
+      // Positional reads use short-circuit reads as well.
+      try (HdfsDataInputStream in = (HdfsDataInputStream) fs.open(ecFile)) {
+        in.readFully(ecPolicy.getCellSize() - 10, buf, 0, 100);
+        Assert.assertArrayEquals(Arrays.copyOfRange(expected,
+            ecPolicy.getCellSize() - 10, ecPolicy.getCellSize() + 90),
+            Arrays.copyOf(buf, 100));
+        Assert.assertEquals(100,
+            in.getReadStatistics().getTotalShortCircuitBytesRead());
+      }
+    } finally {
+      DFSInputStream.tcpReadsDisabledForTesting = false;
+      sockDir.close();
+    }
+  }
+
   @Test(timeout = 60000)
   public void testStatisticsForErasureCodingRead() throws IOException {
     HdfsConfiguration conf = new HdfsConfiguration();
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.balancer;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.protocol.Block;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.hdfs.security.token.block.BlockTokenIdentifier;
+import org.apache.hadoop.hdfs.server.balancer.Dispatcher.DBlock;
+import org.apache.hadoop.hdfs.server.balancer.Dispatcher.DDatanode;
+import org.apache.hadoop.hdfs.server.balancer.Dispatcher.DDatanode.StorageGroup;
+import org.apache.hadoop.hdfs.server.balancer.Dispatcher.PendingMove;
+import org.apache.hadoop.hdfs.server.balancer.Dispatcher.Source;
+import org.apache.hadoop.security.token.Token;
+import org.apache.hadoop.util.Time;
+import org.junit.Test;
+
+/**
+ * Test the {@link Dispatcher} without a cluster.
+ */
+public class TestDispatcher {
+
+  /**
+   * The moves still running after the straggler wait are cancelled, and no
+   * move of the iteration is left running when the wait returns.
+   */
+  @Test(timeout = 60000)
+  public void testCancelStragglers() throws Exception {
+    // The target accepts the connections but never answers, like a datanode
+    // stuck in a slow move
+    try (ServerSocket targetSocket = new ServerSocket(0)) {
+      NameNodeConnector nnc = mock(NameNodeConnector.class);
+      KeyManager keyManager = mock(KeyManager.class);
+      when(nnc.getMovePlanner()).thenReturn(new MovePlanner());
+      when(nnc.getBlockpoolID()).thenReturn("BP-1");
+      when(nnc.getBytesMoved()).thenReturn(new AtomicLong());
+      when(nnc.getKeyManager()).thenReturn(keyManager);
+      when(keyManager.getAccessToken(any(ExtendedBlock.class),
+          any(StorageType[].class), any(String[].class)))
+          .thenReturn(new Token<BlockTokenIdentifier>());
+
+      Configuration conf = new HdfsConfiguration();
+      Dispatcher dispatcher = new Dispatcher(nnc,
+          Collections.<String>emptySet(), Collections.<String>emptySet(),
+          0, 10, 0, 5, 0, conf);
+
+      DDatanode sourceDn = dispatcher.newDatanode(
+          DFSTestUtil.getLocalDatanodeInfo(1));
+      Source source = sourceDn.addSource(StorageType.DISK, 1000, dispatcher);
+      DDatanode targetDn = dispatcher.newDatanode(
+          DFSTestUtil.getLocalDatanodeInfo(targetSocket.getLocalPort()));
+      StorageGroup target = targetDn.addTarget(StorageType.DISK, 1000);
+
+      DBlock block = new DBlock(new Block(1, 100, 1));
+      block.addLocation(source);
+      PendingMove move = source.addPendingMove(block, target);
+      assertNotNull(move);
+      dispatcher.executePendingMove(move);
+
+      long start = Time.monotonicNow();
+      assertTrue("The cancelled move is a failure",
+          dispatcher.waitForMoveCompletion(
+              Collections.singletonList(target), 100));
+      assertTrue(targetDn.isPendingQEmpty());
+      assertTrue(sourceDn.isPendingQEmpty());
+      // The move was stopped, not waited for until its socket timeout
+      assertTrue(Time.monotonicNow() - start < 30000);
+    }
+  }
+}
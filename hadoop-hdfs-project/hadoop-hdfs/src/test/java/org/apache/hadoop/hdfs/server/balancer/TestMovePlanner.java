@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.balancer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.junit.Test;
+
+/**
+ * Test the bookkeeping of the {@link MovePlanner}.
+ */
+public class TestMovePlanner {
+  private static final double DELTA = 1e-9;
+
+  private final DatanodeInfo dn1 =
+      DFSTestUtil.getDatanodeInfo("1.1.1.1", "host1", 9866);
+  private final DatanodeInfo dn2 =
+      DFSTestUtil.getDatanodeInfo("1.1.1.2", "host2", 9866);
+  private final DatanodeInfo dn3 =
+      DFSTestUtil.getDatanodeInfo("1.1.1.3", "host3", 9866);
+
+  @Test
+  public void testRates() {
+    MovePlanner planner = new MovePlanner();
+    // Nothing known yet
+    assertEquals(1, planner.getRate(dn1), DELTA);
+
+    planner.moveStarted(dn1, dn1, dn2, 1000);
+    planner.moveFinished(dn1, dn2, 1000, 10);
+    assertEquals(100, planner.getRate(dn1), DELTA);
+    assertEquals(100, planner.getRate(dn2), DELTA);
+    // Unknown datanodes get the average of the known ones
+    assertEquals(100, planner.getRate(dn3), DELTA);
+
+    // A slower move moves the average towards it
+    planner.moveStarted(dn1, dn1, dn3, 1000);
+    planner.moveFinished(dn1, dn3, 1000, 50);
+    assertTrue(planner.getRate(dn1) < 100);
+    assertTrue(planner.getRate(dn1) > 20);
+    assertEquals(20, planner.getRate(dn3), DELTA);
+    assertEquals(100, planner.getRate(dn2), DELTA);
+
+    // Failed moves don't change the rates
+    double rate = planner.getRate(dn1);
+    planner.moveStarted(dn1, dn1, dn2, 1000);
+    planner.moveFinished(dn1, dn2, 1000, -1);
+    assertEquals(rate, planner.getRate(dn1), DELTA);
+  }
+
+  @Test
+  public void testPlannedAndInFlightBytes() {
+    MovePlanner planner = new MovePlanner();
+    planner.moveStarted(dn3, dn3, dn3, 1000);
+    planner.moveFinished(dn3, dn3, 1000, 10);
+    assertEquals(100, planner.getRate(dn3), DELTA);
+
+    planner.addPlannedBytes(dn1, 1000);
+    planner.addPlannedBytes(dn2, 1000);
+    assertEquals(10, planner.getExpectedTime(dn1), DELTA);
+
+    // The source was dn1 but the replica is read from dn3
+    planner.moveStarted(dn1, dn3, dn2, 400);
+    assertEquals(6, planner.getExpectedTime(dn1), DELTA);
+    assertEquals(10, planner.getExpectedTime(dn2), DELTA);
+    assertEquals(400, planner.getInFlightBytes(dn3));
+    assertEquals(0, planner.getInFlightBytes(dn1));
+
+    planner.moveFinished(dn3, dn2, 400, 4);
+    assertEquals(0, planner.getInFlightBytes(dn3));
+    assertEquals(6, planner.getExpectedTime(dn2), DELTA);
+
+    planner.resetPlannedBytes();
+    assertEquals(0, planner.getExpectedTime(dn1), DELTA);
+    assertEquals(0, planner.getExpectedTime(dn2), DELTA);
+  }
+}
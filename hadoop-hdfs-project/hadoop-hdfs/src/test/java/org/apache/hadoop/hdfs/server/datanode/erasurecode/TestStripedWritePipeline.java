@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode.erasurecode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests the pipeline writing reconstructed stripes of a task.
+ */
+public class TestStripedWritePipeline {
+  private static final int UNIT = 1024;
+
+  @Rule
+  public Timeout timeout = new Timeout(60000);
+
+  private ExecutorService executor;
+
+  /**
+   * Records the stripes it is sent, optionally blocking on a latch.
+   */
+  private static class RecordingSender
+      implements StripedWritePipeline.StripeSender {
+    private final List<Integer> sent =
+        Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger released = new AtomicInteger();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile int failAt = -1;
+
+    @Override
+    public int send(StripedWritePipeline.Stripe stripe) throws IOException {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      int id = stripe.getBuffers()[0].getInt(0);
+      if (id == failAt) {
+        throw new IOException("Injected failure at stripe " + id);
+      }
+      sent.add(id);
+      return stripe.getTargets().length;
+    }
+
+    @Override
+    public void release(StripedWritePipeline.Stripe stripe) {
+      released.incrementAndGet();
+    }
+  }
+
+  @Before
+  public void setup() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static ByteBuffer[] stripe(int id, int size) {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(0, id);
+    return new ByteBuffer[] {buffer};
+  }
+
+  private StripedWritePipeline start(RecordingSender sender, int depth,
+      Semaphore budget) {
+    StripedWritePipeline pipeline =
+        new StripedWritePipeline(sender, depth, budget, UNIT);
+    pipeline.start(executor);
+    return pipeline;
+  }
+
+  @Test
+  public void testStripesWrittenInOrder() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    Semaphore budget = new Semaphore(1000);
+    StripedWritePipeline pipeline = start(sender, 3, budget);
+    for (int i = 0; i < 100; i++) {
+      pipeline.submit(new int[] {0}, stripe(i, UNIT));
+    }
+    pipeline.finish();
+
+    assertEquals(100, sender.sent.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) sender.sent.get(i));
+    }
+    assertEquals(100, sender.released.get());
+    assertEquals(0, pipeline.getInFlight());
+    assertEquals(1000, budget.availablePermits());
+  }
+
+  @Test
+  public void testBudgetBlocksSubmit() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    sender.gate = new CountDownLatch(1);
+    // Room for two stripes of 2 units.
+    Semaphore budget = new Semaphore(4);
+    final StripedWritePipeline pipeline = start(sender, 10, budget);
+    pipeline.submit(new int[] {0}, stripe(0, 2 * UNIT));
+    pipeline.submit(new int[] {0}, stripe(1, 2 * UNIT));
+    assertEquals(0, budget.availablePermits());
+
+    final CountDownLatch submitted = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        pipeline.submit(new int[] {0}, stripe(2, 2 * UNIT));
+        submitted.countDown();
+      } catch (IOException e) {
+        fail("Unexpected " + e);
+      }
+    });
+    assertTrue(!submitted.await(500, TimeUnit.MILLISECONDS));
+
+    sender.gate.countDown();
+    submitted.await();
+    pipeline.finish();
+    assertEquals(3, sender.sent.size());
+    assertEquals(4, budget.availablePermits());
+  }
+
+  @Test
+  public void testOverCommitWithoutStripesInFlight() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    // Held by other tasks.
+    Semaphore budget = new Semaphore(0);
+    StripedWritePipeline pipeline = start(sender, 2, budget);
+    for (int i = 0; i < 5; i++) {
+      pipeline.submit(new int[] {0}, stripe(i, UNIT));
+    }
+    pipeline.finish();
+    assertEquals(5, sender.sent.size());
+    assertEquals(0, budget.availablePermits());
+  }
+
+  @Test
+  public void testSendFailureIsPropagated() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    sender.failAt = 3;
+    Semaphore budget = new Semaphore(1000);
+    StripedWritePipeline pipeline = start(sender, 2, budget);
+    try {
+      for (int i = 0; i < 100; i++) {
+        pipeline.submit(new int[] {0}, stripe(i, UNIT));
+      }
+      pipeline.finish();
+      fail("Expected the injected failure");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("Injected failure", e);
+    } finally {
+      pipeline.abort();
+    }
+    GenericTestUtils.waitFor(() -> pipeline.getInFlight() == 0, 10, 10000);
+    assertEquals(3, sender.sent.size());
+    assertEquals(1000, budget.availablePermits());
+  }
+
+  @Test
+  public void testAllTargetsFailed() throws Exception {
+    StripedWritePipeline.StripeSender sender =
+        new StripedWritePipeline.StripeSender() {
+          @Override
+          public int send(StripedWritePipeline.Stripe stripe) {
+            return 0;
+          }
+
+          @Override
+          public void release(StripedWritePipeline.Stripe stripe) {
+          }
+        };
+    StripedWritePipeline pipeline =
+        new StripedWritePipeline(sender, 2, new Semaphore(10), UNIT);
+    pipeline.start(executor);
+    pipeline.submit(new int[] {0}, stripe(0, UNIT));
+    try {
+      pipeline.finish();
+      fail("Expected the transfer to fail");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("all targets", e);
+    }
+  }
+
+  @Test
+  public void testAbortReleasesQueuedStripes() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    sender.gate = new CountDownLatch(1);
+    Semaphore budget = new Semaphore(1000);
+    final StripedWritePipeline pipeline = start(sender, 5, budget);
+    for (int i = 0; i < 5; i++) {
+      pipeline.submit(new int[] {0}, stripe(i, UNIT));
+    }
+    pipeline.abort();
+    sender.gate.countDown();
+
+    GenericTestUtils.waitFor(() -> pipeline.getInFlight() == 0, 10, 10000);
+    assertEquals(5, sender.released.get());
+    assertTrue(sender.sent.size() <= 1);
+    assertEquals(1000, budget.availablePermits());
+    try {
+      pipeline.submit(new int[] {0}, stripe(5, UNIT));
+      fail("Expected the aborted pipeline to reject stripes");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("aborted", e);
+    }
+    assertEquals(6, sender.released.get());
+  }
+
+  @Test
+  public void testCloseAfterAbortWaitsForWriter() throws Exception {
+    final AtomicInteger closed = new AtomicInteger();
+    final CountDownLatch sending = new CountDownLatch(1);
+    RecordingSender sender = new RecordingSender() {
+      @Override
+      public int send(StripedWritePipeline.Stripe stripe) throws IOException {
+        sending.countDown();
+        int targets = super.send(stripe);
+        // The streams and buffers must not be closed while sending
+        assertEquals(0, closed.get());
+        return targets;
+      }
+    };
+    sender.gate = new CountDownLatch(1);
+    Semaphore budget = new Semaphore(1000);
+    final StripedWritePipeline pipeline = start(sender, 5, budget);
+    for (int i = 0; i < 3; i++) {
+      pipeline.submit(new int[] {0}, stripe(i, UNIT));
+    }
+    sending.await();
+    pipeline.abort();
+    pipeline.closeWhenWriterStopped(closed::incrementAndGet);
+    assertTrue(!pipeline.isWriterStopped());
+    assertEquals(0, closed.get());
+
+    sender.gate.countDown();
+    GenericTestUtils.waitFor(() -> closed.get() == 1, 10, 10000);
+    assertTrue(pipeline.isWriterStopped());
+    assertEquals(1, sender.sent.size());
+    assertEquals(3, sender.released.get());
+    assertEquals(1000, budget.availablePermits());
+  }
+
+  @Test
+  public void testCloseAfterFinish() throws Exception {
+    RecordingSender sender = new RecordingSender();
+    StripedWritePipeline pipeline = start(sender, 2, new Semaphore(1000));
+    pipeline.submit(new int[] {0}, stripe(0, UNIT));
+    pipeline.finish();
+    GenericTestUtils.waitFor(pipeline::isWriterStopped, 10, 10000);
+
+    final AtomicInteger closed = new AtomicInteger();
+    pipeline.closeWhenWriterStopped(closed::incrementAndGet);
+    assertEquals(1, closed.get());
+  }
+}
@@ -29,6 +29,7 @@
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileSystemTestHelper;
 import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.HardLink;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.BlockReader;
@@ -52,6 +53,7 @@
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.hdfs.server.datanode.DataNodeTestUtils;
 import org.apache.hadoop.hdfs.server.datanode.DataStorage;
+import org.apache.hadoop.hdfs.server.datanode.FileIoProvider;
 import org.apache.hadoop.hdfs.server.datanode.FinalizedReplica;
 import org.apache.hadoop.hdfs.server.datanode.ReplicaHandler;
 import org.apache.hadoop.hdfs.server.datanode.ReplicaInfo;
@@ -61,6 +63,7 @@
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsDatasetSpi.FsVolumeReferences;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.protocol.NamespaceInfo;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.MultipleIOException;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.test.LambdaTestUtils;
@@ -82,12 +85,14 @@
 import java.util.concurrent.CountDownLatch;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DN_CACHED_DFSUSED_CHECK_INTERVAL_MS;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DATANODE_SCAN_PERIOD_HOURS_KEY;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -105,6 +110,7 @@
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.slf4j.Logger;
@@ -832,6 +838,70 @@ public void testMoveBlockSuccess() {
     }
   }
 
+  @Test(timeout = 30000)
+  public void testMoveBlockWithHardLink() throws Exception {
+    MiniDFSCluster cluster = null;
+    try {
+      cluster = new MiniDFSCluster.Builder(conf)
+          .numDataNodes(1)
+          .storageTypes(new StorageType[]{StorageType.DISK, StorageType.DISK})
+          .storagesPerDatanode(2)
+          .build();
+      FileSystem fs = cluster.getFileSystem();
+      DataNode dataNode = cluster.getDataNodes().get(0);
+
+      Path filePath = new Path("testData");
+      DFSTestUtil.createFile(fs, filePath, 1024, (short) 1, 0);
+      ExtendedBlock block = DFSTestUtil.getFirstBlock(fs, filePath);
+
+      FsDatasetImpl fsDataSetImpl = (FsDatasetImpl) dataNode.getFSDataset();
+      FsVolumeImpl srcVolume = (FsVolumeImpl) fsDataSetImpl.getVolume(block);
+      FsVolumeSpi destVolume = getDestinationVolume(block, fsDataSetImpl);
+      // The volumes of MiniDFSCluster share the filesystem of the test dir
+      assertTrue(srcVolume.isOnSameFileSystem(destVolume));
+
+      // The temporary replica shares the data of the source replica
+      ReplicaInfo newReplicaInfo = createNewReplicaObj(block, fsDataSetImpl);
+      File newBlockFile = new File(newReplicaInfo.getBlockURI());
+      assertEquals(2, HardLink.getLinkCount(newBlockFile));
+      newReplicaInfo.deleteBlockData();
+      newReplicaInfo.deleteMetadata();
+
+      // Move it for real, throttled in case it has to be copied
+      ReplicaInfo oldReplicaInfo = fsDataSetImpl.moveBlockAcrossVolumes(block,
+          destVolume);
+      assertFalse(oldReplicaInfo.blockDataExists());
+      ReplicaInfo movedReplicaInfo = fsDataSetImpl.getReplicaInfo(block);
+      assertEquals(destVolume.getStorageID(),
+          movedReplicaInfo.getVolume().getStorageID());
+      assertEquals(1, HardLink.getLinkCount(
+          new File(movedReplicaInfo.getBlockURI())));
+      assertEquals(1024, DFSTestUtil.readFileAsBytes(fs, filePath).length);
+    } finally {
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testTransferFileThrottled() throws Exception {
+    File dir = new File(BASE_DIR, "transferFile");
+    assertTrue(dir.mkdirs() || dir.isDirectory());
+    File src = new File(dir, "src");
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+    new Random(0).nextBytes(data);
+    FileUtils.writeByteArrayToFile(src, data);
+
+    File dst = new File(new File(dir, "subdir"), "dst");
+    DataTransferThrottler throttler =
+        Mockito.spy(new DataTransferThrottler(Long.MAX_VALUE));
+    new FileIoProvider(conf, null).transferFile(null, src, dst, throttler);
+    assertArrayEquals(data, FileUtils.readFileToByteArray(dst));
+    // Throttled chunk by chunk
+    verify(throttler, Mockito.times(4)).throttle(Mockito.anyLong());
+  }
+
   /**
    * Create a new temporary replica of replicaInfo object in another volume.
    *
@@ -18,6 +18,9 @@
 package org.apache.hadoop.hdfs.server.namenode;
 
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_BLOCK_SIZE_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_ENABLED_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_CACHEREPORT_INTERVAL_MSEC_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DATANODE_MAX_LOCKED_MEMORY_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_HEARTBEAT_INTERVAL_KEY;
@@ -1556,4 +1559,42 @@ public void testNoLookupsWhenNotUsed() throws Exception {
     cm.setCachedLocations(locations);
     Mockito.verifyZeroInteractions(locations);
   }
+
+  @Test(timeout=120000)
+  public void testHotFilesCaching() throws Exception {
+    // Restart caching the files opened at least 4 times automatically, up to
+    // the size of one 2 blocks file
+    cluster.shutdown();
+    conf.setBoolean(DFS_NAMENODE_CACHING_AUTO_ENABLED_KEY, true);
+    conf.setLong(DFS_NAMENODE_CACHING_AUTO_MIN_ACCESSES_KEY, 4);
+    conf.setLong(DFS_NAMENODE_CACHING_AUTO_LIMIT_KEY, 2 * BLOCK_SIZE);
+    cluster =
+        new MiniDFSCluster.Builder(conf).numDataNodes(NUM_DATANODES).build();
+    cluster.waitActive();
+    dfs = cluster.getFileSystem();
+    proto = cluster.getNameNodeRpc();
+    namenode = cluster.getNameNode();
+
+    final Path hot = new Path("/hot");
+    final Path hotTooBig = new Path("/hotTooBig");
+    final Path cold = new Path("/cold");
+    FileSystemTestHelper.createFile(dfs, hot, 2, (int)BLOCK_SIZE, (short)3,
+        false);
+    FileSystemTestHelper.createFile(dfs, hotTooBig, 4, (int)BLOCK_SIZE,
+        (short)3, false);
+    FileSystemTestHelper.createFile(dfs, cold, 2, (int)BLOCK_SIZE, (short)3,
+        false);
+    // The counts are halved at each rescan, so the hot file stays hot for
+    // several rescans
+    for (int i = 0; i < 256; i++) {
+      dfs.open(hot).close();
+      dfs.open(hotTooBig).close();
+    }
+    dfs.open(cold).close();
+
+    // A single replica of the blocks of the hot file which fits is cached
+    waitForCachedBlocks(namenode, 2, 2, "testHotFilesCaching:hot");
+    // and uncached once the file is no longer opened
+    waitForCachedBlocks(namenode, 0, 0, "testHotFilesCaching:cooled");
+  }
 }
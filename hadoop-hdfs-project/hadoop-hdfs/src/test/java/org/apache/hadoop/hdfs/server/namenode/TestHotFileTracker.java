@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link HotFileTracker}.
+ */
+public class TestHotFileTracker {
+
+  private static void open(HotFileTracker tracker, long inodeId, int times) {
+    for (int i = 0; i < times; i++) {
+      tracker.recordAccess(inodeId);
+    }
+  }
+
+  @Test
+  public void testHottestFirst() {
+    HotFileTracker tracker = new HotFileTracker(4, 100, 100);
+    open(tracker, 1, 5);
+    open(tracker, 2, 10);
+    open(tracker, 3, 3);
+    assertEquals(Arrays.asList(2L, 1L), tracker.rollHotFiles());
+    assertEquals(3, tracker.getNumTrackedFiles());
+  }
+
+  @Test
+  public void testDecay() {
+    HotFileTracker tracker = new HotFileTracker(4, 100, 100);
+    open(tracker, 1, 8);
+    assertEquals(Arrays.asList(1L), tracker.rollHotFiles());
+    // 8 -> 4 -> 2 -> 1 -> 0, then the file is forgotten.
+    assertEquals(Arrays.asList(1L), tracker.rollHotFiles());
+    assertTrue(tracker.rollHotFiles().isEmpty());
+    tracker.rollHotFiles();
+    assertEquals(1, tracker.getNumTrackedFiles());
+    tracker.rollHotFiles();
+    assertEquals(0, tracker.getNumTrackedFiles());
+
+    // A file opened steadily stays hot.
+    for (int i = 0; i < 5; i++) {
+      open(tracker, 2, 3);
+      if (i > 0) {
+        assertEquals(Arrays.asList(2L), tracker.rollHotFiles());
+      } else {
+        assertTrue(tracker.rollHotFiles().isEmpty());
+      }
+    }
+  }
+
+  @Test
+  public void testMaxTrackedFiles() {
+    HotFileTracker tracker = new HotFileTracker(1, 2, 100);
+    open(tracker, 1, 1);
+    open(tracker, 2, 1);
+    open(tracker, 3, 1);
+    assertEquals(2, tracker.getNumTrackedFiles());
+    List<Long> hotFiles = tracker.rollHotFiles();
+    Collections.sort(hotFiles);
+    assertEquals(Arrays.asList(1L, 2L), hotFiles);
+    tracker.clear();
+    assertEquals(0, tracker.getNumTrackedFiles());
+    open(tracker, 3, 1);
+    assertEquals(Arrays.asList(3L), tracker.rollHotFiles());
+  }
+
+  @Test
+  public void testMaxHotFiles() {
+    HotFileTracker tracker = new HotFileTracker(1, 100, 2);
+    open(tracker, 1, 3);
+    open(tracker, 2, 8);
+    open(tracker, 3, 4);
+    assertEquals(Arrays.asList(2L, 3L), tracker.rollHotFiles());
+    // The count of the file left out is decayed too, and it is forgotten.
+    assertEquals(Arrays.asList(2L, 3L), tracker.rollHotFiles());
+    assertEquals(Arrays.asList(2L, 3L), tracker.rollHotFiles());
+    assertEquals(2, tracker.getNumTrackedFiles());
+  }
+}
@@ -100,6 +100,7 @@
 import org.apache.hadoop.hdfs.web.resources.NoRedirectParam;
 import org.apache.hadoop.hdfs.web.resources.OffsetParam;
 import org.apache.hadoop.hdfs.web.resources.Param;
+import org.apache.hadoop.http.ByteRange;
 import org.apache.hadoop.io.retry.RetryPolicy;
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction;
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction.RetryDecision;
@@ -988,6 +989,63 @@ public void testWebHdfsOffsetAndLength() throws Exception{
     }
   }
 
+  @Test
+  public void testWebHdfsRange() throws Exception {
+    MiniDFSCluster cluster = null;
+    final Configuration conf = WebHdfsTestUtil.createConf();
+    final String PATH = "/foo";
+    byte[] CONTENTS = new byte[1024];
+    RANDOM.nextBytes(CONTENTS);
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+      final WebHdfsFileSystem fs =
+          WebHdfsTestUtil.getWebHdfsFileSystem(conf, WebHdfsConstants.WEBHDFS_SCHEME);
+      try (OutputStream os = fs.create(new Path(PATH))) {
+        os.write(CONTENTS);
+      }
+      InetSocketAddress addr = cluster.getNameNode().getHttpAddress();
+      URL url = new URL("http", addr.getHostString(), addr.getPort(),
+          WebHdfsFileSystem.PATH_PREFIX + PATH + "?op=OPEN");
+
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setInstanceFollowRedirects(true);
+      conn.setRequestProperty(ByteRange.RANGE, "bytes=100-199");
+      Assert.assertEquals(HttpURLConnection.HTTP_PARTIAL,
+          conn.getResponseCode());
+      Assert.assertEquals("bytes 100-199/1024",
+          conn.getHeaderField(ByteRange.CONTENT_RANGE));
+      Assert.assertEquals(100, conn.getContentLength());
+      byte[] realContents = new byte[100];
+      IOUtils.readFully(conn.getInputStream(), realContents);
+      Assert.assertArrayEquals(
+          Arrays.copyOfRange(CONTENTS, 100, 200), realContents);
+
+      conn = (HttpURLConnection) url.openConnection();
+      conn.setInstanceFollowRedirects(true);
+      conn.setRequestProperty(ByteRange.RANGE, "bytes=2000-");
+      Assert.assertEquals(416, conn.getResponseCode());
+      Assert.assertEquals("bytes */1024",
+          conn.getHeaderField(ByteRange.CONTENT_RANGE));
+
+      conn = (HttpURLConnection) url.openConnection();
+      conn.setInstanceFollowRedirects(true);
+      conn.setRequestProperty(ByteRange.RANGE, "bytes=0-9,-10");
+      Assert.assertEquals(HttpURLConnection.HTTP_PARTIAL,
+          conn.getResponseCode());
+      Assert.assertTrue(conn.getContentType().startsWith(
+          "multipart/byteranges; boundary="));
+      byte[] multipart = new byte[conn.getContentLength()];
+      IOUtils.readFully(conn.getInputStream(), multipart);
+      String body = new String(multipart, StandardCharsets.ISO_8859_1);
+      Assert.assertTrue(body.contains("Content-Range: bytes 0-9/1024"));
+      Assert.assertTrue(body.contains("Content-Range: bytes 1014-1023/1024"));
+    } finally {
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+  }
+
   @Test
   public void testContentSummary() throws Exception {
     MiniDFSCluster cluster = null;